@@ -0,0 +1,94 @@
+package com.gk.shortlink;
+
+import com.gk.shortlink.cluster.ClusterRouter;
+import com.gk.shortlink.config.ShortLinkProperties;
+import com.gk.shortlink.config.StorageConfiguration;
+import com.gk.shortlink.generator.BlockSequenceCodeGenerator;
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import com.gk.shortlink.persistence.MappingJournal;
+import com.gk.shortlink.service.UrlShortenerService;
+import com.gk.shortlink.store.CodeBloomFilter;
+import com.gk.shortlink.store.ColdMappingStore;
+import com.gk.shortlink.store.LinkStore;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared setup for benchmarks that need a populated service
+ */
+public final class BenchmarkFixtures {
+
+    public static final int CODE_LENGTH = 6;
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Method to create a service whose store is filled to its capacity with {@link #url(long)} URLs
+     *
+     * @param storeSize capacity of the store and number of mappings created
+     * @param codes     receives the code of every created mapping, in URL order
+     * @return populated service without a journal
+     */
+    public static UrlShortenerService populatedService(int storeSize, List<String> codes) {
+        return populatedService(storeSize, codes, ShortLinkMetrics.disabled());
+    }
+
+    /**
+     * Method to create a populated service that records into the given metrics
+     *
+     * @see #populatedService(int, List)
+     */
+    public static UrlShortenerService populatedService(int storeSize, List<String> codes, ShortLinkMetrics metrics) {
+        ShortLinkProperties properties = new ShortLinkProperties("short.ly", storeSize, CODE_LENGTH);
+        UrlShortenerService service = service(properties, metrics, null);
+        List<String> created = service.shortenAll(Flux.range(0, storeSize).map(BenchmarkFixtures::url))
+            .collectList()
+            .block();
+        codes.addAll(created);
+        return service;
+    }
+
+    /**
+     * Method to create an empty service without a journal, with the storage beans {@link StorageConfiguration}
+     * would create for the given properties
+     *
+     * @param properties service settings
+     * @param metrics    metrics to record into
+     * @param linkStore  system of record, or null to keep mappings in memory only
+     * @return service issuing codes of {@link #CODE_LENGTH} characters from a fixed seed
+     */
+    public static UrlShortenerService service(ShortLinkProperties properties, ShortLinkMetrics metrics, LinkStore linkStore) {
+        StorageConfiguration storage = new StorageConfiguration();
+        ColdMappingStore coldStore = properties.coldTier().enabled() ? storage.coldMappingStore(properties) : null;
+        CodeBloomFilter codeFilter = properties.codeFilter().enabled() ? storage.codeBloomFilter(properties) : null;
+        return new UrlShortenerService(properties, storage.compactMappingStore(properties, coldStore), coldStore, codeFilter,
+            new BlockSequenceCodeGenerator(CODE_LENGTH, 1024, 42L), MappingJournal.disabled(), metrics,
+            ClusterRouter.standalone(), linkStore, null);
+    }
+
+    /**
+     * Method to pick codes of the configured length that are not mapped by the service
+     *
+     * @param service service to probe
+     * @param count   number of codes wanted
+     * @return unmapped codes
+     */
+    public static List<String> unmappedCodes(UrlShortenerService service, int count) {
+        BlockSequenceCodeGenerator generator = new BlockSequenceCodeGenerator(CODE_LENGTH, 1024, 4242L);
+        List<String> codes = new ArrayList<>(count);
+        while (codes.size() < count) {
+            String code = generator.generate();
+            if (service.getOriginalUrl(code).block() == null) {
+                codes.add(code);
+            }
+        }
+        return codes;
+    }
+
+    public static String url(long i) {
+        return "https://www.example.com/articles/" + i + "/a-reasonably-long-slug?utm_source=newsletter";
+    }
+}
@@ -0,0 +1,67 @@
+package com.gk.shortlink.controller;
+
+import com.gk.shortlink.BenchmarkFixtures;
+import com.gk.shortlink.analytics.ClickAnalytics;
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import com.gk.shortlink.service.UrlShortenerService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redirect throughput of the fast path with click analytics on and off. Run it at several thread counts:
+ * the difference is the cost of appending to the ring buffers, including contention between threads.
+ * The dropped click count printed on teardown shows whether the drainer kept up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClickAnalyticsBenchmark {
+
+    private static final int STORE_SIZE = 100_000;
+    private static final WebFilterChain UNREACHABLE = exchange -> Mono.error(new IllegalStateException("Not a redirect"));
+
+    @Param({"false", "true"})
+    public boolean analyticsEnabled;
+
+    private String[] codes;
+    private ClickAnalytics analytics;
+    private ShortCodeRedirectFilter filter;
+
+    @Setup
+    public void setUp() {
+        List<String> created = new ArrayList<>(STORE_SIZE);
+        UrlShortenerService service = BenchmarkFixtures.populatedService(STORE_SIZE, created);
+        codes = created.toArray(String[]::new);
+        analytics = analyticsEnabled
+            ? new ClickAnalytics(Runtime.getRuntime().availableProcessors(), 8192, 1000, Duration.ofMinutes(1))
+            : ClickAnalytics.disabled();
+        filter = new ShortCodeRedirectFilter(service, ShortLinkMetrics.disabled(), analytics, BenchmarkFixtures.CODE_LENGTH);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%nclicks recorded %d, dropped %d%n", analytics.recordedCount(), analytics.droppedCount());
+        analytics.close();
+    }
+
+    @Benchmark
+    public HttpStatusCode redirect() {
+        String code = codes[ThreadLocalRandom.current().nextInt(STORE_SIZE)];
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/" + code));
+        filter.filter(exchange, UNREACHABLE).block();
+        return exchange.getResponse().getStatusCode();
+    }
+}
@@ -0,0 +1,84 @@
+package com.gk.shortlink.controller;
+
+import com.gk.shortlink.dto.ErrorResponse;
+import com.gk.shortlink.dto.ShortenResponse;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response body encoding with Jackson, as WebFlux does by default, against {@link ShortLinkJsonEncoder}, both
+ * into pooled Netty buffers as on the server. The error benchmarks include building the body, and
+ * {@link #jacksonErrorMap()} the map and {@link LocalDateTime} error bodies were built from before.
+ * Run with the GC profiler to compare allocation per body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonEncodingBenchmark {
+
+    private static final ResolvableType SHORTEN_RESPONSE = ResolvableType.forClass(ShortenResponse.class);
+    private static final ResolvableType ERROR_RESPONSE = ResolvableType.forClass(ErrorResponse.class);
+    private static final ResolvableType MAP = ResolvableType.forClass(Map.class);
+
+    private final DataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+    private final Jackson2JsonEncoder jackson = new Jackson2JsonEncoder(Jackson2ObjectMapperBuilder.json().build());
+    private final ShortLinkJsonEncoder encoder = new ShortLinkJsonEncoder();
+    private final ShortenResponse shortenResponse = new ShortenResponse(
+        "https://www.example.com/articles/2026/10/performance-engineering?utm_source=newsletter&utm_medium=email",
+        "http://short.ly/a1B2c3", "a1B2c3");
+
+    @Benchmark
+    public int jacksonShortenResponse() {
+        return release(jackson.encodeValue(shortenResponse, bufferFactory, SHORTEN_RESPONSE, MediaType.APPLICATION_JSON, null));
+    }
+
+    @Benchmark
+    public int templateShortenResponse() {
+        return release(encoder.encodeValue(shortenResponse, bufferFactory, SHORTEN_RESPONSE, MediaType.APPLICATION_JSON, null));
+    }
+
+    @Benchmark
+    public int jacksonErrorMap() {
+        Map<String, Object> body = new HashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.NOT_FOUND.value());
+        body.put("error", HttpStatus.NOT_FOUND.getReasonPhrase());
+        body.put("message", "Short code not found: a1B2c3");
+        return release(jackson.encodeValue(body, bufferFactory, MAP, MediaType.APPLICATION_JSON, null));
+    }
+
+    @Benchmark
+    public int jacksonErrorResponse() {
+        ErrorResponse body = ErrorResponse.of(HttpStatus.NOT_FOUND, "Short code not found: a1B2c3");
+        return release(jackson.encodeValue(body, bufferFactory, ERROR_RESPONSE, MediaType.APPLICATION_JSON, null));
+    }
+
+    @Benchmark
+    public int templateErrorResponse() {
+        ErrorResponse body = ErrorResponse.of(HttpStatus.NOT_FOUND, "Short code not found: a1B2c3");
+        return release(encoder.encodeValue(body, bufferFactory, ERROR_RESPONSE, MediaType.APPLICATION_JSON, null));
+    }
+
+    private static int release(DataBuffer buffer) {
+        int length = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return length;
+    }
+}
@@ -0,0 +1,124 @@
+package com.gk.shortlink.controller;
+
+import com.gk.shortlink.BenchmarkFixtures;
+import com.gk.shortlink.analytics.ClickAnalytics;
+import com.gk.shortlink.config.ShortLinkProperties;
+import com.gk.shortlink.exception.GlobalExceptionHandler;
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import com.gk.shortlink.service.UrlShortenerService;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.config.EnableWebFlux;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controller costs on top of the service lookup. The pipeline benchmarks dispatch mock requests through the
+ * same WebFlux handler chain the server uses (filters, handler mapping, argument resolution, result and
+ * exception handling), leaving out only the network and Netty's HTTP codec.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RedirectPipelineBenchmark {
+
+    private static final int MISS_CODES = 4096;
+
+    @Param({"10000", "1000000"})
+    public int storeSize;
+
+    private String[] codes;
+    private String[] missingCodes;
+    private ShortCodeRouteController routeController;
+    private UrlShortenerController urlShortenerController;
+    private MockServerWebExchange shortenExchange;
+    private AnnotationConfigApplicationContext context;
+    private HttpHandler httpHandler;
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableWebFlux
+    static class WebFluxBenchmarkConfiguration {
+    }
+
+    @Setup
+    public void setUp() {
+        List<String> created = new ArrayList<>(storeSize);
+        UrlShortenerService service = BenchmarkFixtures.populatedService(storeSize, created);
+        codes = created.toArray(String[]::new);
+        missingCodes = BenchmarkFixtures.unmappedCodes(service, MISS_CODES).toArray(String[]::new);
+
+        routeController = new ShortCodeRouteController(service, ShortLinkMetrics.disabled());
+        urlShortenerController = new UrlShortenerController(service,
+            new ShortLinkProperties("short.ly", storeSize, BenchmarkFixtures.CODE_LENGTH),
+            Validation.buildDefaultValidatorFactory().getValidator());
+        shortenExchange = MockServerWebExchange.from(MockServerHttpRequest.post("http://short.ly:8080/api/v1/urls/shorten"));
+
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(UrlShortenerService.class, () -> service);
+        context.registerBean(ShortLinkMetrics.class, ShortLinkMetrics::disabled);
+        context.registerBean(ClickAnalytics.class, ClickAnalytics::disabled);
+        context.register(WebFluxBenchmarkConfiguration.class, ShortCodeRouteController.class, GlobalExceptionHandler.class);
+        context.refresh();
+        httpHandler = WebHttpHandlerBuilder.applicationContext(context).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String getBaseUrl() {
+        return urlShortenerController.getBaseUrl(shortenExchange);
+    }
+
+    /**
+     * What {@link #getBaseUrl()} costs without the controller's cache: the URL and its entity tag hash are built
+     * for every request
+     */
+    @Benchmark
+    public String getBaseUrlUncached(Blackhole blackhole) {
+        URI uri = shortenExchange.getRequest().getURI();
+        String url = UrlShortenerController.buildBaseUrl(uri.getScheme(), "short.ly", uri.getPort());
+        blackhole.consume(url.hashCode());
+        return url;
+    }
+
+    @Benchmark
+    public ResponseEntity<Void> redirectControllerHit() {
+        return routeController.redirectToOriginalUrl(codes[ThreadLocalRandom.current().nextInt(storeSize)]).block();
+    }
+
+    @Benchmark
+    public HttpStatusCode redirectPipelineHit() {
+        return dispatch(codes[ThreadLocalRandom.current().nextInt(storeSize)]);
+    }
+
+    @Benchmark
+    public HttpStatusCode redirectPipelineMiss() {
+        return dispatch(missingCodes[ThreadLocalRandom.current().nextInt(MISS_CODES)]);
+    }
+
+    private HttpStatusCode dispatch(String code) {
+        MockServerHttpResponse response = new MockServerHttpResponse();
+        httpHandler.handle(MockServerHttpRequest.get("/" + code).build(), response).block();
+        return response.getStatusCode();
+    }
+}
@@ -0,0 +1,35 @@
+package com.gk.shortlink.generator;
+
+import com.gk.shortlink.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodeGeneratorBenchmark {
+
+    @Param({"SEQUENCE", "RANDOM"})
+    public GeneratorMode mode;
+
+    private CodeGenerator generator;
+
+    @Setup
+    public void setUp() {
+        // a 7 character code space is large enough that no run exhausts it
+        int codeLength = BenchmarkFixtures.CODE_LENGTH + 1;
+        generator = switch (mode) {
+            case SEQUENCE -> new BlockSequenceCodeGenerator(codeLength, 1024, 42L);
+            case RANDOM -> new RandomCodeGenerator(codeLength);
+        };
+    }
+
+    @Benchmark
+    public String generateCode() {
+        return generator.generate();
+    }
+}
@@ -0,0 +1,70 @@
+package com.gk.shortlink.replication;
+
+import com.gk.shortlink.BenchmarkFixtures;
+import com.gk.shortlink.dto.LinkMapping;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the leader's change feed: appends alone, as made by concurrent shorten requests, and appends
+ * while followers read the feed in batches the way the leader's sender threads do. Readers that fall out of
+ * the retained window start again at the end of the feed, as a follower would after a snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChangeFeedBenchmark {
+
+    private static final int MAPPINGS = 1 << 12;
+    private static final int BATCH = 1024;
+
+    @Param({"100000"})
+    public int retained;
+
+    private ChangeFeed feed;
+    private LinkMapping[] mappings;
+
+    @State(Scope.Thread)
+    public static class Reader {
+
+        private final List<LinkMapping> batch = new ArrayList<>(BATCH);
+        private long offset;
+    }
+
+    @Setup
+    public void setUp() {
+        feed = new ChangeFeed(retained);
+        mappings = new LinkMapping[MAPPINGS];
+        for (int i = 0; i < MAPPINGS; i++) {
+            mappings[i] = new LinkMapping("c" + i, BenchmarkFixtures.url(i));
+        }
+    }
+
+    @Benchmark
+    public long append() {
+        return feed.append(mappings[(int) (feed.nextOffset() & (MAPPINGS - 1))]);
+    }
+
+    @Benchmark
+    @Group("appendWhileFollowed")
+    @GroupThreads(1)
+    public long appendFollowed() {
+        return append();
+    }
+
+    @Benchmark
+    @Group("appendWhileFollowed")
+    @GroupThreads(2)
+    public int readFollowing(Reader reader) {
+        reader.batch.clear();
+        long next = feed.read(reader.offset, BATCH, reader.batch);
+        reader.offset = next < 0 ? feed.nextOffset() : next;
+        return reader.batch.size();
+    }
+}
@@ -0,0 +1,74 @@
+package com.gk.shortlink.service;
+
+import com.gk.shortlink.BenchmarkFixtures;
+import com.gk.shortlink.config.ShortLinkProperties;
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import com.gk.shortlink.store.FileLinkStore;
+import com.gk.shortlink.store.LinkStore;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Lookups of codes that were never issued, as sent by bots probing random codes, with and without the issued
+ * code filter. With the memory backend a miss costs a store probe; with the file backend it also reads through
+ * to the link store, which is the cost the filter avoids.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CodeFilterBenchmark {
+
+    private static final int LINKS = 1_000_000;
+    private static final int MISS_CODES = 4096;
+
+    @Param({"false", "true"})
+    public boolean filter;
+
+    @Param({"memory", "file"})
+    public String backend;
+
+    private Path dataDir;
+    private LinkStore linkStore;
+    private UrlShortenerService service;
+    private String[] missingCodes;
+
+    @Setup
+    public void setUp() throws IOException {
+        ShortLinkProperties properties = new ShortLinkProperties("short.ly", LINKS, BenchmarkFixtures.CODE_LENGTH, null,
+            null, null, null, null, null, null, null, null, null, new ShortLinkProperties.CodeFilter(filter, LINKS, 0.01), null, null, null);
+        if (backend.equals("file")) {
+            dataDir = Files.createTempDirectory("code-filter-benchmark");
+            linkStore = FileLinkStore.open(dataDir, false);
+        }
+        service = BenchmarkFixtures.service(properties, ShortLinkMetrics.disabled(), linkStore);
+        service.shortenAll(Flux.range(0, LINKS).map(BenchmarkFixtures::url)).blockLast();
+        missingCodes = BenchmarkFixtures.unmappedCodes(service, MISS_CODES).toArray(String[]::new);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        service.close();
+        if (linkStore != null) {
+            linkStore.close();
+            try (Stream<Path> files = Files.walk(dataDir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public String getOriginalUrlMiss() {
+        return service.getOriginalUrl(missingCodes[ThreadLocalRandom.current().nextInt(MISS_CODES)]).block();
+    }
+}
@@ -0,0 +1,77 @@
+package com.gk.shortlink.service;
+
+import com.gk.shortlink.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service hot paths against a store filled to capacity, so new mappings include the cost of evicting old ones.
+ * Run {@link #shortenNewUrl} with {@code -t 1} and {@code -t <cores>} to see shorten scale with threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UrlShortenerServiceBenchmark {
+
+    private static final int MISS_CODES = 4096;
+
+    @Param({"10000", "1000000"})
+    public int storeSize;
+
+    private UrlShortenerService service;
+    private String[] urls;
+    private String[] codes;
+    private String[] missingCodes;
+    private final AtomicInteger threadIds = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        List<String> created = new ArrayList<>(storeSize);
+        service = BenchmarkFixtures.populatedService(storeSize, created);
+        codes = created.toArray(String[]::new);
+        urls = new String[storeSize];
+        for (int i = 0; i < storeSize; i++) {
+            urls[i] = BenchmarkFixtures.url(i);
+        }
+        missingCodes = BenchmarkFixtures.unmappedCodes(service, MISS_CODES).toArray(String[]::new);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private String urlPrefix;
+        private long counter;
+
+        @Setup
+        public void setUp(UrlShortenerServiceBenchmark benchmark) {
+            urlPrefix = "https://www.example.com/fresh/" + benchmark.threadIds.getAndIncrement() + "/";
+        }
+    }
+
+    @Benchmark
+    public String shortenNewUrl(ThreadState state) {
+        return service.shorten(state.urlPrefix + state.counter++).block();
+    }
+
+    @Benchmark
+    public String shortenExistingUrl() {
+        return service.shorten(urls[ThreadLocalRandom.current().nextInt(storeSize)]).block();
+    }
+
+    @Benchmark
+    public String getOriginalUrlHit() {
+        return service.getOriginalUrl(codes[ThreadLocalRandom.current().nextInt(storeSize)]).block();
+    }
+
+    @Benchmark
+    public String getOriginalUrlMiss() {
+        return service.getOriginalUrl(missingCodes[ThreadLocalRandom.current().nextInt(MISS_CODES)]).block();
+    }
+}
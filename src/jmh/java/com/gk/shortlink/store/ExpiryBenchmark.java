@@ -0,0 +1,61 @@
+package com.gk.shortlink.store;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of scheduling and expiring 10M link expiries in the timing wheel, with deadlines spread over 30 days
+ * of one second ticks. The wheel is advanced in the portions the service's reaper expires, so the run ticks
+ * through every second of the period as the reaper would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ExpiryBenchmark {
+
+    private static final int TIMERS = 10_000_000;
+    private static final long START = 1_767_225_600L;
+    private static final int PERIOD = 30 * 86_400;
+    private static final int BATCH_SIZE = 1024;
+
+    private long[] deadlines;
+    private long expired;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(1L);
+        deadlines = new long[TIMERS];
+        for (int i = 0; i < TIMERS; i++) {
+            deadlines[i] = START + 1 + random.nextInt(PERIOD);
+        }
+    }
+
+    @Benchmark
+    public TimingWheel schedule() {
+        TimingWheel wheel = new TimingWheel(START);
+        for (int i = 0; i < TIMERS; i++) {
+            wheel.schedule(i, deadlines[i]);
+        }
+        return wheel;
+    }
+
+    @Benchmark
+    public long scheduleAndExpire() {
+        TimingWheel wheel = schedule();
+        expired = 0;
+        for (long now = START + 1; now <= START + PERIOD; now++) {
+            while (wheel.advance(now, BATCH_SIZE, (key, deadline) -> expired += key) == BATCH_SIZE) {
+                // the reaper keeps expiring while full portions come back
+            }
+        }
+        if (wheel.size() != 0) {
+            throw new IllegalStateException(wheel.size() + " timers left");
+        }
+        return expired;
+    }
+}
@@ -0,0 +1,76 @@
+package com.gk.shortlink.store;
+
+import com.gk.shortlink.dto.LinkMapping;
+import com.gk.shortlink.generator.BlockSequenceCodeGenerator;
+import com.gk.shortlink.generator.CodeGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cost of a lookup answered by the in-memory store compared to one read through from the file link
+ * store, which is what a redirect for an evicted code pays. The data file is fresh, so its reads are
+ * served from the page cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadThroughBenchmark {
+
+    private static final int LINKS = 100_000;
+
+    private Path dataDir;
+    private CompactMappingStore nearCache;
+    private FileLinkStore fileStore;
+    private String[] codes;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataDir = Files.createTempDirectory("read-through-benchmark");
+        fileStore = FileLinkStore.open(dataDir, false);
+        nearCache = new CompactMappingStore(LINKS);
+        CodeGenerator generator = new BlockSequenceCodeGenerator(6, 1024, 1L);
+        codes = new String[LINKS];
+        List<LinkMapping> batch = new ArrayList<>(LINKS);
+        for (int i = 0; i < LINKS; i++) {
+            codes[i] = generator.generate();
+            String url = "https://www.example.com/articles/" + i + "/a-reasonably-long-slug?utm_source=newsletter";
+            nearCache.putIfAbsent(codes[i], url);
+            batch.add(new LinkMapping(codes[i], url));
+        }
+        fileStore.putAll(batch).block();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        fileStore.close();
+        try (Stream<Path> files = Files.walk(dataDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public String nearCacheHit() {
+        return nearCache.get(randomCode());
+    }
+
+    @Benchmark
+    public String linkStoreRead() {
+        return fileStore.get(randomCode()).block();
+    }
+
+    private String randomCode() {
+        return codes[ThreadLocalRandom.current().nextInt(codes.length)];
+    }
+}
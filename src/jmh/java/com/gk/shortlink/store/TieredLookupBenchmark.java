@@ -0,0 +1,76 @@
+package com.gk.shortlink.store;
+
+import com.gk.shortlink.dto.LinkMapping;
+import com.gk.shortlink.generator.Base62;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup latency distribution of hot and cold hits with 1% of the links held in memory and the rest in the
+ * cold tier, the skew of production redirects. Sample mode reports the p99 along with the other percentiles.
+ * A cold hit is measured without its promotion, so the tiers keep their content during the run.
+ * <p>
+ * Filling the 50M links takes minutes and about 6GB of disk in the temporary directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TieredLookupBenchmark {
+
+    private static final int CODE_LENGTH = 6;
+    private static final int SEGMENT_SIZE = 256 << 20;
+
+    @Param({"1000000", "50000000"})
+    int links;
+
+    private Path dataDir;
+    private CompactMappingStore hotStore;
+    private ColdMappingStore coldStore;
+    private int hotLinks;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataDir = Files.createTempDirectory("tiered-lookup-benchmark");
+        coldStore = ColdMappingStore.open(dataDir, SEGMENT_SIZE);
+        hotLinks = links / 100;
+        hotStore = new CompactMappingStore(hotLinks, UrlCanonicalizer.exact(), false, Clock.systemUTC(), coldStore::put);
+        // without reads in between, the links inserted last are the ones left in memory
+        for (int i = 0; i < links; i++) {
+            hotStore.putIfAbsent(code(i), "https://www.example.com/articles/" + i + "/a-reasonably-long-slug?utm_source=newsletter");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        coldStore.close();
+    }
+
+    @Benchmark
+    public String hotHit() {
+        return hotStore.get(code(links - 1 - ThreadLocalRandom.current().nextInt(hotLinks)));
+    }
+
+    @Benchmark
+    public String coldHit() {
+        String code = code(ThreadLocalRandom.current().nextInt(links - hotLinks));
+        String url = hotStore.get(code);
+        if (url != null) {
+            return url;
+        }
+        LinkMapping mapping = coldStore.get(code);
+        return mapping != null ? mapping.url() : null;
+    }
+
+    private static String code(int link) {
+        return Base62.encode(link, CODE_LENGTH);
+    }
+}
@@ -0,0 +1,58 @@
+package com.gk.shortlink.store;
+
+import com.gk.shortlink.generator.BlockSequenceCodeGenerator;
+import com.gk.shortlink.generator.CodeGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redirect-side lookups over the URL corpus fixture with plain and prefix-encoded URL storage.
+ * The difference between the two is the decode cost; the compression ratio is printed on setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UrlCompressionBenchmark {
+
+    @Param({"false", "true"})
+    public boolean compressed;
+
+    private CompactMappingStore store;
+    private String[] codes;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<String> corpus;
+        try (InputStream in = UrlCompressionBenchmark.class.getResourceAsStream("/corpus/urls.txt")) {
+            corpus = new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+        CodeGenerator generator = new BlockSequenceCodeGenerator(6, 1024, 1L);
+        store = new CompactMappingStore(corpus.size(), UrlCanonicalizer.exact(), compressed);
+        codes = new String[corpus.size()];
+        for (int i = 0; i < corpus.size(); i++) {
+            // repeated URLs keep their first code
+            codes[i] = store.putIfAbsent(generator.generate(), corpus.get(i));
+        }
+        // existing records keep the dictionary that encoded them, so rewrite them once trained
+        if (store.retrainDictionary(corpus.size(), 1024)) {
+            for (int i = 0; i < corpus.size(); i++) {
+                store.put(codes[i], corpus.get(i));
+            }
+        }
+        System.out.printf("%n%d URLs, compression ratio %.2f%n", corpus.size(), store.compressionRatio());
+    }
+
+    @Benchmark
+    public String get() {
+        return store.get(codes[ThreadLocalRandom.current().nextInt(codes.length)]);
+    }
+}
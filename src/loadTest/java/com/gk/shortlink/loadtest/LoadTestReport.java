@@ -0,0 +1,125 @@
+package com.gk.shortlink.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Summarises a run per operation, checks it against the SLOs and writes {@code report.txt},
+ * {@code summary.json} and one percentile distribution ({@code .hgrm}) per operation
+ */
+final class LoadTestReport {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final LoadTestSettings settings;
+    private final Map<Operation, OperationStats> stats;
+    private final List<String> violations = new ArrayList<>();
+
+    LoadTestReport(LoadTestSettings settings, Map<Operation, OperationStats> stats) {
+        this.settings = settings;
+        this.stats = stats;
+    }
+
+    /**
+     * Method to write the report files and print the summary
+     *
+     * @return whether every SLO was met
+     */
+    boolean write() throws IOException {
+        Files.createDirectories(settings.reportDir());
+        StringBuilder text = new StringBuilder();
+        StringBuilder json = new StringBuilder("{\n");
+        text.append(String.format(Locale.ROOT, "Offered load %d req/s for %ds, %.0f%% redirects, Zipf exponent %.2f over %d codes%n%n",
+            settings.rate(), settings.duration().toSeconds(), settings.readRatio() * 100, settings.zipfExponent(), settings.keySpace()));
+        if (settings.writeStormRate() > 0) {
+            text.append(String.format(Locale.ROOT, "Write storm of %d req/s during the measurement, admission control %s%n%n",
+                settings.writeStormRate(), settings.admission() ? "enabled" : "disabled"));
+        }
+        if (settings.clusterNodes() > 1) {
+            text.append(String.format(Locale.ROOT, "Cluster of %d nodes, requests spread over every node%n%n", settings.clusterNodes()));
+        }
+        if (settings.redirectListener()) {
+            text.append("Redirects sent to the dedicated redirect listener").append(System.lineSeparator()).append(System.lineSeparator());
+        }
+        text.append(String.format(Locale.ROOT, "%-36s %10s %8s %8s %8s %10s %10s %10s %10s %10s%n",
+            "operation", "ok", "failed", "dropped", "shed", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+
+        String separator = "";
+        for (Operation operation : Operation.values()) {
+            OperationStats operationStats = stats.get(operation);
+            Histogram histogram = operationStats.latencies();
+            long attempted = histogram.getTotalCount() + operationStats.failures() + operationStats.dropped() + operationStats.shed();
+            if (attempted == 0) {
+                continue;
+            }
+            writeDistribution(operation, histogram);
+            text.append(String.format(Locale.ROOT, "%-36s %10d %8d %8d %8d", operation.label(),
+                histogram.getTotalCount(), operationStats.failures(), operationStats.dropped(), operationStats.shed()));
+            json.append(separator).append(String.format(Locale.ROOT, "  \"%s\": {\"ok\": %d, \"failed\": %d, \"dropped\": %d, \"shed\": %d",
+                operation.name().toLowerCase(Locale.ROOT), histogram.getTotalCount(), operationStats.failures(), operationStats.dropped(),
+                operationStats.shed()));
+            for (double percentile : PERCENTILES) {
+                double millis = histogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+                text.append(String.format(Locale.ROOT, " %10.3f", millis));
+                json.append(String.format(Locale.ROOT, ", \"p%s\": %.3f", formatPercentile(percentile), millis));
+            }
+            double max = histogram.getMaxValue() / NANOS_PER_MILLI;
+            text.append(String.format(Locale.ROOT, " %10.3f%n", max));
+            json.append(String.format(Locale.ROOT, ", \"max\": %.3f}", max));
+            separator = ",\n";
+
+            // writes shed with a 429 are the server protecting itself, they are no errors
+            check(operation, histogram, attempted, operationStats.failures() + operationStats.dropped());
+        }
+        json.append(String.format(Locale.ROOT, "%s  \"passed\": %s%n}%n", separator, violations.isEmpty()));
+
+        text.append(System.lineSeparator());
+        if (violations.isEmpty()) {
+            text.append("PASSED: all SLOs met").append(System.lineSeparator());
+        } else {
+            text.append("FAILED:").append(System.lineSeparator());
+            violations.forEach(violation -> text.append("  ").append(violation).append(System.lineSeparator()));
+        }
+        Files.writeString(settings.reportDir().resolve("report.txt"), text);
+        Files.writeString(settings.reportDir().resolve("summary.json"), json);
+        System.out.print(text);
+        return violations.isEmpty();
+    }
+
+    private void check(Operation operation, Histogram histogram, long attempted, long errors) {
+        if (operation.p99Slo(settings) == null) {
+            return;
+        }
+        long sloNanos = operation.p99Slo(settings).toNanos();
+        long p99 = histogram.getValueAtPercentile(99);
+        if (p99 > sloNanos) {
+            violations.add(String.format(Locale.ROOT, "%s p99 %.3f ms exceeds %.3f ms",
+                operation.label(), p99 / NANOS_PER_MILLI, sloNanos / NANOS_PER_MILLI));
+        }
+        double errorRate = (double) errors / attempted;
+        if (errorRate > settings.maxErrorRate()) {
+            violations.add(String.format(Locale.ROOT, "%s error rate %.4f exceeds %.4f",
+                operation.label(), errorRate, settings.maxErrorRate()));
+        }
+    }
+
+    private void writeDistribution(Operation operation, Histogram histogram) throws IOException {
+        var file = settings.reportDir().resolve(operation.name().toLowerCase(Locale.ROOT) + ".hgrm");
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+            histogram.outputPercentileDistribution(out, NANOS_PER_MILLI);
+        }
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile).replace('.', '_');
+    }
+}
@@ -0,0 +1,120 @@
+package com.gk.shortlink.loadtest;
+
+import com.gk.shortlink.ShortLinkApplication;
+import com.gk.shortlink.controller.ShortCodeRedirectServer;
+import com.gk.shortlink.service.UrlShortenerService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Boots the application on a random port, or a cluster of {@code cluster-nodes} instances on localhost, populates
+ * the codes the redirects target and drives it with {@link OpenLoadGenerator}. Exits with status 1 when an SLO is missed, so the Gradle task fails.
+ */
+public final class LoadTestRunner {
+
+    // the nodes of a cluster share the permutation their shards are cut from
+    private static final long CLUSTER_SEED = new SecureRandom().nextLong();
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        int nodes = settings.clusterNodes();
+        List<ConfigurableApplicationContext> contexts = new ArrayList<>(nodes);
+        boolean passed;
+        try {
+            int[] ports = nodes > 1 ? freePorts(nodes) : new int[]{0};
+            String members = IntStream.of(ports).mapToObj(port -> "http://localhost:" + port).collect(Collectors.joining(","));
+            for (int i = 0; i < nodes; i++) {
+                contexts.add(start(settings, ports[i], i, members, args));
+            }
+            List<String> baseUrls = new ArrayList<>(nodes);
+            List<String> redirectBaseUrls = new ArrayList<>(nodes);
+            List<String> codes = new ArrayList<>(settings.keySpace());
+            for (int i = 0; i < nodes; i++) {
+                ConfigurableApplicationContext context = contexts.get(i);
+                String baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+                baseUrls.add(baseUrl);
+                redirectBaseUrls.add(settings.redirectListener()
+                    ? "http://localhost:" + context.getBean(ShortCodeRedirectServer.class).port() : baseUrl);
+                // every node creates its share of the codes in its own shard
+                codes.addAll(populate(context.getBean(UrlShortenerService.class), i, nodes, settings.keySpace()));
+            }
+            // popularity rank is independent of creation order and of the node owning the code
+            Collections.shuffle(codes);
+            try (OpenLoadGenerator generator = new OpenLoadGenerator(settings, baseUrls, redirectBaseUrls, codes)) {
+                Map<Operation, OperationStats> stats = generator.run();
+                passed = new LoadTestReport(settings, stats).write();
+            }
+        } finally {
+            contexts.forEach(ConfigurableApplicationContext::close);
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static ConfigurableApplicationContext start(LoadTestSettings settings, int port, int nodeIndex, String members,
+                                                        String[] args) {
+        int nodes = settings.clusterNodes();
+        List<String> properties = new ArrayList<>(List.of(
+            "server.port=" + port,
+            "shortlink.persistence.enabled=false",
+            // room for the node's share of the populated codes and of every URL shortened during the run
+            "shortlink.max-capacity=" + (capacity(settings) / nodes + 1024),
+            "springdoc.api-docs.enabled=false",
+            "springdoc.swagger-ui.enabled=false",
+            "shortlink.admission.enabled=" + settings.admission(),
+            // every request comes from this one address, per-client rates would shed the regular writes too
+            "shortlink.admission.client-rate=1000000",
+            "shortlink.admission.client-burst=1000000",
+            "shortlink.redirect.listener.enabled=" + settings.redirectListener(),
+            "shortlink.redirect.listener.port=0"));
+        if (nodes > 1) {
+            properties.add("shortlink.cluster.enabled=true");
+            properties.add("shortlink.cluster.node-index=" + nodeIndex);
+            properties.add("shortlink.cluster.members=" + members);
+            properties.add("shortlink.generator.seed=" + CLUSTER_SEED);
+        }
+        return new SpringApplicationBuilder(ShortLinkApplication.class)
+            .properties(properties.toArray(String[]::new))
+            .run(args);
+    }
+
+    private static int[] freePorts(int count) throws IOException {
+        // members must be known before the first node starts, so the ports are picked up front
+        int[] ports = new int[count];
+        for (int i = 0; i < count; i++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                ports[i] = socket.getLocalPort();
+            }
+        }
+        return ports;
+    }
+
+    private static List<String> populate(UrlShortenerService service, int nodeIndex, int nodes, int keySpace) {
+        return service.shortenAll(Flux.range(0, keySpace)
+                .filter(i -> i % nodes == nodeIndex)
+                .map(i -> "https://www.example.com/articles/" + i + "?utm_source=loadtest"))
+            .collectList()
+            .block();
+    }
+
+    private static long capacity(LoadTestSettings settings) {
+        long writes = (long) Math.ceil(settings.rate() * (1 - settings.readRatio())
+            * (settings.warmup().toSeconds() + settings.duration().toSeconds() + 1))
+            + (long) settings.writeStormRate() * (settings.duration().toSeconds() + 1);
+        return Math.min(Integer.MAX_VALUE, settings.keySpace() + writes + 1024);
+    }
+}
@@ -0,0 +1,88 @@
+package com.gk.shortlink.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Load test parameters, read from {@code loadtest.*} system properties
+ *
+ * @param rate             requests started per second, independent of how fast responses arrive
+ * @param warmup           time at full rate before latencies are recorded
+ * @param duration         measured time at full rate
+ * @param readRatio        share of requests that are redirects, the rest shorten new URLs
+ * @param keySpace         number of codes created before the run and targeted by redirects
+ * @param zipfExponent     skew of code popularity, 0 for uniform
+ * @param connections      maximum connections of the client pool
+ * @param maxInFlight      requests outstanding before new arrivals are dropped and counted as errors
+ * @param redirectP99Slo   p99 latency the redirect must meet
+ * @param shortenP99Slo    p99 latency shorten must meet
+ * @param maxErrorRate     largest tolerated share of failed or dropped requests
+ * @param reportDir        directory receiving the report and histograms
+ * @param writeStormRate   additional shortens per second sent during the measured duration, 0 for none
+ * @param admission        whether the server sheds load with {@code shortlink.admission}
+ * @param redirectListener whether redirects go to the dedicated listener of {@code shortlink.redirect.listener}
+ *                         rather than through WebFlux
+ * @param clusterNodes     application instances started as a {@code shortlink.cluster} on localhost, 1 for a
+ *                         single instance; requests are spread over every node
+ */
+record LoadTestSettings(
+    int rate,
+    Duration warmup,
+    Duration duration,
+    double readRatio,
+    int keySpace,
+    double zipfExponent,
+    int connections,
+    int maxInFlight,
+    Duration redirectP99Slo,
+    Duration shortenP99Slo,
+    double maxErrorRate,
+    Path reportDir,
+    int writeStormRate,
+    boolean admission,
+    boolean redirectListener,
+    int clusterNodes
+) {
+
+    LoadTestSettings {
+        if (rate <= 0 || keySpace <= 0 || connections <= 0 || maxInFlight <= 0 || clusterNodes <= 0) {
+            throw new IllegalArgumentException("rate, keySpace, connections, maxInFlight and clusterNodes must be positive");
+        }
+        if (writeStormRate < 0) {
+            throw new IllegalArgumentException("writeStormRate must not be negative");
+        }
+        if (readRatio < 0 || readRatio > 1) {
+            throw new IllegalArgumentException("readRatio must be between 0 and 1");
+        }
+    }
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+            Integer.parseInt(property("rate", "2000")),
+            duration("warmup", "10s"),
+            duration("duration", "30s"),
+            Double.parseDouble(property("read-ratio", "0.9")),
+            Integer.parseInt(property("key-space", "100000")),
+            Double.parseDouble(property("zipf-exponent", "1.0")),
+            Integer.parseInt(property("connections", "64")),
+            Integer.parseInt(property("max-in-flight", "10000")),
+            duration("slo.redirect-p99", "10ms"),
+            duration("slo.shorten-p99", "25ms"),
+            Double.parseDouble(property("slo.max-error-rate", "0.001")),
+            Path.of(property("report-dir", "build/reports/loadtest")),
+            Integer.parseInt(property("write-storm-rate", "0")),
+            Boolean.parseBoolean(property("admission", "false")),
+            Boolean.parseBoolean(property("redirect-listener", "false")),
+            Integer.parseInt(property("cluster-nodes", "1")));
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty("loadtest." + name, defaultValue);
+    }
+
+    private static Duration duration(String name, String defaultValue) {
+        return DurationStyle.detectAndParse(property(name, defaultValue));
+    }
+}
@@ -0,0 +1,173 @@
+package com.gk.shortlink.loadtest;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator: requests are started on a fixed schedule whether or not earlier responses
+ * have arrived, and every latency is measured from the request's scheduled start. A slow server therefore
+ * shows up as queueing in the recorded latencies instead of silently lowering the offered load.
+ */
+final class OpenLoadGenerator implements AutoCloseable {
+
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final LoadTestSettings settings;
+    private final List<String> codes;
+    private final ZipfDistribution popularity;
+    private final LoopResources loops;
+    private final ConnectionProvider connections;
+    private final HttpClient[] clients;
+    private final HttpClient[] redirectClients;
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private long urlSequence;
+    private int nextNode;
+
+    /**
+     * @param settings load shape
+     * @param baseUrls         servers under test, one per cluster node, taking turns as the entry node of requests
+     * @param redirectBaseUrls servers the redirects are sent to, in the order of {@code baseUrls}, the same URLs
+     *                         or the redirect listeners
+     * @param codes            codes to redirect, most popular first
+     */
+    OpenLoadGenerator(LoadTestSettings settings, List<String> baseUrls, List<String> redirectBaseUrls, List<String> codes) {
+        this.settings = settings;
+        this.codes = codes;
+        this.popularity = new ZipfDistribution(codes.size(), settings.zipfExponent());
+        this.loops = LoopResources.create("load-generator", Math.max(2, Runtime.getRuntime().availableProcessors() / 2), true);
+        this.connections = ConnectionProvider.builder("load-generator")
+            .maxConnections(settings.connections())
+            .pendingAcquireMaxCount(-1)
+            .build();
+        HttpClient client = HttpClient.create(connections)
+            .runOn(loops)
+            .followRedirect(false);
+        this.clients = baseUrls.stream().map(client::baseUrl).toArray(HttpClient[]::new);
+        this.redirectClients = redirectBaseUrls.stream().map(client::baseUrl).toArray(HttpClient[]::new);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    /**
+     * Method to offer the configured load for the warmup and the measured duration, plus the write storm
+     * during the measured duration, then wait for outstanding responses
+     *
+     * @return outcomes of requests scheduled after the warmup
+     */
+    Map<Operation, OperationStats> run() {
+        double intervalNanos = 1e9 / settings.rate();
+        double stormIntervalNanos = settings.writeStormRate() > 0 ? 1e9 / settings.writeStormRate() : Double.POSITIVE_INFINITY;
+        long start = System.nanoTime();
+        long measureFrom = start + settings.warmup().toNanos();
+        long end = measureFrom + settings.duration().toNanos();
+        long sequence = 0;
+        long stormSequence = 0;
+        while (true) {
+            long scheduled = start + (long) (sequence * intervalNanos);
+            // the storm starts with the measurement, once the server has settled at the regular load
+            double stormOffset = stormSequence * stormIntervalNanos;
+            long stormScheduled = stormOffset < end - measureFrom ? measureFrom + (long) stormOffset : Long.MAX_VALUE;
+            boolean storm = stormScheduled < scheduled;
+            long next = storm ? stormScheduled : scheduled;
+            if (next >= end) {
+                break;
+            }
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (storm) {
+                issue(Operation.WRITE_STORM, next, true);
+                stormSequence++;
+            } else {
+                Operation operation = ThreadLocalRandom.current().nextDouble() < settings.readRatio()
+                    ? Operation.REDIRECT : Operation.SHORTEN;
+                issue(operation, next, next >= measureFrom);
+                sequence++;
+            }
+        }
+        awaitDrain();
+        return stats;
+    }
+
+    private void issue(Operation operation, long scheduled, boolean measured) {
+        OperationStats operationStats = measured ? stats.get(operation) : null;
+        if (inFlight.incrementAndGet() > settings.maxInFlight()) {
+            inFlight.decrementAndGet();
+            if (operationStats != null) {
+                operationStats.recordDropped();
+            }
+            return;
+        }
+        int node = nextNode;
+        nextNode = node + 1 == clients.length ? 0 : node + 1;
+        Mono<Integer> status = operation == Operation.REDIRECT
+            ? redirect(redirectClients[node], codes.get(popularity.sample()))
+            : shorten(clients[node], "https://www.example.com/load/" + urlSequence++ + "?utm_source=loadtest");
+        status.subscribe(
+            code -> {
+                inFlight.decrementAndGet();
+                if (operationStats == null) {
+                    return;
+                }
+                if (code == operation.expectedStatus()) {
+                    operationStats.recordSuccess(System.nanoTime() - scheduled);
+                } else if (code == TOO_MANY_REQUESTS) {
+                    operationStats.recordShed();
+                } else {
+                    operationStats.recordFailure();
+                }
+            },
+            error -> {
+                inFlight.decrementAndGet();
+                if (operationStats != null) {
+                    operationStats.recordFailure();
+                }
+            });
+    }
+
+    private Mono<Integer> redirect(HttpClient redirectClient, String code) {
+        return redirectClient.get()
+            .uri("/" + code)
+            .response((response, body) -> body.then(Mono.just(response.status().code())))
+            .next();
+    }
+
+    private Mono<Integer> shorten(HttpClient client, String url) {
+        return client.headers(headers -> headers.set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON))
+            .post()
+            .uri("/api/v1/urls/shorten")
+            .send(ByteBufFlux.fromString(Mono.just("{\"url\":\"" + url + "\"}")))
+            .response((response, body) -> body.then(Mono.just(response.status().code())))
+            .next();
+    }
+
+    private void awaitDrain() {
+        long deadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(1_000_000);
+        }
+    }
+
+    @Override
+    public void close() {
+        connections.dispose();
+        loops.dispose();
+    }
+}
@@ -0,0 +1,50 @@
+package com.gk.shortlink.loadtest;
+
+import java.time.Duration;
+
+/**
+ * Request types issued by the load generator
+ */
+enum Operation {
+
+    REDIRECT("GET /{code}", 302) {
+        @Override
+        Duration p99Slo(LoadTestSettings settings) {
+            return settings.redirectP99Slo();
+        }
+    },
+    SHORTEN("POST /api/v1/urls/shorten", 201) {
+        @Override
+        Duration p99Slo(LoadTestSettings settings) {
+            return settings.shortenP99Slo();
+        }
+    },
+    WRITE_STORM("POST /api/v1/urls/shorten (storm)", 201) {
+        @Override
+        Duration p99Slo(LoadTestSettings settings) {
+            // the storm is there to be shed, only its effect on the other operations is checked
+            return null;
+        }
+    };
+
+    private final String label;
+    private final int expectedStatus;
+
+    Operation(String label, int expectedStatus) {
+        this.label = label;
+        this.expectedStatus = expectedStatus;
+    }
+
+    String label() {
+        return label;
+    }
+
+    int expectedStatus() {
+        return expectedStatus;
+    }
+
+    /**
+     * @return p99 latency to meet, or null if the operation has no SLO
+     */
+    abstract Duration p99Slo(LoadTestSettings settings);
+}
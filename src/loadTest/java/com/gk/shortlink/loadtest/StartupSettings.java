@@ -0,0 +1,57 @@
+package com.gk.shortlink.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Startup probe parameters, read from {@code startup.*} system properties
+ *
+ * @param jar       boot jar to launch
+ * @param runs      number of launches, the median of which is checked
+ * @param aot       whether the jar is started with the AOT-generated initializers
+ * @param cds       whether an AppCDS archive is created by a training run and the launches start with it
+ * @param max       median time to the first redirect the build must meet
+ * @param timeout   time after which a launch without a successful redirect fails
+ * @param reportDir directory receiving the report and the output of each launch
+ */
+record StartupSettings(
+    Path jar,
+    int runs,
+    boolean aot,
+    boolean cds,
+    Duration max,
+    Duration timeout,
+    Path reportDir
+) {
+
+    StartupSettings {
+        if (runs <= 0) {
+            throw new IllegalArgumentException("runs must be positive");
+        }
+    }
+
+    static StartupSettings fromSystemProperties() {
+        String jar = System.getProperty("startup.jar");
+        if (jar == null) {
+            throw new IllegalArgumentException("startup.jar must name the boot jar to launch");
+        }
+        return new StartupSettings(
+            Path.of(jar),
+            Integer.parseInt(property("runs", "5")),
+            Boolean.parseBoolean(property("aot", "true")),
+            Boolean.parseBoolean(property("cds", "false")),
+            duration("max", "10s"),
+            duration("timeout", "60s"),
+            Path.of(property("report-dir", "build/reports/startup")));
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty("startup." + name, defaultValue);
+    }
+
+    private static Duration duration(String name, String defaultValue) {
+        return DurationStyle.detectAndParse(property(name, defaultValue));
+    }
+}
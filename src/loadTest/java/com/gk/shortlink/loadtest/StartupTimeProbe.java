@@ -0,0 +1,196 @@
+package com.gk.shortlink.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Launches the boot jar in a fresh JVM, the way a new replica starts, and measures the time from launch until
+ * a freshly shortened code redirects. With {@code startup.cds} the jar is first extracted and started once
+ * with {@code -XX:ArchiveClassesAtExit}, exactly like the training run of the Docker image, and every launch
+ * then uses the archive. Exits with status 1 when the median exceeds {@code startup.max}, so the Gradle task
+ * fails.
+ */
+public final class StartupTimeProbe {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(5);
+    private static final Pattern CODE = Pattern.compile("\"code\"\\s*:\\s*\"([^\"]+)\"");
+
+    private final StartupSettings settings;
+    private final HttpClient client = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(1))
+        .followRedirects(HttpClient.Redirect.NEVER)
+        .build();
+
+    private StartupTimeProbe(StartupSettings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        StartupSettings settings = StartupSettings.fromSystemProperties();
+        System.exit(new StartupTimeProbe(settings).run() ? 0 : 1);
+    }
+
+    private boolean run() throws IOException, InterruptedException {
+        Files.createDirectories(settings.reportDir());
+        List<String> jvmOptions = new ArrayList<>();
+        Path jar = settings.jar();
+        if (settings.aot()) {
+            jvmOptions.add("-Dspring.aot.enabled=true");
+        }
+        if (settings.cds()) {
+            Path workDir = Files.createTempDirectory("startup-cds");
+            jar = train(workDir, jvmOptions);
+            jvmOptions.add("-XX:SharedArchiveFile=" + workDir.resolve("application.jsa"));
+        }
+
+        long[] nanos = new long[settings.runs()];
+        for (int run = 0; run < nanos.length; run++) {
+            nanos[run] = launch(jar, jvmOptions, settings.reportDir().resolve("run-" + (run + 1) + ".log"));
+        }
+        return report(nanos);
+    }
+
+    /**
+     * Method to extract the jar and create an AppCDS archive from a run that exits once the context is refreshed
+     *
+     * @param workDir    directory receiving the extracted jar and the archive
+     * @param jvmOptions options the launches are started with
+     * @return extracted jar to launch
+     */
+    private Path train(Path workDir, List<String> jvmOptions) throws IOException, InterruptedException {
+        Path extracted = workDir.resolve("application");
+        exec(settings.reportDir().resolve("extract.log"), List.of(java(), "-Djarmode=tools", "-jar",
+            settings.jar().toString(), "extract", "--destination", extracted.toString()));
+        Path jar = extracted.resolve(settings.jar().getFileName());
+
+        List<String> command = new ArrayList<>(List.of(java(), "-XX:ArchiveClassesAtExit=" + workDir.resolve("application.jsa"),
+            "-Dspring.context.exit=onRefresh"));
+        command.addAll(jvmOptions);
+        command.addAll(List.of("-jar", jar.toString(), "--spring.profiles.active=prod", "--server.port=0"));
+        // the training run must not leave data behind in the directory the probe was started from
+        command.add("--shortlink.persistence.enabled=false");
+        exec(settings.reportDir().resolve("training.log"), command);
+        return jar;
+    }
+
+    private long launch(Path jar, List<String> jvmOptions, Path log) throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>(List.of(java()));
+        command.addAll(jvmOptions);
+        command.addAll(List.of("-jar", jar.toString(), "--spring.profiles.active=prod", "--server.port=" + port,
+            "--shortlink.persistence.enabled=false"));
+        String baseUrl = "http://localhost:" + port;
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        try {
+            long deadline = start + settings.timeout().toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with status " + process.exitValue() + ", see " + log);
+                }
+                if (redirects(baseUrl)) {
+                    return System.nanoTime() - start;
+                }
+                Thread.sleep(POLL_INTERVAL.toMillis());
+            }
+            throw new IllegalStateException("No successful redirect within " + settings.timeout() + ", see " + log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    /**
+     * Method to shorten a URL and follow its code once
+     *
+     * @param baseUrl address of the launched application
+     * @return true if the code redirected, false if the application is not ready yet
+     */
+    private boolean redirects(String baseUrl) throws InterruptedException {
+        try {
+            HttpResponse<String> shortened = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/urls/shorten"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"url\":\"https://www.example.com/startup\"}"))
+                    .build(),
+                HttpResponse.BodyHandlers.ofString());
+            Matcher code = CODE.matcher(shortened.body());
+            if (shortened.statusCode() != 201 || !code.find()) {
+                return false;
+            }
+            HttpResponse<Void> redirect = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/" + code.group(1))).GET().build(),
+                HttpResponse.BodyHandlers.discarding());
+            return redirect.statusCode() / 100 == 3;
+        } catch (IOException e) {
+            // not listening yet
+            return false;
+        }
+    }
+
+    private boolean report(long[] nanos) throws IOException {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double median = millis(sorted[sorted.length / 2]);
+        boolean passed = median <= settings.max().toMillis();
+
+        StringBuilder text = new StringBuilder(String.format(Locale.ROOT, "Time to first redirect over %d launches, AOT %s, AppCDS %s%n%n",
+            nanos.length, settings.aot() ? "enabled" : "disabled", settings.cds() ? "enabled" : "disabled"));
+        StringBuilder runs = new StringBuilder();
+        for (int run = 0; run < nanos.length; run++) {
+            text.append(String.format(Locale.ROOT, "run %-3d %10.1f ms%n", run + 1, millis(nanos[run])));
+            runs.append(run == 0 ? "" : ", ").append(String.format(Locale.ROOT, "%.1f", millis(nanos[run])));
+        }
+        text.append(String.format(Locale.ROOT, "%nmedian %.1f ms, min %.1f ms, max %.1f ms%n",
+            median, millis(sorted[0]), millis(sorted[sorted.length - 1])));
+        text.append(passed ? "Startup time met" : String.format(Locale.ROOT, "Startup time missed: median above %d ms", settings.max().toMillis()))
+            .append(System.lineSeparator());
+        String json = String.format(Locale.ROOT, "{\n  \"aot\": %b,\n  \"cds\": %b,\n  \"runsMillis\": [%s],\n"
+                + "  \"medianMillis\": %.1f,\n  \"maxMillis\": %d,\n  \"passed\": %b\n}\n",
+            settings.aot(), settings.cds(), runs, median, settings.max().toMillis(), passed);
+
+        Files.writeString(settings.reportDir().resolve("startup.txt"), text, StandardCharsets.UTF_8);
+        Files.writeString(settings.reportDir().resolve("summary.json"), json, StandardCharsets.UTF_8);
+        System.out.print(text);
+        return passed;
+    }
+
+    private static void exec(Path log, List<String> command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        int status = process.waitFor();
+        if (status != 0) {
+            throw new IllegalStateException(command.get(1) + " exited with status " + status + ", see " + log);
+        }
+    }
+
+    private static String java() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+}
@@ -0,0 +1,171 @@
+package com.gk.shortlink.admission;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission decisions for the two classes of traffic. Writes (shorten, bulk shorten, import) and redirects
+ * have adaptive concurrency limits of their own, see {@link GradientConcurrencyLimit}. Writes additionally
+ * pass a per-client rate limit, and yield to redirects: while redirect latency is beyond its tolerance, new
+ * writes are turned away until it recovers. Redirects are only turned away beyond their own limit.
+ * <p>
+ * Bulk writes (bulk shorten, import) are admitted like other writes, but their latency grows with their body
+ * and is kept out of the write limit's samples. Their client is charged for the body as it is read, one write
+ * per chunk, and the body is held back while the client is beyond its rate.
+ */
+public final class AdmissionController {
+
+    // the limits of both classes adapt to the latency of their own requests
+    private static final Duration WINDOW = Duration.ofMillis(100);
+    private static final int MIN_LIMIT = 4;
+
+    private final GradientConcurrencyLimit writes;
+    private final GradientConcurrencyLimit redirects;
+    private final ClientRateLimiter clientRates;
+    private final LongAdder writesOverLimit = new LongAdder();
+    private final LongAdder writesOverRate = new LongAdder();
+    private final LongAdder writesYielded = new LongAdder();
+    private final LongAdder redirectsOverLimit = new LongAdder();
+
+    /**
+     * @param writeLimit       initial concurrency limit of writes, which may grow up to eight times that
+     * @param redirectLimit    initial concurrency limit of redirects, which may grow up to eight times that
+     * @param latencyTolerance ratio of current to baseline latency accepted before a limit shrinks
+     * @param clientRate       writes per second a client may send on average
+     * @param clientBurst      writes a client may send at once after being idle
+     * @param clientStripes    number of per-client rate limit buckets
+     */
+    public AdmissionController(int writeLimit, int redirectLimit, double latencyTolerance, double clientRate,
+                               int clientBurst, int clientStripes) {
+        this.writes = new GradientConcurrencyLimit(writeLimit, Math.min(MIN_LIMIT, writeLimit), 8 * writeLimit,
+            latencyTolerance, WINDOW.toNanos());
+        this.redirects = new GradientConcurrencyLimit(redirectLimit, Math.min(MIN_LIMIT, redirectLimit), 8 * redirectLimit,
+            latencyTolerance, WINDOW.toNanos());
+        this.clientRates = new ClientRateLimiter(clientStripes, clientRate, clientBurst);
+    }
+
+    /**
+     * Method to decide on a write before its body is read. An admitted write must be completed with
+     * {@link #writeCompleted(long, boolean)}.
+     *
+     * @param client hash identifying the client
+     * @return 0 if the write is admitted, otherwise the nanoseconds after which the client may retry
+     */
+    public long admitWrite(int client) {
+        long now = System.nanoTime();
+        long wait = clientRates.tryAcquire(client, now);
+        if (wait > 0) {
+            writesOverRate.increment();
+            return wait;
+        }
+        if (redirects.isCongested(now)) {
+            writesYielded.increment();
+            return WINDOW.toNanos();
+        }
+        if (!writes.tryAcquire()) {
+            writesOverLimit.increment();
+            return WINDOW.toNanos();
+        }
+        return 0;
+    }
+
+    /**
+     * Method to decide on a redirect. An admitted redirect must be completed with
+     * {@link #redirectCompleted(long, boolean)}.
+     *
+     * @return true if the redirect is admitted
+     */
+    public boolean admitRedirect() {
+        if (redirects.tryAcquire()) {
+            return true;
+        }
+        redirectsOverLimit.increment();
+        return false;
+    }
+
+    /**
+     * @param latencyNanos time from admission to the end of the response
+     * @param succeeded    false for failed or cancelled writes, whose latency is not recorded
+     */
+    public void writeCompleted(long latencyNanos, boolean succeeded) {
+        complete(writes, latencyNanos, succeeded);
+    }
+
+    /**
+     * Method to complete an admitted bulk write, without recording its latency
+     */
+    public void bulkWriteCompleted() {
+        writes.release();
+    }
+
+    /**
+     * Method to charge the client of a bulk write for the chunks of its body read so far
+     *
+     * @param client hash identifying the client
+     * @param chunks chunks read since the last charge
+     * @return nanoseconds to hold the body back so that the client keeps to its rate, 0 if none
+     */
+    public long chargeBulkWrite(int client, int chunks) {
+        return chunks > 0 ? clientRates.reserve(client, chunks, System.nanoTime()) : 0;
+    }
+
+    /**
+     * @param latencyNanos time from admission to the end of the response
+     * @param succeeded    false for failed or cancelled redirects, whose latency is not recorded
+     */
+    public void redirectCompleted(long latencyNanos, boolean succeeded) {
+        complete(redirects, latencyNanos, succeeded);
+    }
+
+    public int writeLimit() {
+        return writes.limit();
+    }
+
+    public int writesInFlight() {
+        return writes.inFlight();
+    }
+
+    public int redirectLimit() {
+        return redirects.limit();
+    }
+
+    public int redirectsInFlight() {
+        return redirects.inFlight();
+    }
+
+    /**
+     * @return writes rejected because the concurrency limit of writes was reached
+     */
+    public long writesOverLimitCount() {
+        return writesOverLimit.sum();
+    }
+
+    /**
+     * @return writes rejected because their client exceeded its rate
+     */
+    public long writesOverRateCount() {
+        return writesOverRate.sum();
+    }
+
+    /**
+     * @return writes rejected to give way to redirects whose latency was beyond tolerance
+     */
+    public long writesYieldedCount() {
+        return writesYielded.sum();
+    }
+
+    /**
+     * @return redirects rejected because the concurrency limit of redirects was reached
+     */
+    public long redirectsOverLimitCount() {
+        return redirectsOverLimit.sum();
+    }
+
+    private static void complete(GradientConcurrencyLimit limit, long latencyNanos, boolean succeeded) {
+        if (succeeded) {
+            limit.release(latencyNanos, System.nanoTime());
+        } else {
+            limit.release();
+        }
+    }
+}
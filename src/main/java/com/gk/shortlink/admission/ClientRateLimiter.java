@@ -0,0 +1,93 @@
+package com.gk.shortlink.admission;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-client token buckets striped over a fixed array, so memory stays constant whatever the number of
+ * clients. A client hashes to one stripe; clients sharing a stripe share its bucket, which with a few
+ * thousand stripes only happens to a small share of them.
+ * <p>
+ * Each bucket is kept in its GCRA form, a single theoretical arrival time: a request is admitted if that time
+ * is at most the burst tolerance ahead of now, and then moves it one emission interval further. This is
+ * equivalent to a token bucket of {@code burst} tokens refilled at {@code rate} per second, but updates with
+ * one CAS on one long and never locks. Stripes are spread a cache line apart so that busy clients do not
+ * contend on shared lines.
+ */
+final class ClientRateLimiter {
+
+    private static final int PADDING_SHIFT = 3;
+
+    private final AtomicLongArray arrivalTimes;
+    private final int shift;
+    private final long emissionInterval;
+    private final long burstTolerance;
+    // arrival times are relative to this, so that a fresh stripe of zero is in the past
+    private final long origin = System.nanoTime();
+
+    /**
+     * @param stripes number of buckets, rounded up to a power of two
+     * @param rate    requests per second a client is allowed on average
+     * @param burst   requests a client may send at once after being idle
+     */
+    ClientRateLimiter(int stripes, double rate, int burst) {
+        if (rate <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be positive but were " + rate + " and " + burst);
+        }
+        int size = Integer.highestOneBit(Math.max(2, stripes - 1)) << 1;
+        this.arrivalTimes = new AtomicLongArray(size << PADDING_SHIFT);
+        this.shift = Integer.numberOfLeadingZeros(size - 1);
+        this.emissionInterval = Math.max(1, (long) (1e9 / rate));
+        this.burstTolerance = emissionInterval * (burst - 1);
+    }
+
+    /**
+     * Method to take a token from the bucket of a client
+     *
+     * @param client hash identifying the client, e.g. of its address
+     * @param now    current {@link System#nanoTime()}
+     * @return 0 if the request is admitted, otherwise the nanoseconds until the client's next token
+     */
+    long tryAcquire(int client, long now) {
+        int index = stripe(client) << PADDING_SHIFT;
+        long time = now - origin;
+        while (true) {
+            long arrival = arrivalTimes.get(index);
+            long earliest = Math.max(arrival, time);
+            long ahead = earliest - time;
+            if (ahead > burstTolerance) {
+                return ahead - burstTolerance;
+            }
+            if (arrivalTimes.compareAndSet(index, arrival, earliest + emissionInterval)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Method to take tokens from the bucket of a client whether or not it holds them, for work that is paced
+     * rather than turned away
+     *
+     * @param client hash identifying the client
+     * @param tokens tokens to take
+     * @param now    current {@link System#nanoTime()}
+     * @return 0 if the bucket held the tokens, otherwise the nanoseconds until it is back within its burst
+     */
+    long reserve(int client, int tokens, long now) {
+        int index = stripe(client) << PADDING_SHIFT;
+        long time = now - origin;
+        long cost = emissionInterval * tokens;
+        while (true) {
+            long arrival = arrivalTimes.get(index);
+            long earliest = Math.max(arrival, time);
+            if (arrivalTimes.compareAndSet(index, arrival, earliest + cost)) {
+                // the last token taken conforms once its arrival is within the burst tolerance
+                return Math.max(0, earliest + cost - emissionInterval - time - burstTolerance);
+            }
+        }
+    }
+
+    private int stripe(int client) {
+        // Fibonacci hashing: the top bits of the product spread consecutive addresses evenly over the stripes
+        return (client * 0x9E3779B9) >>> shift;
+    }
+}
@@ -0,0 +1,157 @@
+package com.gk.shortlink.admission;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit that adapts to measured latency, after the gradient algorithm of Netflix's
+ * concurrency-limits library. Completed requests feed a window of latencies; at the end of each window the
+ * average is compared with a slowly moving baseline, and the limit shrinks in proportion as latency rises
+ * beyond the tolerated ratio, or grows by about its square root while latency stays within it:
+ * <pre>
+ * gradient = clamp(tolerance * baseline / windowAverage, 0.5, 1)
+ * limit    = smooth(limit * gradient + sqrt(limit))
+ * </pre>
+ * While fewer than half of the permits were ever in use during a window, latency says nothing about the limit and
+ * it is left alone.
+ * <p>
+ * Acquiring and releasing a permit are a CAS and a few adder updates; the window is closed by whichever
+ * releasing thread finds it expired first, without blocking the others.
+ */
+final class GradientConcurrencyLimit {
+
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    // windows averaged into the baseline
+    private static final double BASELINE_WINDOWS = 100;
+    private static final double SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final long windowNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder windowLatency = new LongAdder();
+    private final LongAdder windowSamples = new LongAdder();
+    private final LongAccumulator windowPeakInFlight = new LongAccumulator(Math::max, 0);
+    private final AtomicBoolean updating = new AtomicBoolean();
+    private volatile long windowEnd;
+    private volatile int limit;
+    private volatile boolean congested;
+
+    // written only while holding updating
+    private double estimatedLimit;
+    private double baselineLatency;
+
+    /**
+     * @param initialLimit permits before any latency has been measured
+     * @param minLimit     permits the limit never falls below
+     * @param maxLimit     permits the limit never exceeds
+     * @param tolerance    ratio of window latency to baseline latency accepted before the limit shrinks
+     * @param windowNanos  time over which latencies are averaged before the limit is updated
+     */
+    GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, long windowNanos) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max but were "
+                + minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+        if (tolerance < 1) {
+            throw new IllegalArgumentException("Tolerance must be at least 1 but was " + tolerance);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.windowNanos = windowNanos;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+        this.windowEnd = System.nanoTime() + windowNanos;
+    }
+
+    /**
+     * Method to take a permit if the limit allows another request in flight
+     *
+     * @return true if the request may proceed, in which case it must be released
+     */
+    boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Method to return the permit of a completed request and to record its latency
+     *
+     * @param latencyNanos time the request held its permit
+     * @param now          current {@link System#nanoTime()}
+     */
+    void release(long latencyNanos, long now) {
+        int current = inFlight.getAndDecrement();
+        windowLatency.add(latencyNanos);
+        windowSamples.increment();
+        windowPeakInFlight.accumulate(current);
+        if (now - windowEnd >= 0 && windowSamples.sum() >= MIN_WINDOW_SAMPLES && updating.compareAndSet(false, true)) {
+            try {
+                // another thread may have closed the window since it was checked
+                if (now - windowEnd >= 0) {
+                    windowEnd = now + windowNanos;
+                    long samples = windowSamples.sumThenReset();
+                    long total = windowLatency.sumThenReset();
+                    update((double) total / samples, windowPeakInFlight.getThenReset());
+                }
+            } finally {
+                updating.set(false);
+            }
+        }
+    }
+
+    /**
+     * Method to return the permit of a request that failed or was cancelled, whose latency is no measure of load
+     */
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @param now current {@link System#nanoTime()}
+     * @return true if the latency of the last window exceeded the tolerated ratio to the baseline, unless that
+     *         window closed so long ago that no requests completed since
+     */
+    boolean isCongested(long now) {
+        return congested && now - windowEnd < windowNanos;
+    }
+
+    private void update(double windowAverage, long peakInFlight) {
+        if (baselineLatency == 0) {
+            baselineLatency = windowAverage;
+        } else {
+            baselineLatency += (windowAverage - baselineLatency) / BASELINE_WINDOWS;
+        }
+        if (baselineLatency > 2 * windowAverage) {
+            // latency fell far below the baseline, which an overload dragged up; catch up faster
+            baselineLatency *= 0.95;
+        }
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1, tolerance * baselineLatency / windowAverage));
+        congested = gradient < 1;
+        if (peakInFlight < estimatedLimit / 2) {
+            return;
+        }
+        double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING));
+        limit = (int) estimatedLimit;
+    }
+}
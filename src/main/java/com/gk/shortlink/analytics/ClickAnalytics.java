@@ -0,0 +1,211 @@
+package com.gk.shortlink.analytics;
+
+import com.gk.shortlink.dto.LinkClicks;
+import com.gk.shortlink.generator.Base62;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Click counting off the redirect path. {@link #record(String)} only appends the code's key to one of
+ * several ring buffers, picked by thread so that event-loop threads rarely share one; it neither blocks
+ * nor allocates. A single drainer thread folds the buffered keys into exact per-code totals and a
+ * Space-Saving summary of the currently most clicked links, which decays every {@code decayInterval}.
+ * <p>
+ * A click arriving at a full buffer is dropped and counted, see {@link #droppedCount()}. Totals live in
+ * memory only and start from zero after a restart.
+ */
+public final class ClickAnalytics implements AutoCloseable {
+
+    private static final ClickAnalytics DISABLED = new ClickAnalytics();
+    private static final int DRAIN_LIMIT = 4096;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ClickRingBuffer[] buffers;
+    private final int bufferMask;
+    private final ClickCounters totals = new ClickCounters();
+    private final SpaceSavingTopK recent;
+    private final ReentrantReadWriteLock aggregateLock = new ReentrantReadWriteLock();
+    private final LongConsumer aggregate = this::aggregate;
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final long decayIntervalNanos;
+    private final Thread drainer;
+    private volatile boolean running = true;
+
+    /**
+     * @param stripes       number of ring buffers, rounded up to a power of two; about one per core
+     * @param bufferSize    clicks each ring buffer holds before dropping
+     * @param topK          links tracked for {@link #topLinks(int)}
+     * @param decayInterval how often the counts behind {@link #topLinks(int)} are halved
+     */
+    public ClickAnalytics(int stripes, int bufferSize, int topK, Duration decayInterval) {
+        int count = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.buffers = new ClickRingBuffer[count];
+        for (int i = 0; i < count; i++) {
+            buffers[i] = new ClickRingBuffer(bufferSize);
+        }
+        this.bufferMask = count - 1;
+        this.recent = new SpaceSavingTopK(topK);
+        this.decayIntervalNanos = decayInterval.toNanos();
+        this.drainer = new Thread(this::runDrainer, "click-analytics-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    private ClickAnalytics() {
+        this.buffers = new ClickRingBuffer[0];
+        this.bufferMask = -1;
+        this.recent = new SpaceSavingTopK(1);
+        this.decayIntervalNanos = 0;
+        this.drainer = null;
+        this.running = false;
+    }
+
+    /**
+     * @return analytics that record nothing, for deployments without click counting
+     */
+    public static ClickAnalytics disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Method to record a click on a short code from a redirect
+     *
+     * @param code code that was redirected
+     */
+    public void record(String code) {
+        if (drainer == null) {
+            return;
+        }
+        long key = Base62.toKey(code);
+        if (key < 0) {
+            return;
+        }
+        if (buffers[(int) Thread.currentThread().getId() & bufferMask].offer(key)) {
+            recorded.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Method to read the total clicks of a code, as far as the drainer has caught up
+     *
+     * @param code short code
+     * @return clicks since startup
+     */
+    public long clicks(String code) {
+        long key = Base62.toKey(code);
+        if (key < 0) {
+            return 0;
+        }
+        aggregateLock.readLock().lock();
+        try {
+            return totals.get(key);
+        } finally {
+            aggregateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method to list the links clicked most recently, weighting clicks by half per decay interval
+     *
+     * @param limit most links returned
+     * @return links with their decayed click estimate, most clicked first
+     */
+    public List<LinkClicks> topLinks(int limit) {
+        aggregateLock.readLock().lock();
+        try {
+            return recent.top(limit).stream()
+                .map(hitter -> new LinkClicks(Base62.fromKey(hitter.key()), hitter.count()))
+                .toList();
+        } finally {
+            aggregateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method to fold every click buffered so far into the aggregates, so that reads reflect them
+     */
+    public void flush() {
+        while (drain() > 0) {
+            // until the buffers are empty
+        }
+    }
+
+    /**
+     * @return clicks accepted into a buffer
+     */
+    public long recordedCount() {
+        return recorded.sum();
+    }
+
+    /**
+     * @return clicks dropped because their buffer was full
+     */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void close() {
+        if (drainer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runDrainer() {
+        long nextDecay = System.nanoTime() + decayIntervalNanos;
+        while (running) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            if (decayIntervalNanos > 0 && System.nanoTime() - nextDecay >= 0) {
+                decay();
+                nextDecay += decayIntervalNanos;
+            }
+        }
+        drain();
+    }
+
+    private int drain() {
+        int drained = 0;
+        aggregateLock.writeLock().lock();
+        try {
+            // the write lock also keeps the rings single-consumer
+            for (ClickRingBuffer buffer : buffers) {
+                drained += buffer.drain(aggregate, DRAIN_LIMIT);
+            }
+        } finally {
+            aggregateLock.writeLock().unlock();
+        }
+        return drained;
+    }
+
+    private void aggregate(long key) {
+        totals.add(key, 1);
+        recent.add(key, 1);
+    }
+
+    private void decay() {
+        aggregateLock.writeLock().lock();
+        try {
+            recent.decay();
+        } finally {
+            aggregateLock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.gk.shortlink.analytics;
+
+/**
+ * Growable open-addressing map from code key to click count, with primitive arrays only. Not
+ * thread-safe, {@link ClickAnalytics} guards it.
+ */
+final class ClickCounters {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // key + 1 per slot, zero marks a free slot
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private long[] counts = new long[INITIAL_CAPACITY];
+    private int size;
+
+    void add(long key, long delta) {
+        int slot = slot(keys, key);
+        if (keys[slot] == 0) {
+            if ((size + 1) * 4L > keys.length * 3L) {
+                grow();
+                slot = slot(keys, key);
+            }
+            keys[slot] = key + 1;
+            size++;
+        }
+        counts[slot] += delta;
+    }
+
+    long get(long key) {
+        int slot = slot(keys, key);
+        return keys[slot] == 0 ? 0 : counts[slot];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new long[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slot(keys, oldKeys[i] - 1);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * @return slot holding the key, or the free slot ending its probe sequence
+     */
+    private static int slot(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int slot = (int) mix(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
@@ -0,0 +1,75 @@
+package com.gk.shortlink.analytics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Bounded multi-producer, single-consumer ring of code keys. Producers claim a slot with one CAS on the
+ * tail and publish the key into it; the consumer takes published keys in order and frees their slots.
+ * A slot holds {@code key + 1}, zero marks it free, so no separate sequence array is needed.
+ */
+final class ClickRingBuffer {
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // advanced by the consumer only, after clearing the slots it passed
+    private volatile long head;
+
+    /**
+     * @param capacity slots in the ring, rounded up to a power of two
+     */
+    ClickRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new long[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Method to append a key without blocking or allocating
+     *
+     * @param key non-negative code key
+     * @return false if the ring is full and the key was dropped
+     */
+    boolean offer(long key) {
+        long claimed;
+        do {
+            claimed = tail.get();
+            if (claimed - head >= slots.length) {
+                return false;
+            }
+        } while (!tail.compareAndSet(claimed, claimed + 1));
+        SLOTS.setRelease(slots, (int) claimed & mask, key + 1);
+        return true;
+    }
+
+    /**
+     * Method to take published keys in append order; called from one thread at a time
+     *
+     * @param sink  receiver of the keys
+     * @param limit most keys taken
+     * @return number of keys taken
+     */
+    int drain(LongConsumer sink, int limit) {
+        long position = head;
+        int taken = 0;
+        while (taken < limit) {
+            int index = (int) position & mask;
+            long value = (long) SLOTS.getAcquire(slots, index);
+            if (value == 0) {
+                // free, or claimed by a producer that has not published yet
+                break;
+            }
+            SLOTS.setOpaque(slots, index, 0L);
+            sink.accept(value - 1);
+            position++;
+            taken++;
+        }
+        head = position;
+        return taken;
+    }
+}
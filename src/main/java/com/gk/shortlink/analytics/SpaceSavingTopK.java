@@ -0,0 +1,173 @@
+package com.gk.shortlink.analytics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Space-Saving heavy-hitter summary over a fixed number of counters. A key without a counter takes over
+ * the smallest one and inherits its count as the error bound, so any key occurring more often than
+ * total / capacity is guaranteed to be tracked and no count is underestimated. The counters sit in a
+ * min-heap, making every update O(log capacity) without allocating.
+ * <p>
+ * {@link #decay()} halves every count, turning the totals into an exponentially weighted recent rate.
+ * Not thread-safe, {@link ClickAnalytics} guards it.
+ */
+final class SpaceSavingTopK {
+
+    private final int capacity;
+    private final long[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    // heap[i] is a counter slot, heapPosition[slot] its index in the heap
+    private final int[] heap;
+    private final int[] heapPosition;
+    // key + 1 -> slot + 1 by linear probing, zero marks a free entry
+    private final long[] indexKeys;
+    private final int[] indexSlots;
+    private int size;
+
+    SpaceSavingTopK(int capacity) {
+        this.capacity = capacity;
+        this.keys = new long[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.heap = new int[capacity];
+        this.heapPosition = new int[capacity];
+        int indexSize = Integer.highestOneBit(Math.max(2, capacity * 4 - 1)) << 1;
+        this.indexKeys = new long[indexSize];
+        this.indexSlots = new int[indexSize];
+    }
+
+    void add(long key, long count) {
+        int slot = find(key);
+        if (slot < 0) {
+            if (size < capacity) {
+                slot = size++;
+                keys[slot] = key;
+                counts[slot] = count;
+                index(key, slot);
+                heap[slot] = slot;
+                siftUp(slot);
+                return;
+            }
+            // the smallest counter is taken over and its count becomes the error bound
+            slot = heap[0];
+            unindex(keys[slot]);
+            errors[slot] = counts[slot];
+            keys[slot] = key;
+            index(key, slot);
+        }
+        counts[slot] += count;
+        siftDown(heapPosition[slot]);
+    }
+
+    /**
+     * Method to halve every count; halving keeps the heap order, so nothing is moved
+     */
+    void decay() {
+        for (int slot = 0; slot < size; slot++) {
+            counts[slot] >>>= 1;
+            errors[slot] >>>= 1;
+        }
+    }
+
+    /**
+     * @param limit most entries returned
+     * @return tracked keys with a non-zero count, highest count first
+     */
+    List<HeavyHitter> top(int limit) {
+        List<HeavyHitter> entries = new ArrayList<>(size);
+        for (int slot = 0; slot < size; slot++) {
+            if (counts[slot] > 0) {
+                entries.add(new HeavyHitter(keys[slot], counts[slot], errors[slot]));
+            }
+        }
+        entries.sort(Comparator.comparingLong(HeavyHitter::count).reversed());
+        return entries.size() > limit ? List.copyOf(entries.subList(0, limit)) : entries;
+    }
+
+    /**
+     * @param key   code key
+     * @param count estimated occurrences, at most {@code error} too high
+     * @param error occurrences that may belong to keys this counter tracked before
+     */
+    record HeavyHitter(long key, long count, long error) {
+    }
+
+    private void siftUp(int position) {
+        int slot = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (counts[heap[parent]] <= counts[slot]) {
+                break;
+            }
+            heap[position] = heap[parent];
+            heapPosition[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = slot;
+        heapPosition[slot] = position;
+    }
+
+    private void siftDown(int position) {
+        int slot = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+                child++;
+            }
+            if (counts[heap[child]] >= counts[slot]) {
+                break;
+            }
+            heap[position] = heap[child];
+            heapPosition[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = slot;
+        heapPosition[slot] = position;
+    }
+
+    private int find(long key) {
+        int mask = indexKeys.length - 1;
+        for (int i = (int) ClickCounters.mix(key) & mask; indexKeys[i] != 0; i = (i + 1) & mask) {
+            if (indexKeys[i] == key + 1) {
+                return indexSlots[i] - 1;
+            }
+        }
+        return -1;
+    }
+
+    private void index(long key, int slot) {
+        int mask = indexKeys.length - 1;
+        int i = (int) ClickCounters.mix(key) & mask;
+        while (indexKeys[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        indexKeys[i] = key + 1;
+        indexSlots[i] = slot + 1;
+    }
+
+    private void unindex(long key) {
+        int mask = indexKeys.length - 1;
+        int i = (int) ClickCounters.mix(key) & mask;
+        while (indexKeys[i] != key + 1) {
+            i = (i + 1) & mask;
+        }
+        // backward-shift deletion keeps every probe sequence unbroken without tombstones
+        int gap = i;
+        for (int j = (gap + 1) & mask; indexKeys[j] != 0; j = (j + 1) & mask) {
+            int home = (int) ClickCounters.mix(indexKeys[j] - 1) & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                indexKeys[gap] = indexKeys[j];
+                indexSlots[gap] = indexSlots[j];
+                gap = j;
+            }
+        }
+        indexKeys[gap] = 0;
+        indexSlots[gap] = 0;
+    }
+}
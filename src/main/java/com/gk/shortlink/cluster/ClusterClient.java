@@ -0,0 +1,75 @@
+package com.gk.shortlink.cluster;
+
+import com.gk.shortlink.exception.NodeUnavailableException;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Client for the internal lookup endpoint of the other members. Every member gets a client bound to its
+ * base URL on top of one shared pool of keep-alive connections, so a forwarded lookup normally reuses an
+ * open connection and costs a single round trip with a plain-text body.
+ */
+public class ClusterClient implements AutoCloseable {
+
+    static final String LINKS_PATH = "/api/v1/cluster/links/";
+
+    private final ConnectionProvider connections;
+    private final List<HttpClient> clients;
+    private final ClusterTopology topology;
+
+    /**
+     * @param topology       cluster members
+     * @param maxConnections connections kept per member
+     * @param timeout        time allowed for a member to answer
+     */
+    public ClusterClient(ClusterTopology topology, int maxConnections, Duration timeout) {
+        this.topology = topology;
+        this.connections = ConnectionProvider.builder("shortlink-cluster")
+            .maxConnections(maxConnections)
+            .pendingAcquireTimeout(timeout)
+            .maxIdleTime(Duration.ofSeconds(30))
+            .build();
+        HttpClient base = HttpClient.create(connections)
+            .keepAlive(true)
+            .followRedirect(false)
+            .responseTimeout(timeout);
+        this.clients = new ArrayList<>(topology.size());
+        for (int member = 0; member < topology.size(); member++) {
+            clients.add(member == topology.nodeIndex() ? null : base.baseUrl(topology.member(member).toString()));
+        }
+    }
+
+    /**
+     * Method to look up a code in the store of the member owning it
+     *
+     * @param member index of the owning member
+     * @param code   short code
+     * @return original URL, empty if the owner does not know the code, or a {@link NodeUnavailableException}
+     * if the owner cannot be reached or fails
+     */
+    public Mono<String> fetchUrl(int member, String code) {
+        return clients.get(member).get()
+            .uri(LINKS_PATH + code)
+            .responseSingle((response, body) -> body.asString(StandardCharsets.UTF_8)
+                .defaultIfEmpty("")
+                .flatMap(text -> switch (response.status().code()) {
+                    case 200 -> Mono.just(text);
+                    case 404 -> Mono.<String>empty();
+                    default -> Mono.<String>error(new NodeUnavailableException(
+                        "Node " + topology.member(member) + " answered " + response.status().code()));
+                }))
+            .onErrorMap(error -> !(error instanceof NodeUnavailableException),
+                error -> new NodeUnavailableException("Node " + topology.member(member) + " is unavailable", error));
+    }
+
+    @Override
+    public void close() {
+        connections.dispose();
+    }
+}
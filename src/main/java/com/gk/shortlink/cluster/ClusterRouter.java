@@ -0,0 +1,99 @@
+package com.gk.shortlink.cluster;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Resolves codes owned by other members. Resolved URLs are kept in a small near-cache for a short time,
+ * so hot links of another shard are served locally after the first forward; the short lifetime bounds
+ * how long a link removed on its owner can still be served.
+ */
+public class ClusterRouter {
+
+    private static final ClusterRouter STANDALONE = new ClusterRouter(ClusterTopology.standalone(), null, null,
+        Duration.ZERO, 0);
+
+    private final ClusterTopology topology;
+    private final ClusterClient client;
+    private final ShortLinkMetrics metrics;
+    private final Cache<String, String> nearCache;
+
+    /**
+     * @param topology      cluster members
+     * @param client        client for the other members
+     * @param metrics       meters recording forwards and near-cache hits
+     * @param nearCacheTtl  time a forwarded lookup is served from the near-cache
+     * @param nearCacheSize maximum number of URLs in the near-cache
+     */
+    public ClusterRouter(ClusterTopology topology, ClusterClient client, ShortLinkMetrics metrics,
+                         Duration nearCacheTtl, long nearCacheSize) {
+        this.topology = topology;
+        this.client = client;
+        this.metrics = metrics;
+        this.nearCache = Caffeine.newBuilder()
+            .expireAfterWrite(nearCacheTtl)
+            .maximumSize(nearCacheSize)
+            .build();
+    }
+
+    /**
+     * Method to get the router of a node running on its own, which never forwards
+     *
+     * @return router owning every code
+     */
+    public static ClusterRouter standalone() {
+        return STANDALONE;
+    }
+
+    /**
+     * @return true if the code belongs to another member and has to be resolved through {@link #resolve(String)}
+     */
+    public boolean isRemote(String code) {
+        return !topology.isLocal(code);
+    }
+
+    /**
+     * Method to resolve a code of another member, from the near-cache or by asking the owner
+     *
+     * @param code short code owned by another member
+     * @return original URL, or empty if the owner does not know the code
+     */
+    public Mono<String> resolve(String code) {
+        String cached = cached(code);
+        return cached != null ? Mono.just(cached) : forward(code);
+    }
+
+    /**
+     * Method to look a code of another member up in the near-cache only
+     *
+     * @param code short code owned by another member
+     * @return original URL, or null if it is not cached
+     */
+    public String cached(String code) {
+        String cached = nearCache.getIfPresent(code);
+        if (cached != null) {
+            metrics.recordNearCacheHit();
+        }
+        return cached;
+    }
+
+    /**
+     * Method to ask the owner of a code for its URL, bypassing the near-cache and caching what it answers
+     *
+     * @param code short code owned by another member
+     * @return original URL, or empty if the owner does not know the code
+     */
+    public Mono<String> forward(String code) {
+        return client.fetchUrl(topology.ownerOf(code), code)
+            .doOnNext(url -> {
+                nearCache.put(code, url);
+                metrics.recordForward(true);
+            })
+            .doOnError(error -> metrics.recordForwardFailure())
+            .switchIfEmpty(Mono.fromRunnable(() -> metrics.recordForward(false)));
+    }
+}
@@ -0,0 +1,72 @@
+package com.gk.shortlink.cluster;
+
+import com.gk.shortlink.generator.Base62;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Static cluster membership. Every code belongs to exactly one member, its shard, which is derived from the
+ * code itself: the code's base62 value modulo the member count. Codes are permuted or random, so shards are
+ * evenly sized, and any node can route a code without asking anyone. All members must list the same members
+ * in the same order.
+ */
+public final class ClusterTopology {
+
+    private static final ClusterTopology STANDALONE = new ClusterTopology(List.of(), 0);
+
+    private final List<URI> members;
+    private final int nodeIndex;
+
+    /**
+     * @param members   base URLs of all members, the position in the list being the member's shard
+     * @param nodeIndex position of this node in {@code members}
+     */
+    public ClusterTopology(List<URI> members, int nodeIndex) {
+        if (!members.isEmpty() && (nodeIndex < 0 || nodeIndex >= members.size())) {
+            throw new IllegalArgumentException("Node index " + nodeIndex + " is not a position in the "
+                + members.size() + " cluster members");
+        }
+        this.members = List.copyOf(members);
+        this.nodeIndex = nodeIndex;
+    }
+
+    /**
+     * Method to get the topology of a node running on its own, which owns every code
+     *
+     * @return single node topology
+     */
+    public static ClusterTopology standalone() {
+        return STANDALONE;
+    }
+
+    /**
+     * Method to find the shard of a code
+     *
+     * @param code short code
+     * @return index of the owning member, this node's index for codes that are not valid base62
+     */
+    public int ownerOf(String code) {
+        if (members.size() < 2) {
+            return nodeIndex;
+        }
+        long key = Base62.toKey(code);
+        return key < 0 ? nodeIndex : (int) (key % members.size());
+    }
+
+    public boolean isLocal(String code) {
+        return ownerOf(code) == nodeIndex;
+    }
+
+    public URI member(int index) {
+        return members.get(index);
+    }
+
+    public int size() {
+        return Math.max(1, members.size());
+    }
+
+    public int nodeIndex() {
+        return nodeIndex;
+    }
+}
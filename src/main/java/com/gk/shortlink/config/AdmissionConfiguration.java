@@ -0,0 +1,28 @@
+package com.gk.shortlink.config;
+
+import com.gk.shortlink.admission.AdmissionController;
+import com.gk.shortlink.controller.AdmissionControlFilter;
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "shortlink.admission", name = "enabled", havingValue = "true")
+public class AdmissionConfiguration {
+
+    @Bean
+    public AdmissionController admissionController(ShortLinkProperties properties, ShortLinkMetrics metrics) {
+        ShortLinkProperties.Admission admission = properties.admission();
+        AdmissionController controller = new AdmissionController(admission.writeLimit(), admission.redirectLimit(),
+            admission.latencyTolerance(), admission.clientRate(), admission.clientBurst(), admission.clientStripes());
+        metrics.bindAdmission(controller);
+        return controller;
+    }
+
+    @Bean
+    public AdmissionControlFilter admissionControlFilter(AdmissionController admissionController, ShortLinkProperties properties) {
+        return new AdmissionControlFilter(admissionController, properties.codeLength(),
+            (int) properties.admission().bulkChunkSize().toBytes(), properties.admission().clientHeader());
+    }
+}
@@ -0,0 +1,22 @@
+package com.gk.shortlink.config;
+
+import com.gk.shortlink.analytics.ClickAnalytics;
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration(proxyBeanMethods = false)
+public class AnalyticsConfiguration {
+
+    @Bean
+    public ClickAnalytics clickAnalytics(ShortLinkProperties properties, ShortLinkMetrics metrics) {
+        ShortLinkProperties.Analytics analytics = properties.analytics();
+        if (!analytics.enabled()) {
+            return ClickAnalytics.disabled();
+        }
+        ClickAnalytics clickAnalytics = new ClickAnalytics(Runtime.getRuntime().availableProcessors(),
+            analytics.bufferSize(), analytics.topK(), analytics.decayInterval());
+        metrics.bindAnalytics(clickAnalytics);
+        return clickAnalytics;
+    }
+}
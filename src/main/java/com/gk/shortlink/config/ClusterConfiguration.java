@@ -0,0 +1,43 @@
+package com.gk.shortlink.config;
+
+import com.gk.shortlink.cluster.ClusterClient;
+import com.gk.shortlink.cluster.ClusterRouter;
+import com.gk.shortlink.cluster.ClusterTopology;
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration(proxyBeanMethods = false)
+public class ClusterConfiguration {
+
+    @Bean
+    public ClusterTopology clusterTopology(ShortLinkProperties properties) {
+        ShortLinkProperties.Cluster cluster = properties.cluster();
+        if (!cluster.enabled()) {
+            return ClusterTopology.standalone();
+        }
+        if (cluster.members().isEmpty()) {
+            throw new IllegalStateException("shortlink.cluster.members must list every node when cluster mode is enabled");
+        }
+        return new ClusterTopology(cluster.members(), cluster.nodeIndex());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "shortlink.cluster", name = "enabled", havingValue = "true")
+    public ClusterClient clusterClient(ClusterTopology topology, ShortLinkProperties properties) {
+        ShortLinkProperties.Cluster cluster = properties.cluster();
+        return new ClusterClient(topology, cluster.maxConnections(), cluster.forwardTimeout());
+    }
+
+    @Bean
+    public ClusterRouter clusterRouter(ClusterTopology topology, ObjectProvider<ClusterClient> client,
+                                       ShortLinkMetrics metrics, ShortLinkProperties properties) {
+        ShortLinkProperties.Cluster cluster = properties.cluster();
+        if (!cluster.enabled()) {
+            return ClusterRouter.standalone();
+        }
+        return new ClusterRouter(topology, client.getObject(), metrics, cluster.nearCacheTtl(), cluster.nearCacheSize());
+    }
+}
@@ -0,0 +1,48 @@
+package com.gk.shortlink.config;
+
+import com.gk.shortlink.cluster.ClusterTopology;
+import com.gk.shortlink.cluster.ShardedCodeGenerator;
+import com.gk.shortlink.generator.BlockSequenceCodeGenerator;
+import com.gk.shortlink.generator.CodeGenerator;
+import com.gk.shortlink.generator.RandomCodeGenerator;
+import com.gk.shortlink.generator.SeedFile;
+import com.gk.shortlink.store.StorageBackend;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.security.SecureRandom;
+
+@Configuration(proxyBeanMethods = false)
+public class CodeGeneratorConfiguration {
+
+    @Bean
+    public CodeGenerator codeGenerator(ShortLinkProperties properties, ClusterTopology topology) {
+        ShortLinkProperties.Generator generator = properties.generator();
+        CodeGenerator codeGenerator = switch (generator.mode()) {
+            case SEQUENCE -> new BlockSequenceCodeGenerator(properties.codeLength(), generator.blockSize(), seed(properties, topology));
+            case RANDOM -> new RandomCodeGenerator(properties.codeLength());
+        };
+        // in cluster mode a node only creates codes of its own shard
+        return topology.size() > 1 ? new ShardedCodeGenerator(codeGenerator, topology) : codeGenerator;
+    }
+
+    private static long seed(ShortLinkProperties properties, ClusterTopology topology) {
+        Long seed = properties.generator().seed();
+        if (seed != null) {
+            return seed;
+        }
+        if (topology.size() > 1) {
+            // members draw disjoint codes from one permutation, a seed of their own would make them collide
+            throw new IllegalStateException("shortlink.generator.seed must be set to the same private value on every "
+                + "node in cluster mode");
+        }
+        // the seed lives as long as the mappings, so the generator recognises its codes after a restart
+        if (properties.persistence().enabled()) {
+            return SeedFile.loadOrCreate(properties.persistence().dataDir());
+        }
+        if (properties.storage().backend() == StorageBackend.FILE) {
+            return SeedFile.loadOrCreate(properties.storage().dataDir());
+        }
+        return new SecureRandom().nextLong();
+    }
+}
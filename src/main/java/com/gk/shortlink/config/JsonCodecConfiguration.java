@@ -0,0 +1,17 @@
+package com.gk.shortlink.config;
+
+import com.gk.shortlink.controller.ShortLinkJsonEncoder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration(proxyBeanMethods = false)
+public class JsonCodecConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "shortlink.json", name = "template-encoder", havingValue = "true", matchIfMissing = true)
+    public CodecCustomizer shortLinkJsonCodecCustomizer() {
+        return configurer -> configurer.customCodecs().register(new ShortLinkJsonEncoder());
+    }
+}
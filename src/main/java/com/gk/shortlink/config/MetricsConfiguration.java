@@ -0,0 +1,15 @@
+package com.gk.shortlink.config;
+
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfiguration {
+
+    @Bean
+    public ShortLinkMetrics shortLinkMetrics(MeterRegistry meterRegistry) {
+        return new ShortLinkMetrics(meterRegistry);
+    }
+}
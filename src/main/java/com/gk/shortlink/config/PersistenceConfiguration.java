@@ -0,0 +1,20 @@
+package com.gk.shortlink.config;
+
+import com.gk.shortlink.persistence.FileMappingJournal;
+import com.gk.shortlink.persistence.MappingJournal;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration(proxyBeanMethods = false)
+public class PersistenceConfiguration {
+
+    @Bean
+    public MappingJournal mappingJournal(ShortLinkProperties properties) {
+        ShortLinkProperties.Persistence persistence = properties.persistence();
+        if (!persistence.enabled()) {
+            return MappingJournal.disabled();
+        }
+        return new FileMappingJournal(persistence.dataDir(), persistence.segmentSize().toBytes(),
+            persistence.fsyncPolicy(), persistence.fsyncInterval(), persistence.snapshotInterval());
+    }
+}
@@ -0,0 +1,33 @@
+package com.gk.shortlink.config;
+
+import com.gk.shortlink.admission.AdmissionController;
+import com.gk.shortlink.analytics.ClickAnalytics;
+import com.gk.shortlink.controller.ShortCodeRedirectFilter;
+import com.gk.shortlink.controller.ShortCodeRedirectServer;
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import com.gk.shortlink.service.UrlShortenerService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.Nullable;
+
+@Configuration(proxyBeanMethods = false)
+public class RedirectConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "shortlink.redirect", name = "fast-path", havingValue = "true", matchIfMissing = true)
+    public ShortCodeRedirectFilter shortCodeRedirectFilter(UrlShortenerService urlShortenerService, ShortLinkMetrics metrics,
+                                                           ClickAnalytics analytics, ShortLinkProperties properties) {
+        return new ShortCodeRedirectFilter(urlShortenerService, metrics, analytics, properties.codeLength());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "shortlink.redirect.listener", name = "enabled", havingValue = "true")
+    public ShortCodeRedirectServer shortCodeRedirectServer(UrlShortenerService urlShortenerService, ShortLinkMetrics metrics,
+                                                           ClickAnalytics analytics, ShortLinkProperties properties,
+                                                           @Nullable AdmissionController admissionController) {
+        ShortLinkProperties.Redirect.Listener listener = properties.redirect().listener();
+        return new ShortCodeRedirectServer(urlShortenerService, metrics, analytics, admissionController, properties.codeLength(),
+            listener.port(), listener.preferNative());
+    }
+}
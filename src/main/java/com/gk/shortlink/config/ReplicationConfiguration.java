@@ -0,0 +1,70 @@
+package com.gk.shortlink.config;
+
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import com.gk.shortlink.persistence.MappingJournal;
+import com.gk.shortlink.replication.ChangeFeed;
+import com.gk.shortlink.replication.ReplicationFollower;
+import com.gk.shortlink.replication.ReplicationLeader;
+import com.gk.shortlink.service.UrlShortenerService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Path;
+
+@Configuration(proxyBeanMethods = false)
+public class ReplicationConfiguration {
+
+    private static final String OFFSET_FILE = "replication.offset";
+
+    @Bean
+    @ConditionalOnProperty(prefix = "shortlink.replication", name = "role", havingValue = "leader")
+    public ChangeFeed changeFeed(ShortLinkProperties properties) {
+        checkStandalone(properties);
+        return new ChangeFeed(properties.replication().retainedChanges());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "shortlink.replication", name = "role", havingValue = "leader")
+    public ReplicationLeader replicationLeader(ChangeFeed changeFeed, UrlShortenerService urlShortenerService,
+                                               ShortLinkMetrics metrics, ShortLinkProperties properties) {
+        ShortLinkProperties.Replication replication = properties.replication();
+        if (!replication.bindAddress().isLoopbackAddress() && replication.secretBytes() == null) {
+            throw new IllegalStateException("shortlink.replication.secret must be set for a leader listening on "
+                + replication.bindAddress().getHostAddress());
+        }
+        ReplicationLeader leader = new ReplicationLeader(changeFeed, urlShortenerService::exportMappings, replication.bindAddress(),
+            replication.port(), replication.secretBytes(), replication.maxBatch(), replication.heartbeatInterval());
+        metrics.bindReplicationLeader(leader);
+        return leader;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "shortlink.replication", name = "role", havingValue = "follower")
+    public ReplicationFollower replicationFollower(UrlShortenerService urlShortenerService, MappingJournal journal,
+                                                   ShortLinkMetrics metrics, ShortLinkProperties properties) {
+        checkStandalone(properties);
+        ShortLinkProperties.Replication replication = properties.replication();
+        URI leader = replication.leader();
+        if (leader == null || leader.getHost() == null) {
+            throw new IllegalStateException("shortlink.replication.leader must name the leader, e.g. tcp://leader:7070, on a follower");
+        }
+        // the offset is only worth keeping next to a journal holding what was applied before it
+        ShortLinkProperties.Persistence persistence = properties.persistence();
+        Path offsetFile = persistence.enabled() ? persistence.dataDir().resolve(OFFSET_FILE) : null;
+        ReplicationFollower follower = new ReplicationFollower(
+            new InetSocketAddress(leader.getHost(), leader.getPort() > 0 ? leader.getPort() : replication.port()),
+            replication.secretBytes(), urlShortenerService::applyReplicated, journal::force, offsetFile, replication.reconnectDelay(),
+            replication.readYourWritesTimeout());
+        metrics.bindReplicationFollower(follower);
+        return follower;
+    }
+
+    private static void checkStandalone(ShortLinkProperties properties) {
+        if (properties.cluster().enabled()) {
+            throw new IllegalStateException("shortlink.replication cannot be combined with cluster mode");
+        }
+    }
+}
@@ -1,11 +1,407 @@
 package com.gk.shortlink.config;
 
+import com.gk.shortlink.generator.GeneratorMode;
+import com.gk.shortlink.persistence.FsyncPolicy;
+import com.gk.shortlink.replication.ReplicationRole;
+import com.gk.shortlink.store.CanonicalizationRule;
+import com.gk.shortlink.store.StorageBackend;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.ConstructorBinding;
 import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 @ConfigurationProperties(prefix = "shortlink")
 public record ShortLinkProperties(
     @DefaultValue("short.ly") String host,
     @DefaultValue("10000") int maxCapacity,
-    @DefaultValue("6") int codeLength
-) {}
+    @DefaultValue("6") int codeLength,
+    @DefaultValue Generator generator,
+    @DefaultValue Persistence persistence,
+    @DefaultValue Dedup dedup,
+    @DefaultValue Compression compression,
+    @DefaultValue Cluster cluster,
+    @DefaultValue Storage storage,
+    @DefaultValue Analytics analytics,
+    @DefaultValue ColdTier coldTier,
+    @DefaultValue Admission admission,
+    @DefaultValue Redirect redirect,
+    @DefaultValue CodeFilter codeFilter,
+    @DefaultValue Replication replication,
+    @DefaultValue Lookup lookup,
+    @DefaultValue MemoryBudget memoryBudget
+) {
+
+    @ConstructorBinding
+    public ShortLinkProperties {
+        if (generator == null) {
+            generator = Generator.DEFAULTS;
+        }
+        if (persistence == null) {
+            persistence = Persistence.DEFAULTS;
+        }
+        if (dedup == null) {
+            dedup = Dedup.DEFAULTS;
+        }
+        if (compression == null) {
+            compression = Compression.DEFAULTS;
+        }
+        if (cluster == null) {
+            cluster = Cluster.DEFAULTS;
+        }
+        if (storage == null) {
+            storage = Storage.DEFAULTS;
+        }
+        if (analytics == null) {
+            analytics = Analytics.DEFAULTS;
+        }
+        if (coldTier == null) {
+            coldTier = ColdTier.DEFAULTS;
+        }
+        if (admission == null) {
+            admission = Admission.DEFAULTS;
+        }
+        if (redirect == null) {
+            redirect = Redirect.DEFAULTS;
+        }
+        if (codeFilter == null) {
+            codeFilter = CodeFilter.DEFAULTS;
+        }
+        if (replication == null) {
+            replication = Replication.DEFAULTS;
+        }
+        if (lookup == null) {
+            lookup = Lookup.DEFAULTS;
+        }
+        if (memoryBudget == null) {
+            memoryBudget = MemoryBudget.DEFAULTS;
+        }
+    }
+
+    public ShortLinkProperties(String host, int maxCapacity, int codeLength) {
+        this(host, maxCapacity, codeLength, null, null, null, null, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    /**
+     * Short code generation settings
+     *
+     * @param mode        {@code sequence} for collision-free permuted IDs or {@code random}
+     * @param blockSize   number of IDs a thread leases at once in sequence mode
+     * @param maxAttempts attempts made to find an unused code before giving up
+     * @param seed        key of the ID permutation; keep it stable and private per deployment. Required in
+     *                    cluster mode, otherwise drawn once and kept next to the journal or the file link store
+     */
+    public record Generator(
+        @DefaultValue("sequence") GeneratorMode mode,
+        @DefaultValue("1024") int blockSize,
+        @DefaultValue("5") int maxAttempts,
+        Long seed
+    ) {
+        static final Generator DEFAULTS = new Generator(GeneratorMode.SEQUENCE, 1024, 5, null);
+    }
+
+    /**
+     * Mapping journal settings
+     *
+     * @param enabled          whether mappings are journaled to disk and replayed on startup
+     * @param dataDir          directory holding segment and snapshot files
+     * @param segmentSize      size of each preallocated, memory-mapped segment
+     * @param fsyncPolicy      when written records are forced to disk
+     * @param fsyncInterval    force interval for the {@code interval} policy
+     * @param snapshotInterval how often a compacted snapshot replaces sealed segments, zero to disable
+     */
+    public record Persistence(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("data") Path dataDir,
+        @DefaultValue("64MB") DataSize segmentSize,
+        @DefaultValue("interval") FsyncPolicy fsyncPolicy,
+        @DefaultValue("1s") Duration fsyncInterval,
+        @DefaultValue("1h") Duration snapshotInterval
+    ) {
+        static final Persistence DEFAULTS = new Persistence(false, Path.of("data"), DataSize.ofMegabytes(64),
+            FsyncPolicy.INTERVAL, Duration.ofSeconds(1), Duration.ofHours(1));
+    }
+
+    /**
+     * URL deduplication settings
+     *
+     * @param rules canonicalization applied before URLs are compared; an empty set deduplicates identical URLs only
+     */
+    public record Dedup(
+        @DefaultValue({"lowercase-scheme-and-host", "remove-default-port", "add-empty-path"}) Set<CanonicalizationRule> rules
+    ) {
+        static final Dedup DEFAULTS = new Dedup(EnumSet.of(CanonicalizationRule.LOWERCASE_SCHEME_AND_HOST,
+            CanonicalizationRule.REMOVE_DEFAULT_PORT, CanonicalizationRule.ADD_EMPTY_PATH));
+    }
+
+    /**
+     * Stored URL compression settings
+     *
+     * @param enabled         whether URLs are stored as a shared prefix id plus the remaining bytes
+     * @param dictionarySize  maximum number of prefixes in a trained dictionary
+     * @param sampleSize      number of stored URLs a dictionary is trained on
+     * @param retrainInterval how often the dictionary is retrained to follow the traffic
+     */
+    public record Compression(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("1024") int dictionarySize,
+        @DefaultValue("10000") int sampleSize,
+        @DefaultValue("10m") Duration retrainInterval
+    ) {
+        static final Compression DEFAULTS = new Compression(false, 1024, 10000, Duration.ofMinutes(10));
+    }
+
+    /**
+     * Cluster mode settings
+     *
+     * @param enabled        whether codes are sharded across the members
+     * @param nodeIndex      position of this node in {@code members}
+     * @param members        base URLs of all nodes, identical and in the same order on every node
+     * @param nearCacheTtl   time a URL resolved by another node is served locally
+     * @param nearCacheSize  maximum number of URLs resolved by other nodes kept locally
+     * @param forwardTimeout time allowed for the owning node to answer a forwarded lookup
+     * @param maxConnections pooled connections to each other node
+     */
+    public record Cluster(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("0") int nodeIndex,
+        @DefaultValue List<URI> members,
+        @DefaultValue("2s") Duration nearCacheTtl,
+        @DefaultValue("100000") long nearCacheSize,
+        @DefaultValue("500ms") Duration forwardTimeout,
+        @DefaultValue("64") int maxConnections
+    ) {
+        static final Cluster DEFAULTS = new Cluster(false, 0, List.of(), Duration.ofSeconds(2), 100_000,
+            Duration.ofMillis(500), 64);
+
+        public Cluster {
+            members = members == null ? List.of() : List.copyOf(members);
+        }
+    }
+
+    /**
+     * Link store settings
+     *
+     * @param backend            {@code memory} keeps mappings in the bounded store only, {@code file} makes an
+     *                           embedded link store the system of record with the store as its near-cache
+     * @param dataDir            directory holding the file backend's data file
+     * @param fsync              whether every group commit is forced to disk before it is acknowledged
+     * @param writeQueueCapacity writes queued for the backend before new ones are rejected
+     * @param maxWriteBatch      most writes coalesced into one group commit
+     */
+    public record Storage(
+        @DefaultValue("memory") StorageBackend backend,
+        @DefaultValue("data/links") Path dataDir,
+        @DefaultValue("true") boolean fsync,
+        @DefaultValue("65536") int writeQueueCapacity,
+        @DefaultValue("1024") int maxWriteBatch
+    ) {
+        static final Storage DEFAULTS = new Storage(StorageBackend.MEMORY, Path.of("data/links"), true, 65536, 1024);
+    }
+
+    /**
+     * Click analytics settings
+     *
+     * @param enabled       whether redirects are counted per code
+     * @param bufferSize    clicks buffered per ring buffer before new ones are dropped
+     * @param topK          links tracked as candidates for the most clicked links
+     * @param decayInterval how often the counts ranking the most clicked links are halved
+     */
+    public record Analytics(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("8192") int bufferSize,
+        @DefaultValue("1000") int topK,
+        @DefaultValue("1m") Duration decayInterval
+    ) {
+        static final Analytics DEFAULTS = new Analytics(false, 8192, 1000, Duration.ofMinutes(1));
+    }
+
+    /**
+     * Cold tier settings
+     *
+     * @param enabled     whether mappings evicted from memory are demoted to memory-mapped files instead of dropped
+     * @param dataDir     directory holding the cold tier's files, emptied on startup
+     * @param segmentSize size of each preallocated segment file
+     * @param diskBudget  bytes of segment files beyond which the oldest mappings are dropped, unset for no limit
+     */
+    public record ColdTier(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("data/cold") Path dataDir,
+        @DefaultValue("256MB") DataSize segmentSize,
+        DataSize diskBudget
+    ) {
+        static final ColdTier DEFAULTS = new ColdTier(false, Path.of("data/cold"), DataSize.ofMegabytes(256), null);
+    }
+
+    /**
+     * Load shedding settings
+     *
+     * @param enabled          whether writes and redirects are admitted against adaptive concurrency limits
+     * @param writeLimit       initial concurrency limit of writes, adapted up to eight times that
+     * @param redirectLimit    initial concurrency limit of redirects, adapted up to eight times that
+     * @param latencyTolerance ratio of current to baseline latency accepted before a limit shrinks
+     * @param clientRate       writes per second allowed to a client on average
+     * @param clientBurst      writes a client may send at once after being idle
+     * @param clientStripes    buckets the client rate limits are spread over
+     * @param bulkChunkSize    bytes of a bulk shorten or import body charged to the client rate as one write
+     * @param clientHeader     header a trusted proxy identifies clients by, such as {@code X-Forwarded-For}, of
+     *                         which the last entry counts; unset to tell clients apart by their remote address
+     */
+    public record Admission(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("32") int writeLimit,
+        @DefaultValue("512") int redirectLimit,
+        @DefaultValue("2.0") double latencyTolerance,
+        @DefaultValue("100") double clientRate,
+        @DefaultValue("200") int clientBurst,
+        @DefaultValue("4096") int clientStripes,
+        @DefaultValue("4KB") DataSize bulkChunkSize,
+        String clientHeader
+    ) {
+        static final Admission DEFAULTS = new Admission(false, 32, 512, 2.0, 100, 200, 4096, DataSize.ofKilobytes(4), null);
+    }
+
+    /**
+     * Redirect settings
+     *
+     * @param fastPath    whether redirects are answered by a web filter ahead of the dispatcher
+     * @param status      status of redirects for links that do not choose one, one of 301, 302, 307 and 308
+     * @param cacheMaxAge how long clients may cache redirects of links that do not choose, unset for no Cache-Control
+     * @param listener    dedicated listener answering redirects outside of WebFlux
+     */
+    public record Redirect(
+        @DefaultValue("true") boolean fastPath,
+        @DefaultValue("302") int status,
+        Duration cacheMaxAge,
+        @DefaultValue Listener listener
+    ) {
+        static final Redirect DEFAULTS = new Redirect(true, 302, null, Listener.DEFAULTS);
+
+        public Redirect {
+            if (listener == null) {
+                listener = Listener.DEFAULTS;
+            }
+        }
+
+        /**
+         * Redirect listener settings
+         *
+         * @param enabled      whether {@code GET /{code}} is also served on a port of its own, straight from Reactor Netty
+         * @param port         port of the listener, 0 for a random one
+         * @param preferNative whether the native epoll transport is used when available
+         */
+        public record Listener(
+            @DefaultValue("false") boolean enabled,
+            @DefaultValue("8081") int port,
+            @DefaultValue("true") boolean preferNative
+        ) {
+            static final Listener DEFAULTS = new Listener(false, 8081, true);
+        }
+    }
+
+    /**
+     * Issued code filter settings
+     *
+     * @param enabled           whether lookups of codes never issued are answered by a Bloom filter without a lookup
+     * @param expectedCodes     codes the filter is sized for at first; it grows beyond that
+     * @param falsePositiveRate share of codes never issued that still go through to a lookup
+     */
+    public record CodeFilter(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("1000000") long expectedCodes,
+        @DefaultValue("0.01") double falsePositiveRate
+    ) {
+        static final CodeFilter DEFAULTS = new CodeFilter(false, 1_000_000, 0.01);
+    }
+
+    /**
+     * Leader-follower replication settings
+     *
+     * @param role                  {@code none}, {@code leader} accepting writes and streaming them, or
+     *                              {@code follower} serving redirects from the leader's stream
+     * @param port                  port the leader listens on for followers, and the default port of {@code leader}
+     * @param bindAddress           address the leader listens on; anything but loopback requires a {@code secret}
+     * @param secret                secret shared by the leader and its followers, which followers must prove
+     *                              they hold to receive the feed
+     * @param leader                address of the leader a follower connects to, e.g. {@code tcp://leader:7070}
+     * @param retainedChanges       changes the leader keeps for reconnecting followers; those further behind
+     *                              get a snapshot
+     * @param maxBatch              most changes sent to a follower at once
+     * @param heartbeatInterval     time without changes after which the leader reports its offset anyway
+     * @param reconnectDelay        time between a follower's attempts to reach the leader
+     * @param readYourWritesTimeout longest time a follower holds a read waiting for the write it names
+     */
+    public record Replication(
+        @DefaultValue("none") ReplicationRole role,
+        @DefaultValue("7070") int port,
+        @DefaultValue("127.0.0.1") InetAddress bindAddress,
+        String secret,
+        URI leader,
+        @DefaultValue("100000") int retainedChanges,
+        @DefaultValue("1024") int maxBatch,
+        @DefaultValue("1s") Duration heartbeatInterval,
+        @DefaultValue("1s") Duration reconnectDelay,
+        @DefaultValue("1s") Duration readYourWritesTimeout
+    ) {
+        static final Replication DEFAULTS = new Replication(ReplicationRole.NONE, 7070, InetAddress.getLoopbackAddress(),
+            null, null, 100_000, 1024, Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(1));
+
+        /**
+         * @return the secret as bytes, null if none is set
+         */
+        public byte[] secretBytes() {
+            return secret == null || secret.isEmpty() ? null : secret.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Settings of lookups that leave memory, for the link store or another cluster node
+     *
+     * @param singleFlight      whether concurrent lookups of the same code share one backing lookup
+     * @param maxWaiters        lookups sharing one backing lookup before further ones are rejected
+     * @param negativeTtl       time a code the backing lookup did not find is answered as missing without a
+     *                          lookup, zero to disable; only with {@code singleFlight}
+     * @param negativeCacheSize most codes remembered as missing
+     */
+    public record Lookup(
+        @DefaultValue("true") boolean singleFlight,
+        @DefaultValue("1024") int maxWaiters,
+        @DefaultValue("1s") Duration negativeTtl,
+        @DefaultValue("100000") long negativeCacheSize
+    ) {
+        static final Lookup DEFAULTS = new Lookup(true, 1024, Duration.ofSeconds(1), 100_000);
+    }
+
+    /**
+     * Store sizing by memory rather than by number of mappings
+     *
+     * @param enabled      whether the store is bounded by the estimated bytes it retains instead of {@code max-capacity}
+     * @param size         bytes the store may retain, unset to derive them from the maximum heap
+     * @param heapFraction share of the maximum heap the store may retain when {@code size} is unset
+     */
+    public record MemoryBudget(
+        @DefaultValue("false") boolean enabled,
+        DataSize size,
+        @DefaultValue("0.5") double heapFraction
+    ) {
+        static final MemoryBudget DEFAULTS = new MemoryBudget(false, null, 0.5);
+
+        /**
+         * Method to resolve the budget in bytes
+         *
+         * @param maxHeap maximum heap of the JVM, which follows the container's memory limit unless set explicitly
+         * @return {@code size}, or {@code heapFraction} of {@code maxHeap}
+         */
+        public long bytes(long maxHeap) {
+            return size != null ? size.toBytes() : (long) (maxHeap * heapFraction);
+        }
+    }
+}
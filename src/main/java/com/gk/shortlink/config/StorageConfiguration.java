@@ -0,0 +1,54 @@
+package com.gk.shortlink.config;
+
+import com.gk.shortlink.store.CodeBloomFilter;
+import com.gk.shortlink.store.ColdMappingStore;
+import com.gk.shortlink.store.CompactMappingStore;
+import com.gk.shortlink.store.FileLinkStore;
+import com.gk.shortlink.store.LinkStore;
+import com.gk.shortlink.store.UrlCanonicalizer;
+import com.gk.shortlink.store.WriteBehindLinkStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.Nullable;
+
+import java.time.Clock;
+
+@Configuration(proxyBeanMethods = false)
+public class StorageConfiguration {
+
+    // A single bidirectional store bounded by maxCapacity, so both directions of a mapping are evicted together
+    // Note: For production applications Redis or another distributed system approach is advisable
+    @Bean
+    public CompactMappingStore compactMappingStore(ShortLinkProperties properties, @Nullable ColdMappingStore coldStore) {
+        ShortLinkProperties.MemoryBudget budget = properties.memoryBudget();
+        // under a memory budget the number of mappings follows from their URL lengths
+        return new CompactMappingStore(budget.enabled() ? Integer.MAX_VALUE : properties.maxCapacity(),
+            budget.enabled() ? budget.bytes(Runtime.getRuntime().maxMemory()) : CompactMappingStore.UNBOUNDED,
+            new UrlCanonicalizer(properties.dedup().rules()), properties.compression().enabled(), Clock.systemUTC(),
+            coldStore != null ? coldStore::put : null);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "shortlink.cold-tier", name = "enabled", havingValue = "true")
+    public ColdMappingStore coldMappingStore(ShortLinkProperties properties) {
+        ShortLinkProperties.ColdTier coldTier = properties.coldTier();
+        return ColdMappingStore.open(coldTier.dataDir(), Math.toIntExact(coldTier.segmentSize().toBytes()),
+            coldTier.diskBudget() != null ? coldTier.diskBudget().toBytes() : ColdMappingStore.UNBOUNDED, Clock.systemUTC());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "shortlink.code-filter", name = "enabled", havingValue = "true")
+    public CodeBloomFilter codeBloomFilter(ShortLinkProperties properties) {
+        ShortLinkProperties.CodeFilter filter = properties.codeFilter();
+        return new CodeBloomFilter(filter.expectedCodes(), filter.falsePositiveRate());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "shortlink.storage", name = "backend", havingValue = "file")
+    public LinkStore linkStore(ShortLinkProperties properties) {
+        ShortLinkProperties.Storage storage = properties.storage();
+        return new WriteBehindLinkStore(FileLinkStore.open(storage.dataDir(), storage.fsync()),
+            storage.writeQueueCapacity(), storage.maxWriteBatch());
+    }
+}
@@ -0,0 +1,142 @@
+package com.gk.shortlink.controller;
+
+import com.gk.shortlink.analytics.ClickAnalytics;
+import com.gk.shortlink.dto.ImportResult;
+import com.gk.shortlink.dto.LinkClicks;
+import com.gk.shortlink.dto.LinkMapping;
+import com.gk.shortlink.service.UrlShortenerService;
+import com.gk.shortlink.transfer.BinaryMappingDecoder;
+import com.gk.shortlink.transfer.MappingFormat;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/api/v1/admin")
+@ConditionalOnProperty(prefix = "shortlink.admin", name = "enabled", havingValue = "true")
+@Tag(name = "Administration", description = "Operational endpoints; expose only on a trusted network")
+public class AdminController {
+
+    private static final int EXPORT_CHUNK_SIZE = 4096;
+
+    private static final int MAX_TOP_LINKS = 1000;
+
+    private final UrlShortenerService urlShortenerService;
+    private final ClickAnalytics analytics;
+
+    public AdminController(UrlShortenerService urlShortenerService, ClickAnalytics analytics) {
+        this.urlShortenerService = urlShortenerService;
+        this.analytics = analytics;
+    }
+
+    @GetMapping("/top")
+    @Operation(
+        summary = "Most clicked links right now",
+        description = "Lists the links redirected most on this node, weighting each click by half per decay interval. "
+            + "Counts are estimates that may be too high by the clicks of links tracked before; empty when analytics are disabled.",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Links, most clicked first")
+        }
+    )
+    public List<LinkClicks> topLinks(
+        @Parameter(description = "Number of links", example = "10") @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_TOP_LINKS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_TOP_LINKS);
+        }
+        return analytics.topLinks(limit);
+    }
+
+    @GetMapping("/mappings/export")
+    @Operation(
+        summary = "Export all mappings",
+        description = "Streams every code to URL mapping as newline-delimited JSON or as compact length-prefixed binary records",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Mappings streamed in chunks")
+        }
+    )
+    public ResponseEntity<Flux<DataBuffer>> exportMappings(
+        @Parameter(description = "Wire format", example = "ndjson") @RequestParam(defaultValue = "ndjson") String format,
+        ServerWebExchange exchange) {
+        MappingFormat mappingFormat = parseFormat(format);
+        DataBufferFactory bufferFactory = exchange.getResponse().bufferFactory();
+        Flux<DataBuffer> body = Flux.concat(
+            Mono.just(mappingFormat.header()).filter(header -> header.length > 0),
+            urlShortenerService.exportMappings()
+                .buffer(EXPORT_CHUNK_SIZE)
+                .map(mappingFormat::encode))
+            .map(bufferFactory::wrap);
+        return ResponseEntity.ok()
+            .contentType(mappingFormat.mediaType())
+            .body(body);
+    }
+
+    @PostMapping(value = "/mappings/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+        summary = "Import mappings from newline-delimited JSON",
+        description = "Loads exported mappings keeping their codes; mappings whose code or URL already exists are skipped",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Import finished", content = @Content(schema = @Schema(implementation = ImportResult.class))),
+            @ApiResponse(responseCode = "400", description = "Malformed import stream")
+        }
+    )
+    public Mono<ImportResult> importMappings(@RequestBody Flux<LinkMapping> mappings) {
+        return urlShortenerService.importMappings(mappings);
+    }
+
+    @PostMapping(value = "/mappings/import", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Operation(
+        summary = "Import mappings from the binary export format",
+        description = "Loads exported mappings keeping their codes; mappings whose code or URL already exists are skipped",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Import finished", content = @Content(schema = @Schema(implementation = ImportResult.class))),
+            @ApiResponse(responseCode = "400", description = "Malformed import stream")
+        }
+    )
+    public Mono<ImportResult> importBinaryMappings(@RequestBody Flux<DataBuffer> body) {
+        BinaryMappingDecoder decoder = new BinaryMappingDecoder();
+        Flux<LinkMapping> mappings = body
+            .concatMapIterable(buffer -> {
+                try {
+                    return decode(decoder, buffer);
+                } finally {
+                    DataBufferUtils.release(buffer);
+                }
+            })
+            .concatWith(Mono.fromRunnable(decoder::finish));
+        return urlShortenerService.importMappings(mappings)
+            .onErrorMap(IllegalArgumentException.class, ex -> new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage()));
+    }
+
+    private static List<LinkMapping> decode(BinaryMappingDecoder decoder, DataBuffer buffer) {
+        byte[] chunk = new byte[buffer.readableByteCount()];
+        buffer.read(chunk);
+        return decoder.decode(ByteBuffer.wrap(chunk));
+    }
+
+    private static MappingFormat parseFormat(String format) {
+        try {
+            return MappingFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported export format: " + format);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.gk.shortlink.controller;
+
+import com.gk.shortlink.admission.AdmissionController;
+import com.gk.shortlink.dto.ErrorResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load shedding ahead of every other filter. Writes (shorten, bulk shorten and import) and redirects are told
+ * apart by method and raw path alone and admitted by the {@link AdmissionController}; anything else passes
+ * through unlimited. Rejected writes get a 429 with a Retry-After header before their body is read or decoded,
+ * rejected redirects a 503 the same way, both with the error body of the controllers written by
+ * {@link ShortLinkJsonEncoder}. Admitted requests hold their permit until the
+ * response completes, and the latency of successful ones drives the limits, except that of bulk writes.
+ * Their body is charged to the client's rate as it is read, one write per {@code bulkChunkBytes}, and held back
+ * while the client is beyond it.
+ * <p>
+ * Clients are told apart by their remote address, or behind a proxy by a header it sets. For a list such as
+ * {@code X-Forwarded-For} the last entry counts, the one the proxy added, since clients can send the others.
+ */
+public class AdmissionControlFilter implements WebFilter, Ordered {
+
+    static final String TOO_MANY_REQUESTS_MESSAGE = "Too many requests, retry later";
+    static final String OVERLOADED_MESSAGE = "Overloaded, retry later";
+
+    private static final String SHORTEN_PATH = "/api/v1/urls/shorten";
+    private static final Set<String> BULK_WRITE_PATHS = Set.of("/api/v1/urls/shorten/batch", "/api/v1/admin/mappings/import");
+    private static final int DEFAULT_BULK_CHUNK_BYTES = 4096;
+
+    private final AdmissionController admission;
+    private final int codeLength;
+    private final int bulkChunkBytes;
+    private final String clientHeader;
+
+    public AdmissionControlFilter(AdmissionController admission, int codeLength) {
+        this(admission, codeLength, DEFAULT_BULK_CHUNK_BYTES, null);
+    }
+
+    /**
+     * @param bulkChunkBytes bytes of a bulk write's body charged as one write to its client
+     * @param clientHeader   header identifying the client, set by a trusted proxy, or null for the remote address
+     */
+    public AdmissionControlFilter(AdmissionController admission, int codeLength, int bulkChunkBytes, String clientHeader) {
+        if (bulkChunkBytes <= 0) {
+            throw new IllegalArgumentException("Bulk chunk size must be positive but was " + bulkChunkBytes);
+        }
+        this.admission = admission;
+        this.codeLength = codeLength;
+        this.bulkChunkBytes = bulkChunkBytes;
+        this.clientHeader = clientHeader == null || clientHeader.isBlank() ? null : clientHeader;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getURI().getRawPath();
+        HttpMethod method = request.getMethod();
+        boolean bulk = BULK_WRITE_PATHS.contains(path);
+        if (method == HttpMethod.POST && (bulk || path.equals(SHORTEN_PATH))) {
+            int client = clientOf(request);
+            long wait = admission.admitWrite(client);
+            if (wait > 0) {
+                return reject(exchange.getResponse(), HttpStatus.TOO_MANY_REQUESTS, TOO_MANY_REQUESTS_MESSAGE, wait);
+            }
+            if (bulk) {
+                return chain.filter(exchange.mutate().request(new PacedRequest(request, client)).build())
+                    .doFinally(signal -> admission.bulkWriteCompleted());
+            }
+            long start = System.nanoTime();
+            return chain.filter(exchange)
+                .doFinally(signal -> admission.writeCompleted(System.nanoTime() - start, succeeded(signal, exchange)));
+        }
+        if ((method == HttpMethod.GET || method == HttpMethod.HEAD) && ShortCodeRedirectFilter.isCodePath(path, codeLength)) {
+            if (!admission.admitRedirect()) {
+                return reject(exchange.getResponse(), HttpStatus.SERVICE_UNAVAILABLE, OVERLOADED_MESSAGE, 0);
+            }
+            long start = System.nanoTime();
+            return chain.filter(exchange)
+                .doFinally(signal -> admission.redirectCompleted(System.nanoTime() - start, succeeded(signal, exchange)));
+        }
+        return chain.filter(exchange);
+    }
+
+    @Override
+    public int getOrder() {
+        // ahead of the redirect fast path, so that overload is shed before any lookup
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    private static Mono<Void> reject(ServerHttpResponse response, HttpStatus status, String message, long waitNanos) {
+        HttpHeaders headers = response.getHeaders();
+        DataBuffer body = ShortLinkJsonEncoder.encode(ErrorResponse.of(status, message), response.bufferFactory());
+        response.setStatusCode(status);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setContentLength(body.readableByteCount());
+        // whole seconds rounded up, at least one
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        headers.set(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+        return response.writeWith(Mono.just(body));
+    }
+
+    private static boolean succeeded(SignalType signal, ServerWebExchange exchange) {
+        // errors and cancellations end quickly or not at all, their latency would mislead the limits
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        return signal == SignalType.ON_COMPLETE && (status == null || !status.is5xxServerError());
+    }
+
+    /**
+     * Bulk write whose body is charged to its client as it is read
+     */
+    private final class PacedRequest extends ServerHttpRequestDecorator {
+
+        private final int client;
+        // bytes read but not charged yet; the body is read in order, one buffer at a time
+        private long uncharged;
+
+        PacedRequest(ServerHttpRequest request, int client) {
+            super(request);
+            this.client = client;
+        }
+
+        @Override
+        public Flux<DataBuffer> getBody() {
+            return super.getBody()
+                .concatMap(buffer -> {
+                    uncharged += buffer.readableByteCount();
+                    int chunks = (int) (uncharged / bulkChunkBytes);
+                    uncharged -= (long) chunks * bulkChunkBytes;
+                    long wait = admission.chargeBulkWrite(client, chunks);
+                    return wait > 0 ? Mono.just(buffer).delayElement(Duration.ofNanos(wait)) : Mono.just(buffer);
+                })
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        }
+    }
+
+    private int clientOf(ServerHttpRequest request) {
+        if (clientHeader != null) {
+            String value = request.getHeaders().getFirst(clientHeader);
+            if (value != null) {
+                int last = value.lastIndexOf(',');
+                return value.substring(last + 1).trim().hashCode();
+            }
+        }
+        InetSocketAddress remote = request.getRemoteAddress();
+        // the host address, the port changes with every connection of a client
+        return remote == null || remote.getAddress() == null ? 0 : remote.getAddress().hashCode();
+    }
+}
@@ -0,0 +1,49 @@
+package com.gk.shortlink.controller;
+
+import com.gk.shortlink.analytics.ClickAnalytics;
+import com.gk.shortlink.dto.LinkClicks;
+import com.gk.shortlink.exception.UrlNotFoundException;
+import com.gk.shortlink.service.UrlShortenerService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/v1/urls")
+@ConditionalOnProperty(prefix = "shortlink.analytics", name = "enabled", havingValue = "true")
+@Tag(name = "Analytics", description = "Click counts of short links")
+public class AnalyticsController {
+
+    private final UrlShortenerService urlShortenerService;
+    private final ClickAnalytics analytics;
+
+    public AnalyticsController(UrlShortenerService urlShortenerService, ClickAnalytics analytics) {
+        this.urlShortenerService = urlShortenerService;
+        this.analytics = analytics;
+    }
+
+    @GetMapping("/{code}/stats")
+    @Operation(
+        summary = "Get click statistics of a short code",
+        description = "Returns the redirects of the code counted on this node since it started; recent clicks may take a moment to show",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Statistics found", content = @Content(schema = @Schema(implementation = LinkClicks.class))),
+            @ApiResponse(responseCode = "404", description = "Short code not found")
+        }
+    )
+    public Mono<LinkClicks> getStats(
+        @Parameter(description = "The 6-character short code", example = "a1B2c3") @PathVariable String code) {
+        return urlShortenerService.getOriginalUrl(code)
+            .switchIfEmpty(Mono.error(new UrlNotFoundException("Short code not found: " + code)))
+            .map(ignored -> new LinkClicks(code, analytics.clicks(code)));
+    }
+}
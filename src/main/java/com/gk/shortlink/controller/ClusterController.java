@@ -0,0 +1,44 @@
+package com.gk.shortlink.controller;
+
+import com.gk.shortlink.service.UrlShortenerService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/v1/cluster")
+@ConditionalOnProperty(prefix = "shortlink.cluster", name = "enabled", havingValue = "true")
+@Tag(name = "Cluster", description = "Node to node endpoints of cluster mode; expose only on a trusted network")
+public class ClusterController {
+
+    private final UrlShortenerService urlShortenerService;
+
+    public ClusterController(UrlShortenerService urlShortenerService) {
+        this.urlShortenerService = urlShortenerService;
+    }
+
+    @GetMapping(value = "/links/{code}", produces = MediaType.TEXT_PLAIN_VALUE)
+    @Operation(
+        summary = "Look up a code in this node's store",
+        description = "Returns the original URL as plain text without forwarding, used by nodes resolving codes of this node's shard",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Original URL"),
+            @ApiResponse(responseCode = "404", description = "Short code not stored on this node")
+        }
+    )
+    public Mono<ResponseEntity<String>> getLocalUrl(
+        @Parameter(description = "The short code", example = "a1B2c3") @PathVariable String code) {
+        return urlShortenerService.getLocalUrl(code)
+            .map(ResponseEntity::ok)
+            .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,127 @@
+package com.gk.shortlink.controller;
+
+import com.gk.shortlink.analytics.ClickAnalytics;
+import com.gk.shortlink.dto.ErrorResponse;
+import com.gk.shortlink.generator.Base62;
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import com.gk.shortlink.service.RedirectPolicy;
+import com.gk.shortlink.service.UrlShortenerService;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Fast path for {@code GET /{code}} that answers redirects before the request reaches the dispatcher.
+ * The code is taken from the raw path without pattern matching or path parsing, the stored URL is sent
+ * as the Location header as is (see {@link com.gk.shortlink.service.RedirectLocation}), and misses get the
+ * controller's 404 body, written by {@link ShortLinkJsonEncoder} without an exception being created. The status and Cache-Control header come from the
+ * link's {@link RedirectPolicy}, resolved ahead of time, so choosing them costs no formatting. Codes missing from memory are read through
+ * from the link store when one is configured. Requests for anything else, and codes owned by another
+ * cluster node, pass through.
+ * {@link ShortCodeRouteController} documents the endpoint and serves it when the fast path is disabled.
+ */
+public class ShortCodeRedirectFilter implements WebFilter, Ordered {
+
+    private final UrlShortenerService urlShortenerService;
+    private final ShortLinkMetrics metrics;
+    private final ClickAnalytics analytics;
+    private final int codeLength;
+
+    public ShortCodeRedirectFilter(UrlShortenerService urlShortenerService, ShortLinkMetrics metrics, int codeLength) {
+        this(urlShortenerService, metrics, ClickAnalytics.disabled(), codeLength);
+    }
+
+    public ShortCodeRedirectFilter(UrlShortenerService urlShortenerService, ShortLinkMetrics metrics,
+                                   ClickAnalytics analytics, int codeLength) {
+        this.urlShortenerService = urlShortenerService;
+        this.metrics = metrics;
+        this.analytics = analytics;
+        this.codeLength = codeLength;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        // the URI is parsed by the server already, its raw path needs no further decoding for base62 codes
+        String path = request.getURI().getRawPath();
+        HttpMethod method = request.getMethod();
+        if (!isCodePath(path, codeLength) || (method != HttpMethod.GET && method != HttpMethod.HEAD)) {
+            return chain.filter(exchange);
+        }
+        String code = path.substring(1);
+        if (urlShortenerService.isRemote(code)) {
+            // owned by another cluster node, the controller forwards the lookup
+            return chain.filter(exchange);
+        }
+        long start = System.nanoTime();
+        String location = urlShortenerService.findLocation(code);
+        if (location == null && urlShortenerService.isReadThrough()) {
+            return urlShortenerService.getLocalUrl(code)
+                // mapped to the write rather than flat-mapped, the empty completion of a redirect is no miss
+                .map(found -> redirect(exchange.getResponse(), code, found, start))
+                .defaultIfEmpty(Mono.defer(() -> notFound(exchange.getResponse(), code, start)))
+                .flatMap(written -> written);
+        }
+        return location != null ? redirect(exchange.getResponse(), code, location, start) : notFound(exchange.getResponse(), code, start);
+    }
+
+    private Mono<Void> redirect(ServerHttpResponse response, String code, String location, long start) {
+        analytics.record(code);
+        RedirectPolicy policy = urlShortenerService.redirectPolicy(code);
+        response.setStatusCode(policy.status());
+        HttpHeaders headers = response.getHeaders();
+        headers.set(HttpHeaders.LOCATION, location);
+        if (policy.cacheControl() != null) {
+            headers.set(HttpHeaders.CACHE_CONTROL, policy.cacheControl());
+        }
+        metrics.recordRedirect(true, System.nanoTime() - start);
+        return response.setComplete();
+    }
+
+    private Mono<Void> notFound(ServerHttpResponse response, String code, long start) {
+        HttpHeaders headers = response.getHeaders();
+        DataBuffer body = ShortLinkJsonEncoder.encode(notFound(code), response.bufferFactory());
+        response.setStatusCode(HttpStatus.NOT_FOUND);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setContentLength(body.readableByteCount());
+        metrics.recordRedirect(false, System.nanoTime() - start);
+        return response.writeWith(Mono.just(body));
+    }
+
+    /**
+     * Method to describe a miss the way {@link com.gk.shortlink.exception.GlobalExceptionHandler} does
+     *
+     * @param code short code that was not found
+     * @return the 404 body
+     */
+    static ErrorResponse notFound(String code) {
+        return ErrorResponse.of(HttpStatus.NOT_FOUND, "Short code not found: " + code);
+    }
+
+    @Override
+    public int getOrder() {
+        // ahead of every other filter but admission control, redirects need none of them
+        return Ordered.HIGHEST_PRECEDENCE + 1;
+    }
+
+    static boolean isCodePath(String path, int codeLength) {
+        if (path == null || path.length() != codeLength + 1 || path.charAt(0) != '/') {
+            return false;
+        }
+        for (int i = 1; i < path.length(); i++) {
+            if (Base62.digit(path.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
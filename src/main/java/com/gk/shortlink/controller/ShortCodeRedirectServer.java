@@ -0,0 +1,224 @@
+package com.gk.shortlink.controller;
+
+import com.gk.shortlink.admission.AdmissionController;
+import com.gk.shortlink.analytics.ClickAnalytics;
+import com.gk.shortlink.dto.ErrorResponse;
+import com.gk.shortlink.generator.Base62;
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import com.gk.shortlink.service.RedirectPolicy;
+import com.gk.shortlink.service.UrlShortenerService;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.AsciiString;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+
+/**
+ * Dedicated listener for {@code GET /{code}} built directly on Reactor Netty, bypassing the dispatcher, web
+ * filters and exception handling of WebFlux. It runs next to the main server, on a port of its own and on event
+ * loops of its own, native epoll when available.
+ * <p>
+ * The code is read from the request target with a character loop, looked up like
+ * {@link ShortCodeRedirectFilter} does, and answered with header names and values that are pre-encoded
+ * {@link AsciiString}s, so Netty copies them into its pooled buffers without encoding. Error bodies are those
+ * of the main port, written by {@link ShortLinkJsonEncoder} into a pooled buffer. Connections are kept alive, and
+ * pipelined requests are answered in order by Reactor Netty.
+ * <p>
+ * With an {@link AdmissionController}, redirects are admitted against the same limit as those on the main port,
+ * and turned away with {@code 503} beyond it before any lookup.
+ */
+public class ShortCodeRedirectServer implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ShortCodeRedirectServer.class);
+
+    private static final String UNAVAILABLE_MESSAGE = "Short code could not be resolved";
+    private static final NettyDataBufferFactory BUFFER_FACTORY = new NettyDataBufferFactory(ByteBufAllocator.DEFAULT);
+    private static final AsciiString RETRY_AFTER = AsciiString.cached("1");
+    private static final AsciiString ZERO = AsciiString.cached("0");
+    private static final AsciiString ALLOWED_METHODS = AsciiString.cached("GET, HEAD");
+
+    private final UrlShortenerService urlShortenerService;
+    private final ShortLinkMetrics metrics;
+    private final ClickAnalytics analytics;
+    private final AdmissionController admission;
+    private final int codeLength;
+    private final int port;
+    private final boolean preferNative;
+    private volatile LoopResources loops;
+    private volatile DisposableServer server;
+
+    public ShortCodeRedirectServer(UrlShortenerService urlShortenerService, ShortLinkMetrics metrics, ClickAnalytics analytics,
+                                   int codeLength, int port, boolean preferNative) {
+        this(urlShortenerService, metrics, analytics, null, codeLength, port, preferNative);
+    }
+
+    /**
+     * @param admission    admission of redirects, or null to serve every one
+     * @param port         port to listen on, 0 for a random one
+     * @param preferNative whether the native epoll transport is used when available
+     */
+    public ShortCodeRedirectServer(UrlShortenerService urlShortenerService, ShortLinkMetrics metrics, ClickAnalytics analytics,
+                                   AdmissionController admission, int codeLength, int port, boolean preferNative) {
+        this.urlShortenerService = urlShortenerService;
+        this.metrics = metrics;
+        this.analytics = analytics;
+        this.admission = admission;
+        this.codeLength = codeLength;
+        this.port = port;
+        this.preferNative = preferNative;
+    }
+
+    @Override
+    public void start() {
+        loops = LoopResources.create("redirect-listener", LoopResources.DEFAULT_IO_WORKER_COUNT, true);
+        server = HttpServer.create()
+            .port(port)
+            .runOn(loops, preferNative)
+            // request headers are never read here, validating them is wasted work
+            .httpRequestDecoder(spec -> spec.validateHeaders(false))
+            .handle(this::handle)
+            .bindNow();
+        log.info("Redirect listener started on port {}", server.port());
+    }
+
+    @Override
+    public void stop() {
+        DisposableServer current = server;
+        if (current != null) {
+            current.disposeNow();
+            loops.disposeLater(Duration.ZERO, Duration.ofSeconds(5)).block();
+            server = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * @return port the listener is bound to, -1 if it is not running
+     */
+    public int port() {
+        DisposableServer current = server;
+        return current != null ? current.port() : -1;
+    }
+
+    Publisher<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        HttpMethod method = request.method();
+        boolean head = HttpMethod.HEAD.equals(method);
+        if (!head && !HttpMethod.GET.equals(method)) {
+            return response.status(HttpResponseStatus.METHOD_NOT_ALLOWED)
+                .header(HttpHeaderNames.ALLOW, ALLOWED_METHODS)
+                .header(HttpHeaderNames.CONTENT_LENGTH, ZERO)
+                .send();
+        }
+        long start = System.nanoTime();
+        String code = codeOf(request.uri(), codeLength);
+        if (code == null) {
+            return notFound(response, pathOf(request.uri()), head, start);
+        }
+        if (admission == null) {
+            return resolve(response, code, head, start);
+        }
+        if (!admission.admitRedirect()) {
+            response.header(HttpHeaderNames.RETRY_AFTER, RETRY_AFTER);
+            return write(response, ErrorResponse.of(HttpStatus.SERVICE_UNAVAILABLE, AdmissionControlFilter.OVERLOADED_MESSAGE), head);
+        }
+        return Mono.from(resolve(response, code, head, start))
+            // like AdmissionControlFilter, errors and cancellations are released without their latency
+            .doFinally(signal -> admission.redirectCompleted(System.nanoTime() - start,
+                signal == SignalType.ON_COMPLETE && response.status().code() < 500));
+    }
+
+    private Publisher<Void> resolve(HttpServerResponse response, String code, boolean head, long start) {
+        boolean remote = urlShortenerService.isRemote(code);
+        String location = remote ? null : urlShortenerService.findLocation(code);
+        if (location != null) {
+            return redirect(response, code, location, start);
+        }
+        if (!remote && !urlShortenerService.isReadThrough()) {
+            return notFound(response, code, head, start);
+        }
+        // owned by another cluster node or evicted to the link store, resolved like the controller does
+        return urlShortenerService.getOriginalUrl(code)
+            .map(found -> redirect(response, code, found, start))
+            .defaultIfEmpty(Mono.defer(() -> notFound(response, code, head, start)))
+            .flatMap(written -> written)
+            .onErrorResume(e -> write(response, ErrorResponse.of(HttpStatus.SERVICE_UNAVAILABLE, UNAVAILABLE_MESSAGE), head));
+    }
+
+    private Mono<Void> redirect(HttpServerResponse response, String code, String location, long start) {
+        analytics.record(code);
+        RedirectPolicy policy = urlShortenerService.redirectPolicy(code);
+        response.status(HttpResponseStatus.valueOf(policy.status().value()))
+            // stored URLs are valid Location values already, see RedirectLocation
+            .header(HttpHeaderNames.LOCATION, location)
+            .header(HttpHeaderNames.CONTENT_LENGTH, ZERO);
+        if (policy.cacheControl() != null) {
+            response.header(HttpHeaderNames.CACHE_CONTROL, policy.cacheControl());
+        }
+        metrics.recordRedirect(true, System.nanoTime() - start);
+        return response.send().then();
+    }
+
+    private Mono<Void> notFound(HttpServerResponse response, String code, boolean head, long start) {
+        metrics.recordRedirect(false, System.nanoTime() - start);
+        return write(response, ShortCodeRedirectFilter.notFound(code), head);
+    }
+
+    private static Mono<Void> write(HttpServerResponse response, ErrorResponse error, boolean head) {
+        ByteBuf body = NettyDataBufferFactory.toByteBuf(ShortLinkJsonEncoder.encode(error, BUFFER_FACTORY));
+        response.status(HttpResponseStatus.valueOf(error.status()))
+            .header(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON)
+            // a HEAD response announces the length of the body it leaves out
+            .header(HttpHeaderNames.CONTENT_LENGTH, Integer.toString(body.readableBytes()));
+        if (head) {
+            body.release();
+            return response.send().then();
+        }
+        return response.sendObject(body).then();
+    }
+
+    private static String pathOf(String uri) {
+        int query = uri.indexOf('?');
+        return uri.substring(uri.startsWith("/") ? 1 : 0, query < 0 ? uri.length() : query);
+    }
+
+    /**
+     * Method to take the code from a request target of the form {@code /<code>} or {@code /<code>?<query>}
+     *
+     * @param uri        request target as sent
+     * @param codeLength length of the codes served
+     * @return the code, or null if the target is not a code path
+     */
+    static String codeOf(String uri, int codeLength) {
+        int length = uri.length();
+        if (length <= codeLength || uri.charAt(0) != '/' || (length > codeLength + 1 && uri.charAt(codeLength + 1) != '?')) {
+            return null;
+        }
+        for (int i = 1; i <= codeLength; i++) {
+            if (Base62.digit(uri.charAt(i)) < 0) {
+                return null;
+            }
+        }
+        return uri.substring(1, codeLength + 1);
+    }
+}
@@ -1,28 +1,39 @@
 package com.gk.shortlink.controller;
 
+import com.gk.shortlink.analytics.ClickAnalytics;
 import com.gk.shortlink.exception.UrlNotFoundException;
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import com.gk.shortlink.service.RedirectPolicy;
 import com.gk.shortlink.service.UrlShortenerService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import org.springframework.http.HttpStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Mono;
 
-import java.net.URI;
-
 @RestController
 @Tag(name = "Redirection", description = "Endpoint for redirecting short codes to original URLs")
 public class ShortCodeRouteController {
 
     public final UrlShortenerService urlShortenerService;
+    private final ShortLinkMetrics metrics;
+    private final ClickAnalytics analytics;
+
+    public ShortCodeRouteController(UrlShortenerService urlShortenerService, ShortLinkMetrics metrics) {
+        this(urlShortenerService, metrics, ClickAnalytics.disabled());
+    }
 
-    public ShortCodeRouteController(UrlShortenerService urlShortenerService) {
+    @Autowired
+    public ShortCodeRouteController(UrlShortenerService urlShortenerService, ShortLinkMetrics metrics, ClickAnalytics analytics) {
         this.urlShortenerService = urlShortenerService;
+        this.metrics = metrics;
+        this.analytics = analytics;
     }
 
     @GetMapping("/{code:[a-zA-Z0-9]{6}}")
@@ -30,16 +41,30 @@ public class ShortCodeRouteController {
         summary = "Redirect to original URL",
         description = "Redirects the client to the original long URL associated with the short code",
         responses = {
-            @ApiResponse(responseCode = "302", description = "Redirection to original URL"),
+            @ApiResponse(responseCode = "302", description = "Redirection to original URL, or 301, 307 or 308 as configured for the link"),
             @ApiResponse(responseCode = "404", description = "Short code not found")
         }
     )
     public Mono<ResponseEntity<Void>> redirectToOriginalUrl(
         @Parameter(description = "The 6-character short code", example = "a1B2c3") @PathVariable String code) {
+        long start = System.nanoTime();
         return urlShortenerService.getOriginalUrl(code)
-            .switchIfEmpty(Mono.error(new UrlNotFoundException("Short code not found: " + code)))
-            .map(originalUrl -> ResponseEntity.status(HttpStatus.FOUND)
-                .location(URI.create(originalUrl))
-                .build());
+            .switchIfEmpty(Mono.defer(() -> {
+                metrics.recordRedirect(false, System.nanoTime() - start);
+                return Mono.error(new UrlNotFoundException("Short code not found: " + code));
+            }))
+            .map(originalUrl -> {
+                analytics.record(code);
+                RedirectPolicy policy = urlShortenerService.redirectPolicy(code);
+                // stored URLs are valid Location values already, see RedirectLocation
+                ResponseEntity.BodyBuilder builder = ResponseEntity.status(policy.status())
+                    .header(HttpHeaders.LOCATION, originalUrl);
+                if (policy.cacheControl() != null) {
+                    builder.header(HttpHeaders.CACHE_CONTROL, policy.cacheControl());
+                }
+                ResponseEntity<Void> redirect = builder.build();
+                metrics.recordRedirect(true, System.nanoTime() - start);
+                return redirect;
+            });
     }
 }
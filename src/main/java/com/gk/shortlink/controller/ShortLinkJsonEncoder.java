@@ -0,0 +1,359 @@
+package com.gk.shortlink.controller;
+
+import com.gk.shortlink.dto.ErrorResponse;
+import com.gk.shortlink.dto.ShortenResponse;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes {@link ShortenResponse} and {@link ErrorResponse} bodies as JSON without Jackson: every body is sized
+ * up front and written in one pass into a single buffer from the factory, pooled on the server, from field name
+ * prefixes encoded once. The output is the one Jackson produces for these records: components in declaration
+ * order, null components left out, strings escaped the way Jackson escapes them by default.
+ * <p>
+ * Registered as a typed writer, so it is asked ahead of the Jackson encoder, and only for these two classes.
+ * Streams of values are written as a JSON array, or one value per line for NDJSON, as Jackson writes them.
+ */
+public class ShortLinkJsonEncoder implements HttpMessageEncoder<Object> {
+
+    private static final List<MimeType> MIME_TYPES = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON);
+    private static final List<MediaType> STREAMING_MEDIA_TYPES = List.of(MediaType.APPLICATION_NDJSON);
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    // no byte before or after a value
+    private static final byte NONE = 0;
+
+    private static final Field ORIGINAL_URL = new Field("originalUrl", true);
+    private static final Field SHORT_URL = new Field("shortUrl", true);
+    private static final Field CODE = new Field("code", true);
+    private static final Field EXPIRES_AT = new Field("expiresAt", true);
+    private static final Field ERROR = new Field("error", true);
+    private static final Field TIMESTAMP = new Field("timestamp", true);
+    private static final Field STATUS = new Field("status", false);
+    private static final Field MESSAGE = new Field("message", true);
+    private static final Field DETAILS = new Field("details", false);
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        Class<?> type = elementType.toClass();
+        if (type != ShortenResponse.class && type != ErrorResponse.class) {
+            return false;
+        }
+        return mimeType == null || MIME_TYPES.stream().anyMatch(supported -> supported.isCompatibleWith(mimeType));
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    @Override
+    public List<MediaType> getStreamingMediaTypes() {
+        return STREAMING_MEDIA_TYPES;
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                   MimeType mimeType, Map<String, Object> hints) {
+        if (inputStream instanceof Mono<?> mono) {
+            return mono.map(value -> write(value, bufferFactory, NONE, NONE)).flux();
+        }
+        if (mimeType != null && MediaType.APPLICATION_NDJSON.isCompatibleWith(mimeType)) {
+            return Flux.from(inputStream).map(value -> write(value, bufferFactory, NONE, (byte) '\n'));
+        }
+        return Flux.defer(() -> {
+            boolean[] first = {true};
+            Flux<DataBuffer> values = Flux.from(inputStream).map(value -> {
+                byte before = first[0] ? (byte) '[' : (byte) ',';
+                first[0] = false;
+                return write(value, bufferFactory, before, NONE);
+            });
+            // an empty stream is written as [] in one buffer, any other as the values followed by ]
+            return values.concatWith(Mono.fromSupplier(() -> {
+                DataBuffer end = bufferFactory.allocateBuffer(first[0] ? 2 : 1);
+                if (first[0]) {
+                    end.write((byte) '[');
+                }
+                return end.write((byte) ']');
+            }));
+        });
+    }
+
+    @Override
+    public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory, ResolvableType valueType,
+                                  MimeType mimeType, Map<String, Object> hints) {
+        return write(value, bufferFactory, NONE, NONE);
+    }
+
+    /**
+     * Method to write an error body outside of the codecs, for responses written before the dispatcher
+     *
+     * @param response      error to write
+     * @param bufferFactory factory of the response's buffers
+     * @return buffer holding the body
+     */
+    static DataBuffer encode(ErrorResponse response, DataBufferFactory bufferFactory) {
+        return write(response, bufferFactory, NONE, NONE);
+    }
+
+    private static DataBuffer write(Object value, DataBufferFactory bufferFactory, byte before, byte after) {
+        int framing = (before != NONE ? 1 : 0) + (after != NONE ? 1 : 0);
+        DataBuffer buffer;
+        if (value instanceof ShortenResponse response) {
+            String expiresAt = response.expiresAt() != null ? response.expiresAt().toString() : null;
+            buffer = bufferFactory.allocateBuffer(framing + size(response, expiresAt));
+            writeByte(buffer, before);
+            write(buffer, response, expiresAt);
+        } else if (value instanceof ErrorResponse response) {
+            String timestamp = response.timestamp() != null ? response.timestamp().toString() : null;
+            buffer = bufferFactory.allocateBuffer(framing + size(response, timestamp));
+            writeByte(buffer, before);
+            write(buffer, response, timestamp);
+        } else {
+            throw new IllegalArgumentException("Unable to encode " + (value != null ? value.getClass() : null) + " as JSON");
+        }
+        writeByte(buffer, after);
+        return buffer;
+    }
+
+    private static int size(ShortenResponse response, String expiresAt) {
+        int size = 1;
+        size += size(ORIGINAL_URL, response.originalUrl());
+        size += size(SHORT_URL, response.shortUrl());
+        size += size(CODE, response.code());
+        size += size(EXPIRES_AT, expiresAt);
+        size += size(ERROR, response.error());
+        return size + (size == 1 ? 1 : 0);
+    }
+
+    private static void write(DataBuffer buffer, ShortenResponse response, String expiresAt) {
+        boolean empty = true;
+        empty = write(buffer, ORIGINAL_URL, response.originalUrl(), empty);
+        empty = write(buffer, SHORT_URL, response.shortUrl(), empty);
+        empty = write(buffer, CODE, response.code(), empty);
+        empty = write(buffer, EXPIRES_AT, expiresAt, empty);
+        empty = write(buffer, ERROR, response.error(), empty);
+        close(buffer, empty);
+    }
+
+    private static int size(ErrorResponse response, String timestamp) {
+        int size = 1;
+        size += size(TIMESTAMP, timestamp);
+        size += STATUS.first.length + digits(response.status());
+        size += size(ERROR, response.error());
+        size += size(MESSAGE, response.message());
+        if (response.details() != null) {
+            size += DETAILS.first.length + 2;
+            for (Map.Entry<String, String> detail : response.details().entrySet()) {
+                // "key":"value", or "key":null
+                size += 3 + escapedLength(detail.getKey())
+                    + (detail.getValue() != null ? 2 + escapedLength(detail.getValue()) : 4);
+            }
+            size += response.details().size() > 1 ? response.details().size() - 1 : 0;
+        }
+        return size;
+    }
+
+    private static void write(DataBuffer buffer, ErrorResponse response, String timestamp) {
+        boolean empty = true;
+        empty = write(buffer, TIMESTAMP, timestamp, empty);
+        buffer.write(empty ? STATUS.first : STATUS.next);
+        writeInt(buffer, response.status());
+        write(buffer, ERROR, response.error(), false);
+        write(buffer, MESSAGE, response.message(), false);
+        if (response.details() != null) {
+            buffer.write(DETAILS.next);
+            buffer.write((byte) '{');
+            boolean firstDetail = true;
+            for (Map.Entry<String, String> detail : response.details().entrySet()) {
+                if (!firstDetail) {
+                    buffer.write((byte) ',');
+                }
+                firstDetail = false;
+                writeString(buffer, detail.getKey());
+                buffer.write((byte) ':');
+                if (detail.getValue() != null) {
+                    writeString(buffer, detail.getValue());
+                } else {
+                    buffer.write(Field.NULL);
+                }
+            }
+            buffer.write((byte) '}');
+        }
+        buffer.write((byte) '}');
+    }
+
+    private static int size(Field field, String value) {
+        return value != null ? field.first.length + escapedLength(value) + 1 : 0;
+    }
+
+    /**
+     * Method to write a string component unless it is null
+     *
+     * @param buffer buffer sized for the whole value
+     * @param field  component written
+     * @param value  value of the component, null to leave it out
+     * @param empty  whether no component was written yet
+     * @return whether no component was written yet after this one
+     */
+    private static boolean write(DataBuffer buffer, Field field, String value, boolean empty) {
+        if (value == null) {
+            return empty;
+        }
+        buffer.write(empty ? field.first : field.next);
+        writeChars(buffer, value);
+        buffer.write((byte) '"');
+        return false;
+    }
+
+    private static void close(DataBuffer buffer, boolean empty) {
+        if (empty) {
+            buffer.write((byte) '{');
+        }
+        buffer.write((byte) '}');
+    }
+
+    private static void writeString(DataBuffer buffer, String value) {
+        buffer.write((byte) '"');
+        writeChars(buffer, value);
+        buffer.write((byte) '"');
+    }
+
+    private static void writeByte(DataBuffer buffer, byte value) {
+        if (value != NONE) {
+            buffer.write(value);
+        }
+    }
+
+    /**
+     * Writes the JSON string content of a value char by char: handing the string to the buffer would have it
+     * reserve space for an estimate of the encoded length, growing a buffer that is already the exact size
+     */
+    private static void writeChars(DataBuffer buffer, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x20) {
+                writeControl(buffer, c);
+            } else if (c == '"' || c == '\\') {
+                buffer.write((byte) '\\');
+                buffer.write((byte) c);
+            } else if (c < 0x80) {
+                buffer.write((byte) c);
+            } else if (c < 0x800) {
+                buffer.write((byte) (0xC0 | c >> 6));
+                buffer.write((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.write((byte) (0xF0 | codePoint >> 18));
+                buffer.write((byte) (0x80 | codePoint >> 12 & 0x3F));
+                buffer.write((byte) (0x80 | codePoint >> 6 & 0x3F));
+                buffer.write((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // unpaired, replaced as String.getBytes replaces it
+                buffer.write((byte) '?');
+            } else {
+                buffer.write((byte) (0xE0 | c >> 12));
+                buffer.write((byte) (0x80 | c >> 6 & 0x3F));
+                buffer.write((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    private static void writeControl(DataBuffer buffer, char c) {
+        buffer.write((byte) '\\');
+        switch (c) {
+            case '\b' -> buffer.write((byte) 'b');
+            case '\t' -> buffer.write((byte) 't');
+            case '\n' -> buffer.write((byte) 'n');
+            case '\f' -> buffer.write((byte) 'f');
+            case '\r' -> buffer.write((byte) 'r');
+            default -> {
+                buffer.write((byte) 'u');
+                buffer.write((byte) '0');
+                buffer.write((byte) '0');
+                buffer.write(HEX[c >> 4]);
+                buffer.write(HEX[c & 0xF]);
+            }
+        }
+    }
+
+    /**
+     * @return bytes of the escaped UTF-8 form of a value, without the quotes around it
+     */
+    static int escapedLength(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x20) {
+                length += c == '\b' || c == '\t' || c == '\n' || c == '\f' || c == '\r' ? 2 : 6;
+            } else if (c == '"' || c == '\\') {
+                length += 2;
+            } else if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return length;
+    }
+
+    private static int digits(int value) {
+        if (value < 0) {
+            return 1 + digits(-value);
+        }
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static void writeInt(DataBuffer buffer, int value) {
+        if (value < 0) {
+            buffer.write((byte) '-');
+            value = -value;
+        }
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            buffer.write((byte) ('0' + value / divisor % 10));
+        }
+    }
+
+    /**
+     * Encoded name of a component, with the brace opening the object for the first component written and the
+     * comma separating it from the previous one otherwise, and the quote opening a string value
+     */
+    private static final class Field {
+
+        static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+        final byte[] first;
+        final byte[] next;
+
+        Field(String name, boolean string) {
+            String prefix = "\"" + name + "\":" + (string ? "\"" : "");
+            this.first = ("{" + prefix).getBytes(StandardCharsets.US_ASCII);
+            this.next = ("," + prefix).getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+}
@@ -4,6 +4,11 @@ import com.gk.shortlink.config.ShortLinkProperties;
 import com.gk.shortlink.dto.ShortenRequest;
 import com.gk.shortlink.dto.ShortenResponse;
 import com.gk.shortlink.exception.UrlNotFoundException;
+import com.gk.shortlink.replication.ChangeFeed;
+import com.gk.shortlink.replication.ReplicationFollower;
+import com.gk.shortlink.replication.ReplicationOffset;
+import com.gk.shortlink.service.RedirectLocation;
+import com.gk.shortlink.service.RedirectPolicy;
 import com.gk.shortlink.service.UrlShortenerService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -11,89 +16,304 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 @RestController
 @RequestMapping("/api/v1/urls")
 @Tag(name = "URL Shortener", description = "Endpoints for creating and managing short URLs")
 public class UrlShortenerController {
 
+    private static final int BATCH_CHUNK_SIZE = 512;
+    private static final int BATCH_CONCURRENCY = 4;
+    // the port comes from the Host header, so clients choose how many base URLs there are
+    private static final int MAX_BASE_URLS = 16;
+    private static final String SHORTEN_FAILED = "Unable to shorten URL";
+
     private final UrlShortenerService urlShortenerService;
     private final ShortLinkProperties properties;
+    private final Validator validator;
+    // set on a replication leader, whose shorten responses then carry the offset of the write
+    private final ChangeFeed changeFeed;
+    // set on a replication follower, which can hold reads until it has applied a given write
+    private final ReplicationFollower follower;
+    // base URLs built so far, replaced as a whole when one is added
+    private final AtomicReference<BaseUrl[]> baseUrls = new AtomicReference<>(new BaseUrl[0]);
+
+    public UrlShortenerController(UrlShortenerService urlShortenerService, ShortLinkProperties properties, Validator validator) {
+        this(urlShortenerService, properties, validator, null, null);
+    }
 
-    public UrlShortenerController(UrlShortenerService urlShortenerService, ShortLinkProperties properties) {
+    @Autowired
+    public UrlShortenerController(UrlShortenerService urlShortenerService, ShortLinkProperties properties, Validator validator,
+                                  ObjectProvider<ChangeFeed> changeFeed, ObjectProvider<ReplicationFollower> follower) {
         this.urlShortenerService = urlShortenerService;
         this.properties = properties;
+        this.validator = validator;
+        this.changeFeed = changeFeed != null ? changeFeed.getIfAvailable() : null;
+        this.follower = follower != null ? follower.getIfAvailable() : null;
     }
 
     @PostMapping("/shorten")
     @Operation(
         summary = "Shorten a URL",
-        description = "Takes a long URL and returns a unique short code and short URL",
+        description = "Takes a long URL and returns a unique short code and short URL. With a ttl or expiresAt the short URL "
+            + "stops redirecting at that time. With a redirectStatus or cacheMaxAge the short URL redirects with that status and "
+            + "Cache-Control max-age instead of the server's defaults. Either way a new code is created on every request. "
+            + "On a replication leader the response carries an X-Replication-Offset header to pass on to /info requests "
+            + "sent to followers.",
         responses = {
             @ApiResponse(responseCode = "201", description = "URL successfully shortened", content = @Content(schema = @Schema(implementation = ShortenResponse.class))),
-            @ApiResponse(responseCode = "400", description = "Invalid URL format or blank URL")
+            @ApiResponse(responseCode = "400", description = "Invalid URL format, blank URL or invalid expiry")
         }
     )
     public Mono<ResponseEntity<ShortenResponse>> shortenUrl(@Valid @RequestBody Mono<ShortenRequest> shortenRequestMono, ServerWebExchange exchange) {
-        return shortenRequestMono.flatMap(shortenRequest ->
-            urlShortenerService.shorten(shortenRequest.url())
+        return shortenRequestMono.flatMap(shortenRequest -> {
+            Instant expiresAt = shortenRequest.expiry(Instant.now());
+            int redirect = RedirectPolicy.encode(shortenRequest.redirectStatus(), shortenRequest.cacheMaxAge());
+            return urlShortenerService.shorten(shortenRequest.url(), expiresAt, redirect)
                 .map(code -> {
                     var baseUrl = getBaseUrl(exchange);
                     var shortUrl = baseUrl + "/" + code;
-                    return ResponseEntity.status(HttpStatus.CREATED)
-                        .body(new ShortenResponse(shortenRequest.url(), shortUrl, code));
-                })
-        );
+                    ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.CREATED);
+                    if (changeFeed != null) {
+                        // read after the write completed, so the offset covers it
+                        response.header(ReplicationOffset.HEADER, changeFeed.position().toString());
+                    }
+                    return response.body(new ShortenResponse(shortenRequest.url(), shortUrl, code, expiresAt));
+                });
+        });
+    }
+
+    @PostMapping(value = "/shorten/batch",
+        consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+        produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+        summary = "Shorten a stream of URLs",
+        description = "Takes newline-delimited JSON (or a JSON array) of shorten requests and streams back one result per request, "
+            + "in request order. Items that fail validation carry an error instead of a code.",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Results streamed as newline-delimited JSON", content = @Content(schema = @Schema(implementation = ShortenResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Malformed request stream")
+        }
+    )
+    public Flux<ShortenResponse> shortenUrls(@RequestBody Flux<ShortenRequest> shortenRequests, ServerWebExchange exchange) {
+        var baseUrl = getBaseUrl(exchange);
+        // Chunks bound both the work per store write and the items buffered ahead of the response
+        return shortenRequests
+            .buffer(BATCH_CHUNK_SIZE)
+            .flatMapSequential(chunk -> shortenChunk(chunk, baseUrl), BATCH_CONCURRENCY);
     }
 
     @GetMapping("/{code}/info")
     @Operation(
         summary = "Get short code details",
-        description = "Retrieves the original URL and other details for a given short code",
+        description = "Retrieves the original URL and other details for a given short code. Responses carry a strong ETag, "
+            + "and a request whose If-None-Match matches it gets a 304 without a body. On a replication follower, a request "
+            + "with the X-Replication-Offset of a shorten response from the leader waits until that write is replicated.",
         responses = {
             @ApiResponse(responseCode = "200", description = "Details found", content = @Content(schema = @Schema(implementation = ShortenResponse.class))),
+            @ApiResponse(responseCode = "304", description = "Details unchanged since the ETag in If-None-Match"),
             @ApiResponse(responseCode = "404", description = "Short code not found")
         }
     )
     public Mono<ResponseEntity<ShortenResponse>> getShortCodeDetails(
         @Parameter(description = "The 6-character short code", example = "a1B2c3") @PathVariable String code,
+        @Parameter(description = "Offset returned by the replication leader for a write this read must see")
+        @RequestHeader(name = ReplicationOffset.HEADER, required = false) String replicationOffset,
         ServerWebExchange exchange) {
-        return urlShortenerService.getOriginalUrl(code)
+        Mono<String> originalUrl = follower == null || replicationOffset == null
+            ? urlShortenerService.getOriginalUrl(code)
+            : follower.awaitOffset(ReplicationOffset.parse(replicationOffset))
+                .then(Mono.defer(() -> urlShortenerService.getOriginalUrl(code)));
+        return originalUrl
             .switchIfEmpty(Mono.error(new UrlNotFoundException("Short code not found: " + code)))
             .map(originalUrl -> {
-                var baseUrl = getBaseUrl(exchange);
-                var shortUrl = baseUrl + "/" + code;
-                return ResponseEntity.ok(new ShortenResponse(originalUrl, shortUrl, code));
+                var baseUrl = baseUrlOf(exchange);
+                long urlTag = urlShortenerService.urlTag(code, originalUrl);
+                // a GET whose If-None-Match matches is answered with a 304 by the result handler
+                return ResponseEntity.ok()
+                    .eTag(eTag(urlTag, baseUrl))
+                    .body(new ShortenResponse(originalUrl, baseUrl.url() + "/" + code, code));
             });
     }
 
-    private String getBaseUrl(ServerWebExchange exchange) {
+    private Flux<ShortenResponse> shortenChunk(List<ShortenRequest> chunk, String baseUrl) {
+        ShortenResponse[] failures = new ShortenResponse[chunk.size()];
+        Instant[] expiries = new Instant[chunk.size()];
+        int[] redirects = new int[chunk.size()];
+        List<String> sharedUrls = new ArrayList<>(chunk.size());
+        List<Integer> unshared = new ArrayList<>();
+        Instant now = Instant.now();
+        for (int i = 0; i < chunk.size(); i++) {
+            ShortenRequest request = chunk.get(i);
+            try {
+                String error = validate(request);
+                if (error != null) {
+                    failures[i] = ShortenResponse.failed(request != null ? request.url() : null, error);
+                    continue;
+                }
+                expiries[i] = request.expiry(now);
+                redirects[i] = RedirectPolicy.encode(request.redirectStatus(), request.cacheMaxAge());
+            } catch (RuntimeException e) {
+                failures[i] = ShortenResponse.failed(request.url(), SHORTEN_FAILED);
+                continue;
+            }
+            if (expiries[i] == null && redirects[i] == 0) {
+                sharedUrls.add(request.url());
+            } else {
+                unshared.add(i);
+            }
+        }
+        // the batch path stores all of its URLs or fails as a whole; shortening them one by one finds the ones
+        // already stored again, so only URLs that fail on their own are reported as failed
+        Mono<List<ShortenResponse>> sharedResponses = urlShortenerService.shortenAll(Flux.fromIterable(sharedUrls))
+            .collectList()
+            .map(codes -> {
+                List<ShortenResponse> responses = new ArrayList<>(codes.size());
+                for (int i = 0; i < codes.size(); i++) {
+                    responses.add(new ShortenResponse(sharedUrls.get(i), baseUrl + "/" + codes.get(i), codes.get(i)));
+                }
+                return responses;
+            })
+            .onErrorResume(ex -> Flux.fromIterable(sharedUrls)
+                .flatMapSequential(url -> shortenOne(url, null, 0, baseUrl))
+                .collectList());
+        // expiring links and those with a redirect policy are never shared, so they cannot take part in the deduplicating batch path
+        Mono<List<ShortenResponse>> unsharedResponses = Flux.fromIterable(unshared)
+            .flatMapSequential(i -> shortenOne(chunk.get(i).url(), expiries[i], redirects[i], baseUrl))
+            .collectList();
+        return sharedResponses
+            .zipWith(unsharedResponses)
+            .flatMapIterable(responses -> {
+                List<ShortenResponse> ordered = new ArrayList<>(chunk.size());
+                Iterator<ShortenResponse> shared = responses.getT1().iterator();
+                Iterator<ShortenResponse> own = responses.getT2().iterator();
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (failures[i] != null) {
+                        ordered.add(failures[i]);
+                    } else {
+                        ordered.add(expiries[i] == null && redirects[i] == 0 ? shared.next() : own.next());
+                    }
+                }
+                return ordered;
+            });
+    }
+
+    private Mono<ShortenResponse> shortenOne(String url, Instant expiresAt, int redirect, String baseUrl) {
+        return urlShortenerService.shorten(url, expiresAt, redirect)
+            .map(code -> new ShortenResponse(url, baseUrl + "/" + code, code, expiresAt))
+            .onErrorResume(ex -> Mono.just(ShortenResponse.failed(url, SHORTEN_FAILED)));
+    }
+
+    private String validate(ShortenRequest shortenRequest) {
+        if (shortenRequest == null) {
+            return "Request cannot be null";
+        }
+        Set<ConstraintViolation<ShortenRequest>> violations = validator.validate(shortenRequest);
+        if (!violations.isEmpty()) {
+            return violations.iterator().next().getMessage();
+        }
+        return RedirectLocation.of(shortenRequest.url()) == null ? "Invalid URL format" : null;
+    }
+
+    /**
+     * Combines the tag stored with a mapping with that of the base URL, as the short URL in a details
+     * response depends on the host and port the request was made to. Both were hashed ahead of the request.
+     */
+    private static String eTag(long urlTag, BaseUrl baseUrl) {
+        return "\"" + Long.toHexString(urlTag << 32 | Integer.toUnsignedLong(baseUrl.tag())) + "\"";
+    }
+
+    /**
+     * Method to get the scheme, host and port short URLs of a request start with. The first few combinations
+     * seen are kept, so the common case is a short scan rather than string concatenation and hashing, see
+     * {@code RedirectPipelineBenchmark.getBaseUrlUncached}.
+     *
+     * @param exchange request, null for http on the default port
+     * @return base URL without a trailing slash
+     */
+    String getBaseUrl(ServerWebExchange exchange) {
+        return baseUrlOf(exchange).url();
+    }
+
+    private BaseUrl baseUrlOf(ServerWebExchange exchange) {
         String scheme = "http";
+        int port = -1;
         if (exchange != null) {
             URI uri = exchange.getRequest().getURI();
             if (uri.getScheme() != null) {
                 scheme = uri.getScheme();
             }
+            port = uri.getPort();
         }
+        // the host is compared as well, properties are only fixed outside of tests
+        String host = properties.host();
+        BaseUrl[] known = baseUrls.get();
+        BaseUrl found = find(known, scheme, host, port);
+        if (found != null) {
+            return found;
+        }
+        String url = buildBaseUrl(scheme, host, port);
+        BaseUrl baseUrl = new BaseUrl(scheme, host, port, url, url.hashCode());
+        while (known.length < MAX_BASE_URLS) {
+            BaseUrl[] grown = Arrays.copyOf(known, known.length + 1);
+            grown[known.length] = baseUrl;
+            if (baseUrls.compareAndSet(known, grown)) {
+                return baseUrl;
+            }
+            // another request added one meanwhile, perhaps this one
+            known = baseUrls.get();
+            found = find(known, scheme, host, port);
+            if (found != null) {
+                return found;
+            }
+        }
+        // beyond the limit it is built for every request; the tag only depends on the URL, so entity tags agree
+        return baseUrl;
+    }
 
-        StringBuilder baseUrl = new StringBuilder(scheme).append("://").append(properties.host());
-
-        if (exchange != null) {
-            URI uri = exchange.getRequest().getURI();
-            int port = uri.getPort();
-            // Only append port if it's not the default for the scheme
-            if (port != -1 && ((scheme.equals("http") && port != 80) || (scheme.equals("https") && port != 443))) {
-                baseUrl.append(":").append(port);
+    private static BaseUrl find(BaseUrl[] known, String scheme, String host, int port) {
+        for (BaseUrl baseUrl : known) {
+            if (baseUrl.port() == port && baseUrl.scheme().equals(scheme) && Objects.equals(baseUrl.host(), host)) {
+                return baseUrl;
             }
         }
+        return null;
+    }
+
+    static String buildBaseUrl(String scheme, String host, int port) {
+        StringBuilder baseUrl = new StringBuilder(scheme).append("://").append(host);
+        // Only append port if it's not the default for the scheme
+        if (port != -1 && ((scheme.equals("http") && port != 80) || (scheme.equals("https") && port != 443))) {
+            baseUrl.append(":").append(port);
+        }
         return baseUrl.toString();
     }
+
+    /**
+     * @param tag hash of the URL, part of the entity tags of details responses
+     */
+    private record BaseUrl(String scheme, String host, int port, String url, int tag) {
+    }
 }
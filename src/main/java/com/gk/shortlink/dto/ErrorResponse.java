@@ -0,0 +1,31 @@
+package com.gk.shortlink.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.http.HttpStatus;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Schema(description = "Error returned instead of the requested resource")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ErrorResponse(
+    @Schema(description = "Instant at which the error occurred", example = "2026-01-01T12:00:00.123Z")
+    Instant timestamp,
+    @Schema(description = "HTTP status code", example = "404")
+    int status,
+    @Schema(description = "Reason phrase of the status", example = "Not Found")
+    String error,
+    @Schema(description = "What went wrong", example = "Short code not found: a1B2c3")
+    String message,
+    @Schema(description = "Validation message per invalid request field, absent for other errors", example = "{\"url\": \"URL cannot be blank\"}")
+    Map<String, String> details
+) {
+    public static ErrorResponse of(HttpStatus status, String message) {
+        return of(status, message, null);
+    }
+
+    public static ErrorResponse of(HttpStatus status, String message, Map<String, String> details) {
+        return new ErrorResponse(Instant.now(), status.value(), status.getReasonPhrase(), message, details);
+    }
+}
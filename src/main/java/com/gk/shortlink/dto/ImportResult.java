@@ -0,0 +1,17 @@
+package com.gk.shortlink.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Outcome of a bulk mapping import")
+public record ImportResult(
+    @Schema(description = "Mappings added to the store", example = "1000000")
+    long imported,
+    @Schema(description = "Mappings skipped because the code or URL is already mapped, or the record is invalid", example = "12")
+    long skipped
+) {
+    public static final ImportResult EMPTY = new ImportResult(0, 0);
+
+    public ImportResult plus(ImportResult other) {
+        return new ImportResult(imported + other.imported, skipped + other.skipped);
+    }
+}
@@ -0,0 +1,12 @@
+package com.gk.shortlink.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Click count of a short link")
+public record LinkClicks(
+    @Schema(description = "The short code", example = "a1B2c3")
+    String code,
+    @Schema(description = "Clicks counted on this node; for top links an estimate weighted towards recent clicks", example = "1024")
+    long clicks
+) {
+}
@@ -0,0 +1,41 @@
+package com.gk.shortlink.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "A short code and the URL it maps to, as exported and imported in bulk")
+public record LinkMapping(
+    @Schema(description = "The short code", example = "a1B2c3")
+    String code,
+    @Schema(description = "The original long URL", example = "https://www.google.com")
+    String url,
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    @Schema(description = "Epoch milliseconds at which the link expires, absent for links that never expire", example = "1767225600000")
+    long expiresAt,
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    @Schema(description = "Redirect status and caching of the link as opaque bits to import back, absent for links following the defaults")
+    int redirect
+) {
+    public LinkMapping(String code, String url) {
+        this(code, url, 0, 0);
+    }
+
+    public LinkMapping(String code, String url, long expiresAt) {
+        this(code, url, expiresAt, 0);
+    }
+
+    /**
+     * @return true if the mapping has an expiry
+     */
+    public boolean expires() {
+        return expiresAt != 0;
+    }
+
+    /**
+     * @return true if the mapping may be handed to everyone shortening its URL, i.e. it neither expires
+     *         nor has a redirect policy of its own
+     */
+    public boolean shared() {
+        return expiresAt == 0 && redirect == 0;
+    }
+}
@@ -1,14 +1,83 @@
 package com.gk.shortlink.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Future;
 import jakarta.validation.constraints.NotBlank;
 import org.hibernate.validator.constraints.URL;
+import org.hibernate.validator.constraints.time.DurationMax;
+import org.hibernate.validator.constraints.time.DurationMin;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
 
 @Schema(description = "Request object for shortening a URL")
 public record ShortenRequest(
     @NotBlank(message = "URL cannot be blank")
     @URL(message = "Invalid URL format")
     @Schema(description = "The original long URL to shorten", example = "https://www.google.com")
-    String url
+    String url,
+    @DurationMax(days = 3650, message = "ttl must be at most 3650 days")
+    @Schema(description = "Time after which the short URL stops redirecting, as an ISO-8601 duration of at most 3650 days", example = "P30D")
+    Duration ttl,
+    @Future(message = "Expiry must be in the future")
+    @Schema(description = "Instant at which the short URL stops redirecting, as an alternative to ttl; at the latest 2106-02-07T06:28:15Z", example = "2026-12-31T23:59:59Z")
+    Instant expiresAt,
+    @Schema(description = "Status the short URL redirects with, one of 301, 302, 307 and 308; the server's default if absent", example = "301")
+    Integer redirectStatus,
+    @DurationMin(message = "Cache max-age must not be negative")
+    @DurationMax(days = 365, message = "Cache max-age must be at most 365 days")
+    @Schema(description = "How long clients may cache the redirect, as an ISO-8601 duration; the server's default if absent", example = "PT1H")
+    Duration cacheMaxAge
 ) {
+    private static final Set<Integer> REDIRECT_STATUSES = Set.of(301, 302, 307, 308);
+    // the store keeps expiries as unsigned 32-bit epoch seconds
+    private static final Instant LATEST_EXPIRY = Instant.ofEpochSecond(0xFFFFFFFFL);
+
+    public ShortenRequest(String url) {
+        this(url, null, null);
+    }
+
+    public ShortenRequest(String url, Duration ttl, Instant expiresAt) {
+        this(url, ttl, expiresAt, null, null);
+    }
+
+    /**
+     * @return true unless both ttl and expiresAt are set or the ttl is not positive
+     */
+    @JsonIgnore
+    @AssertTrue(message = "Only one of ttl and expiresAt may be set, and ttl must be positive")
+    public boolean isExpiryValid() {
+        return ttl == null || (expiresAt == null && ttl.isPositive());
+    }
+
+    /**
+     * @return true unless expiresAt is set beyond the latest expiry the store can hold
+     */
+    @JsonIgnore
+    @AssertTrue(message = "Expiry must be at or before 2106-02-07T06:28:15Z")
+    public boolean isExpiresAtInRange() {
+        return expiresAt == null || !expiresAt.isAfter(LATEST_EXPIRY);
+    }
+
+    /**
+     * @return true unless a redirect status other than 301, 302, 307 and 308 is set
+     */
+    @JsonIgnore
+    @AssertTrue(message = "Redirect status must be one of 301, 302, 307 and 308")
+    public boolean isRedirectStatusValid() {
+        return redirectStatus == null || REDIRECT_STATUSES.contains(redirectStatus);
+    }
+
+    /**
+     * Method to resolve when the short URL expires
+     *
+     * @param now time the request is handled
+     * @return expiry instant, or null if the link never expires
+     */
+    public Instant expiry(Instant now) {
+        return ttl != null ? now.plus(ttl) : expiresAt;
+    }
 }
@@ -1,13 +1,32 @@
 package com.gk.shortlink.dto;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
 
+import java.time.Instant;
+
 @Schema(description = "Response object containing the shortened URL details")
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public record ShortenResponse(
     @Schema(description = "The original long URL", example = "https://www.google.com")
     String originalUrl,
     @Schema(description = "The generated short URL", example = "http://localhost:8080/a1B2c3")
     String shortUrl,
     @Schema(description = "The 6-character unique short code", example = "a1B2c3")
-    String code
+    String code,
+    @Schema(description = "Instant at which the short URL stops redirecting, absent for links that never expire", example = "2026-12-31T23:59:59Z")
+    Instant expiresAt,
+    @Schema(description = "Why this item of a batch could not be shortened, absent on success", example = "Invalid URL format")
+    String error
 ) {
+    public ShortenResponse(String originalUrl, String shortUrl, String code) {
+        this(originalUrl, shortUrl, code, null, null);
+    }
+
+    public ShortenResponse(String originalUrl, String shortUrl, String code, Instant expiresAt) {
+        this(originalUrl, shortUrl, code, expiresAt, null);
+    }
+
+    public static ShortenResponse failed(String originalUrl, String error) {
+        return new ShortenResponse(originalUrl, null, null, null, error);
+    }
 }
@@ -0,0 +1,7 @@
+package com.gk.shortlink.exception;
+
+public class CodeGenerationException extends RuntimeException {
+    public CodeGenerationException(String message) {
+        super(message);
+    }
+}
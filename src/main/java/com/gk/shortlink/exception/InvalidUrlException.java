@@ -0,0 +1,7 @@
+package com.gk.shortlink.exception;
+
+public class InvalidUrlException extends RuntimeException {
+    public InvalidUrlException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.gk.shortlink.exception;
+
+public class StorageBusyException extends RuntimeException {
+    public StorageBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,116 @@
+package com.gk.shortlink.generator;
+
+/**
+ * Fixed-width base62 codec over the alphabet {@code 0-9A-Za-z}.
+ */
+public final class Base62 {
+
+    public static final int RADIX = 62;
+    /**
+     * Longest code whose value space still fits in a positive {@code long}
+     */
+    public static final int MAX_LENGTH = 10;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+    private static final byte[] INDEX = new byte[128];
+    // LENGTH_OFFSETS[n] = number of codes shorter than n characters
+    private static final long[] LENGTH_OFFSETS = new long[MAX_LENGTH + 2];
+
+    static {
+        for (int length = 1; length <= MAX_LENGTH + 1; length++) {
+            LENGTH_OFFSETS[length] = length == 1 ? 0 : LENGTH_OFFSETS[length - 1] + pow(length - 1);
+        }
+        java.util.Arrays.fill(INDEX, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            INDEX[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private Base62() {
+    }
+
+    /**
+     * @param length code length
+     * @return number of distinct codes of the given length, i.e. 62^length
+     */
+    public static long capacity(int length) {
+        checkLength(length);
+        return pow(length);
+    }
+
+    /**
+     * Encodes a value into exactly {@code length} characters, left-padded with '0'
+     */
+    public static String encode(long value, int length) {
+        char[] chars = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (value % RADIX)];
+            value /= RADIX;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Decodes a code into its numeric value
+     *
+     * @return decoded value, or -1 if the code is empty, too long or contains a non-alphanumeric character
+     */
+    public static long decode(CharSequence code) {
+        int length = code.length();
+        if (length == 0 || length > MAX_LENGTH) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = digit(code.charAt(i));
+            if (digit < 0) {
+                return -1;
+            }
+            value = value * RADIX + digit;
+        }
+        return value;
+    }
+
+    /**
+     * @return value of a single base62 character, or -1 if it is not in the alphabet
+     */
+    public static int digit(char c) {
+        return c < 128 ? INDEX[c] : -1;
+    }
+
+    /**
+     * Packs a code of any supported length into a single non-negative key. Codes of different
+     * lengths occupy disjoint key ranges, so "0001" and "1" never share a key.
+     *
+     * @return key of the code, or -1 if the code is not valid base62
+     */
+    public static long toKey(CharSequence code) {
+        long value = decode(code);
+        return value < 0 ? -1 : LENGTH_OFFSETS[code.length()] + value;
+    }
+
+    /**
+     * Inverse of {@link #toKey(CharSequence)}
+     */
+    public static String fromKey(long key) {
+        int length = 1;
+        while (length < MAX_LENGTH && key >= LENGTH_OFFSETS[length + 1]) {
+            length++;
+        }
+        return encode(key - LENGTH_OFFSETS[length], length);
+    }
+
+    private static long pow(int length) {
+        long value = 1;
+        for (int i = 0; i < length; i++) {
+            value *= RADIX;
+        }
+        return value;
+    }
+
+    static void checkLength(int length) {
+        if (length < 1 || length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Code length must be between 1 and " + MAX_LENGTH + " but was " + length);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.gk.shortlink.generator;
+
+import com.gk.shortlink.exception.CodeGenerationException;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collision-free generator backed by a monotonic ID sequence. Each thread leases a block of IDs
+ * from a shared counter and hands them out without further coordination, so the hot path is a
+ * thread-local increment plus a Feistel permutation into the base62 code space.
+ */
+public final class BlockSequenceCodeGenerator implements CodeGenerator {
+
+    private final int codeLength;
+    private final int blockSize;
+    private final FeistelPermutation permutation;
+    private final AtomicLong nextBlockStart = new AtomicLong();
+    private final ThreadLocal<Block> blocks = ThreadLocal.withInitial(Block::new);
+
+    public BlockSequenceCodeGenerator(int codeLength, int blockSize, long seed) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive but was " + blockSize);
+        }
+        this.codeLength = codeLength;
+        this.blockSize = blockSize;
+        this.permutation = new FeistelPermutation(Base62.capacity(codeLength), seed);
+    }
+
+    @Override
+    public String generate() {
+        Block block = blocks.get();
+        if (block.next == block.end) {
+            lease(block);
+        }
+        return Base62.encode(permutation.permute(block.next++), codeLength);
+    }
+
+    @Override
+    public void observe(String code) {
+        long value = Base62.decode(code);
+        if (code.length() != codeLength || value < 0 || value >= permutation.domain()) {
+            return; // codes of another length can never collide with ours
+        }
+        long id = permutation.inverse(value);
+        nextBlockStart.accumulateAndGet(id + 1, Math::max);
+    }
+
+    @Override
+    public String highWaterMark() {
+        // codes of leased blocks may still be handed out, so the mark covers whole blocks
+        long last = Math.min(nextBlockStart.get(), permutation.domain()) - 1;
+        return last < 0 ? null : Base62.encode(permutation.permute(last), codeLength);
+    }
+
+    private void lease(Block block) {
+        long capacity = permutation.domain();
+        long start = nextBlockStart.getAndAdd(blockSize);
+        if (start >= capacity || start < 0) {
+            // keep the counter pinned so later leases fail fast instead of wrapping around
+            nextBlockStart.set(capacity);
+            throw new CodeGenerationException("Short code space of " + capacity + " codes is exhausted");
+        }
+        block.next = start;
+        block.end = Math.min(start + blockSize, capacity);
+    }
+
+    private static final class Block {
+        long next;
+        long end;
+    }
+}
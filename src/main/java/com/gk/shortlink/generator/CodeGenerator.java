@@ -0,0 +1,36 @@
+package com.gk.shortlink.generator;
+
+/**
+ * Strategy for producing short codes. Implementations must be thread-safe and must never
+ * block on I/O or entropy gathering, as they are invoked on Netty event-loop threads.
+ */
+public interface CodeGenerator {
+
+    /**
+     * Method to produce the next candidate short code
+     *
+     * @return alphanumeric code of the configured length
+     * @throws com.gk.shortlink.exception.CodeGenerationException if the code space is exhausted
+     */
+    String generate();
+
+    /**
+     * Method to notify the generator of a code issued before this instance started,
+     * e.g. one replayed from the mapping journal, so that it is not handed out again
+     *
+     * @param code previously issued short code
+     */
+    default void observe(String code) {
+    }
+
+    /**
+     * Method to report how far the generator has advanced, for generators that hand out codes in
+     * a sequence. Observing the returned code on a fresh instance resumes the sequence past every
+     * code handed out so far.
+     *
+     * @return furthest code handed out or leased, or null if the generator has no position to restore
+     */
+    default String highWaterMark() {
+        return null;
+    }
+}
@@ -0,0 +1,92 @@
+package com.gk.shortlink.generator;
+
+/**
+ * Keyed bijection over {@code [0, domain)} built from a balanced Feistel network with cycle walking.
+ * Consecutive inputs map to scattered outputs, so sequential IDs do not yield guessable codes,
+ * while the mapping stays invertible and therefore collision-free.
+ */
+public final class FeistelPermutation {
+
+    private static final int ROUNDS = 4;
+
+    private final long domain;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] roundKeys = new long[ROUNDS];
+
+    public FeistelPermutation(long domain, long seed) {
+        if (domain < 2) {
+            throw new IllegalArgumentException("Domain must contain at least two values");
+        }
+        int bits = 64 - Long.numberOfLeadingZeros(domain - 1);
+        this.domain = domain;
+        this.halfBits = (bits + 1) / 2;
+        this.halfMask = (1L << halfBits) - 1;
+        long state = seed;
+        for (int i = 0; i < ROUNDS; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            roundKeys[i] = mix(state);
+        }
+    }
+
+    public long permute(long value) {
+        checkRange(value);
+        // Cycle walking: re-encrypt until the result falls back inside the domain. As the
+        // network's block is less than 4x the domain, the expected number of walks is small.
+        do {
+            value = encrypt(value);
+        } while (value >= domain);
+        return value;
+    }
+
+    public long inverse(long value) {
+        checkRange(value);
+        do {
+            value = decrypt(value);
+        } while (value >= domain);
+        return value;
+    }
+
+    public long domain() {
+        return domain;
+    }
+
+    private long encrypt(long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (int i = 0; i < ROUNDS; i++) {
+            long next = left ^ round(right, i);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    private long decrypt(long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (int i = ROUNDS - 1; i >= 0; i--) {
+            long previous = right ^ round(left, i);
+            right = left;
+            left = previous;
+        }
+        return (left << halfBits) | right;
+    }
+
+    private long round(long half, int round) {
+        return mix(half ^ roundKeys[round]) & halfMask;
+    }
+
+    private void checkRange(long value) {
+        if (value < 0 || value >= domain) {
+            throw new IllegalArgumentException("Value " + value + " is outside [0, " + domain + ")");
+        }
+    }
+
+    // SplitMix64 / murmur3 finaliser
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,12 @@
+package com.gk.shortlink.generator;
+
+public enum GeneratorMode {
+    /**
+     * Block-allocated monotonic IDs permuted into the code space, collision-free by construction
+     */
+    SEQUENCE,
+    /**
+     * Uniformly random codes, checked for collisions by the caller
+     */
+    RANDOM
+}
@@ -0,0 +1,34 @@
+package com.gk.shortlink.generator;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Generator drawing uniformly random codes. Every thread owns a DRBG instance that is seeded once,
+ * so generation never contends on a shared lock nor reads the entropy pool on the hot path.
+ * Codes may collide; callers are expected to verify uniqueness and retry.
+ */
+public final class RandomCodeGenerator implements CodeGenerator {
+
+    private final int codeLength;
+    private final long capacity;
+    private final ThreadLocal<SecureRandom> randoms = ThreadLocal.withInitial(RandomCodeGenerator::newRandom);
+
+    public RandomCodeGenerator(int codeLength) {
+        this.codeLength = codeLength;
+        this.capacity = Base62.capacity(codeLength);
+    }
+
+    @Override
+    public String generate() {
+        return Base62.encode(randoms.get().nextLong(capacity), codeLength);
+    }
+
+    private static SecureRandom newRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.gk.shortlink.generator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.stream.Stream;
+
+/**
+ * Permutation seed drawn once per deployment and kept in a file next to the data it generated codes for, so
+ * that codes stay hard to guess without a configured seed and the generator recognises its own codes after a
+ * restart.
+ */
+public final class SeedFile {
+
+    static final String FILE_NAME = "generator.seed";
+    /**
+     * Seed used before it was drawn per deployment, kept for data directories written with it
+     */
+    static final long FORMER_DEFAULT = 0;
+
+    private SeedFile() {
+    }
+
+    /**
+     * Method to read the seed kept in a directory, drawing and storing a new one if there is none yet
+     *
+     * @param dir directory holding the data the codes were generated for, created if missing
+     * @return the seed, {@link #FORMER_DEFAULT} for a directory holding data but no seed
+     */
+    public static long loadOrCreate(Path dir) {
+        Path file = dir.resolve(FILE_NAME);
+        try {
+            if (Files.exists(file)) {
+                return Long.parseLong(Files.readString(file, StandardCharsets.US_ASCII).trim());
+            }
+            Files.createDirectories(dir);
+            long seed = holdsData(dir) ? FORMER_DEFAULT : new SecureRandom().nextLong();
+            write(dir, file, seed);
+            return seed;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to load the generator seed in " + dir, e);
+        }
+    }
+
+    private static boolean holdsData(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            // a seed file left half written by a crash is not data, neither is a store file just created empty
+            return files.anyMatch(path -> !path.getFileName().toString().startsWith(FILE_NAME) && size(path) > 0);
+        }
+    }
+
+    private static long size(Path path) {
+        try {
+            return Files.isRegularFile(path) ? Files.size(path) : 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void write(Path dir, Path file, long seed) throws IOException {
+        Path temporary = dir.resolve(FILE_NAME + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap((seed + "\n").getBytes(StandardCharsets.US_ASCII));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        // the seed must never change once codes were handed out with it
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        try (FileChannel directory = FileChannel.open(dir, StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+    }
+}
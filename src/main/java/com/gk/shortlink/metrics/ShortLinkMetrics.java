@@ -0,0 +1,356 @@
+package com.gk.shortlink.metrics;
+
+import com.gk.shortlink.admission.AdmissionController;
+import com.gk.shortlink.analytics.ClickAnalytics;
+import com.gk.shortlink.replication.ReplicationFollower;
+import com.gk.shortlink.replication.ReplicationLeader;
+import com.gk.shortlink.service.SingleFlight;
+import com.gk.shortlink.store.CodeBloomFilter;
+import com.gk.shortlink.store.ColdMappingStore;
+import com.gk.shortlink.store.CompactMappingStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Meters of the shorten and redirect hot paths. Every meter is registered up front and held in a field,
+ * so recording never looks up a meter or allocates tags. Store statistics are function meters that read
+ * the store's own counters when scraped, adding nothing to lookups.
+ */
+public final class ShortLinkMetrics {
+
+    private static final Duration MIN_EXPECTED_LATENCY = Duration.ofNanos(500);
+    private static final Duration MAX_EXPECTED_LATENCY = Duration.ofSeconds(5);
+
+    private final MeterRegistry registry;
+    private final Timer codeGeneration;
+    private final Counter codeCollisions;
+    private final Timer shorten;
+    private final Timer redirectFound;
+    private final Timer redirectNotFound;
+    private final Counter forwardFound;
+    private final Counter forwardNotFound;
+    private final Counter forwardFailed;
+    private final Counter nearCacheHits;
+
+    public ShortLinkMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.codeGeneration = Timer.builder("shortlink.code.generation")
+            .description("Time to generate a candidate short code")
+            .register(registry);
+        this.codeCollisions = Counter.builder("shortlink.code.collisions")
+            .description("Candidate codes rejected because they were already taken")
+            .register(registry);
+        this.shorten = Timer.builder("shortlink.shorten")
+            .description("Time to shorten a URL, including waiting for the mapping to be durable")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(MIN_EXPECTED_LATENCY)
+            .maximumExpectedValue(MAX_EXPECTED_LATENCY)
+            .register(registry);
+        this.redirectFound = redirectTimer(registry, "found");
+        this.redirectNotFound = redirectTimer(registry, "not_found");
+        this.forwardFound = forwardCounter(registry, "found");
+        this.forwardNotFound = forwardCounter(registry, "not_found");
+        this.forwardFailed = forwardCounter(registry, "error");
+        this.nearCacheHits = Counter.builder("shortlink.cluster.near.cache.hits")
+            .description("Lookups of codes owned by another node answered from the near-cache")
+            .register(registry);
+    }
+
+    /**
+     * Method to create metrics that record nothing, for instances built outside the application context
+     *
+     * @return metrics backed by a registry without any backend
+     */
+    public static ShortLinkMetrics disabled() {
+        return new ShortLinkMetrics(new CompositeMeterRegistry());
+    }
+
+    /**
+     * Method to expose the statistics of a store: lookups by side and result, evictions, size, capacity and
+     * memory against its budget
+     *
+     * @param store store to observe
+     */
+    public void bindStore(CompactMappingStore store) {
+        storeLookups(store, "code", "hit", CompactMappingStore::codeHitCount);
+        storeLookups(store, "code", "miss", CompactMappingStore::codeMissCount);
+        storeLookups(store, "url", "hit", CompactMappingStore::urlHitCount);
+        storeLookups(store, "url", "miss", CompactMappingStore::urlMissCount);
+        FunctionCounter.builder("shortlink.store.evictions", store, CompactMappingStore::evictionCount)
+            .description("Mappings evicted to stay within the capacity")
+            .register(registry);
+        FunctionCounter.builder("shortlink.store.expirations", store, CompactMappingStore::expirationCount)
+            .description("Mappings reclaimed after their expiry passed")
+            .register(registry);
+        Gauge.builder("shortlink.store.expiry.timers", store, CompactMappingStore::pendingExpiryCount)
+            .description("Expiry timers scheduled and not reached yet")
+            .register(registry);
+        Gauge.builder("shortlink.store.size", store, CompactMappingStore::size)
+            .description("Mappings currently held")
+            .register(registry);
+        Gauge.builder("shortlink.store.capacity", store, CompactMappingStore::capacity)
+            .description("Mappings held before the least recently used are evicted")
+            .register(registry);
+        Gauge.builder("shortlink.store.memory", store, CompactMappingStore::memoryBytes)
+            .description("Estimated bytes retained by the store")
+            .baseUnit("bytes")
+            .register(registry);
+        if (store.memoryBudget() != CompactMappingStore.UNBOUNDED) {
+            Gauge.builder("shortlink.store.memory.budget", store, CompactMappingStore::memoryBudget)
+                .description("Estimated bytes the store may retain before the least recently used mappings are evicted")
+                .baseUnit("bytes")
+                .register(registry);
+        }
+        Gauge.builder("shortlink.store.compression.ratio", store, CompactMappingStore::compressionRatio)
+            .description("UTF-8 size of stored URLs divided by their encoded size, 1 when uncompressed")
+            .register(registry);
+    }
+
+    /**
+     * Method to expose the statistics of a cold tier: lookups by result, demotions, drops, size, mapped and dead
+     * bytes
+     *
+     * @param coldStore cold tier to observe
+     */
+    public void bindColdStore(ColdMappingStore coldStore) {
+        FunctionCounter.builder("shortlink.cold.lookups", coldStore, ColdMappingStore::hitCount)
+            .description("Cold tier lookups of codes missing from memory, by whether they were found")
+            .tag("result", "hit")
+            .register(registry);
+        FunctionCounter.builder("shortlink.cold.lookups", coldStore, ColdMappingStore::missCount)
+            .description("Cold tier lookups of codes missing from memory, by whether they were found")
+            .tag("result", "miss")
+            .register(registry);
+        FunctionCounter.builder("shortlink.cold.demotions", coldStore, ColdMappingStore::demotionCount)
+            .description("Mappings evicted from memory and written to the cold tier")
+            .register(registry);
+        Gauge.builder("shortlink.cold.size", coldStore, ColdMappingStore::size)
+            .description("Mappings held by the cold tier")
+            .register(registry);
+        FunctionCounter.builder("shortlink.cold.drops", coldStore, ColdMappingStore::dropCount)
+            .description("Mappings dropped from the cold tier to stay within its disk budget")
+            .register(registry);
+        Gauge.builder("shortlink.cold.mapped", coldStore, ColdMappingStore::mappedBytes)
+            .description("Bytes of cold tier files mapped into memory")
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("shortlink.cold.dead", coldStore, ColdMappingStore::deadBytes)
+            .description("Bytes of cold tier records no longer referenced, reclaimed as their segments are compacted")
+            .baseUnit("bytes")
+            .register(registry);
+    }
+
+    /**
+     * Method to expose the issued code filter: lookups it answered, codes added, estimated false positive rate
+     * and memory
+     *
+     * @param filter filter to observe
+     */
+    public void bindCodeFilter(CodeBloomFilter filter) {
+        FunctionCounter.builder("shortlink.code.filter.rejections", filter, CodeBloomFilter::rejectionCount)
+            .description("Lookups of codes never issued answered by the filter without a lookup")
+            .register(registry);
+        Gauge.builder("shortlink.code.filter.codes", filter, CodeBloomFilter::codeCount)
+            .description("Codes added to the filter")
+            .register(registry);
+        Gauge.builder("shortlink.code.filter.false.positive.rate", filter, CodeBloomFilter::falsePositiveRate)
+            .description("Estimated share of codes never issued that the filter lets through, from the bits set")
+            .register(registry);
+        Gauge.builder("shortlink.code.filter.memory", filter, CodeBloomFilter::memoryBytes)
+            .description("Bytes held by the filter")
+            .baseUnit("bytes")
+            .register(registry);
+    }
+
+    /**
+     * Method to expose the single-flight layer of lookups leaving memory: lookups by how they were answered,
+     * and lookups in flight
+     *
+     * @param lookups single-flight layer to observe
+     */
+    public void bindSingleFlight(SingleFlight lookups) {
+        singleFlightLookups(lookups, "loaded", SingleFlight::loadCount);
+        singleFlightLookups(lookups, "coalesced", SingleFlight::coalescedCount);
+        singleFlightLookups(lookups, "negative_hit", SingleFlight::negativeHitCount);
+        singleFlightLookups(lookups, "rejected", SingleFlight::rejectedCount);
+        Gauge.builder("shortlink.lookup.in.flight", lookups, SingleFlight::inFlight)
+            .description("Codes with a backing lookup running")
+            .register(registry);
+    }
+
+    /**
+     * Method to expose how many clicks were counted and how many were dropped by full buffers
+     *
+     * @param analytics analytics to observe
+     */
+    public void bindAnalytics(ClickAnalytics analytics) {
+        FunctionCounter.builder("shortlink.analytics.clicks", analytics, ClickAnalytics::recordedCount)
+            .description("Redirects handed to click analytics, by whether they were buffered or dropped")
+            .tag("result", "recorded")
+            .register(registry);
+        FunctionCounter.builder("shortlink.analytics.clicks", analytics, ClickAnalytics::droppedCount)
+            .description("Redirects handed to click analytics, by whether they were buffered or dropped")
+            .tag("result", "dropped")
+            .register(registry);
+    }
+
+    /**
+     * Method to expose the concurrency limits, requests in flight and rejections by class and reason
+     *
+     * @param admission admission controller to observe
+     */
+    public void bindAdmission(AdmissionController admission) {
+        Gauge.builder("shortlink.admission.limit", admission, AdmissionController::writeLimit)
+            .description("Current concurrency limit by request class")
+            .tag("class", "write")
+            .register(registry);
+        Gauge.builder("shortlink.admission.limit", admission, AdmissionController::redirectLimit)
+            .description("Current concurrency limit by request class")
+            .tag("class", "redirect")
+            .register(registry);
+        Gauge.builder("shortlink.admission.in.flight", admission, AdmissionController::writesInFlight)
+            .description("Admitted requests not completed yet by request class")
+            .tag("class", "write")
+            .register(registry);
+        Gauge.builder("shortlink.admission.in.flight", admission, AdmissionController::redirectsInFlight)
+            .description("Admitted requests not completed yet by request class")
+            .tag("class", "redirect")
+            .register(registry);
+        rejections(admission, "write", "rate", AdmissionController::writesOverRateCount);
+        rejections(admission, "write", "limit", AdmissionController::writesOverLimitCount);
+        rejections(admission, "write", "priority", AdmissionController::writesYieldedCount);
+        rejections(admission, "redirect", "limit", AdmissionController::redirectsOverLimitCount);
+    }
+
+    /**
+     * Method to expose the change feed of a replication leader, its followers and how far behind the slowest is
+     *
+     * @param leader leader to observe
+     */
+    public void bindReplicationLeader(ReplicationLeader leader) {
+        Gauge.builder("shortlink.replication.offset", leader, ReplicationLeader::offset)
+            .description("Changes in the leader's feed, or applied from it on a follower")
+            .tag("role", "leader")
+            .register(registry);
+        Gauge.builder("shortlink.replication.lag", leader, ReplicationLeader::maxLag)
+            .description("Changes of the leader not applied yet, on a leader by the follower furthest behind")
+            .tag("role", "leader")
+            .register(registry);
+        Gauge.builder("shortlink.replication.followers", leader, ReplicationLeader::followerCount)
+            .description("Followers connected to the leader")
+            .register(registry);
+    }
+
+    /**
+     * Method to expose how far a replication follower got and how far it is behind its leader
+     *
+     * @param follower follower to observe
+     */
+    public void bindReplicationFollower(ReplicationFollower follower) {
+        Gauge.builder("shortlink.replication.offset", follower, ReplicationFollower::appliedOffset)
+            .description("Changes in the leader's feed, or applied from it on a follower")
+            .tag("role", "follower")
+            .register(registry);
+        Gauge.builder("shortlink.replication.lag", follower, ReplicationFollower::lag)
+            .description("Changes of the leader not applied yet, on a leader by the follower furthest behind")
+            .tag("role", "follower")
+            .register(registry);
+        Gauge.builder("shortlink.replication.lag.time", follower, ReplicationFollower::lagSeconds)
+            .description("Time since the follower last had every change of the leader applied")
+            .baseUnit("seconds")
+            .register(registry);
+        Gauge.builder("shortlink.replication.connected", follower, connected -> connected.isConnected() ? 1 : 0)
+            .description("Whether the follower is connected to its leader")
+            .register(registry);
+    }
+
+    public void recordCodeGeneration(long nanos) {
+        codeGeneration.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordCodeCollision() {
+        codeCollisions.increment();
+    }
+
+    public void recordShorten(long nanos) {
+        shorten.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Method to record the handling time of a redirect
+     *
+     * @param found whether the code was mapped
+     * @param nanos time from receiving the code to producing the response
+     */
+    public void recordRedirect(boolean found, long nanos) {
+        (found ? redirectFound : redirectNotFound).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Method to record a lookup forwarded to the node owning the code
+     *
+     * @param found whether the owner had the code
+     */
+    public void recordForward(boolean found) {
+        (found ? forwardFound : forwardNotFound).increment();
+    }
+
+    public void recordForwardFailure() {
+        forwardFailed.increment();
+    }
+
+    public void recordNearCacheHit() {
+        nearCacheHits.increment();
+    }
+
+    private void storeLookups(CompactMappingStore store, String side, String result,
+                              ToDoubleFunction<CompactMappingStore> count) {
+        FunctionCounter.builder("shortlink.store.lookups", store, count)
+            .description("Store lookups by the side of the mapping looked up and whether it was found")
+            .tag("side", side)
+            .tag("result", result)
+            .register(registry);
+    }
+
+    private void singleFlightLookups(SingleFlight lookups, String result, ToDoubleFunction<SingleFlight> count) {
+        FunctionCounter.builder("shortlink.lookup.single.flight", lookups, count)
+            .description("Lookups of codes missing from memory, by whether they ran, joined one running, were "
+                + "answered by a remembered miss or were rejected")
+            .tag("result", result)
+            .register(registry);
+    }
+
+    private void rejections(AdmissionController admission, String requestClass, String reason,
+                            ToDoubleFunction<AdmissionController> count) {
+        FunctionCounter.builder("shortlink.admission.rejected", admission, count)
+            .description("Requests shed before being handled, by request class and reason")
+            .tag("class", requestClass)
+            .tag("reason", reason)
+            .register(registry);
+    }
+
+    private static Timer redirectTimer(MeterRegistry registry, String result) {
+        return Timer.builder("shortlink.redirect")
+            .description("Time to resolve a short code into a redirect response")
+            .tag("result", result)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(MIN_EXPECTED_LATENCY)
+            .maximumExpectedValue(MAX_EXPECTED_LATENCY)
+            .register(registry);
+    }
+
+    private static Counter forwardCounter(MeterRegistry registry, String result) {
+        return Counter.builder("shortlink.cluster.forwards")
+            .description("Lookups forwarded to the node owning the code, by outcome")
+            .tag("result", result)
+            .register(registry);
+    }
+}
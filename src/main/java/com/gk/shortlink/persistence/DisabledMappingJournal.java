@@ -0,0 +1,33 @@
+package com.gk.shortlink.persistence;
+
+import com.gk.shortlink.store.MappingSink;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+final class DisabledMappingJournal implements MappingJournal {
+
+    static final DisabledMappingJournal INSTANCE = new DisabledMappingJournal();
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    private DisabledMappingJournal() {
+    }
+
+    @Override
+    public void replay(MappingSink sink) {
+    }
+
+    @Override
+    public void start(Supplier<String> highWaterMark) {
+    }
+
+    @Override
+    public CompletableFuture<Void> append(String code, String url, long expiresAt, int redirect) {
+        return DONE;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,638 @@
+package com.gk.shortlink.persistence;
+
+import com.gk.shortlink.exception.StorageBusyException;
+import com.gk.shortlink.generator.Base62;
+import com.gk.shortlink.store.MappingSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal of mappings stored in preallocated, memory-mapped segment files.
+ * <p>
+ * Appends are queued and written by a single writer thread that drains the queue in batches,
+ * so one {@code force()} covers a whole batch (group commit) and callers never touch the disk.
+ * A scheduled task periodically seals the active segment, folds the previous snapshot and the
+ * sealed segments into a compacted snapshot of the last unexpired record of every code and deletes
+ * the files the snapshot covers. On startup the latest snapshot is loaded and the remaining
+ * segments are decoded in parallel, then applied in order.
+ * <p>
+ * The {@link JournalPosition} is kept in {@code journal.position}: the identifier of the history, the records
+ * folded into the latest snapshot and whether the journal was closed cleanly. The history continues across a
+ * restart only if no acknowledged record can be missing, that is after a clean close, or with
+ * {@link FsyncPolicy#ALWAYS} and no torn record; otherwise a new identifier is drawn.
+ */
+public final class FileMappingJournal implements MappingJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(FileMappingJournal.class);
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final String POSITION_FILE = "journal.position";
+    private static final int POSITION_FILE_SIZE = 3 * Long.BYTES + 1;
+    private static final int MAX_BATCH = 4096;
+    private static final int QUEUE_CAPACITY = 1 << 16;
+    // expiry of the record keeping the generator's high-water mark, long past so that it is never served
+    private static final long HIGH_WATER_MARK_EXPIRY = 1;
+
+    private final Path dataDir;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final Duration snapshotInterval;
+    private final BlockingQueue<Command> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    private volatile boolean running;
+    private Thread writer;
+    private ScheduledExecutorService snapshotter;
+    private Supplier<String> highWaterMark = () -> null;
+    private long nextSegmentId;
+    private volatile boolean tornRecord;
+
+    // identifier of the history and the records of the latest snapshot, written by whoever holds positionLock
+    private final Object positionLock = new Object();
+    private long historyId;
+    private long snapshotId = -1;
+    private long snapshotRecords;
+    private JournalPosition replayed;
+
+    // owned by the writer thread once started
+    private Segment active;
+    private boolean dirty;
+    private long lastForce;
+
+    public FileMappingJournal(Path dataDir, long segmentSize, FsyncPolicy fsyncPolicy,
+                              Duration fsyncInterval, Duration snapshotInterval) {
+        if (segmentSize < 1024 || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size must be between 1KB and 2GB but was " + segmentSize);
+        }
+        this.dataDir = dataDir;
+        this.segmentSize = (int) segmentSize;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    @Override
+    public void replay(MappingSink sink) {
+        try {
+            Files.createDirectories(dataDir);
+            deleteTemporaryFiles();
+            long snapshotId = latestId(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            if (snapshotId >= 0) {
+                readSnapshot(snapshotPath(snapshotId), sink);
+            }
+            List<Long> segmentIds = ids(SEGMENT_PREFIX, SEGMENT_SUFFIX).stream()
+                .filter(id -> id >= snapshotId)
+                .sorted()
+                .toList();
+            long[] segmentRecords = new long[1];
+            // Decoding and checksumming dominate replay, so segments are parsed concurrently;
+            // applying them stays sequential to preserve write order.
+            segmentIds.parallelStream()
+                .map(this::readSegment)
+                .forEachOrdered(records -> {
+                    segmentRecords[0] += records.size();
+                    records.forEach(mapping -> sink.accept(mapping.code(), mapping.url(), mapping.expiresAt(), mapping.redirect()));
+                });
+            nextSegmentId = Math.max(snapshotId, segmentIds.isEmpty() ? 0 : segmentIds.get(segmentIds.size() - 1) + 1);
+            restorePosition(snapshotId, segmentRecords[0]);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to replay mapping journal in " + dataDir, e);
+        }
+    }
+
+    @Override
+    public synchronized void start(Supplier<String> highWaterMark) {
+        if (running) {
+            throw new IllegalStateException("Journal already started");
+        }
+        try {
+            Files.createDirectories(dataDir);
+            nextSegmentId = Math.max(nextSegmentId, latestId(SEGMENT_PREFIX, SEGMENT_SUFFIX) + 1);
+            active = Segment.create(segmentPath(nextSegmentId), nextSegmentId, segmentSize);
+            nextSegmentId++;
+            synchronized (positionLock) {
+                // a crash from here on may lose records unless every one is forced
+                writePosition(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open mapping journal in " + dataDir, e);
+        }
+        this.highWaterMark = highWaterMark;
+        lastForce = System.nanoTime();
+        running = true;
+        writer = new Thread(this::runWriter, "mapping-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+        if (!snapshotInterval.isZero() && !snapshotInterval.isNegative()) {
+            snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "mapping-journal-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = snapshotInterval.toMillis();
+            snapshotter.scheduleWithFixedDelay(this::snapshot, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> append(String code, String url, long expiresAt, int redirect) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (!running) {
+            done.completeExceptionally(new IllegalStateException("Mapping journal is not running"));
+        } else if (!queue.offer(new Append(code, url, expiresAt, redirect, done))) {
+            // shed like a full link store write queue, the caller may retry once the writer caught up
+            done.completeExceptionally(new StorageBusyException("Mapping journal backlog is full"));
+        }
+        return done;
+    }
+
+    @Override
+    public JournalPosition position() {
+        return replayed;
+    }
+
+    @Override
+    public CompletableFuture<Void> force() {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (!running) {
+            done.completeExceptionally(new IllegalStateException("Mapping journal is not running"));
+        } else if (!queue.offer(new Force(done))) {
+            done.completeExceptionally(new StorageBusyException("Mapping journal backlog is full"));
+        }
+        return done;
+    }
+
+    /**
+     * Method to seal the active segment and write a compacted snapshot of every unexpired mapping
+     * in the journal, after which all segments it covers are deleted
+     */
+    public void snapshot() {
+        if (!running) {
+            throw new IllegalStateException("Mapping journal is not running");
+        }
+        try {
+            CompletableFuture<Long> rolled = new CompletableFuture<>();
+            queue.put(new Roll(rolled));
+            // no record is written below the new segment any more
+            long coveredId = rolled.join();
+            writeSnapshot(coveredId);
+            for (long id : ids(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+                if (id < coveredId) {
+                    Files.deleteIfExists(segmentPath(id));
+                }
+            }
+            for (long id : ids(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+                if (id < coveredId) {
+                    Files.deleteIfExists(snapshotPath(id));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Unable to write mapping snapshot", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        if (snapshotter != null) {
+            snapshotter.shutdownNow();
+        }
+        try {
+            writer.join();
+            if (snapshotter != null) {
+                snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        synchronized (positionLock) {
+            try {
+                writePosition(true);
+            } catch (IOException e) {
+                log.error("Unable to record the clean close of the mapping journal in {}", dataDir, e);
+            }
+        }
+    }
+
+    private void runWriter() {
+        List<Command> batch = new ArrayList<>(MAX_BATCH);
+        List<CompletableFuture<Void>> written = new ArrayList<>(MAX_BATCH);
+        long pollNanos = fsyncPolicy == FsyncPolicy.INTERVAL ? fsyncIntervalNanos : TimeUnit.MILLISECONDS.toNanos(100);
+        while (running || !queue.isEmpty()) {
+            try {
+                Command first = queue.poll(pollNanos, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                }
+                for (Command command : batch) {
+                    if (command instanceof Append append) {
+                        if (write(append)) {
+                            written.add(append.done());
+                        }
+                    } else if (command instanceof Roll roll) {
+                        acknowledge(written);
+                        roll();
+                        roll.done().complete(active.id);
+                    } else if (command instanceof Force force) {
+                        acknowledge(written);
+                        if (dirty) {
+                            // earlier segments were forced when they were sealed
+                            active.buffer.force();
+                            dirty = false;
+                            lastForce = System.nanoTime();
+                        }
+                        force.done().complete(null);
+                    }
+                }
+                acknowledge(written);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                log.error("Mapping journal write failed", e);
+                batch.forEach(command -> command.done().completeExceptionally(e));
+                written.clear();
+            }
+            batch.clear();
+        }
+        queue.forEach(command -> command.done().completeExceptionally(new IllegalStateException("Mapping journal is closed")));
+        try {
+            active.seal();
+        } catch (IOException e) {
+            log.error("Unable to seal mapping journal segment {}", active.path, e);
+        }
+    }
+
+    private boolean write(Append append) throws IOException {
+        byte[] url = append.url().getBytes(StandardCharsets.UTF_8);
+        int size = RecordCodec.RECORD_HEADER_SIZE + RecordCodec.payloadLength(append.code(), url, append.expiresAt(), append.redirect());
+        if (size > segmentSize - RecordCodec.FILE_HEADER_SIZE - RecordCodec.RECORD_HEADER_SIZE) {
+            append.done().completeExceptionally(new IllegalArgumentException("Mapping of " + size + " bytes exceeds the segment size"));
+            return false;
+        }
+        // keep room for the zero length terminator
+        if (active.buffer.remaining() < size + RecordCodec.RECORD_HEADER_SIZE) {
+            roll();
+        }
+        RecordCodec.write(active.buffer, append.code(), url, append.expiresAt(), append.redirect());
+        dirty = true;
+        return true;
+    }
+
+    private void acknowledge(List<CompletableFuture<Void>> written) {
+        if (written.isEmpty() && fsyncPolicy != FsyncPolicy.INTERVAL) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (dirty && (fsyncPolicy == FsyncPolicy.ALWAYS
+            || (fsyncPolicy == FsyncPolicy.INTERVAL && now - lastForce >= fsyncIntervalNanos))) {
+            active.buffer.force();
+            dirty = false;
+            lastForce = now;
+        }
+        written.forEach(done -> done.complete(null));
+        written.clear();
+    }
+
+    private void roll() throws IOException {
+        if (fsyncPolicy != FsyncPolicy.NEVER || dirty) {
+            active.seal();
+        }
+        dirty = false;
+        active = Segment.create(segmentPath(nextSegmentId), nextSegmentId, segmentSize);
+        nextSegmentId++;
+    }
+
+    private List<Mapping> readSegment(long id) {
+        Path path = segmentPath(id);
+        List<Mapping> records = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            long count = RecordCodec.read(buffer, (code, url, expiresAt, redirect) -> records.add(new Mapping(code, url, expiresAt, redirect)));
+            if (count < 0) {
+                tornRecord = true;
+                log.warn("Mapping journal segment {} ends with a torn record; recovered {} records", path, -count - 1);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read mapping journal segment " + path, e);
+        }
+        return records;
+    }
+
+    private void readSnapshot(Path path, MappingSink sink) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 20))) {
+            if (RecordCodec.read(in, sink) < 0) {
+                throw new IOException("Mapping snapshot " + path + " is corrupt");
+            }
+        }
+    }
+
+    /**
+     * Folds the latest snapshot and the segments below {@code id} into a new snapshot. The first pass finds the
+     * position of the last record of every code, the second writes those records unless they expired, so
+     * mappings the service no longer holds in memory are kept as long as they are live.
+     */
+    private void writeSnapshot(long id) throws IOException {
+        LastRecords lastRecords = new LastRecords();
+        long[] position = new long[1];
+        long folded = forEachCovered(id, (code, url, expiresAt, redirect) -> lastRecords.put(Base62.toKey(code), position[0]++));
+
+        Path target = snapshotPath(id);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+            RecordCodec.writeHeader(buffer);
+            // codes of expired mappings are dropped below, the expired mark keeps the generator past them on replay
+            String mark = highWaterMark.get();
+            if (mark != null) {
+                writeRecord(channel, buffer, mark, "", HIGH_WATER_MARK_EXPIRY, 0);
+            }
+            long now = System.currentTimeMillis();
+            position[0] = 0;
+            forEachCovered(id, (code, url, expiresAt, redirect) -> {
+                long key = Base62.toKey(code);
+                boolean last = key < 0 || lastRecords.get(key) == position[0];
+                position[0]++;
+                if (last && (expiresAt == 0 || expiresAt > now)) {
+                    writeRecord(channel, buffer, code, url, expiresAt, redirect);
+                }
+            });
+            drain(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        synchronized (positionLock) {
+            // a crash before this leaves a position naming an older snapshot, which starts a new history
+            snapshotRecords += folded;
+            snapshotId = id;
+            writePosition(false);
+        }
+    }
+
+    /**
+     * @return records read from segments, not counting those of the snapshot folded in
+     */
+    private long forEachCovered(long id, MappingSink sink) throws IOException {
+        long snapshotId = ids(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).stream().mapToLong(Long::longValue)
+            .filter(snapshot -> snapshot < id).max().orElse(-1);
+        if (snapshotId >= 0) {
+            readSnapshot(snapshotPath(snapshotId), sink);
+        }
+        List<Long> segmentIds = ids(SEGMENT_PREFIX, SEGMENT_SUFFIX).stream()
+            .filter(segment -> segment >= snapshotId && segment < id)
+            .sorted()
+            .toList();
+        long records = 0;
+        for (long segmentId : segmentIds) {
+            List<Mapping> mappings = readSegment(segmentId);
+            records += mappings.size();
+            mappings.forEach(mapping -> sink.accept(mapping.code(), mapping.url(), mapping.expiresAt(), mapping.redirect()));
+        }
+        return records;
+    }
+
+    /**
+     * Continues the history of the position file if the records replayed are all the journal acknowledged,
+     * or starts a new one
+     */
+    private void restorePosition(long latestSnapshotId, long segmentRecords) throws IOException {
+        Path file = dataDir.resolve(POSITION_FILE);
+        ByteBuffer saved = Files.exists(file) ? ByteBuffer.wrap(Files.readAllBytes(file)) : null;
+        boolean known = saved != null && saved.remaining() == POSITION_FILE_SIZE && saved.getLong(Long.BYTES) == latestSnapshotId;
+        boolean complete = known && (saved.get(3 * Long.BYTES) != 0 || (fsyncPolicy == FsyncPolicy.ALWAYS && !tornRecord));
+        synchronized (positionLock) {
+            snapshotId = latestSnapshotId;
+            snapshotRecords = known ? saved.getLong(2 * Long.BYTES) : 0;
+            historyId = complete ? saved.getLong(0) : ThreadLocalRandom.current().nextLong();
+            replayed = new JournalPosition(historyId, snapshotRecords + segmentRecords);
+        }
+        if (!complete && saved != null) {
+            log.info("Mapping journal in {} may have lost acknowledged records, starting a new history", dataDir);
+        }
+    }
+
+    /**
+     * Replaces the position file atomically and forces it and its directory, so a crash leaves either the
+     * previous position or the new one
+     */
+    private void writePosition(boolean clean) throws IOException {
+        Path file = dataDir.resolve(POSITION_FILE);
+        Path temporary = file.resolveSibling(POSITION_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(POSITION_FILE_SIZE)
+                .putLong(historyId).putLong(snapshotId).putLong(snapshotRecords).put((byte) (clean ? 1 : 0))
+                .flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        try (FileChannel directory = FileChannel.open(dataDir, StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+    }
+
+    private static void writeRecord(FileChannel channel, ByteBuffer buffer, String code, String url, long expiresAt, int redirect) {
+        byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+        int size = RecordCodec.RECORD_HEADER_SIZE + RecordCodec.payloadLength(code, bytes, expiresAt, redirect);
+        try {
+            if (buffer.remaining() < size) {
+                drain(channel, buffer);
+            }
+            if (buffer.remaining() < size) {
+                ByteBuffer large = ByteBuffer.allocate(size);
+                RecordCodec.write(large, code, bytes, expiresAt, redirect);
+                drain(channel, large);
+            } else {
+                RecordCodec.write(buffer, code, bytes, expiresAt, redirect);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void deleteTemporaryFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dataDir)) {
+            for (Path file : files.filter(path -> path.getFileName().toString().endsWith(".tmp")).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private long latestId(String prefix, String suffix) throws IOException {
+        return ids(prefix, suffix).stream().mapToLong(Long::longValue).max().orElse(-1);
+    }
+
+    private List<Long> ids(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(dataDir)) {
+            return files.map(path -> path.getFileName().toString())
+                .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                .map(name -> Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())))
+                .toList();
+        }
+    }
+
+    private Path segmentPath(long id) {
+        return dataDir.resolve(SEGMENT_PREFIX + String.format("%020d", id) + SEGMENT_SUFFIX);
+    }
+
+    private Path snapshotPath(long id) {
+        return dataDir.resolve(SNAPSHOT_PREFIX + String.format("%020d", id) + SNAPSHOT_SUFFIX);
+    }
+
+    private sealed interface Command permits Append, Roll, Force {
+        CompletableFuture<?> done();
+    }
+
+    private record Append(String code, String url, long expiresAt, int redirect, CompletableFuture<Void> done) implements Command {
+    }
+
+    private record Roll(CompletableFuture<Long> done) implements Command {
+    }
+
+    private record Force(CompletableFuture<Void> done) implements Command {
+    }
+
+    private record Mapping(String code, String url, long expiresAt, int redirect) {
+    }
+
+    /**
+     * Open-addressing table from code keys to the position of their last record, without boxing
+     */
+    private static final class LastRecords {
+
+        private static final long EMPTY = -1;
+
+        private long[] keys = new long[1024];
+        private long[] positions = new long[1024];
+        private int size;
+
+        LastRecords() {
+            Arrays.fill(keys, EMPTY);
+        }
+
+        void put(long key, long position) {
+            if (key < 0) {
+                return;
+            }
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            if (insert(keys, positions, key, position)) {
+                size++;
+            }
+        }
+
+        long get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = home(key, mask); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return positions[slot];
+                }
+            }
+            return EMPTY;
+        }
+
+        private void grow() {
+            long[] grownKeys = new long[keys.length * 2];
+            long[] grownPositions = new long[positions.length * 2];
+            Arrays.fill(grownKeys, EMPTY);
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != EMPTY) {
+                    insert(grownKeys, grownPositions, keys[slot], positions[slot]);
+                }
+            }
+            keys = grownKeys;
+            positions = grownPositions;
+        }
+
+        private static boolean insert(long[] keys, long[] positions, long key, long position) {
+            int mask = keys.length - 1;
+            int slot = home(key, mask);
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            boolean added = keys[slot] == EMPTY;
+            keys[slot] = key;
+            positions[slot] = position;
+            return added;
+        }
+
+        private static int home(long key, int mask) {
+            long z = key * 0x9E3779B97F4A7C15L;
+            return (int) (z ^ (z >>> 32)) & mask;
+        }
+    }
+
+    private static final class Segment {
+        final long id;
+        final Path path;
+        final MappedByteBuffer buffer;
+
+        private Segment(long id, Path path, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path path, long id, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // the mapping outlives the channel and extends the file to its full size
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                RecordCodec.writeHeader(buffer);
+                return new Segment(id, path, buffer);
+            }
+        }
+
+        void seal() throws IOException {
+            buffer.force();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.gk.shortlink.persistence;
+
+public enum FsyncPolicy {
+    /**
+     * Force every group-committed batch to disk before acknowledging it
+     */
+    ALWAYS,
+    /**
+     * Acknowledge once written to the mapped segment and force at a fixed interval.
+     * Survives a process crash; an OS crash may lose the last interval.
+     */
+    INTERVAL,
+    /**
+     * Leave flushing to the operating system, forcing only when a segment is sealed
+     */
+    NEVER
+}
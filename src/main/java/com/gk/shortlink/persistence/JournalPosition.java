@@ -0,0 +1,11 @@
+package com.gk.shortlink.persistence;
+
+/**
+ * How far a journal goes, for readers that number its records the same way
+ *
+ * @param id      identifier of the journal's history, drawn anew whenever records acknowledged as durable may
+ *                have been lost
+ * @param records records appended over that history, including those compacted into snapshots since
+ */
+public record JournalPosition(long id, long records) {
+}
@@ -0,0 +1,94 @@
+package com.gk.shortlink.persistence;
+
+import com.gk.shortlink.store.MappingSink;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Durable record of every code to URL mapping issued by the service.
+ */
+public interface MappingJournal extends AutoCloseable {
+
+    /**
+     * Method to feed every durable mapping to the sink in write order, so that later
+     * records for the same code win. Must be called once, before {@link #start}.
+     *
+     * @param sink receiver of mappings with their expiry and redirect bits, invoked from a single thread; expired
+     *             mappings are replayed too and left to the sink to drop
+     */
+    void replay(MappingSink sink);
+
+    /**
+     * Method to start accepting appends
+     *
+     * @param highWaterMark source of the last code the generator handed out, or null, kept in compacted
+     *                      snapshots so that codes of mappings dropped on expiry are never issued again
+     */
+    void start(Supplier<String> highWaterMark);
+
+    /**
+     * Method to append a mapping to the journal
+     *
+     * @param code short code
+     * @param url  original URL
+     * @return future completed once the record is durable according to the fsync policy
+     */
+    default CompletableFuture<Void> append(String code, String url) {
+        return append(code, url, 0);
+    }
+
+    /**
+     * Method to append a mapping that expires to the journal
+     *
+     * @param code      short code
+     * @param url       original URL
+     * @param expiresAt epoch milliseconds at which the mapping expires, 0 if it never does
+     * @return future completed once the record is durable according to the fsync policy
+     */
+    default CompletableFuture<Void> append(String code, String url, long expiresAt) {
+        return append(code, url, expiresAt, 0);
+    }
+
+    /**
+     * Method to append a mapping with its expiry and redirect policy to the journal
+     *
+     * @param code      short code
+     * @param url       original URL
+     * @param expiresAt epoch milliseconds at which the mapping expires, 0 if it never does
+     * @param redirect  redirect policy bits, 0 for the defaults
+     * @return future completed once the record is durable according to the fsync policy, or failed with
+     *         {@link com.gk.shortlink.exception.StorageBusyException} if the journal cannot take it now
+     */
+    CompletableFuture<Void> append(String code, String url, long expiresAt, int redirect);
+
+    /**
+     * Method to force every record appended so far to disk, whatever the fsync policy, for callers that
+     * record elsewhere how far the journal goes
+     *
+     * @return future completed once the records appended before the call are on disk
+     */
+    default CompletableFuture<Void> force() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Method to tell how far the journal went when it was replayed, so that a numbering of its records such as
+     * the replication feed can continue across restarts
+     *
+     * @return position as of {@link #replay}, null for a journal that keeps no history
+     */
+    default JournalPosition position() {
+        return null;
+    }
+
+    @Override
+    void close();
+
+    /**
+     * @return journal that keeps nothing, for purely in-memory deployments
+     */
+    static MappingJournal disabled() {
+        return DisabledMappingJournal.INSTANCE;
+    }
+}
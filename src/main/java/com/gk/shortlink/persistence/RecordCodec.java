@@ -0,0 +1,162 @@
+package com.gk.shortlink.persistence;
+
+import com.gk.shortlink.store.MappingSink;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * On-disk layout shared by segments and snapshots.
+ * <pre>
+ * file   := magic:int version:int record*
+ * record := length:int crc32c:int payload[length]
+ * payload:= flags|codeLength:byte code:ascii[codeLength] [expiresAt:long] [redirect:int] url:utf8
+ * </pre>
+ * The high bit of the code length byte flags an expiring mapping, whose expiry in epoch milliseconds
+ * follows the code; the next bit flags a mapping with redirect policy bits of its own, which follow the
+ * expiry. Records of mappings that never expire and follow the default redirect are unchanged from
+ * earlier versions.
+ * A zero length marks the unused, zero-filled tail of a preallocated segment.
+ */
+final class RecordCodec {
+
+    static final int MAGIC = 0x534C4E4B; // "SLNK"
+    static final int VERSION = 1;
+    static final int FILE_HEADER_SIZE = 8;
+    static final int RECORD_HEADER_SIZE = 8;
+    private static final int EXPIRING = 0x80;
+    private static final int REDIRECT = 0x40;
+    private static final int CODE_LENGTH_MASK = 0x3F;
+
+    private RecordCodec() {
+    }
+
+    static int payloadLength(String code, byte[] url, long expiresAt, int redirect) {
+        return 1 + code.length() + (expiresAt != 0 ? Long.BYTES : 0) + (redirect != 0 ? Integer.BYTES : 0) + url.length;
+    }
+
+    /**
+     * Writes a complete record at the buffer's position and advances it
+     */
+    static void write(ByteBuffer buffer, String code, byte[] url, long expiresAt, int redirect) {
+        int start = buffer.position();
+        int payloadStart = start + RECORD_HEADER_SIZE;
+        int length = payloadLength(code, url, expiresAt, redirect);
+        buffer.position(payloadStart);
+        buffer.put((byte) (code.length() | (expiresAt != 0 ? EXPIRING : 0) | (redirect != 0 ? REDIRECT : 0)));
+        for (int i = 0; i < code.length(); i++) {
+            buffer.put((byte) code.charAt(i));
+        }
+        if (expiresAt != 0) {
+            buffer.putLong(expiresAt);
+        }
+        if (redirect != 0) {
+            buffer.putInt(redirect);
+        }
+        buffer.put(url);
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(payloadStart, length));
+        buffer.putInt(start, length);
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    static void writeHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+    }
+
+    /**
+     * Reads records until the end of the written region
+     *
+     * @return number of valid records, negated if reading stopped at a torn or corrupt record
+     */
+    static long read(ByteBuffer buffer, MappingSink sink) throws IOException {
+        if (buffer.remaining() < FILE_HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a mapping journal file");
+        }
+        CRC32C crc = new CRC32C();
+        long count = 0;
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length == 0) {
+                return count;
+            }
+            if (length < 2 || length > buffer.remaining()) {
+                return -count - 1;
+            }
+            ByteBuffer payload = buffer.slice(buffer.position(), length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                return -count - 1;
+            }
+            buffer.position(buffer.position() + length);
+            decode(payload, sink);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Stream variant of {@link #read(ByteBuffer, MappingSink)} for files that may exceed
+     * the size of a single mapping
+     */
+    static long read(DataInputStream in, MappingSink sink) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a mapping journal file");
+        }
+        CRC32C crc = new CRC32C();
+        byte[] payload = new byte[256];
+        long count = 0;
+        while (true) {
+            int length;
+            int checksum;
+            try {
+                length = in.readInt();
+                checksum = in.readInt();
+            } catch (EOFException e) {
+                return count;
+            }
+            if (length == 0) {
+                return count;
+            }
+            if (length < 2) {
+                return -count - 1;
+            }
+            if (payload.length < length) {
+                payload = new byte[Math.max(length, payload.length * 2)];
+            }
+            try {
+                in.readFully(payload, 0, length);
+            } catch (EOFException e) {
+                return -count - 1;
+            }
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                return -count - 1;
+            }
+            decode(ByteBuffer.wrap(payload, 0, length), sink);
+            count++;
+        }
+    }
+
+    private static void decode(ByteBuffer payload, MappingSink sink) {
+        int flags = payload.get() & 0xFF;
+        int codeLength = flags & CODE_LENGTH_MASK;
+        byte[] codeBytes = new byte[codeLength];
+        payload.get(codeBytes);
+        long expiresAt = (flags & EXPIRING) != 0 ? payload.getLong() : 0;
+        int redirect = (flags & REDIRECT) != 0 ? payload.getInt() : 0;
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        String code = new String(codeBytes, StandardCharsets.US_ASCII);
+        String url = new String(bytes, StandardCharsets.UTF_8);
+        sink.accept(code, url, expiresAt, redirect);
+    }
+}
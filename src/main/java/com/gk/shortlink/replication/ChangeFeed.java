@@ -0,0 +1,167 @@
+package com.gk.shortlink.replication;
+
+import com.gk.shortlink.dto.LinkMapping;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ordered feed of the mappings made durable on a leader, numbered from 0 in the order they were appended.
+ * The latest {@code retained} changes are kept in a ring, so followers that reconnect within that window
+ * resume where they left off; older offsets are gone and their readers need a snapshot instead.
+ * <p>
+ * The feed only lives in memory. With a journal it continues the journal's numbering instead: its epoch is the
+ * journal's history and it starts at the records the journal holds, so followers that had applied every change
+ * before a leader restart resume without a snapshot. Changes from before the restart are not retained. Without
+ * a journal every start draws a new epoch, so followers can tell that the offsets they hold belong to an
+ * earlier run of the leader.
+ */
+public final class ChangeFeed {
+
+    private final LinkMapping[] ring;
+    private volatile long epoch;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private volatile long firstOffset;
+    private volatile long nextOffset;
+    // guarded by lock, so appends skip the signal while no reader is waiting
+    private int waiters;
+
+    /**
+     * @param retained changes kept for followers catching up
+     */
+    public ChangeFeed(int retained) {
+        if (retained <= 0) {
+            throw new IllegalArgumentException("Retained changes must be positive");
+        }
+        this.ring = new LinkMapping[retained];
+        this.epoch = ThreadLocalRandom.current().nextLong();
+    }
+
+    /**
+     * Method to continue the numbering of a journal replayed at startup, before anything is appended
+     *
+     * @param epoch  identifier of the journal's history
+     * @param offset records the journal holds, the offset of the next change
+     */
+    public void continueFrom(long epoch, long offset) {
+        lock.lock();
+        try {
+            if (nextOffset != firstOffset) {
+                throw new IllegalStateException("Changes were appended already");
+            }
+            this.epoch = epoch;
+            this.firstOffset = offset;
+            this.nextOffset = offset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Method to append a mapping once it is durable
+     *
+     * @param mapping new mapping
+     * @return offset of the change
+     */
+    public long append(LinkMapping mapping) {
+        lock.lock();
+        try {
+            long offset = nextOffset;
+            ring[(int) (offset % ring.length)] = mapping;
+            nextOffset = offset + 1;
+            if (waiters > 0) {
+                appended.signalAll();
+            }
+            return offset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Method to copy changes from an offset on
+     *
+     * @param from  offset of the first change to read
+     * @param limit most changes to read
+     * @param out   list receiving the changes in order
+     * @return offset following the last change read, or -1 if changes from {@code from} are no longer retained
+     */
+    public long read(long from, int limit, List<LinkMapping> out) {
+        lock.lock();
+        try {
+            if (!retains(from)) {
+                return -1;
+            }
+            long to = Math.min(nextOffset, from + limit);
+            for (long offset = from; offset < to; offset++) {
+                out.add(ring[(int) (offset % ring.length)]);
+            }
+            return to;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Method to wait until a change is appended at or after an offset
+     *
+     * @param offset offset to wait for
+     * @param nanos  longest time to wait
+     * @return true if the change is there, false if the time passed first
+     */
+    public boolean await(long offset, long nanos) throws InterruptedException {
+        if (nextOffset > offset) {
+            return true;
+        }
+        lock.lock();
+        try {
+            waiters++;
+            try {
+                while (nextOffset <= offset) {
+                    if (nanos <= 0) {
+                        return false;
+                    }
+                    nanos = appended.awaitNanos(nanos);
+                }
+                return true;
+            } finally {
+                waiters--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param offset offset a reader wants to continue from
+     * @return true if reading from the offset is possible without a snapshot
+     */
+    public boolean retains(long offset) {
+        long next = nextOffset;
+        return offset <= next && offset >= next - ring.length && offset >= firstOffset;
+    }
+
+    /**
+     * @return offset the next change will get, which is also the number of changes appended
+     */
+    public long nextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * @return identifier of this run of the feed
+     */
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * @return offset of the current end of the feed, for clients to wait for
+     */
+    public ReplicationOffset position() {
+        return new ReplicationOffset(epoch, nextOffset);
+    }
+}
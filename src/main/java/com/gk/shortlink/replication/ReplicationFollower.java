@@ -0,0 +1,404 @@
+package com.gk.shortlink.replication;
+
+import com.gk.shortlink.dto.LinkMapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static com.gk.shortlink.replication.ReplicationProtocol.*;
+
+/**
+ * Keeps a connection to the replication leader open and applies the change feed it streams, one batch at a
+ * time: a batch is acknowledged, and its end recorded as the applied offset, only once it is durable locally.
+ * <p>
+ * With an offset file the applied offset survives restarts, so a restarted follower asks for the changes
+ * after it and catches up without a snapshot, as long as the leader still retains them and has not restarted
+ * since. The file is only meaningful next to a journal holding the mappings applied before it: the journal is
+ * forced before the file is replaced, so the saved offset never runs ahead of the journal after a crash. It is
+ * saved at most once per {@link #OFFSET_SAVE_INTERVAL}, when a snapshot ends and when the connection is lost,
+ * so a crash may leave it behind, which only costs applying some changes twice. The file is deleted while a
+ * snapshot is being applied. Lost connections are retried every {@code reconnectDelay}.
+ * <p>
+ * A snapshot is applied over the mappings already here. Mappings the leader no longer has, such as those it
+ * lost to a crash without a journal, stay on the follower until they expire or its data is wiped.
+ */
+public class ReplicationFollower implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicationFollower.class);
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+    private static final int OFFSET_FILE_SIZE = 2 * Long.BYTES;
+    private static final Duration OFFSET_SAVE_INTERVAL = Duration.ofSeconds(1);
+
+    private final InetSocketAddress leader;
+    private final byte[] secret;
+    private final Function<List<LinkMapping>, CompletableFuture<Void>> applier;
+    private final Path offsetFile;
+    private final Supplier<CompletableFuture<Void>> flush;
+    private final Duration reconnectDelay;
+    private final Duration readYourWritesTimeout;
+    // latest applied position, replayed to every subscriber waiting for its own write
+    private final Sinks.Many<ReplicationOffset> applied = Sinks.many().replay().latest();
+
+    private volatile long epoch;
+    private volatile long appliedOffset;
+    private volatile long leaderOffset;
+    private volatile long caughtUpAt = System.nanoTime();
+    private volatile boolean connected;
+    private volatile boolean running;
+    private volatile Socket socket;
+    private Thread thread;
+    // confined to the follower thread
+    private boolean offsetUnsaved;
+    private long offsetSavedAt = System.nanoTime();
+
+    /**
+     * @param leader                address the leader listens on for followers
+     * @param applier               applies a batch, completing once it is durable
+     * @param offsetFile            file the applied offset is kept in across restarts, null to start from a
+     *                              snapshot every time
+     * @param reconnectDelay        time between attempts to reach the leader
+     * @param readYourWritesTimeout longest time {@link #awaitOffset(ReplicationOffset)} waits
+     */
+    public ReplicationFollower(InetSocketAddress leader, Function<List<LinkMapping>, CompletableFuture<Void>> applier,
+                               Path offsetFile, Duration reconnectDelay, Duration readYourWritesTimeout) {
+        this(leader, applier, () -> CompletableFuture.completedFuture(null), offsetFile, reconnectDelay, readYourWritesTimeout);
+    }
+
+    /**
+     * @param flush forces the batches applied so far to disk, such as {@code MappingJournal::force}, ahead of
+     *              each save of the offset file
+     */
+    public ReplicationFollower(InetSocketAddress leader, Function<List<LinkMapping>, CompletableFuture<Void>> applier,
+                               Supplier<CompletableFuture<Void>> flush, Path offsetFile, Duration reconnectDelay,
+                               Duration readYourWritesTimeout) {
+        this(leader, null, applier, flush, offsetFile, reconnectDelay, readYourWritesTimeout);
+    }
+
+    /**
+     * @param secret secret shared with the leader, null if the leader has none
+     */
+    public ReplicationFollower(InetSocketAddress leader, byte[] secret, Function<List<LinkMapping>, CompletableFuture<Void>> applier,
+                               Supplier<CompletableFuture<Void>> flush, Path offsetFile, Duration reconnectDelay,
+                               Duration readYourWritesTimeout) {
+        this.leader = leader;
+        this.secret = secret;
+        this.applier = applier;
+        this.flush = flush;
+        this.offsetFile = offsetFile;
+        this.reconnectDelay = reconnectDelay;
+        this.readYourWritesTimeout = readYourWritesTimeout;
+        loadOffset();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "replication-follower");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException ignored) {
+                // closing only unblocks the reader
+            }
+        }
+        if (thread != null) {
+            try {
+                // the closed socket ends the thread once it has saved its offset, an interrupt
+                // only ends a batch that does not complete
+                thread.join(CONNECT_TIMEOUT_MILLIS);
+                if (thread.isAlive()) {
+                    thread.interrupt();
+                    thread.join(CONNECT_TIMEOUT_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Method to wait until this follower has applied the changes up to a position, so that a client reading
+     * here after writing to the leader sees its write. Gives up after the read-your-writes timeout, leaving the
+     * read to answer with what is there.
+     *
+     * @param position position returned by the leader for the write, null to not wait
+     * @return completes once the position is applied or the timeout passed
+     */
+    public Mono<Void> awaitOffset(ReplicationOffset position) {
+        if (position == null || (position.epoch() == epoch && position.offset() <= appliedOffset)) {
+            return Mono.empty();
+        }
+        return applied.asFlux()
+            .filter(current -> current.epoch() == position.epoch() && current.offset() >= position.offset())
+            .next()
+            .timeout(readYourWritesTimeout, Mono.empty())
+            .then();
+    }
+
+    /**
+     * @return changes of the leader's feed applied here
+     */
+    public long appliedOffset() {
+        return appliedOffset;
+    }
+
+    /**
+     * @return changes the leader had last reported that are not applied here yet
+     */
+    public long lag() {
+        return Math.max(0, leaderOffset - appliedOffset);
+    }
+
+    /**
+     * @return seconds since this follower last had every change of the leader applied, 0 while it has
+     */
+    public double lagSeconds() {
+        if (connected && appliedOffset >= leaderOffset) {
+            return 0;
+        }
+        return (System.nanoTime() - caughtUpAt) / 1e9;
+    }
+
+    /**
+     * @return true while connected to the leader
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                follow();
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Replication from {} interrupted, retrying in {}: {}", leader, reconnectDelay, e.toString());
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                connected = false;
+                saveAppliedOffset();
+            }
+            if (!running) {
+                return;
+            }
+            try {
+                Thread.sleep(reconnectDelay.toMillis());
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void follow() throws IOException, InterruptedException {
+        try (Socket current = new Socket()) {
+            socket = current;
+            current.connect(leader, CONNECT_TIMEOUT_MILLIS);
+            current.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(current.getInputStream(), BUFFER_SIZE));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(current.getOutputStream()));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(epoch);
+            out.writeLong(appliedOffset);
+            out.flush();
+
+            if (in.readByte() != CHALLENGE) {
+                throw new ProtocolException("Expected the leader's challenge");
+            }
+            byte[] nonce = new byte[NONCE_BYTES];
+            in.readFully(nonce);
+            out.write(proof(secret, nonce));
+            out.flush();
+            if (in.readByte() != HELLO) {
+                throw new ProtocolException("Expected the leader's greeting");
+            }
+            long leaderEpoch = in.readLong();
+            long start = in.readLong();
+            boolean fromSnapshot = in.readBoolean();
+            connected = true;
+            if (fromSnapshot) {
+                log.info("Replicating a snapshot from {}", leader);
+                // a restart during the snapshot must not resume after it
+                if (offsetFile != null) {
+                    Files.deleteIfExists(offsetFile);
+                }
+                offsetUnsaved = false;
+                appliedOffset = 0;
+            } else {
+                log.info("Replicating from {} at offset {}", leader, start);
+                applied.tryEmitNext(new ReplicationOffset(epoch, appliedOffset));
+            }
+
+            List<LinkMapping> batch = new ArrayList<>();
+            while (running) {
+                byte type = in.readByte();
+                switch (type) {
+                    case BATCH -> {
+                        long first = in.readLong();
+                        long leaderNext = in.readLong();
+                        int count = in.readInt();
+                        batch.clear();
+                        readMappings(in, count, batch);
+                        apply(batch);
+                        leaderOffset = leaderNext;
+                        if (first != SNAPSHOT_OFFSET) {
+                            if (first != appliedOffset) {
+                                throw new ProtocolException("Expected changes from offset " + appliedOffset + " but got " + first);
+                            }
+                            advance(out, epoch, first + count, false);
+                        }
+                    }
+                    case SNAPSHOT_END -> advance(out, leaderEpoch, start, true);
+                    case HEARTBEAT -> {
+                        leaderOffset = in.readLong();
+                        if (appliedOffset >= leaderOffset) {
+                            caughtUpAt = System.nanoTime();
+                        }
+                    }
+                    default -> throw new ProtocolException("Unknown replication frame " + type);
+                }
+            }
+        }
+    }
+
+    private void apply(List<LinkMapping> batch) throws IOException, InterruptedException {
+        try {
+            applier.apply(batch).get();
+        } catch (ExecutionException e) {
+            // the batch is requested again after reconnecting
+            throw new IOException("Unable to apply replicated mappings", e.getCause());
+        }
+    }
+
+    /**
+     * @param save whether to save the offset right away rather than once the save interval has passed
+     */
+    private void advance(DataOutputStream out, long newEpoch, long next, boolean save) throws IOException {
+        if (save || System.nanoTime() - offsetSavedAt >= OFFSET_SAVE_INTERVAL.toNanos()) {
+            saveOffset(newEpoch, next);
+        } else {
+            offsetUnsaved = true;
+        }
+        epoch = newEpoch;
+        appliedOffset = next;
+        if (next >= leaderOffset) {
+            caughtUpAt = System.nanoTime();
+        }
+        out.writeLong(next);
+        out.flush();
+        applied.tryEmitNext(new ReplicationOffset(newEpoch, next));
+    }
+
+    private void loadOffset() {
+        if (offsetFile == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(offsetFile.toAbsolutePath().getParent());
+            if (!Files.exists(offsetFile)) {
+                return;
+            }
+            byte[] bytes = Files.readAllBytes(offsetFile);
+            if (bytes.length == OFFSET_FILE_SIZE) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                epoch = buffer.getLong();
+                appliedOffset = buffer.getLong();
+                log.info("Resuming replication at offset {}", appliedOffset);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read " + offsetFile, e);
+        }
+    }
+
+    /**
+     * Saves an offset applied since the last save, once the connection it was applied on is gone
+     */
+    private void saveAppliedOffset() {
+        if (!offsetUnsaved) {
+            return;
+        }
+        try {
+            saveOffset(epoch, appliedOffset);
+        } catch (IOException e) {
+            log.warn("Unable to save the replication offset to {}: {}", offsetFile, e.toString());
+        }
+    }
+
+    /**
+     * Replaces the offset file atomically, so a crash leaves either the previous offset or the new one. The
+     * batches up to the offset are flushed first, and the file and its directory are forced, so the offset
+     * on disk never covers changes that are not.
+     */
+    private void saveOffset(long newEpoch, long next) throws IOException {
+        offsetSavedAt = System.nanoTime();
+        if (offsetFile == null) {
+            offsetUnsaved = false;
+            return;
+        }
+        try {
+            flush.get().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while flushing replicated mappings");
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to flush replicated mappings", e.getCause());
+        }
+        Path temporary = offsetFile.resolveSibling(offsetFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(OFFSET_FILE_SIZE).putLong(newEpoch).putLong(next).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, offsetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // the rename itself is only durable once the directory is
+        try (FileChannel directory = FileChannel.open(offsetFile.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+        offsetUnsaved = false;
+    }
+}
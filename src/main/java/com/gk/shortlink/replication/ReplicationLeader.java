@@ -0,0 +1,313 @@
+package com.gk.shortlink.replication;
+
+import com.gk.shortlink.dto.LinkMapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import reactor.core.publisher.Flux;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ProtocolException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.gk.shortlink.replication.ReplicationProtocol.*;
+
+/**
+ * Streams the change feed to followers over plain TCP connections, one sender thread per follower.
+ * <p>
+ * A follower opens the connection with the epoch and offset it holds. Within the same epoch and the retained
+ * window the feed continues from there; otherwise the follower first receives a snapshot of every live
+ * mapping, followed by the feed from where it stood when the snapshot started. Mappings made during the
+ * snapshot may arrive twice, which applying them tolerates. Changes are sent in batches of up to
+ * {@code maxBatch}, as many as have accumulated since the last write, and flushed once the sender has caught
+ * up, so a busy feed costs one write per batch rather than per change. Followers acknowledge every batch
+ * they applied, which is what their lag is measured by.
+ * <p>
+ * The leader listens on loopback unless given another bind address. With a shared secret, followers must
+ * prove they hold it before anything is sent to them, see {@link ReplicationProtocol}.
+ */
+public class ReplicationLeader implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicationLeader.class);
+
+    // a client that connects and stays silent must not hold a sender thread
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 5_000;
+
+    private final ChangeFeed feed;
+    private final Supplier<Flux<LinkMapping>> snapshot;
+    private final InetAddress bindAddress;
+    private final int port;
+    private final byte[] secret;
+    private final SecureRandom nonces = new SecureRandom();
+    private final int maxBatch;
+    private final long heartbeatNanos;
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger sessionIds = new AtomicInteger();
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * @param feed              changes to stream
+     * @param snapshot          every live mapping, for followers that cannot continue from their offset
+     * @param port              port to listen on, 0 for a random one
+     * @param maxBatch          most changes sent in one batch
+     * @param heartbeatInterval time without changes after which followers are sent the leader's offset anyway
+     */
+    public ReplicationLeader(ChangeFeed feed, Supplier<Flux<LinkMapping>> snapshot, int port, int maxBatch,
+                             Duration heartbeatInterval) {
+        this(feed, snapshot, InetAddress.getLoopbackAddress(), port, null, maxBatch, heartbeatInterval);
+    }
+
+    /**
+     * @param bindAddress address to listen on
+     * @param secret      secret followers must prove they hold, null to accept every follower
+     */
+    public ReplicationLeader(ChangeFeed feed, Supplier<Flux<LinkMapping>> snapshot, InetAddress bindAddress, int port,
+                             byte[] secret, int maxBatch, Duration heartbeatInterval) {
+        this.feed = feed;
+        this.snapshot = snapshot;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.secret = secret;
+        this.maxBatch = maxBatch;
+        this.heartbeatNanos = heartbeatInterval.toNanos();
+    }
+
+    @Override
+    public void start() {
+        try {
+            serverSocket = new ServerSocket(port, 0, bindAddress);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to listen for replication followers on " + bindAddress.getHostAddress()
+                + " port " + port, e);
+        }
+        Thread acceptor = new Thread(this::accept, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Replication leader listening on {} port {}{}, epoch {}", bindAddress.getHostAddress(), serverSocket.getLocalPort(),
+            secret != null ? " for followers with the secret" : "", Long.toHexString(feed.epoch()));
+    }
+
+    @Override
+    public void stop() {
+        ServerSocket current = serverSocket;
+        if (current != null) {
+            serverSocket = null;
+            closeQuietly(current);
+            sessions.forEach(Session::close);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return serverSocket != null;
+    }
+
+    /**
+     * @return port the leader is bound to, -1 if it is not running
+     */
+    public int port() {
+        ServerSocket current = serverSocket;
+        return current != null ? current.getLocalPort() : -1;
+    }
+
+    /**
+     * @return changes in the feed
+     */
+    public long offset() {
+        return feed.nextOffset();
+    }
+
+    /**
+     * @return followers currently connected
+     */
+    public int followerCount() {
+        return sessions.size();
+    }
+
+    /**
+     * @return changes the follower furthest behind has not acknowledged, 0 without followers
+     */
+    public long maxLag() {
+        long next = feed.nextOffset();
+        long lag = 0;
+        for (Session session : sessions) {
+            lag = Math.max(lag, next - session.acknowledged);
+        }
+        return lag;
+    }
+
+    private void accept() {
+        ServerSocket current = serverSocket;
+        while (current != null && !current.isClosed()) {
+            try {
+                Socket socket = current.accept();
+                socket.setTcpNoDelay(true);
+                Session session = new Session(socket, sessionIds.incrementAndGet());
+                sessions.add(session);
+                session.start();
+            } catch (IOException e) {
+                if (!current.isClosed()) {
+                    log.warn("Failed to accept a replication follower", e);
+                }
+            }
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+            // nothing left to release
+        }
+    }
+
+    private final class Session {
+
+        private final Socket socket;
+        private final Thread sender;
+        private volatile long acknowledged;
+
+        Session(Socket socket, int id) {
+            this.socket = socket;
+            this.sender = new Thread(this::run, "replication-sender-" + id);
+            this.sender.setDaemon(true);
+        }
+
+        void start() {
+            sender.start();
+        }
+
+        void close() {
+            closeQuietly(socket);
+            sender.interrupt();
+        }
+
+        private void run() {
+            String follower = String.valueOf(socket.getRemoteSocketAddress());
+            try (socket) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+                socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    throw new ProtocolException("Not a replication follower of this version");
+                }
+                long epoch = in.readLong();
+                long next = in.readLong();
+                authenticate(in, out);
+                socket.setSoTimeout(0);
+                boolean fromSnapshot = epoch != feed.epoch() || !feed.retains(next);
+                if (fromSnapshot) {
+                    // changes from here on are streamed after the snapshot, which may already hold some of them
+                    next = feed.nextOffset();
+                    acknowledged = 0;
+                } else {
+                    acknowledged = next;
+                }
+                out.writeByte(HELLO);
+                out.writeLong(feed.epoch());
+                out.writeLong(next);
+                out.writeBoolean(fromSnapshot);
+                log.info("Replication follower {} connected at offset {}{}", follower, next, fromSnapshot ? " after a snapshot" : "");
+
+                Thread acknowledgements = new Thread(() -> readAcknowledgements(in), sender.getName() + "-acks");
+                acknowledgements.setDaemon(true);
+                acknowledgements.start();
+                if (fromSnapshot) {
+                    sendSnapshot(out);
+                }
+                stream(out, next);
+            } catch (IOException e) {
+                if (!(e instanceof SocketException) || isRunning()) {
+                    log.info("Replication follower {} disconnected: {}", follower, e.toString());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                sessions.remove(this);
+            }
+        }
+
+        private void authenticate(DataInputStream in, DataOutputStream out) throws IOException {
+            byte[] nonce = new byte[NONCE_BYTES];
+            nonces.nextBytes(nonce);
+            out.writeByte(CHALLENGE);
+            out.write(nonce);
+            out.flush();
+            byte[] proof = new byte[PROOF_BYTES];
+            in.readFully(proof);
+            if (secret != null && !MessageDigest.isEqual(proof, proof(secret, nonce))) {
+                throw new ProtocolException("Follower does not hold the replication secret");
+            }
+        }
+
+        private void sendSnapshot(DataOutputStream out) throws IOException {
+            List<LinkMapping> batch = new ArrayList<>(maxBatch);
+            for (LinkMapping mapping : snapshot.get().toIterable(maxBatch)) {
+                batch.add(mapping);
+                if (batch.size() == maxBatch) {
+                    writeBatch(out, SNAPSHOT_OFFSET, feed.nextOffset(), batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(out, SNAPSHOT_OFFSET, feed.nextOffset(), batch);
+            }
+            out.writeByte(SNAPSHOT_END);
+            out.flush();
+        }
+
+        private void stream(DataOutputStream out, long next) throws IOException, InterruptedException {
+            List<LinkMapping> batch = new ArrayList<>(maxBatch);
+            while (!socket.isClosed()) {
+                batch.clear();
+                long to = feed.read(next, maxBatch, batch);
+                if (to < 0) {
+                    // the follower reconnects with an offset that is gone and is sent a snapshot
+                    throw new ProtocolException("Follower fell behind the retained changes at offset " + next);
+                }
+                if (!batch.isEmpty()) {
+                    writeBatch(out, next, feed.nextOffset(), batch);
+                    next = to;
+                    if (batch.size() == maxBatch) {
+                        // more is waiting, the buffer is flushed as it fills
+                        continue;
+                    }
+                }
+                out.flush();
+                if (!feed.await(next, heartbeatNanos)) {
+                    out.writeByte(HEARTBEAT);
+                    out.writeLong(feed.nextOffset());
+                    out.flush();
+                }
+            }
+        }
+
+        private void readAcknowledgements(DataInputStream in) {
+            try {
+                while (true) {
+                    acknowledged = in.readLong();
+                }
+            } catch (IOException e) {
+                // the follower is gone, stop sending to it
+                close();
+            }
+        }
+    }
+}
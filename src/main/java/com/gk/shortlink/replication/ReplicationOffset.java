@@ -0,0 +1,42 @@
+package com.gk.shortlink.replication;
+
+/**
+ * Position in the change feed of a leader, handed to clients after a write so that a follower can wait until
+ * it has applied the write before answering them. Offsets are only comparable within one epoch, which changes
+ * whenever the leader restarts.
+ *
+ * @param epoch  random identifier of the leader run that assigned the offset
+ * @param offset number of changes the feed held once the write was made
+ */
+public record ReplicationOffset(long epoch, long offset) {
+
+    /**
+     * Header carrying the offset of a write in shorten responses and the offset to wait for in requests to followers
+     */
+    public static final String HEADER = "X-Replication-Offset";
+
+    /**
+     * Method to read an offset formatted by {@link #toString()}
+     *
+     * @param value header value, may be null
+     * @return the offset, or null if the value is missing or malformed
+     */
+    public static ReplicationOffset parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        int separator = value.indexOf('-');
+        try {
+            return separator > 0
+                ? new ReplicationOffset(Long.parseUnsignedLong(value.substring(0, separator), 16), Long.parseLong(value.substring(separator + 1)))
+                : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Long.toHexString(epoch) + "-" + offset;
+    }
+}
@@ -0,0 +1,105 @@
+package com.gk.shortlink.replication;
+
+import com.gk.shortlink.dto.LinkMapping;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.List;
+
+/**
+ * Frames exchanged over a replication connection, all in big-endian binary:
+ * <pre>
+ * follower: MAGIC VERSION epoch nextOffset            once, the position it holds
+ * leader:   CHALLENGE nonce                            once, random bytes
+ * follower: proof                                      once, HMAC-SHA256 of the nonce under the shared secret
+ * leader:   HELLO epoch startOffset snapshot          once, how the stream continues
+ * leader:   BATCH firstOffset leaderOffset count { code expiresAt redirect urlLength url }
+ * leader:   SNAPSHOT_END                               after the snapshot batches, which have firstOffset -1
+ * leader:   HEARTBEAT leaderOffset                     while no changes come in
+ * follower: nextOffset                                 after every batch applied
+ * </pre>
+ * The challenge keeps followers without the shared secret out without sending the secret itself. Without a
+ * secret the follower answers with zeros and the leader accepts any proof. The stream after it is not
+ * encrypted, so a leader outside a trusted network needs a tunnel such as a VPN.
+ */
+final class ReplicationProtocol {
+
+    static final int MAGIC = 0x53484C52;
+    static final int VERSION = 2;
+    static final byte HELLO = 1;
+    static final byte BATCH = 2;
+    static final byte SNAPSHOT_END = 3;
+    static final byte HEARTBEAT = 4;
+    static final byte CHALLENGE = 5;
+    static final int NONCE_BYTES = 16;
+    static final int PROOF_BYTES = 32;
+    // marks batches of a snapshot, which are not part of the numbered feed
+    static final long SNAPSHOT_OFFSET = -1;
+    static final int BUFFER_SIZE = 64 * 1024;
+    // far above any stored URL, only guards against reading garbage as a length
+    private static final int MAX_URL_BYTES = 1 << 20;
+    private static final String PROOF_ALGORITHM = "HmacSHA256";
+
+    private ReplicationProtocol() {
+    }
+
+    /**
+     * Method to compute a follower's answer to the leader's challenge
+     *
+     * @param secret shared secret, null for none
+     * @param nonce  random bytes sent by the leader
+     * @return {@link #PROOF_BYTES} bytes, zeros without a secret
+     */
+    static byte[] proof(byte[] secret, byte[] nonce) {
+        if (secret == null) {
+            return new byte[PROOF_BYTES];
+        }
+        try {
+            Mac mac = Mac.getInstance(PROOF_ALGORITHM);
+            mac.init(new SecretKeySpec(secret, PROOF_ALGORITHM));
+            return mac.doFinal(nonce);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    static void writeBatch(DataOutputStream out, long firstOffset, long leaderOffset, List<LinkMapping> mappings)
+        throws IOException {
+        out.writeByte(BATCH);
+        out.writeLong(firstOffset);
+        out.writeLong(leaderOffset);
+        out.writeInt(mappings.size());
+        for (LinkMapping mapping : mappings) {
+            out.writeUTF(mapping.code());
+            out.writeLong(mapping.expiresAt());
+            out.writeInt(mapping.redirect());
+            byte[] url = mapping.url().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(url.length);
+            out.write(url);
+        }
+    }
+
+    /**
+     * Method to read the mappings of a batch whose type, first offset, leader offset and count were read already
+     */
+    static void readMappings(DataInputStream in, int count, List<LinkMapping> out) throws IOException {
+        for (int i = 0; i < count; i++) {
+            String code = in.readUTF();
+            long expiresAt = in.readLong();
+            int redirect = in.readInt();
+            int length = in.readInt();
+            if (length < 0 || length > MAX_URL_BYTES) {
+                throw new ProtocolException("Invalid URL length " + length);
+            }
+            byte[] url = new byte[length];
+            in.readFully(url);
+            out.add(new LinkMapping(code, new String(url, StandardCharsets.UTF_8), expiresAt, redirect));
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.gk.shortlink.replication;
+
+public enum ReplicationRole {
+    /**
+     * A standalone instance, neither streaming nor receiving changes
+     */
+    NONE,
+    /**
+     * Accepts writes and streams every new mapping to its followers
+     */
+    LEADER,
+    /**
+     * Redirect-only replica applying the change feed of a leader, rejecting writes
+     */
+    FOLLOWER
+}
@@ -0,0 +1,34 @@
+package com.gk.shortlink.service;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * Converts URLs into the value sent in the {@code Location} header of a redirect. Request validation only
+ * checks that a URL parses as a {@link java.net.URL}, which lets through characters a header cannot carry,
+ * so every URL is parsed once as a {@link URI} when it is shortened and stored in its US-ASCII form.
+ * Redirects then send the stored value as is. URLs that are already US-ASCII are returned unchanged.
+ */
+public final class RedirectLocation {
+
+    private RedirectLocation() {
+    }
+
+    /**
+     * Method to convert a URL into its redirect location
+     *
+     * @param url URL to convert
+     * @return absolute, US-ASCII form of the URL, or null if it is not a valid absolute URI
+     */
+    public static String of(String url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            URI uri = new URI(url);
+            return uri.isAbsolute() ? uri.toASCIIString() : null;
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.gk.shortlink.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Status and caching of the redirect a short code answers with. A link's own choices are stored with its
+ * mapping as an int of policy bits, so that links following the defaults cost nothing extra:
+ * <pre>
+ * bits := maxAgeSeconds:28 hasMaxAge:1 status:3
+ * </pre>
+ * A status of 0 and an unset max-age fall back to the server's defaults. Policies are resolved once per
+ * distinct bits with the Cache-Control value already formatted, so redirects only copy references. Only links
+ * that expire have their max-age capped at the time they have left, which is formatted per redirect.
+ */
+public final class RedirectPolicy {
+
+    public static final long MAX_MAX_AGE_SECONDS = (1L << 28) - 1;
+
+    private static final HttpStatus[] STATUSES = {null, HttpStatus.MOVED_PERMANENTLY, HttpStatus.FOUND,
+        HttpStatus.TEMPORARY_REDIRECT, HttpStatus.PERMANENT_REDIRECT};
+    private static final int STATUS_MASK = 0x7;
+    private static final int HAS_MAX_AGE = 0x8;
+    private static final int MAX_AGE_SHIFT = 4;
+    private static final long NO_MAX_AGE = -1;
+
+    private final HttpStatus status;
+    private final String cacheControl;
+    private final long maxAgeSeconds;
+
+    private RedirectPolicy(HttpStatus status, long maxAgeSeconds) {
+        this.status = status;
+        this.maxAgeSeconds = maxAgeSeconds;
+        this.cacheControl = maxAgeSeconds == NO_MAX_AGE ? null : "max-age=" + maxAgeSeconds;
+    }
+
+    /**
+     * Method to create the policy of links without choices of their own
+     *
+     * @param status redirect status code, one of 301, 302, 307 and 308
+     * @param maxAge how long clients may cache the redirect, null to send no Cache-Control header
+     * @return default policy
+     */
+    public static RedirectPolicy defaults(int status, @Nullable Duration maxAge) {
+        return new RedirectPolicy(STATUSES[statusIndex(status)], maxAge == null ? NO_MAX_AGE : maxAgeSeconds(maxAge));
+    }
+
+    /**
+     * Method to encode the choices of a link into the bits stored with its mapping
+     *
+     * @param status redirect status code, one of 301, 302, 307 and 308, or null for the default
+     * @param maxAge how long clients may cache the redirect, or null for the default
+     * @return policy bits, 0 if the link follows the defaults
+     */
+    public static int encode(@Nullable Integer status, @Nullable Duration maxAge) {
+        int bits = status == null ? 0 : statusIndex(status);
+        if (maxAge != null) {
+            bits |= HAS_MAX_AGE | (int) (maxAgeSeconds(maxAge) << MAX_AGE_SHIFT);
+        }
+        return bits;
+    }
+
+    /**
+     * Method to resolve policy bits against the defaults
+     *
+     * @param bits     policy bits of a mapping
+     * @param defaults policy of links without choices of their own
+     * @return policy to redirect with
+     */
+    static RedirectPolicy resolve(int bits, RedirectPolicy defaults) {
+        int index = bits & STATUS_MASK;
+        if (index >= STATUSES.length) {
+            // written by a later version, the defaults are the safe choice
+            return defaults;
+        }
+        HttpStatus status = index == 0 ? defaults.status : STATUSES[index];
+        long maxAgeSeconds = (bits & HAS_MAX_AGE) != 0 ? bits >>> MAX_AGE_SHIFT : defaults.maxAgeSeconds;
+        return new RedirectPolicy(status, maxAgeSeconds);
+    }
+
+    /**
+     * Method to cap the policy of an expiring link so that no client or shared cache redirects past its expiry.
+     * Permanent redirects are cacheable without a Cache-Control header, so they get one even if the policy
+     * sends none.
+     *
+     * @param expiresAt expiry of the link in epoch milliseconds
+     * @param now       current time in epoch milliseconds
+     * @return this policy if it already expires in time, otherwise one whose max-age ends with the link
+     */
+    RedirectPolicy expiringAt(long expiresAt, long now) {
+        long remaining = Math.max(0, (expiresAt - now) / 1000);
+        boolean permanent = status == HttpStatus.MOVED_PERMANENTLY || status == HttpStatus.PERMANENT_REDIRECT;
+        if (maxAgeSeconds == NO_MAX_AGE ? !permanent : maxAgeSeconds <= remaining) {
+            return this;
+        }
+        return new RedirectPolicy(status, remaining);
+    }
+
+    public HttpStatus status() {
+        return status;
+    }
+
+    /**
+     * @return value of the Cache-Control header, or null if none is sent
+     */
+    @Nullable
+    public String cacheControl() {
+        return cacheControl;
+    }
+
+    private static int statusIndex(int status) {
+        for (int i = 1; i < STATUSES.length; i++) {
+            if (STATUSES[i].value() == status) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported redirect status " + status);
+    }
+
+    private static long maxAgeSeconds(Duration maxAge) {
+        long seconds = maxAge.getSeconds();
+        if (seconds < 0 || seconds > MAX_MAX_AGE_SECONDS) {
+            throw new IllegalArgumentException("Redirect max-age must be between 0 and " + MAX_MAX_AGE_SECONDS + " seconds");
+        }
+        return seconds;
+    }
+}
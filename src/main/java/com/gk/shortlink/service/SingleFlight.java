@@ -0,0 +1,167 @@
+package com.gk.shortlink.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gk.shortlink.exception.StorageBusyException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent lookups of the same code that leave memory, for the link store or another cluster node:
+ * the first lookup of a code runs, every lookup arriving while it is in flight waits for its result instead of
+ * starting its own. Callers publish what they found to the store before the result is handed out, so lookups
+ * arriving afterwards are served from memory.
+ * <p>
+ * Codes the backing lookup confirmed missing are remembered for a short time and answered as missing without
+ * a lookup, which keeps floods of requests for a dead or mistyped link off the backing store. At most
+ * {@code maxWaiters} lookups share one flight; further ones are rejected with {@link StorageBusyException}
+ * rather than queued behind a lookup that is evidently slow.
+ */
+public final class SingleFlight {
+
+    private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+    // null when negative caching is disabled
+    private final Cache<String, Boolean> misses;
+    private final int maxWaiters;
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param maxWaiters        most lookups sharing one flight, the one running it included
+     * @param negativeTtl       time a confirmed miss is answered without a lookup, zero to disable
+     * @param negativeCacheSize most codes remembered as missing
+     */
+    public SingleFlight(int maxWaiters, Duration negativeTtl, long negativeCacheSize) {
+        this.maxWaiters = Math.max(1, maxWaiters);
+        this.misses = negativeTtl.isZero() || negativeTtl.isNegative() ? null : Caffeine.newBuilder()
+            .expireAfterWrite(negativeTtl)
+            .maximumSize(negativeCacheSize)
+            .build();
+    }
+
+    /**
+     * Method to look a code up, joining the lookup of the same code in flight if there is one
+     *
+     * @param code   short code to look up
+     * @param loader backing lookup, run at most once at a time per code
+     * @return result of the shared lookup, empty if the code is missing
+     */
+    public Mono<String> load(String code, Function<String, Mono<String>> loader) {
+        return Mono.defer(() -> {
+            if (misses != null && misses.getIfPresent(code) != null) {
+                negativeHits.increment();
+                return Mono.empty();
+            }
+            Flight flight = flights.get(code);
+            if (flight == null) {
+                Flight created = new Flight(code);
+                flight = flights.putIfAbsent(code, created);
+                if (flight == null) {
+                    loads.increment();
+                    created.run(loader);
+                    return created.result();
+                }
+            }
+            if (flight.waiters.incrementAndGet() > maxWaiters) {
+                rejected.increment();
+                return Mono.error(new StorageBusyException("Too many lookups waiting for short code " + code));
+            }
+            coalesced.increment();
+            return flight.result();
+        });
+    }
+
+    /**
+     * Method to drop a code from the remembered misses, once it is issued
+     *
+     * @param code short code
+     */
+    public void forget(String code) {
+        if (misses != null) {
+            misses.invalidate(code);
+        }
+    }
+
+    /**
+     * @return backing lookups run
+     */
+    public long loadCount() {
+        return loads.sum();
+    }
+
+    /**
+     * @return lookups that waited for a flight already running instead of running their own
+     */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return lookups answered as missing from the remembered misses
+     */
+    public long negativeHitCount() {
+        return negativeHits.sum();
+    }
+
+    /**
+     * @return lookups rejected because their flight had as many waiters as allowed
+     */
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return lookups in flight
+     */
+    public int inFlight() {
+        return flights.size();
+    }
+
+    private final class Flight {
+
+        private final String code;
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger(1);
+
+        Flight(String code) {
+            this.code = code;
+        }
+
+        void run(Function<String, Mono<String>> loader) {
+            // the flight is removed before it completes, lookups arriving later find the published result
+            // in memory or start a flight of their own
+            Mono.defer(() -> loader.apply(code)).subscribe(
+                url -> {
+                    flights.remove(code, this);
+                    future.complete(url);
+                },
+                error -> {
+                    flights.remove(code, this);
+                    future.completeExceptionally(error);
+                },
+                () -> {
+                    if (!future.isDone()) {
+                        if (misses != null) {
+                            misses.put(code, Boolean.TRUE);
+                        }
+                        flights.remove(code, this);
+                        future.complete(null);
+                    }
+                });
+        }
+
+        Mono<String> result() {
+            // a waiter giving up must not cancel the lookup the others wait for
+            return Mono.fromFuture(future, true);
+        }
+    }
+}
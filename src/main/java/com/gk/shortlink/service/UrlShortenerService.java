@@ -1,32 +1,171 @@
 package com.gk.shortlink.service;
 
-import com.github.benmanes.caffeine.cache.AsyncCache;
-import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gk.shortlink.cluster.ClusterRouter;
 import com.gk.shortlink.config.ShortLinkProperties;
-import org.apache.commons.lang3.RandomStringUtils;
+import com.gk.shortlink.dto.ImportResult;
+import com.gk.shortlink.dto.LinkMapping;
+import com.gk.shortlink.exception.CodeGenerationException;
+import com.gk.shortlink.exception.InvalidUrlException;
+import com.gk.shortlink.exception.ReadOnlyReplicaException;
+import com.gk.shortlink.generator.Base62;
+import com.gk.shortlink.generator.CodeGenerator;
+import com.gk.shortlink.generator.GeneratorMode;
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import com.gk.shortlink.persistence.JournalPosition;
+import com.gk.shortlink.persistence.MappingJournal;
+import com.gk.shortlink.replication.ChangeFeed;
+import com.gk.shortlink.replication.ReplicationRole;
+import com.gk.shortlink.store.CodeBloomFilter;
+import com.gk.shortlink.store.ColdMappingStore;
+import com.gk.shortlink.store.CompactMappingStore;
+import com.gk.shortlink.store.LinkStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 @Service
-public class UrlShortenerService {
+public class UrlShortenerService implements AutoCloseable {
 
-    private final AsyncCache<String, String> urlToCodeCache;
-    private final AsyncCache<String, String> codeToUrlCache;
-    private final ShortLinkProperties properties;
+    private static final Logger log = LoggerFactory.getLogger(UrlShortenerService.class);
 
-    // Using caffeine cache to set boundaries Vs concurrentHashMap
-    // Note: For production applications Redis or another distributed system approach is advisable
-    public UrlShortenerService(ShortLinkProperties properties) {
-        this.properties = properties;
-        this.urlToCodeCache = Caffeine.newBuilder()
-            .maximumSize(properties.maxCapacity())
-            .buildAsync();
+    private static final int BATCH_SIZE = 512;
+    private static final int BATCH_CONCURRENCY = 4;
+    private static final int EXPORT_CHUNK_SIZE = 4096;
+    // small enough that a batch holds the store's write lock for well under a millisecond
+    private static final int IMPORT_BATCH_SIZE = 1024;
+    // the first dictionary is trained soon after startup so that early traffic is compressed too
+    private static final Duration FIRST_RETRAIN_DELAY = Duration.ofMinutes(1);
+    // the timing wheel ticks in seconds, so reaping more often would find nothing new
+    private static final Duration EXPIRY_INTERVAL = Duration.ofSeconds(1);
+    private static final int EXPIRY_BATCH_SIZE = 1024;
+    // cold records examined for expiry per second, so a sweep does not page in the whole tier every time
+    private static final int COLD_SWEEP_SIZE = 64 * EXPIRY_BATCH_SIZE;
+    // links choosing their own redirect mostly share a few policies, beyond this many they are resolved per lookup
+    private static final int MAX_CACHED_POLICIES = 1024;
 
-        this.codeToUrlCache = Caffeine.newBuilder()
-            .maximumSize(properties.maxCapacity())
-            .buildAsync();
+    private final CompactMappingStore store;
+    // mappings evicted from the store, when tiering is enabled
+    private final ColdMappingStore coldStore;
+    // every code issued, when enabled, so that lookups of codes never issued stop here
+    private final CodeBloomFilter codeFilter;
+    // whether the filter holds every code of the link store yet, which it is filled with in the background
+    private volatile boolean codeFilterFilled = true;
+    private volatile Disposable codeFilterFill;
+    private final CodeGenerator codeGenerator;
+    private final MappingJournal journal;
+    private final ShortLinkMetrics metrics;
+    private final ClusterRouter router;
+    // system of record when configured, the store then acts as its read-through near-cache
+    private final LinkStore linkStore;
+    // receives every durable mapping on a replication leader
+    private final ChangeFeed changeFeed;
+    // a replication follower only applies the leader's changes
+    private final boolean readOnly;
+    // coalesces lookups leaving memory, null when disabled
+    private final SingleFlight lookups;
+    private final int maxAttempts;
+    private final ScheduledExecutorService retrainer;
+    private final ScheduledExecutorService reaper;
+    // codes inserted into the store whose journal append has not completed yet
+    private final ConcurrentMap<String, CompletableFuture<String>> pendingAppends = new ConcurrentHashMap<>();
+    private final RedirectPolicy defaultRedirect;
+    private final ConcurrentMap<Integer, RedirectPolicy> redirectPolicies = new ConcurrentHashMap<>();
+    // the generator's high-water mark last handed to the link store, and its write; guarded by markLock
+    private final Object markLock = new Object();
+    private String recordedMark;
+    private CompletableFuture<Void> markWritten = CompletableFuture.completedFuture(null);
+
+    @Autowired
+    public UrlShortenerService(ShortLinkProperties properties, CompactMappingStore store, @Nullable ColdMappingStore coldStore,
+                               @Nullable CodeBloomFilter codeFilter, CodeGenerator codeGenerator, MappingJournal journal,
+                               ShortLinkMetrics metrics, ClusterRouter router, @Nullable LinkStore linkStore,
+                               @Nullable ChangeFeed changeFeed) {
+        this.store = store;
+        this.coldStore = coldStore;
+        this.codeFilter = codeFilter;
+        this.codeGenerator = codeGenerator;
+        this.router = router;
+        this.linkStore = linkStore;
+        this.changeFeed = changeFeed;
+        this.readOnly = properties.replication().role() == ReplicationRole.FOLLOWER;
+        this.journal = journal;
+        this.metrics = metrics;
+        this.maxAttempts = Math.max(1, properties.generator().maxAttempts());
+        this.defaultRedirect = RedirectPolicy.defaults(properties.redirect().status(), properties.redirect().cacheMaxAge());
+        ShortLinkProperties.Lookup lookup = properties.lookup();
+        this.lookups = lookup.singleFlight()
+            ? new SingleFlight(lookup.maxWaiters(), lookup.negativeTtl(), lookup.negativeCacheSize()) : null;
+        metrics.bindStore(store);
+        if (coldStore != null) {
+            metrics.bindColdStore(coldStore);
+        }
+        if (codeFilter != null) {
+            metrics.bindCodeFilter(codeFilter);
+        }
+        if (lookups != null) {
+            metrics.bindSingleFlight(lookups);
+        }
+
+        journal.replay(this::restore);
+        JournalPosition position = journal.position();
+        if (changeFeed != null && position != null) {
+            // every mapping journaled is published to the feed, so the journal numbers the feed's changes too
+            changeFeed.continueFrom(position.id(), position.records());
+        }
+        journal.start(codeGenerator::highWaterMark);
+        if (linkStore != null) {
+            // codes issued by earlier runs must not be handed out again
+            String mark = linkStore.highWaterMark().block();
+            boolean scanned = false;
+            if (mark != null) {
+                codeGenerator.observe(mark);
+            } else if (properties.generator().mode() == GeneratorMode.SEQUENCE) {
+                // a store written before marks were kept is read once, the mark recorded after it spares later starts
+                linkStore.scan().doOnNext(mapping -> {
+                    codeGenerator.observe(mapping.code());
+                    issued(mapping.code());
+                }).blockLast();
+                markIssued().join();
+                scanned = true;
+            }
+            if (codeFilter != null && !scanned) {
+                fillCodeFilter();
+            }
+        }
+        ShortLinkProperties.Compression compression = properties.compression();
+        this.retrainer = compression.enabled() ? startRetrainer(compression) : null;
+        this.reaper = startReaper();
+    }
+
+    @Override
+    public void close() {
+        Disposable fill = codeFilterFill;
+        if (fill != null) {
+            fill.dispose();
+        }
+        if (retrainer != null) {
+            retrainer.shutdownNow();
+        }
+        reaper.shutdownNow();
     }
 
     /**
@@ -39,25 +178,697 @@ public class UrlShortenerService {
      * @return short code as String wrapped in Mono
      */
     public Mono<String> shorten(String originalUrl) {
-        return Mono.fromFuture(() -> urlToCodeCache.get(originalUrl, (k, executor) -> {
-            String code = generateCode();
-            codeToUrlCache.put(code, CompletableFuture.completedFuture(originalUrl));
-            return CompletableFuture.completedFuture(code);
-        }));
+        return Mono.defer(() -> {
+            checkWritable();
+            long start = System.nanoTime();
+            String location = toLocation(originalUrl);
+            String existing = store.codeOf(location);
+            Mono<String> code = existing != null || linkStore == null
+                ? Mono.fromFuture(existing != null ? whenDurable(existing) : assignCode(location, 0, 0))
+                : loadCode(location).switchIfEmpty(Mono.defer(() -> Mono.fromFuture(assignCode(location, 0, 0))));
+            return code.doOnNext(ignored -> metrics.recordShorten(System.nanoTime() - start));
+        });
+    }
+
+    /**
+     * Method to create a short code for a URL that stops redirecting at a given time. Expiring links are
+     * never shared: every call creates a new code, and the code is not returned for later requests to
+     * shorten the same URL.
+     *
+     * @param originalUrl URL to be shortened
+     * @param expiresAt   time from which the code no longer resolves, kept to the second and rounded up;
+     *                    null for a link that never expires
+     * @return short code as String wrapped in Mono
+     */
+    public Mono<String> shorten(String originalUrl, @Nullable Instant expiresAt) {
+        return shorten(originalUrl, expiresAt, 0);
+    }
+
+    /**
+     * Method to create a short code for a URL that may expire and may redirect with a status and caching
+     * of its own. Like expiring links, links with a redirect policy of their own are never shared.
+     *
+     * @param originalUrl URL to be shortened
+     * @param expiresAt   time from which the code no longer resolves, kept to the second and rounded up;
+     *                    null for a link that never expires
+     * @param redirect    policy bits from {@link RedirectPolicy#encode}, 0 to follow the defaults
+     * @return short code as String wrapped in Mono
+     */
+    public Mono<String> shorten(String originalUrl, @Nullable Instant expiresAt, int redirect) {
+        if (expiresAt == null && redirect == 0) {
+            return shorten(originalUrl);
+        }
+        return Mono.defer(() -> {
+            checkWritable();
+            long start = System.nanoTime();
+            String location = toLocation(originalUrl);
+            return Mono.fromFuture(assignCode(location, expiresAt != null ? expiresAt.toEpochMilli() : 0, redirect))
+                .doOnNext(ignored -> metrics.recordShorten(System.nanoTime() - start));
+        });
+    }
+
+    /**
+     * Method to shorten a stream of URLs, returning one code per URL in the same order.
+     * URLs are processed in chunks so that every chunk costs a single store write and a
+     * group of journal appends; a bounded number of chunks is in flight at any time, so
+     * demand from the subscriber propagates back to the source.
+     *
+     * @param originalUrls URLs to be shortened
+     * @return short codes in request order
+     */
+    public Flux<String> shortenAll(Flux<String> originalUrls) {
+        if (readOnly) {
+            return Flux.error(readOnlyReplica());
+        }
+        return originalUrls
+            .map(UrlShortenerService::toLocation)
+            .buffer(BATCH_SIZE)
+            .flatMapSequential(batch -> loadCodes(batch).then(Mono.fromFuture(() -> assignCodes(batch))), BATCH_CONCURRENCY)
+            .flatMapIterable(codes -> codes);
     }
 
     /**
-     * Method to retrieve the associated URL for a short code
+     * Method to retrieve the associated URL for a short code. Concurrent lookups of the same code that have
+     * to ask the owning node share one forwarded lookup.
      *
      * @param code short code representing the URL
      * @return original URL as String wrapped in Mono
      */
     public Mono<String> getOriginalUrl(String code) {
-        return Mono.justOrEmpty(codeToUrlCache.getIfPresent(code))
-            .flatMap(future -> future != null ? Mono.fromFuture(future) : Mono.empty());
+        if (router.isRemote(code)) {
+            String cached = router.cached(code);
+            return cached != null ? Mono.just(cached) : load(code, router::forward);
+        }
+        return getLocalUrl(code);
+    }
+
+    /**
+     * Method to retrieve the URL of a short code from this node only, reading through to the link store
+     * when the code is not in memory. Concurrent read-throughs of the same code share one link store lookup.
+     *
+     * @param code short code representing the URL
+     * @return original URL as String wrapped in Mono
+     */
+    public Mono<String> getLocalUrl(String code) {
+        if (!mayBeIssued(code)) {
+            return Mono.empty();
+        }
+        String url = lookupLocation(code);
+        if (url != null || linkStore == null) {
+            return Mono.justOrEmpty(url);
+        }
+        return load(code, this::readThrough);
+    }
+
+    /**
+     * @return true if codes missing from memory may still be found in the link store, so that
+     * {@link #findLocation(String)} returning null is not a definite miss
+     */
+    public boolean isReadThrough() {
+        return linkStore != null;
+    }
+
+    /**
+     * Method to check whether a short code belongs to another node in cluster mode, in which case only
+     * {@link #getOriginalUrl(String)} resolves it
+     *
+     * @param code short code
+     * @return true if the code is owned by another node
+     */
+    public boolean isRemote(String code) {
+        return router.isRemote(code);
+    }
+
+    /**
+     * Method to look up the redirect location of a short code in the local store without wrapping it,
+     * for the redirect fast path and for lookups forwarded by other nodes. Stored URLs are already in
+     * {@link RedirectLocation} form. A mapping found in the cold tier is promoted back to the store. With the
+     * issued code filter enabled, codes it rules out are answered without any lookup.
+     *
+     * @param code short code representing the URL
+     * @return value for the Location header, or null if the code is unknown
+     */
+    public String findLocation(String code) {
+        return mayBeIssued(code) ? lookupLocation(code) : null;
+    }
+
+    private String lookupLocation(String code) {
+        String url = store.get(code);
+        if (url != null || coldStore == null) {
+            return url;
+        }
+        LinkMapping cold = coldStore.get(code);
+        if (cold == null) {
+            return null;
+        }
+        store.putIfAbsent(code, cold.url(), cold.expiresAt(), cold.redirect());
+        return cold.url();
+    }
+
+    /**
+     * Method to look up how a short code found by {@link #findLocation(String)} or {@link #getOriginalUrl(String)}
+     * redirects. Codes owned by another cluster node, and codes evicted since their lookup, use the defaults.
+     * Links that expire are never cached past their expiry.
+     *
+     * @param code short code representing the URL
+     * @return status and caching of the redirect
+     */
+    public RedirectPolicy redirectPolicy(String code) {
+        int bits = store.redirectOf(code);
+        RedirectPolicy policy = bits == 0 ? defaultRedirect : redirectPolicies.get(bits);
+        if (policy == null) {
+            policy = RedirectPolicy.resolve(bits, defaultRedirect);
+            if (redirectPolicies.size() < MAX_CACHED_POLICIES) {
+                redirectPolicies.putIfAbsent(bits, policy);
+            }
+        }
+        long expiresAt = store.expiryOf(code);
+        return expiresAt == 0 ? policy : policy.expiringAt(expiresAt, System.currentTimeMillis());
+    }
+
+    /**
+     * Method to look up the tag of the URL a short code found by {@link #getOriginalUrl(String)} maps to, for
+     * validating responses that describe the mapping. The tag was computed when the mapping was stored; it is
+     * only computed from the URL for codes held by another cluster node or evicted since their lookup.
+     *
+     * @param code        short code representing the URL
+     * @param originalUrl URL the code was found to map to
+     * @return 32-bit tag of the URL as an unsigned value
+     */
+    public long urlTag(String code, String originalUrl) {
+        long tag = router.isRemote(code) ? -1 : store.tagOf(code);
+        return tag >= 0 ? tag : CompactMappingStore.urlTag(originalUrl);
+    }
+
+    /**
+     * Method to stream every mapping in the store. The store is walked chunk by chunk as the
+     * subscriber requests more, so the export is never materialised and writers are blocked
+     * only for the duration of copying one chunk. The cold tier, if any, is walked after the store.
+     *
+     * @return all live mappings, in no particular order
+     */
+    public Flux<LinkMapping> exportMappings() {
+        if (linkStore != null) {
+            return linkStore.scan().filter(mapping -> !isExpired(mapping.expiresAt()));
+        }
+        Flux<LinkMapping> hot = Flux.<List<LinkMapping>, Integer>generate(() -> 0, (cursor, sink) -> {
+                List<LinkMapping> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+                int next = store.forEachFrom(cursor, EXPORT_CHUNK_SIZE,
+                    (code, url, expiresAt, redirect) -> chunk.add(new LinkMapping(code, url, expiresAt, redirect)));
+                if (!chunk.isEmpty()) {
+                    sink.next(chunk);
+                }
+                if (next < 0) {
+                    sink.complete();
+                }
+                return next;
+            })
+            .flatMapIterable(chunk -> chunk);
+        if (coldStore == null) {
+            return hot;
+        }
+        // promoted mappings are in both tiers and exported from the store
+        Flux<LinkMapping> cold = Flux.<List<LinkMapping>, Long>generate(() -> 0L, (cursor, sink) -> {
+                List<LinkMapping> chunk = new ArrayList<>();
+                long next = coldStore.forEachFrom(cursor, EXPORT_CHUNK_SIZE, (code, url, expiresAt, redirect) -> {
+                    if (!store.contains(code)) {
+                        chunk.add(new LinkMapping(code, url, expiresAt, redirect));
+                    }
+                });
+                if (!chunk.isEmpty()) {
+                    sink.next(chunk);
+                }
+                if (next < 0) {
+                    sink.complete();
+                }
+                return next;
+            })
+            .flatMapIterable(chunk -> chunk);
+        return hot.concatWith(cold);
+    }
+
+    /**
+     * Method to load mappings exported by another instance, keeping their codes. Mappings whose
+     * code or URL is already mapped locally are skipped, so existing links never change. Imports
+     * are applied in batches to keep each store write short for concurrent redirects.
+     *
+     * @param mappings mappings to import
+     * @return counts of imported and skipped mappings
+     */
+    public Mono<ImportResult> importMappings(Flux<LinkMapping> mappings) {
+        if (readOnly) {
+            return Mono.error(readOnlyReplica());
+        }
+        return mappings
+            .buffer(IMPORT_BATCH_SIZE)
+            .concatMap(batch -> Mono.fromFuture(() -> importBatch(batch)))
+            .reduce(ImportResult.EMPTY, ImportResult::plus);
+    }
+
+    /**
+     * Method to apply mappings streamed by the replication leader, keeping their codes. Unlike imports,
+     * replicated mappings replace local ones, as the leader is the only writer; applying a mapping twice is
+     * harmless.
+     *
+     * @param mappings mappings in the order of the leader's change feed
+     * @return completes once the mappings are journaled and in the link store, if any
+     */
+    public CompletableFuture<Void> applyReplicated(List<LinkMapping> mappings) {
+        List<CompletableFuture<Void>> appends = new ArrayList<>(mappings.size() + 1);
+        List<LinkMapping> live = new ArrayList<>(mappings.size());
+        for (LinkMapping mapping : mappings) {
+            codeGenerator.observe(mapping.code());
+            if (isExpired(mapping.expiresAt())) {
+                continue;
+            }
+            issued(mapping.code());
+            store.put(mapping.code(), mapping.url(), mapping.expiresAt(), mapping.redirect());
+            appends.add(journal.append(mapping.code(), mapping.url(), mapping.expiresAt(), mapping.redirect()));
+            live.add(mapping);
+        }
+        if (linkStore != null && !live.isEmpty()) {
+            appends.add(markIssued().thenCompose(ignored -> linkStore.putAll(live).toFuture()));
+        }
+        return CompletableFuture.allOf(appends.toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Claims a code that is not mapped yet and journals the new mapping. Sequence codes never
+     * collide, random codes are retried a bounded number of times before the request is failed.
+     * Callers racing on the same URL receive the winner's code once it is durable.
+     *
+     * @param expiresAt epoch milliseconds at which the mapping expires, 0 if it never does
+     * @param redirect  redirect policy bits, 0 for the defaults
+     */
+    private CompletableFuture<String> assignCode(String originalUrl, long expiresAt, int redirect) {
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            String code = generateCode();
+            CompletableFuture<String> durable = new CompletableFuture<>();
+            if (isColdCode(code) || pendingAppends.putIfAbsent(code, durable) != null) {
+                metrics.recordCodeCollision();
+                continue;
+            }
+            issued(code);
+            String assigned = store.putIfAbsent(code, originalUrl, expiresAt, redirect);
+            if (code.equals(assigned)) {
+                return persist(code, originalUrl, expiresAt, redirect, durable);
+            }
+            pendingAppends.remove(code, durable);
+            if (assigned != null) {
+                return whenDurable(assigned);
+            }
+            metrics.recordCodeCollision();
+        }
+        throw new CodeGenerationException("Unable to allocate a unique short code after " + maxAttempts + " attempts");
+    }
+
+    /**
+     * Batch variant of {@link #assignCode(String, long, int)} for shared mappings: every URL
+     * gets one candidate code and all of them are claimed with one store write. The rare candidates
+     * that collide fall back to the single-URL path.
+     */
+    private CompletableFuture<List<String>> assignCodes(List<String> originalUrls) {
+        int count = originalUrls.size();
+        List<CompletableFuture<String>> results = new ArrayList<>(Collections.nCopies(count, null));
+        String[] candidates = new String[count];
+        List<CompletableFuture<String>> durables = new ArrayList<>(Collections.nCopies(count, null));
+        for (int i = 0; i < count; i++) {
+            String existing = store.codeOf(originalUrls.get(i));
+            if (existing != null) {
+                results.set(i, whenDurable(existing));
+                continue;
+            }
+            String code = generateCode();
+            CompletableFuture<String> durable = new CompletableFuture<>();
+            if (!isColdCode(code) && pendingAppends.putIfAbsent(code, durable) == null) {
+                issued(code);
+                candidates[i] = code;
+                durables.set(i, durable);
+            } else {
+                metrics.recordCodeCollision();
+            }
+        }
+        String[] assigned;
+        try {
+            assigned = store.putAllIfAbsent(candidates, originalUrls);
+        } catch (RuntimeException e) {
+            for (int i = 0; i < count; i++) {
+                if (candidates[i] != null) {
+                    pendingAppends.remove(candidates[i], durables.get(i));
+                }
+            }
+            throw e;
+        }
+        // journal every claimed code before anything below may throw
+        for (int i = 0; i < count; i++) {
+            String code = candidates[i];
+            if (code == null) {
+                continue;
+            }
+            if (code.equals(assigned[i])) {
+                results.set(i, persist(code, originalUrls.get(i), 0, 0, durables.get(i)));
+            } else {
+                pendingAppends.remove(code, durables.get(i));
+                if (assigned[i] == null) {
+                    metrics.recordCodeCollision();
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (results.get(i) == null) {
+                results.set(i, assigned[i] != null ? whenDurable(assigned[i]) : assignCode(originalUrls.get(i), 0, 0));
+            }
+        }
+        return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+            .thenApply(ignored -> results.stream().map(CompletableFuture::join).toList());
     }
 
     private String generateCode() {
-        return RandomStringUtils.secureStrong().nextAlphanumeric(properties.codeLength());
+        long start = System.nanoTime();
+        String code = codeGenerator.generate();
+        metrics.recordCodeGeneration(System.nanoTime() - start);
+        return code;
+    }
+
+    private CompletableFuture<ImportResult> importBatch(List<LinkMapping> batch) {
+        String[] codes = new String[batch.size()];
+        List<String> urls = new ArrayList<>(batch.size());
+        long[] expiries = new long[batch.size()];
+        int[] redirects = new int[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            LinkMapping mapping = batch.get(i);
+            String location = mapping.url() != null && mapping.url().length() <= CompactMappingStore.MAX_URL_BYTES / 3
+                ? RedirectLocation.of(mapping.url()) : null;
+            // in cluster mode codes of other shards could never be reached here
+            boolean valid = mapping.code() != null && Base62.toKey(mapping.code()) >= 0 && !router.isRemote(mapping.code())
+                && !isColdCode(mapping.code())
+                && location != null && location.length() <= CompactMappingStore.MAX_URL_BYTES
+                && mapping.expiresAt() >= 0 && !isExpired(mapping.expiresAt());
+            codes[i] = valid ? mapping.code() : null;
+            if (valid) {
+                issued(codes[i]);
+            }
+            urls.add(valid ? location : null);
+            expiries[i] = valid ? mapping.expiresAt() : 0;
+            redirects[i] = valid ? mapping.redirect() : 0;
+        }
+        String[] assigned = store.putAllIfAbsent(codes, urls, expiries, redirects);
+        List<CompletableFuture<Boolean>> appends = new ArrayList<>();
+        for (int i = 0; i < codes.length; i++) {
+            if (codes[i] != null && codes[i].equals(assigned[i])) {
+                codeGenerator.observe(codes[i]);
+                appends.add(persistImported(codes[i], urls.get(i), expiries[i], redirects[i]));
+            }
+        }
+        return CompletableFuture.allOf(appends.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            long imported = appends.stream().filter(CompletableFuture::join).count();
+            return new ImportResult(imported, batch.size() - imported);
+        });
+    }
+
+    /**
+     * Makes a mapping claimed in the store durable: journals it and writes it to the link store, if
+     * any. The link store decides in the end; should it already hold the URL under another code, that
+     * mapping replaces the claimed one. The claimed mapping is only journaled once the link store has taken
+     * it, so that replaying the journal never brings back a code the link store turned down.
+     */
+    private CompletableFuture<String> persist(String code, String originalUrl, long expiresAt, int redirect,
+                                              CompletableFuture<String> durable) {
+        LinkMapping claimed = new LinkMapping(code, originalUrl, expiresAt, redirect);
+        CompletableFuture<LinkMapping> decided = linkStore == null
+            ? journal.append(code, originalUrl, expiresAt, redirect).thenApply(ignored -> claimed)
+            : Mono.fromFuture(markIssued(), true)
+                .then(Mono.defer(() -> linkStore.putIfAbsent(claimed)))
+                .switchIfEmpty(Mono.error(() -> new CodeGenerationException("Short code " + code + " is taken in the link store")))
+                .flatMap(storedCode -> storedCode.equals(code) ? Mono.just(claimed) : linkStore.getMapping(storedCode)
+                    .switchIfEmpty(Mono.error(() -> new CodeGenerationException("Short code " + storedCode + " expired in the link store"))))
+                .toFuture()
+                .thenCompose(mapping -> mapping == claimed
+                    ? journal.append(code, originalUrl, expiresAt, redirect).thenApply(ignored -> mapping)
+                    : CompletableFuture.completedFuture(mapping));
+        decided.whenComplete((mapping, error) -> {
+            pendingAppends.remove(code, durable);
+            if (error != null) {
+                forget(code);
+                durable.completeExceptionally(error);
+                return;
+            }
+            if (mapping != claimed) {
+                // the existing mapping keeps its own expiry and redirect policy, here and on followers
+                forget(code);
+                issued(mapping.code());
+                store.putIfAbsent(mapping.code(), mapping.url(), mapping.expiresAt(), mapping.redirect());
+            }
+            published(mapping.code(), mapping.url(), mapping.expiresAt(), mapping.redirect());
+            durable.complete(mapping.code());
+        });
+        return durable;
+    }
+
+    /**
+     * Import variant of {@link #persist}, completing with whether the link store accepted the mapping. As
+     * there, the mapping is only journaled once the link store has taken it.
+     */
+    private CompletableFuture<Boolean> persistImported(String code, String url, long expiresAt, int redirect) {
+        CompletableFuture<Boolean> accepted = linkStore == null
+            ? CompletableFuture.completedFuture(true)
+            : markIssued().thenCompose(ignored -> linkStore.putIfAbsent(new LinkMapping(code, url, expiresAt, redirect))
+                    .defaultIfEmpty("").toFuture())
+                .thenApply(code::equals);
+        return accepted.thenCompose(taken -> {
+            if (!taken) {
+                forget(code);
+                return CompletableFuture.completedFuture(false);
+            }
+            return journal.append(code, url, expiresAt, redirect).thenApply(ignored -> {
+                published(code, url, expiresAt, redirect);
+                return true;
+            });
+        });
+    }
+
+    /**
+     * Looks a code missing from memory up through the single-flight layer when it is enabled
+     */
+    private Mono<String> load(String code, Function<String, Mono<String>> loader) {
+        return lookups != null ? lookups.load(code, loader) : loader.apply(code);
+    }
+
+    /**
+     * Looks a code missing from the store up in the link store and caches the mapping found, ahead of
+     * handing its URL to the lookups waiting for it
+     */
+    private Mono<String> readThrough(String code) {
+        return linkStore.getMapping(code).map(found -> {
+            store.putIfAbsent(code, found.url(), found.expiresAt(), found.redirect());
+            return found.url();
+        });
+    }
+
+    /**
+     * Looks a URL missing from the store up in the link store and caches the mapping found
+     */
+    private Mono<String> loadCode(String location) {
+        return linkStore.getByUrl(location).doOnNext(code -> {
+            issued(code);
+            store.putIfAbsent(code, location);
+        });
+    }
+
+    /**
+     * Batch variant of {@link #loadCode(String)}, run ahead of {@link #assignCodes(List)} so that it
+     * finds the URLs already in the link store
+     */
+    private Mono<Void> loadCodes(List<String> locations) {
+        if (linkStore == null) {
+            return Mono.empty();
+        }
+        return linkStore.getAllByUrl(locations)
+            .doOnNext(codes -> codes.forEach((location, code) -> {
+                issued(code);
+                store.putIfAbsent(code, location);
+            }))
+            .then();
+    }
+
+    /**
+     * Removes a code that could not be made durable from both tiers
+     */
+    private void forget(String code) {
+        store.remove(code);
+        if (coldStore != null) {
+            coldStore.remove(code);
+        }
+    }
+
+    /**
+     * Records a code in the filter, ahead of storing it so that lookups never miss it
+     */
+    private void issued(String code) {
+        if (codeFilter != null) {
+            codeFilter.add(code);
+        }
+        if (lookups != null) {
+            lookups.forget(code);
+        }
+    }
+
+    /**
+     * Hands a durable mapping to the replication feed, before its caller is answered so that the offset the
+     * caller is given covers it
+     */
+    private void published(String code, String url, long expiresAt, int redirect) {
+        if (changeFeed != null) {
+            changeFeed.append(new LinkMapping(code, url, expiresAt, redirect));
+        }
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw readOnlyReplica();
+        }
+    }
+
+    private static ReadOnlyReplicaException readOnlyReplica() {
+        return new ReadOnlyReplicaException("This instance is a read-only replica, send writes to the replication leader");
+    }
+
+    private boolean mayBeIssued(String code) {
+        // until it is filled the filter may lack codes of earlier runs
+        return codeFilter == null || !codeFilterFilled || codeFilter.mightContain(code);
+    }
+
+    /**
+     * Adds every code of the link store to the filter in the background, so that startup does not wait for a
+     * scan of the whole store. Lookups bypass the filter until it is filled.
+     */
+    private void fillCodeFilter() {
+        codeFilterFilled = false;
+        codeFilterFill = linkStore.scan().subscribe(
+            mapping -> codeFilter.add(mapping.code()),
+            error -> log.warn("Unable to fill the issued code filter, lookups bypass it", error),
+            () -> {
+                codeFilterFilled = true;
+                log.info("Issued code filter filled from the link store");
+            });
+    }
+
+    /**
+     * Records the generator's high-water mark in the link store ahead of a write to it, so that the recorded
+     * mark always covers the codes in the store. The mark only moves when the generator leases a new block;
+     * marks are written one after another, in the order the generator advanced.
+     *
+     * @return completes once a mark covering every code generated or observed so far is recorded
+     */
+    private CompletableFuture<Void> markIssued() {
+        synchronized (markLock) {
+            // read under the lock, so that a later mark is never written before an earlier one
+            String mark = codeGenerator.highWaterMark();
+            if (mark != null && !mark.equals(recordedMark)) {
+                recordedMark = mark;
+                CompletableFuture<Void> written = markWritten.exceptionally(ignored -> null)
+                    .thenCompose(ignored -> linkStore.putHighWaterMark(mark).toFuture());
+                written.whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        synchronized (markLock) {
+                            // written again by the next write
+                            if (mark.equals(recordedMark)) {
+                                recordedMark = null;
+                            }
+                        }
+                    }
+                });
+                markWritten = written;
+            }
+            return markWritten;
+        }
+    }
+
+    private boolean isColdCode(String code) {
+        return coldStore != null && coldStore.contains(code);
+    }
+
+    private CompletableFuture<String> whenDurable(String code) {
+        CompletableFuture<String> pending = pendingAppends.get(code);
+        return pending != null ? pending : CompletableFuture.completedFuture(code);
+    }
+
+    private static String toLocation(String originalUrl) {
+        String location = RedirectLocation.of(originalUrl);
+        if (location == null) {
+            throw new InvalidUrlException("Invalid URL format");
+        }
+        return location;
+    }
+
+    /**
+     * Retrains the store's URL dictionary in the background: once right away for replayed
+     * mappings, soon after startup, and then every retrain interval.
+     */
+    private ScheduledExecutorService startRetrainer(ShortLinkProperties.Compression compression) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "url-dictionary-retrainer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runnable retrain = () -> store.retrainDictionary(compression.sampleSize(), compression.dictionarySize());
+        long interval = compression.retrainInterval().toMillis();
+        executor.execute(retrain);
+        executor.scheduleWithFixedDelay(retrain, Math.min(interval, FIRST_RETRAIN_DELAY.toMillis()), interval,
+            TimeUnit.MILLISECONDS);
+        return executor;
+    }
+
+    /**
+     * Reclaims expired mappings every second, and then the cold tier's dead records, in batches so that each
+     * holds up writers only briefly
+     */
+    private ScheduledExecutorService startReaper() {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "url-expiry-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = EXPIRY_INTERVAL.toMillis();
+        executor.scheduleWithFixedDelay(() -> {
+            int processed;
+            do {
+                processed = store.expireDue(EXPIRY_BATCH_SIZE);
+            } while (processed == EXPIRY_BATCH_SIZE);
+            if (coldStore != null) {
+                reclaimColdRecords();
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        return executor;
+    }
+
+    private void reclaimColdRecords() {
+        try {
+            int swept = 0;
+            int processed;
+            do {
+                processed = coldStore.sweepExpired(EXPIRY_BATCH_SIZE);
+                swept += processed;
+            } while (processed == EXPIRY_BATCH_SIZE && swept < COLD_SWEEP_SIZE);
+            do {
+                processed = coldStore.compact(EXPIRY_BATCH_SIZE);
+            } while (processed == EXPIRY_BATCH_SIZE);
+        } catch (UncheckedIOException e) {
+            // a failure must not cancel the reaper, the next run tries again
+            log.warn("Unable to reclaim cold tier records", e);
+        }
+    }
+
+    private void restore(String code, String originalUrl, long expiresAt, int redirect) {
+        // expired codes still count as issued
+        codeGenerator.observe(code);
+        if (!isExpired(expiresAt)) {
+            issued(code);
+            store.put(code, originalUrl, expiresAt, redirect);
+        }
+    }
+
+    private static boolean isExpired(long expiresAt) {
+        return expiresAt != 0 && expiresAt <= System.currentTimeMillis();
     }
 }
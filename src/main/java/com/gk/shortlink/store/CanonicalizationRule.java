@@ -0,0 +1,33 @@
+package com.gk.shortlink.store;
+
+/**
+ * Rewrites applied to a URL before it is compared for deduplication. All of them keep the URL
+ * pointing at the same resource for ordinary web servers.
+ */
+public enum CanonicalizationRule {
+
+    /**
+     * {@code HTTPS://Example.COM} becomes {@code https://example.com}; both are case-insensitive
+     */
+    LOWERCASE_SCHEME_AND_HOST,
+
+    /**
+     * {@code http://example.com:80/} becomes {@code http://example.com/}
+     */
+    REMOVE_DEFAULT_PORT,
+
+    /**
+     * {@code http://example.com} becomes {@code http://example.com/}
+     */
+    ADD_EMPTY_PATH,
+
+    /**
+     * {@code /page#section} becomes {@code /page}; the fragment is not sent to the server
+     */
+    REMOVE_FRAGMENT,
+
+    /**
+     * {@code ?b=2&a=1} becomes {@code ?a=1&b=2}; most, but not all, servers ignore parameter order
+     */
+    SORT_QUERY_PARAMETERS
+}
@@ -0,0 +1,247 @@
+package com.gk.shortlink.store;
+
+import com.gk.shortlink.generator.Base62;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Blocked Bloom filter over every code issued, consulted before a lookup so that codes that were never issued,
+ * such as those probed by bots, are answered without touching the store, the cold tier or the link store.
+ * <p>
+ * Each code sets its bits in a single 512-bit block, one cache line, so a lookup costs one cache miss however
+ * many hash functions are used. Bits are set with an atomic OR and never cleared, so adds and lookups are
+ * lock-free and a code added before it is stored is never reported absent. Codes removed from the store stay
+ * in the filter, which only makes them false positives.
+ * <p>
+ * The filter scales: once the codes added exceed the expected number, a stage twice the size with half the
+ * false positive rate is appended and receives the new codes. Lookups check every stage, and the rates of
+ * all stages sum to at most the configured rate.
+ */
+public final class CodeBloomFilter {
+
+    private static final VarHandle BITS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int BLOCK_BITS = 512;
+    private static final int BLOCK_LONGS = BLOCK_BITS / Long.SIZE;
+    // bit positions are independent 9-bit slices of the hash; double hashing would correlate codes sharing a step
+    private static final int BIT_INDEX_BITS = 9;
+    private static final int BIT_INDEXES_PER_HASH = Long.SIZE / BIT_INDEX_BITS;
+    // 256MB, room for over 100M codes at 1%
+    private static final int MAX_BLOCKS = 1 << 22;
+    private static final int MAX_HASHES = 16;
+    // blocking concentrates bits in one cache line; a fifth more bits per code makes up for the unevenness
+    private static final double BLOCKING_OVERHEAD = 1.2;
+    // each stage gets this share of the rate left by the previous ones, so the stages sum to the configured rate
+    private static final double TIGHTENING_RATIO = 0.5;
+    private static final long SEED = 0x2545F4914F6CDD1DL;
+    private static final double MAX_CODES_PER_BLOCK = 512;
+
+    private final double falsePositiveRate;
+    private final AtomicReference<Stage[]> stages;
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * @param expectedCodes     codes the first stage is sized for
+     * @param falsePositiveRate share of codes never issued that may still be reported as present
+     */
+    public CodeBloomFilter(long expectedCodes, double falsePositiveRate) {
+        if (expectedCodes <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Expected codes must be positive and the false positive rate between 0 and 1");
+        }
+        this.falsePositiveRate = falsePositiveRate;
+        this.stages = new AtomicReference<>(new Stage[]{new Stage(expectedCodes, falsePositiveRate * (1 - TIGHTENING_RATIO))});
+    }
+
+    /**
+     * Method to record an issued code, to be called before the code becomes visible in the store
+     *
+     * @param code short code
+     */
+    public void add(String code) {
+        long key = Base62.toKey(code);
+        if (key < 0) {
+            return;
+        }
+        long hash = Hashing.mix(key ^ SEED);
+        Stage[] current = stages.get();
+        Stage stage = current[current.length - 1];
+        if (stage.add(hash) > stage.capacity) {
+            grow(current);
+        }
+    }
+
+    /**
+     * Method to check whether a code may have been issued
+     *
+     * @param code short code
+     * @return false if the code was definitely never added, true if it may have been
+     */
+    public boolean mightContain(String code) {
+        long key = Base62.toKey(code);
+        if (key >= 0) {
+            long hash = Hashing.mix(key ^ SEED);
+            for (Stage stage : stages.get()) {
+                if (stage.mightContain(hash)) {
+                    return true;
+                }
+            }
+        }
+        rejections.increment();
+        return false;
+    }
+
+    /**
+     * @return codes added, counting codes added more than once each time
+     */
+    public long codeCount() {
+        long count = 0;
+        for (Stage stage : stages.get()) {
+            count += stage.count.get();
+        }
+        return count;
+    }
+
+    /**
+     * @return lookups answered as definitely absent
+     */
+    public long rejectionCount() {
+        return rejections.sum();
+    }
+
+    /**
+     * @return bytes held by the bit arrays of all stages
+     */
+    public long memoryBytes() {
+        long bytes = 0;
+        for (Stage stage : stages.get()) {
+            bytes += (long) stage.bits.length * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * Method to estimate the current false positive rate from the bits actually set. Each stage keeps a running
+     * count of its set bits, so the cost does not grow with the size of the filter.
+     *
+     * @return probability that a code never issued is reported as present
+     */
+    public double falsePositiveRate() {
+        double absent = 1;
+        for (Stage stage : stages.get()) {
+            absent *= 1 - stage.falsePositiveRate();
+        }
+        return 1 - absent;
+    }
+
+    /**
+     * @return false positive rate the filter is configured for
+     */
+    public double targetFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    private void grow(Stage[] current) {
+        Stage last = current[current.length - 1];
+        if (last.bits.length / BLOCK_LONGS >= MAX_BLOCKS) {
+            // as large as a stage gets, more codes only raise the false positive rate
+            return;
+        }
+        Stage[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = new Stage(last.capacity * 2, last.targetRate * TIGHTENING_RATIO);
+        // a lost race means another thread appended the same stage
+        stages.compareAndSet(current, grown);
+    }
+
+    private static final class Stage {
+
+        private final long[] bits;
+        private final int blockMask;
+        private final int hashes;
+        private final long capacity;
+        private final double targetRate;
+        private final AtomicLong count = new AtomicLong();
+        private final LongAdder setBits = new LongAdder();
+
+        Stage(long capacity, double targetRate) {
+            double bitsPerCode = -Math.log(targetRate) / (Math.log(2) * Math.log(2));
+            long blocks = (long) Math.ceil(capacity * bitsPerCode * BLOCKING_OVERHEAD / BLOCK_BITS);
+            int size = (int) Math.min(MAX_BLOCKS, Math.max(1, Long.highestOneBit(Math.max(1, blocks - 1)) << 1));
+            this.bits = new long[size * BLOCK_LONGS];
+            this.blockMask = size - 1;
+            this.hashes = (int) Math.max(1, Math.min(MAX_HASHES, Math.round(bitsPerCode * Math.log(2))));
+            this.capacity = capacity;
+            this.targetRate = targetRate;
+        }
+
+        /**
+         * @return codes added to this stage, including this one
+         */
+        long add(long hash) {
+            int base = block(hash);
+            long positions = hash;
+            for (int i = 0; i < hashes; i++, positions >>>= BIT_INDEX_BITS) {
+                if (i > 0 && i % BIT_INDEXES_PER_HASH == 0) {
+                    positions = Hashing.mix(hash + i);
+                }
+                int bit = (int) positions & (BLOCK_BITS - 1);
+                int index = base + (bit >>> 6);
+                long mask = 1L << bit;
+                // only the thread whose OR flips the bit counts it
+                if (((long) BITS.getVolatile(bits, index) & mask) == 0
+                    && ((long) BITS.getAndBitwiseOr(bits, index, mask) & mask) == 0) {
+                    setBits.increment();
+                }
+            }
+            return count.incrementAndGet();
+        }
+
+        boolean mightContain(long hash) {
+            int base = block(hash);
+            long positions = hash;
+            for (int i = 0; i < hashes; i++, positions >>>= BIT_INDEX_BITS) {
+                if (i > 0 && i % BIT_INDEXES_PER_HASH == 0) {
+                    positions = Hashing.mix(hash + i);
+                }
+                int bit = (int) positions & (BLOCK_BITS - 1);
+                if (((long) BITS.getVolatile(bits, base + (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * A code never added hits one block and is reported present if all its bits are set there, so the rate
+         * is the mean over the blocks of their fill ratio to the power of the number of hashes. Codes spread over
+         * the blocks in a Poisson distribution whose mean follows from the overall fill, so the mean is taken
+         * over that distribution rather than over the blocks themselves.
+         */
+        double falsePositiveRate() {
+            double fill = setBits.sum() / (bits.length * (double) Long.SIZE);
+            double codesPerBlock = -Math.log1p(-Math.min(fill, 1)) * BLOCK_BITS / hashes;
+            if (!(codesPerBlock < MAX_CODES_PER_BLOCK)) {
+                // blocks this full are all but saturated, and the Poisson terms would underflow
+                return Math.pow(fill, hashes);
+            }
+            double sum = 0;
+            double probability = Math.exp(-codesPerBlock);
+            int last = (int) Math.ceil(codesPerBlock + 10 * Math.sqrt(codesPerBlock) + 10);
+            for (int codes = 0; codes <= last; codes++) {
+                if (codes > 0) {
+                    probability *= codesPerBlock / codes;
+                }
+                sum += probability * Math.pow(-Math.expm1(-(double) codes * hashes / BLOCK_BITS), hashes);
+            }
+            return sum;
+        }
+
+        private int block(long hash) {
+            // the top bits choose the block, the lower ones the bits inside it
+            return (int) (Hashing.mix(hash) >>> 38 & blockMask) * BLOCK_LONGS;
+        }
+    }
+}
@@ -0,0 +1,787 @@
+package com.gk.shortlink.store;
+
+import com.gk.shortlink.dto.LinkMapping;
+import com.gk.shortlink.generator.Base62;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
+
+/**
+ * Cold tier for mappings evicted from {@link CompactMappingStore}, held in memory-mapped files on local disk.
+ * Neither the index nor the URLs live on the Java heap, so the heap and the work of the garbage collector do
+ * not grow with the number of links; the operating system keeps the recently used pages in memory.
+ * <pre>
+ * segment := record*
+ * record  := codeKey:long expiresAt:long redirect:int urlLength:int url:utf8
+ * index   := slot[capacity]
+ * slot    := codeKey + 1:long offset:long
+ * </pre>
+ * Records are appended to preallocated segment files and never span two of them. The index is an
+ * open-addressing table in a file of its own, mapped in pages of 1GB as a single mapping cannot exceed 2GB.
+ * It is rebuilt without removed slots once half of its slots are used, into a file of twice the capacity if
+ * more than a quarter of them hold mappings. A slot whose offset is {@code -1} belongs to a removed mapping
+ * and is skipped by probes.
+ * <p>
+ * Records of remapped and removed mappings are dead, and so are those of expired mappings once
+ * {@link #sweepExpired(int)} has come across them. {@link #compact(int)} moves the live records out of the
+ * sealed segment with the most dead bytes once half of its bytes are dead, and deletes the segment. Beyond
+ * the disk budget, it drops the mappings of the oldest segment instead.
+ * <p>
+ * The tier is a spill area, not a store of record: it is emptied when opened and refilled as the in-memory
+ * store evicts, including while the journal is replayed. A mapping promoted back to the in-memory store keeps
+ * its record, so demoting it again costs a comparison only.
+ * <p>
+ * Reads are lock-free through {@link StampedLock} optimistic reads; writes are serialised.
+ */
+public final class ColdMappingStore implements AutoCloseable {
+
+    static final int RECORD_HEADER_SIZE = 24;
+    public static final int MIN_SEGMENT_SIZE = RECORD_HEADER_SIZE + CompactMappingStore.MAX_URL_BYTES;
+    public static final long UNBOUNDED = Long.MAX_VALUE;
+
+    private static final String SEGMENT_PREFIX = "cold-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final int ITERATION_CHUNK = 4096;
+    private static final int SLOT_SIZE = 16;
+    private static final int PAGE_SLOT_BITS = 26;
+    private static final long INITIAL_SLOTS = 1 << 16;
+    private static final long REMOVED = -1;
+
+    private final Path dataDir;
+    private final int segmentSize;
+    private final long diskBudget;
+    private final Clock clock;
+    private final StampedLock lock = new StampedLock();
+
+    // by segment number, null once a segment is deleted
+    private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private int[] recordBytes = new int[0];
+    private int[] deadBytes = new int[0];
+    private int segmentCount;
+    private Index index;
+    private int indexGeneration;
+    // offset of the next record, segment number times segment size plus the position in the segment
+    private long end;
+    private long size;
+    private long demotions;
+    private long dead;
+    private long drops;
+    private long sweepCursor;
+    // segment being compacted, and the position in it of the next record to move or drop
+    private int victim = -1;
+    private int victimPosition;
+    private boolean dropping;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private ColdMappingStore(Path dataDir, int segmentSize, long diskBudget, Clock clock) {
+        this.dataDir = dataDir;
+        this.segmentSize = segmentSize;
+        this.diskBudget = diskBudget;
+        this.clock = clock;
+    }
+
+    /**
+     * Method to open an empty cold tier in a directory, removing the files of an earlier run
+     *
+     * @param dataDir     directory holding the segment and index files
+     * @param segmentSize size of each preallocated segment file, at least {@link #MIN_SEGMENT_SIZE}
+     * @return opened, empty cold tier
+     */
+    public static ColdMappingStore open(Path dataDir, int segmentSize) {
+        return open(dataDir, segmentSize, Clock.systemUTC());
+    }
+
+    /**
+     * Method to open an empty cold tier in a directory, removing the files of an earlier run
+     *
+     * @param dataDir     directory holding the segment and index files
+     * @param segmentSize size of each preallocated segment file, at least {@link #MIN_SEGMENT_SIZE}
+     * @param clock       time source deciding which mappings have expired
+     * @return opened, empty cold tier
+     */
+    public static ColdMappingStore open(Path dataDir, int segmentSize, Clock clock) {
+        return open(dataDir, segmentSize, UNBOUNDED, clock);
+    }
+
+    /**
+     * Method to open an empty cold tier in a directory, removing the files of an earlier run
+     *
+     * @param dataDir     directory holding the segment and index files
+     * @param segmentSize size of each preallocated segment file, at least {@link #MIN_SEGMENT_SIZE}
+     * @param diskBudget  bytes of segment files beyond which {@link #compact(int)} drops the oldest mappings,
+     *                    at least two segments, or {@link #UNBOUNDED}
+     * @param clock       time source deciding which mappings have expired
+     * @return opened, empty cold tier
+     */
+    public static ColdMappingStore open(Path dataDir, int segmentSize, long diskBudget, Clock clock) {
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Segment size must be at least " + MIN_SEGMENT_SIZE + " but was " + segmentSize);
+        }
+        if (diskBudget < 2L * segmentSize) {
+            throw new IllegalArgumentException("Disk budget must hold at least two segments of " + segmentSize
+                + " bytes but was " + diskBudget);
+        }
+        ColdMappingStore store = new ColdMappingStore(dataDir, segmentSize, diskBudget, clock);
+        try {
+            Files.createDirectories(dataDir);
+            deleteFiles(dataDir);
+            store.index = Index.create(store.indexPath(0), INITIAL_SLOTS);
+            return store;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open cold tier in " + dataDir, e);
+        }
+    }
+
+    /**
+     * Method to look up a mapping by its code
+     *
+     * @param code short code
+     * @return mapping, or null if the code is unknown or its mapping has expired
+     */
+    public LinkMapping get(String code) {
+        long key = Base62.toKey(code);
+        LinkMapping mapping = key < 0 ? null : find(key);
+        if (mapping != null && mapping.expires() && mapping.expiresAt() <= clock.millis()) {
+            mapping = null;
+        }
+        (mapping != null ? hits : misses).increment();
+        return mapping;
+    }
+
+    /**
+     * Method to check whether a code is held, expired or not until its record is reclaimed, without counting a
+     * lookup
+     *
+     * @param code short code
+     * @return true if the code is taken in the cold tier
+     */
+    public boolean contains(String code) {
+        long key = Base62.toKey(code);
+        return key >= 0 && find(key) != null;
+    }
+
+    /**
+     * Method to take over a mapping evicted from the in-memory store. A code that is held already is
+     * remapped, unless it is held with the same mapping.
+     *
+     * @param code      short code
+     * @param url       original URL
+     * @param expiresAt epoch milliseconds at which the mapping expires, 0 if it never does
+     */
+    public void put(String code, String url, long expiresAt) {
+        put(code, url, expiresAt, 0);
+    }
+
+    /**
+     * Variant of {@link #put(String, String, long)} for mappings with redirect policy bits of their own
+     *
+     * @param code      short code
+     * @param url       original URL
+     * @param expiresAt epoch milliseconds at which the mapping expires, 0 if it never does
+     * @param redirect  redirect policy bits, 0 for the defaults
+     */
+    public void put(String code, String url, long expiresAt, int redirect) {
+        long key = Base62.toKey(code);
+        if (key < 0) {
+            throw new IllegalArgumentException("Invalid short code: " + code);
+        }
+        byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > CompactMappingStore.MAX_URL_BYTES) {
+            throw new IllegalArgumentException("URL exceeds " + CompactMappingStore.MAX_URL_BYTES + " bytes");
+        }
+        long stamp = lock.writeLock();
+        try {
+            long slot = index.find(key);
+            if (slot >= 0 && index.offset(slot) != REMOVED && holds(index.offset(slot), bytes, expiresAt, redirect)) {
+                return;
+            }
+            if (slot < 0 && (index.used + 1) * 2 > index.capacity) {
+                grow();
+            }
+            long offset = append(key, bytes, expiresAt, redirect);
+            if (slot < 0) {
+                index.set(index.freeSlot(key), key, offset);
+                index.used++;
+                size++;
+            } else {
+                if (index.offset(slot) == REMOVED) {
+                    size++;
+                } else {
+                    markDead(index.offset(slot));
+                }
+                index.setOffset(slot, offset);
+            }
+            demotions++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Method to remove the mapping of a code
+     *
+     * @param code short code
+     * @return true if the code was held
+     */
+    public boolean remove(String code) {
+        long key = Base62.toKey(code);
+        if (key < 0) {
+            return false;
+        }
+        long stamp = lock.writeLock();
+        try {
+            long slot = index.find(key);
+            if (slot < 0 || index.offset(slot) == REMOVED) {
+                return false;
+            }
+            markDead(index.offset(slot));
+            index.setOffset(slot, REMOVED);
+            size--;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Method to visit every mapping that has not expired. Records are walked in the order they were
+     * demoted without blocking writers; mappings changed during the walk may or may not be visited, and
+     * mappings moved by a compaction during the walk may be visited twice.
+     *
+     * @param action receiver of each mapping
+     */
+    public void forEach(MappingSink action) {
+        long cursor = 0;
+        while (cursor >= 0) {
+            cursor = forEachFrom(cursor, ITERATION_CHUNK, action);
+        }
+    }
+
+    /**
+     * Method to visit up to {@code limit} records from a cursor, so that callers can walk the tier at their
+     * own pace. Mappings are copied out under the read lock and handed to the action after releasing it.
+     *
+     * @param cursor position to resume from, 0 to start
+     * @param limit  maximum number of records to examine
+     * @param action receiver of each mapping that has not expired
+     * @return cursor to resume from, or -1 once every record has been examined
+     */
+    public long forEachFrom(long cursor, int limit, MappingSink action) {
+        long now = clock.millis();
+        List<LinkMapping> chunk;
+        long next;
+        long stamp = lock.readLock();
+        try {
+            chunk = new ArrayList<>(Math.min(limit, ITERATION_CHUNK));
+            next = recordAt(cursor);
+            for (int examined = 0; examined < limit && next < end; examined++) {
+                int position = position(next);
+                long key = segmentAt(next).getLong(position) - 1;
+                long slot = index.find(key);
+                if (slot >= 0 && index.offset(slot) == next) {
+                    LinkMapping mapping = read(next);
+                    if (!mapping.expires() || mapping.expiresAt() > now) {
+                        chunk.add(mapping);
+                    }
+                }
+                next = recordAt(next + RECORD_HEADER_SIZE + segmentAt(next).getInt(position + 20));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        chunk.forEach(mapping -> action.accept(mapping.code(), mapping.url(), mapping.expiresAt(), mapping.redirect()));
+        return next < end ? next : -1;
+    }
+
+    /**
+     * Method to examine up to {@code limit} records from where the previous sweep stopped and remove the
+     * mappings that have expired, so that their records count as dead. A sweep that reaches the latest record
+     * starts the next one over from the oldest.
+     *
+     * @param limit maximum number of records to examine
+     * @return number of records examined, less than {@code limit} once a pass over the tier is complete
+     */
+    public int sweepExpired(int limit) {
+        long now = clock.millis();
+        long stamp = lock.writeLock();
+        try {
+            int examined = 0;
+            long next = recordAt(sweepCursor);
+            for (; examined < limit && next < end; examined++) {
+                MappedByteBuffer segment = segmentAt(next);
+                int position = position(next);
+                long expiresAt = segment.getLong(position + 8);
+                if (expiresAt != 0 && expiresAt <= now) {
+                    long slot = index.find(segment.getLong(position) - 1);
+                    if (slot >= 0 && index.offset(slot) == next) {
+                        markDead(next);
+                        index.setOffset(slot, REMOVED);
+                        size--;
+                    }
+                }
+                next = recordAt(next + RECORD_HEADER_SIZE + segment.getInt(position + 20));
+            }
+            sweepCursor = next < end ? next : 0;
+            return examined;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Method to reclaim segment files a batch of records at a time. Live records of a sealed segment at least
+     * half dead are appended again, dropping those that have expired, and the segment is deleted once all of
+     * them have moved. While the segment files exceed the disk budget and no segment is that dead, the
+     * mappings of the oldest segment are dropped instead.
+     *
+     * @param limit maximum number of records to examine
+     * @return number of records examined, less than {@code limit} once there is nothing left to reclaim
+     */
+    public int compact(int limit) {
+        long now = clock.millis();
+        long stamp = lock.writeLock();
+        try {
+            int examined = 0;
+            while (examined < limit && (victim >= 0 || chooseVictim())) {
+                examined += compactVictim(limit - examined, now);
+            }
+            return examined;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return number of mappings held, expired ones included until they are swept or remapped
+     */
+    public long size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return number of mappings written to the tier, not counting those it held already
+     */
+    public long demotionCount() {
+        long stamp = lock.readLock();
+        try {
+            return demotions;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return bytes of segment and index files mapped, most of which the file system allocates lazily
+     */
+    public long mappedBytes() {
+        long stamp = lock.readLock();
+        try {
+            return (long) segmentCount * segmentSize + index.capacity * SLOT_SIZE;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return bytes of records no longer referenced that are still in segment files, those of expired mappings
+     * counted once a sweep has come across them
+     */
+    public long deadBytes() {
+        long stamp = lock.readLock();
+        try {
+            return dead;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return number of mappings that had not expired but were dropped to stay within the disk budget
+     */
+    public long dropCount() {
+        long stamp = lock.readLock();
+        try {
+            return drops;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Removes the tier's files. The mappings stay readable until the store is garbage collected, as the
+     * mapped memory outlives the files.
+     */
+    @Override
+    public void close() {
+        long stamp = lock.writeLock();
+        try {
+            deleteFiles(dataDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to delete cold tier files in " + dataDir, e);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // ---- reads, safe to run optimistically as they only dereference bounds-checked state
+
+    private LinkMapping find(long key) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                LinkMapping mapping = readMapping(key);
+                if (lock.validate(stamp)) {
+                    return mapping;
+                }
+            } catch (RuntimeException e) {
+                // a concurrent writer moved things underneath us; retry under the lock
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return readMapping(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private LinkMapping readMapping(long key) {
+        long slot = index.find(key);
+        if (slot < 0) {
+            return null;
+        }
+        long offset = index.offset(slot);
+        return offset == REMOVED ? null : read(offset);
+    }
+
+    private LinkMapping read(long offset) {
+        MappedByteBuffer segment = segmentAt(offset);
+        int position = position(offset);
+        long key = segment.getLong(position) - 1;
+        long expiresAt = segment.getLong(position + 8);
+        int redirect = segment.getInt(position + 16);
+        int length = segment.getInt(position + 20);
+        if (length < 0 || length > segmentSize - position - RECORD_HEADER_SIZE) {
+            throw new IllegalStateException("Corrupt cold tier record at " + offset);
+        }
+        byte[] bytes = new byte[length];
+        segment.get(position + RECORD_HEADER_SIZE, bytes);
+        return new LinkMapping(Base62.fromKey(key), new String(bytes, StandardCharsets.UTF_8), expiresAt, redirect);
+    }
+
+    private boolean holds(long offset, byte[] bytes, long expiresAt, int redirect) {
+        MappedByteBuffer segment = segmentAt(offset);
+        int position = position(offset);
+        if (segment.getLong(position + 8) != expiresAt || segment.getInt(position + 16) != redirect
+            || segment.getInt(position + 20) != bytes.length) {
+            return false;
+        }
+        byte[] stored = new byte[bytes.length];
+        segment.get(position + RECORD_HEADER_SIZE, stored);
+        return Arrays.equals(stored, bytes);
+    }
+
+    private MappedByteBuffer segmentAt(long offset) {
+        return segments[(int) (offset / segmentSize)];
+    }
+
+    /**
+     * @return offset of the first record at or after the given one, or the end if there is none
+     */
+    private long recordAt(long offset) {
+        while (offset < end) {
+            MappedByteBuffer segment = segmentAt(offset);
+            int position = position(offset);
+            if (segment != null && position + RECORD_HEADER_SIZE <= segmentSize && segment.getLong(position) != 0) {
+                return offset;
+            }
+            // unused tail of a segment or a deleted segment, the next record starts the following one
+            offset = (offset / segmentSize + 1) * segmentSize;
+        }
+        return end;
+    }
+
+    private int position(long offset) {
+        return (int) (offset % segmentSize);
+    }
+
+    // ---- writes, always under the write lock
+
+    private long append(long key, byte[] bytes, long expiresAt, int redirect) {
+        int recordSize = RECORD_HEADER_SIZE + bytes.length;
+        if (segments.length == 0 || position(end) + recordSize > segmentSize || end == (long) segments.length * segmentSize) {
+            openSegment();
+        }
+        long offset = end;
+        MappedByteBuffer segment = segmentAt(offset);
+        int position = position(offset);
+        segment.putLong(position + 8, expiresAt);
+        segment.putInt(position + 16, redirect);
+        segment.putInt(position + 20, bytes.length);
+        segment.put(position + RECORD_HEADER_SIZE, bytes);
+        // the key is written last, a zero key marks the unused tail of a segment
+        segment.putLong(position, key + 1);
+        recordBytes[segments.length - 1] += recordSize;
+        end += recordSize;
+        return offset;
+    }
+
+    private void markDead(long offset) {
+        int number = (int) (offset / segmentSize);
+        int bytes = RECORD_HEADER_SIZE + segments[number].getInt(position(offset) + 20);
+        deadBytes[number] += bytes;
+        dead += bytes;
+    }
+
+    private boolean chooseVictim() {
+        // the last segment is the one appended to
+        int deadest = -1;
+        int oldest = -1;
+        for (int number = 0; number < segments.length - 1; number++) {
+            if (segments[number] != null) {
+                oldest = oldest < 0 ? number : oldest;
+                deadest = deadest < 0 || deadBytes[number] > deadBytes[deadest] ? number : deadest;
+            }
+        }
+        if (deadest >= 0 && deadBytes[deadest] * 2L >= recordBytes[deadest]) {
+            victim = deadest;
+            dropping = false;
+        } else if (oldest >= 0 && (long) segmentCount * segmentSize > diskBudget) {
+            victim = oldest;
+            dropping = true;
+        } else {
+            return false;
+        }
+        victimPosition = 0;
+        return true;
+    }
+
+    /**
+     * @return records examined in the segment being compacted, less than {@code limit} once it is deleted
+     */
+    private int compactVictim(int limit, long now) {
+        MappedByteBuffer segment = segments[victim];
+        long base = (long) victim * segmentSize;
+        int position = victimPosition;
+        int examined = 0;
+        for (; examined < limit && position + RECORD_HEADER_SIZE <= segmentSize && segment.getLong(position) != 0;
+             examined++) {
+            long key = segment.getLong(position) - 1;
+            long expiresAt = segment.getLong(position + 8);
+            int length = segment.getInt(position + 20);
+            long slot = index.find(key);
+            if (slot >= 0 && index.offset(slot) == base + position) {
+                markDead(base + position);
+                boolean expired = expiresAt != 0 && expiresAt <= now;
+                if (dropping || expired) {
+                    index.setOffset(slot, REMOVED);
+                    size--;
+                    if (!expired) {
+                        drops++;
+                    }
+                } else {
+                    byte[] url = new byte[length];
+                    segment.get(position + RECORD_HEADER_SIZE, url);
+                    index.setOffset(slot, append(key, url, expiresAt, segment.getInt(position + 16)));
+                }
+            }
+            position += RECORD_HEADER_SIZE + length;
+        }
+        if (examined < limit) {
+            deleteSegment(victim);
+            victim = -1;
+        } else {
+            victimPosition = position;
+        }
+        return examined;
+    }
+
+    private void deleteSegment(int number) {
+        // every record in it is dead by now; optimistic readers still holding it fail and retry under the lock
+        segments[number] = null;
+        segmentCount--;
+        dead -= deadBytes[number];
+        try {
+            Files.deleteIfExists(segmentPath(number));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to delete cold tier segment " + segmentPath(number), e);
+        }
+    }
+
+    private void openSegment() {
+        int number = segments.length;
+        Path path = segmentPath(number);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping outlives the channel and extends the file to its full size
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            segments = Arrays.copyOf(segments, number + 1);
+            segments[number] = segment;
+            recordBytes = Arrays.copyOf(recordBytes, number + 1);
+            deadBytes = Arrays.copyOf(deadBytes, number + 1);
+            segmentCount++;
+            end = (long) number * segmentSize;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create cold tier segment " + path, e);
+        }
+    }
+
+    private void grow() {
+        Index previous = index;
+        Path path = indexPath(indexGeneration + 1);
+        long capacity = previous.capacity;
+        // removed slots are left behind, so a table mostly holding them is rebuilt at the same capacity
+        while ((size + 1) * 4 > capacity) {
+            capacity *= 2;
+        }
+        try {
+            Index grown = Index.create(path, capacity);
+            for (long slot = 0; slot < previous.capacity; slot++) {
+                long offset = previous.offset(slot);
+                if (previous.key(slot) != 0 && offset != REMOVED) {
+                    long key = previous.key(slot) - 1;
+                    grown.set(grown.freeSlot(key), key, offset);
+                    grown.used++;
+                }
+            }
+            index = grown;
+            indexGeneration++;
+            // optimistic readers may still probe the previous index, its mapping stays valid without the file
+            Files.deleteIfExists(previous.path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to grow cold tier index " + path, e);
+        }
+    }
+
+    private Path segmentPath(int number) {
+        return dataDir.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX);
+    }
+
+    private Path indexPath(int generation) {
+        return dataDir.resolve(SEGMENT_PREFIX + generation + INDEX_SUFFIX);
+    }
+
+    private static void deleteFiles(Path dataDir) throws IOException {
+        try (Stream<Path> files = Files.list(dataDir)) {
+            for (Path path : files.toList()) {
+                String name = path.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && (name.endsWith(SEGMENT_SUFFIX) || name.endsWith(INDEX_SUFFIX))) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Open-addressing table from code keys to record offsets in a memory-mapped file, with linear probing
+     */
+    private static final class Index {
+        private static final long PAGE_SLOT_MASK = (1L << PAGE_SLOT_BITS) - 1;
+
+        final Path path;
+        final long capacity;
+        final MappedByteBuffer[] pages;
+        // slots holding a mapping or a removed one
+        long used;
+
+        private Index(Path path, long capacity, MappedByteBuffer[] pages) {
+            this.path = path;
+            this.capacity = capacity;
+            this.pages = pages;
+        }
+
+        static Index create(Path path, long capacity) throws IOException {
+            long pageSlots = Math.min(capacity, 1L << PAGE_SLOT_BITS);
+            MappedByteBuffer[] pages = new MappedByteBuffer[(int) (capacity / pageSlots)];
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                for (int page = 0; page < pages.length; page++) {
+                    // a fresh file reads as zeros, which are empty slots
+                    pages[page] = channel.map(FileChannel.MapMode.READ_WRITE, page * pageSlots * SLOT_SIZE,
+                        pageSlots * SLOT_SIZE);
+                }
+            }
+            return new Index(path, capacity, pages);
+        }
+
+        /**
+         * @return slot holding the key, removed or not, or -1 if it is not held
+         */
+        long find(long key) {
+            long mask = capacity - 1;
+            for (long slot = Hashing.mix(key) & mask, probes = 0; probes < capacity; slot = (slot + 1) & mask, probes++) {
+                long stored = key(slot);
+                if (stored == 0) {
+                    return -1;
+                }
+                if (stored == key + 1) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        long freeSlot(long key) {
+            long mask = capacity - 1;
+            long slot = Hashing.mix(key) & mask;
+            while (key(slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        long key(long slot) {
+            return page(slot).getLong(position(slot));
+        }
+
+        long offset(long slot) {
+            return page(slot).getLong(position(slot) + 8);
+        }
+
+        void set(long slot, long key, long offset) {
+            setOffset(slot, offset);
+            page(slot).putLong(position(slot), key + 1);
+        }
+
+        void setOffset(long slot, long offset) {
+            page(slot).putLong(position(slot) + 8, offset);
+        }
+
+        private MappedByteBuffer page(long slot) {
+            return pages[(int) (slot >>> PAGE_SLOT_BITS)];
+        }
+
+        private static int position(long slot) {
+            return (int) (slot & PAGE_SLOT_MASK) * SLOT_SIZE;
+        }
+    }
+}
@@ -0,0 +1,1318 @@
+package com.gk.shortlink.store;
+
+import com.gk.shortlink.generator.Base62;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Bounded, bidirectional code to URL store that keeps both directions of a mapping in a single
+ * entry, so they are always evicted together.
+ * <p>
+ * Entries live in parallel primitive arrays. Codes are packed into 64-bit keys and URLs are kept
+ * as UTF-8 bytes in a log-structured arena of 1MB slabs. Two open-addressing tables index the
+ * entries by code and by URL hash, storing only the entry id. Compared to a pair of caches this
+ * avoids per-mapping key, value, node and future objects entirely.
+ * <p>
+ * Eviction walks the arena from its oldest record, giving referenced entries a second chance by
+ * moving them to the head (CLOCK over a log), which also reclaims the arena space of dead records.
+ * Evicted mappings can be handed to a lower tier such as {@link ColdMappingStore} instead of being dropped.
+ * <p>
+ * In compressed mode URLs are stored as the id of a shared prefix plus the remaining bytes (see
+ * {@link PrefixDictionary}). The dictionary is retrained from a sample of stored URLs on demand; each
+ * entry remembers which dictionary encoded it, older dictionaries stay readable while entries use
+ * them, and entries given a second chance by eviction are re-encoded with the current one.
+ * <p>
+ * A mapping may carry an expiry, kept in whole seconds. Expiring mappings are never shared between
+ * requests, so they stay out of the URL index and only the code leads to them. Lookups treat a mapping
+ * as gone from its expiry on; the entry itself is reclaimed by {@link #expireDue(int)} through a
+ * {@link TimingWheel} keyed by code.
+ * <p>
+ * A mapping may also carry redirect policy bits, opaque to the store, for links whose redirect status or
+ * caching differs from the server's defaults. Such mappings are not shared either.
+ * <p>
+ * Every entry keeps a 32-bit tag of its exact URL, hashed when the mapping is stored, so that responses
+ * describing a mapping can be validated without reading or hashing the URL again.
+ * <p>
+ * The store is bounded by a number of mappings, by a memory budget, or both. Under a budget, entries are
+ * evicted before an insert would take the estimated retained bytes of the entry columns, both indexes, the
+ * arena and the expiry timers past it, so a corpus of long URLs holds fewer mappings than one of short URLs.
+ * Arrays never shrink, and the arena is counted by the span between its tail and head plus the partly used
+ * slabs at both ends and the spare one, which bounds what is allocated.
+ * <p>
+ * Reads are lock-free through {@link StampedLock} optimistic reads; writes are serialised.
+ */
+public final class CompactMappingStore {
+
+    static final int SLAB_SIZE = 1 << 20;
+    static final int RECORD_HEADER_SIZE = 8;
+    public static final int MAX_URL_BYTES = SLAB_SIZE - 2 * RECORD_HEADER_SIZE;
+    public static final long UNBOUNDED = Long.MAX_VALUE;
+    // partly used slabs at both ends of the arena plus the spare slab, leaving room for at least one more
+    public static final long MIN_MEMORY_BUDGET = 4L * SLAB_SIZE;
+
+    private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final int END_OF_SLAB = -1;
+    private static final long NO_LOCATION = -1;
+    private static final int INITIAL_ENTRIES = 1024;
+    private static final int ITERATION_CHUNK = 4096;
+    private static final int MAX_DICTIONARIES = 256;
+    private static final int MIN_TRAINING_SAMPLE = 64;
+    // a retrained dictionary replaces the current one only if it compresses the sample this much better
+    private static final double RETRAIN_GAIN = 1.02;
+    // one slot of every entry column, including the free list
+    private static final int ENTRY_BYTES = 4 * Long.BYTES + 5 * Integer.BYTES + 2;
+    // a key and a deadline in a timing wheel bucket, whose arrays grow by doubling
+    private static final int TIMER_BYTES = 4 * Long.BYTES;
+    private static final long ARENA_RESERVE = 3L * SLAB_SIZE;
+    // per-entry int columns readColumn looks up by code
+    private static final int REDIRECT_COLUMN = 0;
+    private static final int EXPIRY_COLUMN = 1;
+    private static final int TAG_COLUMN = 2;
+
+    private final int capacity;
+    private final long memoryBudget;
+    private final UrlCanonicalizer canonicalizer;
+    private final StampedLock lock = new StampedLock();
+
+    // entry columns, indexed by entry id
+    private long[] codeKeys;
+    private long[] locations;
+    private int[] urlLengths;
+    // 128-bit fingerprint of the canonical URL, the only per-entry cost of the URL index
+    private long[] urlFingerprintsHigh;
+    private long[] urlFingerprintsLow;
+    // hash of the exact URL, see urlTag
+    private int[] urlTags;
+    private byte[] referenced;
+    // slot in dictionaries of the dictionary that encoded the entry, unused when not compressed
+    private byte[] dictionaryIds;
+    // expiry in unsigned epoch seconds, 0 for mappings that never expire
+    private int[] expiries;
+    // redirect policy bits, 0 for mappings that follow the defaults
+    private int[] redirects;
+    private int[] freeEntries;
+    private int freeCount;
+    private int highWater;
+    private int size;
+    // mappings with redirect bits, so that lookups of the policy can be skipped while there are none
+    private volatile int redirectCount;
+    // mappings with an expiry, so that lookups of it can be skipped while there are none
+    private volatile int expiringCount;
+
+    // open addressing indexes holding entry id + 1, 0 marks an empty slot
+    private int[] codeIndex;
+    private int[] urlIndex;
+
+    // arena: ring of slabs addressed by a monotonically increasing slab number
+    private byte[][] slabs;
+    private final ArrayDeque<byte[]> spareSlabs = new ArrayDeque<>();
+    private int headSlab;
+    private int headOffset;
+    private int tailSlab;
+    private int tailOffset;
+
+    private long evictions;
+    private long expirations;
+
+    private final Clock clock;
+    private final TimingWheel expiryWheel;
+    private final MappingSink evictionSink;
+
+    // null when URLs are stored uncompressed
+    private final PrefixDictionary[] dictionaries;
+    private final int[] dictionaryEntries;
+    private volatile int currentDictionary;
+    private volatile double compressionRatio = 1;
+
+    // lookup outcomes, striped so that concurrent readers do not contend on a shared counter
+    private final LongAdder codeHits = new LongAdder();
+    private final LongAdder codeMisses = new LongAdder();
+    private final LongAdder urlHits = new LongAdder();
+    private final LongAdder urlMisses = new LongAdder();
+
+    public CompactMappingStore(int capacity) {
+        this(capacity, UrlCanonicalizer.exact());
+    }
+
+    /**
+     * @param capacity      maximum number of mappings before the least recently used are evicted
+     * @param canonicalizer rewrite deciding which URLs are equivalent and share a code
+     */
+    public CompactMappingStore(int capacity, UrlCanonicalizer canonicalizer) {
+        this(capacity, canonicalizer, false);
+    }
+
+    /**
+     * @param capacity      maximum number of mappings before the least recently used are evicted
+     * @param canonicalizer rewrite deciding which URLs are equivalent and share a code
+     * @param compressed    whether URLs are stored prefix-encoded, see {@link #retrainDictionary(int, int)}
+     */
+    public CompactMappingStore(int capacity, UrlCanonicalizer canonicalizer, boolean compressed) {
+        this(capacity, canonicalizer, compressed, Clock.systemUTC());
+    }
+
+    /**
+     * @param capacity      maximum number of mappings before the least recently used are evicted
+     * @param canonicalizer rewrite deciding which URLs are equivalent and share a code
+     * @param compressed    whether URLs are stored prefix-encoded, see {@link #retrainDictionary(int, int)}
+     * @param clock         time source deciding which mappings have expired
+     */
+    public CompactMappingStore(int capacity, UrlCanonicalizer canonicalizer, boolean compressed, Clock clock) {
+        this(capacity, canonicalizer, compressed, clock, null);
+    }
+
+    /**
+     * @param capacity      maximum number of mappings before the least recently used are evicted
+     * @param canonicalizer rewrite deciding which URLs are equivalent and share a code
+     * @param compressed    whether URLs are stored prefix-encoded, see {@link #retrainDictionary(int, int)}
+     * @param clock         time source deciding which mappings have expired
+     * @param evictions     receiver of mappings evicted while they have not expired, e.g. a cold tier; called
+     *                      under the write lock, so a lookup never misses a mapping in both; null to drop them
+     */
+    public CompactMappingStore(int capacity, UrlCanonicalizer canonicalizer, boolean compressed, Clock clock,
+                               MappingSink evictions) {
+        this(capacity, UNBOUNDED, canonicalizer, compressed, clock, evictions);
+    }
+
+    /**
+     * @param capacity      maximum number of mappings before the least recently used are evicted
+     * @param memoryBudget  estimated retained bytes before the least recently used are evicted, {@link #UNBOUNDED}
+     *                      to bound by {@code capacity} only
+     * @param canonicalizer rewrite deciding which URLs are equivalent and share a code
+     * @param compressed    whether URLs are stored prefix-encoded, see {@link #retrainDictionary(int, int)}
+     * @param clock         time source deciding which mappings have expired
+     * @param evictions     receiver of mappings evicted while they have not expired, e.g. a cold tier; called
+     *                      under the write lock, so a lookup never misses a mapping in both; null to drop them
+     */
+    public CompactMappingStore(int capacity, long memoryBudget, UrlCanonicalizer canonicalizer, boolean compressed,
+                               Clock clock, MappingSink evictions) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive but was " + capacity);
+        }
+        if (memoryBudget < MIN_MEMORY_BUDGET) {
+            throw new IllegalArgumentException("Memory budget must be at least " + MIN_MEMORY_BUDGET + " bytes but was " + memoryBudget);
+        }
+        this.capacity = capacity;
+        this.memoryBudget = memoryBudget;
+        this.canonicalizer = canonicalizer;
+        this.clock = clock;
+        this.evictionSink = evictions;
+        this.expiryWheel = new TimingWheel(epochSecond());
+        int entries = Math.min(capacity, INITIAL_ENTRIES);
+        allocateEntries(entries);
+        codeIndex = new int[tableSizeFor(entries)];
+        urlIndex = new int[tableSizeFor(entries)];
+        slabs = new byte[4][];
+        slabs[0] = new byte[SLAB_SIZE];
+        if (compressed) {
+            dictionaries = new PrefixDictionary[MAX_DICTIONARIES];
+            dictionaries[0] = PrefixDictionary.EMPTY;
+            dictionaryEntries = new int[MAX_DICTIONARIES];
+        } else {
+            dictionaries = null;
+            dictionaryEntries = null;
+        }
+    }
+
+    /**
+     * Method to look up the URL of a code and mark the mapping as recently used
+     *
+     * @param code short code
+     * @return original URL, or null if the code is unknown
+     */
+    public String get(String code) {
+        String url = find(code);
+        (url != null ? codeHits : codeMisses).increment();
+        return url;
+    }
+
+    /**
+     * Method to look up the code already assigned to a URL or to an equivalent one
+     *
+     * @param url original URL
+     * @return short code, or null if the URL has not been shortened
+     */
+    public String codeOf(String url) {
+        String code = findCode(url);
+        (code != null ? urlHits : urlMisses).increment();
+        return code;
+    }
+
+    private String find(String code) {
+        long key = Base62.toKey(code);
+        if (key < 0) {
+            return null;
+        }
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                String url = readUrl(key);
+                if (lock.validate(stamp)) {
+                    return url;
+                }
+            } catch (RuntimeException e) {
+                // a concurrent writer moved things underneath us; retry under the lock
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return readUrl(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private String findCode(String url) {
+        UrlKey urlKey = urlKey(url, url.getBytes(StandardCharsets.UTF_8));
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                long key = readCodeKey(urlKey);
+                if (lock.validate(stamp)) {
+                    return key < 0 ? null : Base62.fromKey(key);
+                }
+            } catch (RuntimeException e) {
+                // fall through to a locked read
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            long key = readCodeKey(urlKey);
+            return key < 0 ? null : Base62.fromKey(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Method to atomically map a new code to a URL unless either side is already taken. A URL is
+     * taken if it or an equivalent URL under the store's canonicalization is mapped.
+     *
+     * @param code candidate short code
+     * @param url  original URL
+     * @return the code now mapped to the URL, which is either {@code code} or the code the URL
+     * already had, or null if {@code code} is taken by another URL
+     */
+    public String putIfAbsent(String code, String url) {
+        long key = checkedKey(code);
+        UrlKey urlKey = urlKey(url, checkedBytes(url));
+        long stamp = lock.writeLock();
+        try {
+            int urlSlot = findUrlSlot(urlKey);
+            if (urlSlot >= 0) {
+                return Base62.fromKey(codeKeys[urlIndex[urlSlot] - 1]);
+            }
+            if (findCodeSlot(key) >= 0) {
+                return null;
+            }
+            insert(key, urlKey, 0, 0);
+            return code;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Method to atomically map a new code to a URL until an expiry, unless the code is taken. Expiring
+     * mappings do not deduplicate: the URL may be mapped by other codes, and later requests for it never
+     * receive this code.
+     *
+     * @param code      candidate short code
+     * @param url       original URL
+     * @param expiresAt epoch milliseconds from which the mapping is gone, rounded up to a whole second;
+     *                  0 for a mapping that never expires, which behaves as {@link #putIfAbsent(String, String)}
+     * @return the code now mapped to the URL, or null if {@code code} is taken
+     */
+    public String putIfAbsent(String code, String url, long expiresAt) {
+        return putIfAbsent(code, url, expiresAt, 0);
+    }
+
+    /**
+     * Variant of {@link #putIfAbsent(String, String, long)} for a mapping with redirect bits. Like expiring
+     * mappings, mappings with redirect bits do not deduplicate.
+     *
+     * @param code      candidate short code
+     * @param url       original URL
+     * @param expiresAt epoch milliseconds as for {@link #putIfAbsent(String, String, long)}, 0 for never
+     * @param redirect  redirect policy bits, 0 for the defaults
+     * @return the code now mapped to the URL, or null if {@code code} is taken
+     */
+    public String putIfAbsent(String code, String url, long expiresAt, int redirect) {
+        if (expiresAt == 0 && redirect == 0) {
+            return putIfAbsent(code, url);
+        }
+        long key = checkedKey(code);
+        int expiry = expirySeconds(expiresAt);
+        UrlKey urlKey = urlKey(url, checkedBytes(url));
+        long stamp = lock.writeLock();
+        try {
+            if (findCodeSlot(key) >= 0) {
+                return null;
+            }
+            insert(key, urlKey, expiry, redirect);
+            return code;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Batch variant of {@link #putIfAbsent(String, String)} applied under a single lock acquisition.
+     * Elements are applied in order, so a URL repeated within the batch receives the first code.
+     *
+     * @param codes candidate codes; null elements are skipped
+     * @param urls  original URLs, same size as {@code codes}
+     * @return per element result as described for {@link #putIfAbsent(String, String)}
+     */
+    public String[] putAllIfAbsent(String[] codes, List<String> urls) {
+        return putAllIfAbsent(codes, urls, null, null);
+    }
+
+    /**
+     * Batch variant of {@link #putIfAbsent(String, String, long, int)} applied under a single lock acquisition
+     *
+     * @param codes     candidate codes; null elements are skipped
+     * @param urls      original URLs, same size as {@code codes}
+     * @param expiresAt expiry per element as for {@link #putIfAbsent(String, String, long)}, or null if
+     *                  none of the mappings expire
+     * @param redirects redirect bits per element, or null if all mappings follow the defaults
+     * @return per element result as described for {@link #putIfAbsent(String, String, long, int)}
+     */
+    public String[] putAllIfAbsent(String[] codes, List<String> urls, long[] expiresAt, int[] redirects) {
+        int count = codes.length;
+        int[] expiry = new int[count];
+        long[] keys = new long[count];
+        UrlKey[] urlKeys = new UrlKey[count];
+        for (int i = 0; i < count; i++) {
+            if (codes[i] != null) {
+                keys[i] = checkedKey(codes[i]);
+                urlKeys[i] = urlKey(urls.get(i), checkedBytes(urls.get(i)));
+                expiry[i] = expiresAt == null ? 0 : expirySeconds(expiresAt[i]);
+            }
+        }
+        String[] assigned = new String[count];
+        long stamp = lock.writeLock();
+        try {
+            for (int i = 0; i < count; i++) {
+                if (codes[i] == null) {
+                    continue;
+                }
+                int redirect = redirects == null ? 0 : redirects[i];
+                int urlSlot = expiry[i] == 0 && redirect == 0 ? findUrlSlot(urlKeys[i]) : -1;
+                if (urlSlot >= 0) {
+                    assigned[i] = Base62.fromKey(codeKeys[urlIndex[urlSlot] - 1]);
+                } else if (findCodeSlot(keys[i]) < 0) {
+                    insert(keys[i], urlKeys[i], expiry[i], redirect);
+                    assigned[i] = codes[i];
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return assigned;
+    }
+
+    /**
+     * Method to map a code to a URL, replacing any mapping that holds either side.
+     * Used when restoring mappings, where the latest record wins.
+     */
+    public void put(String code, String url) {
+        put(code, url, 0, 0);
+    }
+
+    /**
+     * Method to map a code to a URL until an expiry, replacing any mapping that holds the code and,
+     * unless the mapping expires, any mapping that holds the URL
+     *
+     * @param expiresAt epoch milliseconds as for {@link #putIfAbsent(String, String, long)}, 0 for never
+     */
+    public void put(String code, String url, long expiresAt) {
+        put(code, url, expiresAt, 0);
+    }
+
+    /**
+     * Variant of {@link #put(String, String, long)} for a mapping with redirect bits, which like an expiring
+     * mapping leaves other mappings of the URL in place
+     *
+     * @param redirect redirect policy bits, 0 for the defaults
+     */
+    public void put(String code, String url, long expiresAt, int redirect) {
+        long key = checkedKey(code);
+        int expiry = expirySeconds(expiresAt);
+        UrlKey urlKey = urlKey(url, checkedBytes(url));
+        long stamp = lock.writeLock();
+        try {
+            int codeSlot = findCodeSlot(key);
+            if (codeSlot >= 0) {
+                removeEntry(codeIndex[codeSlot] - 1);
+            }
+            int urlSlot = expiry == 0 && redirect == 0 ? findUrlSlot(urlKey) : -1;
+            if (urlSlot >= 0) {
+                removeEntry(urlIndex[urlSlot] - 1);
+            }
+            insert(key, urlKey, expiry, redirect);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Method to check whether a code is mapped without marking the mapping as recently used
+     *
+     * @param code short code
+     * @return true if the code is mapped, expired or not
+     */
+    public boolean contains(String code) {
+        long key = Base62.toKey(code);
+        if (key < 0) {
+            return false;
+        }
+        long stamp = lock.readLock();
+        try {
+            return findCodeSlot(key) >= 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Method to look up the redirect bits of a code, without marking the mapping as recently used. Meant
+     * to follow a successful {@link #get(String)}; costs a single volatile read while no mapping has any.
+     *
+     * @param code short code
+     * @return redirect policy bits, 0 if the mapping follows the defaults or the code is unknown
+     */
+    public int redirectOf(String code) {
+        return redirectCount == 0 ? 0 : (int) readColumn(code, REDIRECT_COLUMN, 0);
+    }
+
+    /**
+     * Method to look up when a code expires, without marking the mapping as recently used. Meant to follow
+     * a successful {@link #get(String)}; costs a single volatile read while no mapping expires.
+     *
+     * @param code short code
+     * @return expiry in epoch milliseconds, 0 if the mapping never expires or the code is unknown
+     */
+    public long expiryOf(String code) {
+        return expiringCount == 0 ? 0 : expiresAt((int) readColumn(code, EXPIRY_COLUMN, 0));
+    }
+
+    /**
+     * Method to look up the tag of the URL a code maps to, without marking the mapping as recently used. Meant
+     * to follow a successful {@link #get(String)}; the tag was computed when the mapping was stored.
+     *
+     * @param code short code
+     * @return tag as computed by {@link #urlTag(String)}, or -1 if the code is unknown
+     */
+    public long tagOf(String code) {
+        return readColumn(code, TAG_COLUMN, -1);
+    }
+
+    /**
+     * Method to compute the tag the store keeps for a URL, for URLs held elsewhere
+     *
+     * @param url original URL
+     * @return 32-bit hash of the exact URL as an unsigned value
+     */
+    public static long urlTag(String url) {
+        return urlTag(url.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Method to remove a mapping by code, together with its URL side
+     *
+     * @return true if the code was mapped
+     */
+    public boolean remove(String code) {
+        long key = Base62.toKey(code);
+        if (key < 0) {
+            return false;
+        }
+        long stamp = lock.writeLock();
+        try {
+            int slot = findCodeSlot(key);
+            if (slot < 0) {
+                return false;
+            }
+            removeEntry(codeIndex[slot] - 1);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Method to visit every mapping. The store is read in chunks, so writers are only briefly
+     * blocked; mappings changed during the walk may or may not be visited.
+     */
+    public void forEach(BiConsumer<String, String> action) {
+        forEach((code, url, expiresAt, redirect) -> action.accept(code, url));
+    }
+
+    /**
+     * Variant of {@link #forEach(BiConsumer)} that also hands out each mapping's expiry and redirect bits
+     */
+    public void forEach(MappingSink action) {
+        int cursor = 0;
+        while (cursor >= 0) {
+            cursor = forEachFrom(cursor, ITERATION_CHUNK, action);
+        }
+    }
+
+    /**
+     * Method to visit up to {@code limit} mappings starting at a cursor, for callers that walk
+     * the store at their own pace. Mappings are copied out under the read lock and handed to
+     * the action after it is released.
+     *
+     * @param cursor 0 to start, or a value returned by a previous call
+     * @param limit  maximum number of mappings to visit
+     * @param action receiver of code and URL pairs
+     * @return cursor to continue from, or -1 once the whole store has been visited
+     */
+    public int forEachFrom(int cursor, int limit, BiConsumer<String, String> action) {
+        return forEachFrom(cursor, limit, (code, url, expiresAt, redirect) -> action.accept(code, url));
+    }
+
+    /**
+     * Variant of {@link #forEachFrom(int, int, BiConsumer)} that also hands out each mapping's expiry and
+     * redirect bits.
+     * Mappings that have expired but are not reclaimed yet are skipped.
+     */
+    public int forEachFrom(int cursor, int limit, MappingSink action) {
+        String[] chunkCodes = new String[limit];
+        String[] chunkUrls = new String[limit];
+        long[] chunkExpiries = new long[limit];
+        int[] chunkRedirects = new int[limit];
+        long now = clock.millis();
+        int count = 0;
+        int next = cursor;
+        boolean exhausted;
+        long stamp = lock.readLock();
+        try {
+            for (; next < highWater && count < limit; next++) {
+                if (locations[next] != NO_LOCATION && !isExpired(expiries[next], now)) {
+                    chunkCodes[count] = Base62.fromKey(codeKeys[next]);
+                    chunkUrls[count] = urlAt(next);
+                    chunkExpiries[count] = expiresAt(expiries[next]);
+                    chunkRedirects[count] = redirects[next];
+                    count++;
+                }
+            }
+            exhausted = next >= highWater;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        for (int i = 0; i < count; i++) {
+            action.accept(chunkCodes[i], chunkUrls[i], chunkExpiries[i], chunkRedirects[i]);
+        }
+        return exhausted ? -1 : next;
+    }
+
+    /**
+     * Method to reclaim mappings whose expiry has passed, removing both directions of each. Meant to be
+     * called periodically from a background thread; the limit bounds how long writers are held up, and
+     * callers loop while a call uses it up.
+     *
+     * @param limit maximum number of due expiry timers to process
+     * @return number of timers processed, less than {@code limit} once none is due; timers of mappings
+     * that were replaced, removed or evicted in the meantime are counted but have no effect
+     */
+    public int expireDue(int limit) {
+        long now = epochSecond();
+        long stamp = lock.writeLock();
+        try {
+            return expiryWheel.advance(now, limit, this::expire);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Method to train a prefix dictionary on a sample of the stored URLs and make it the one new
+     * URLs are encoded with. Meant to be called periodically from a background thread, so the
+     * dictionary follows the traffic; training runs without holding the lock.
+     *
+     * @param sampleSize  number of stored URLs to train on
+     * @param maxPrefixes dictionary size
+     * @return true if the trained dictionary was installed, false if the store is not compressed,
+     * holds too few URLs, the current dictionary is as good, or all dictionary slots are in use
+     */
+    public boolean retrainDictionary(int sampleSize, int maxPrefixes) {
+        if (dictionaries == null) {
+            return false;
+        }
+        List<String> sample = sampleUrls(sampleSize);
+        if (sample.size() < MIN_TRAINING_SAMPLE) {
+            return false;
+        }
+        PrefixDictionary trained = PrefixDictionary.train(sample, maxPrefixes);
+        double trainedRatio = trained.compressionRatio(sample);
+        double currentRatio = dictionaries[currentDictionary].compressionRatio(sample);
+        if (trainedRatio < currentRatio * RETRAIN_GAIN) {
+            compressionRatio = currentRatio;
+            return false;
+        }
+        long stamp = lock.writeLock();
+        try {
+            for (int id = 0; id < MAX_DICTIONARIES; id++) {
+                if (id != currentDictionary && dictionaryEntries[id] == 0) {
+                    dictionaries[id] = trained;
+                    currentDictionary = id;
+                    compressionRatio = trainedRatio;
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return UTF-8 size of the URLs divided by their stored size, measured on the last training
+     * sample; 1 when the store is not compressed
+     */
+    public double compressionRatio() {
+        return compressionRatio;
+    }
+
+    private List<String> sampleUrls(int sampleSize) {
+        List<String> sample = new ArrayList<>(sampleSize);
+        int start;
+        long stamp = lock.readLock();
+        try {
+            start = highWater == 0 ? 0 : ThreadLocalRandom.current().nextInt(highWater);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        int cursor = forEachFrom(start, sampleSize, (code, url) -> sample.add(url));
+        if (cursor < 0 && start > 0 && sample.size() < sampleSize) {
+            forEachFrom(0, Math.min(start, sampleSize - sample.size()), (code, url) -> sample.add(url));
+        }
+        return sample;
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return estimated retained bytes the store is bounded by, {@link #UNBOUNDED} if it is bounded by capacity only
+     */
+    public long memoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Method to estimate the bytes the store retains: its entry columns and indexes at their allocated length,
+     * the arena slabs and the expiry timers. Dictionaries of compressed mode are not included.
+     *
+     * @return estimated retained bytes
+     */
+    public long memoryBytes() {
+        long stamp = lock.readLock();
+        try {
+            return columnBytes(codeKeys.length) + indexBytes(codeIndex.length)
+                + (long) (headSlab - tailSlab + 1 + spareSlabs.size()) * SLAB_SIZE
+                + expiryWheel.size() * TIMER_BYTES;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long evictionCount() {
+        long stamp = lock.readLock();
+        try {
+            return evictions;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return mappings reclaimed because their expiry passed
+     */
+    public long expirationCount() {
+        long stamp = lock.readLock();
+        try {
+            return expirations;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return expiry timers scheduled and not processed yet, including those of mappings gone since
+     */
+    public long pendingExpiryCount() {
+        long stamp = lock.readLock();
+        try {
+            return expiryWheel.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return lookups by code that found a mapping
+     */
+    public long codeHitCount() {
+        return codeHits.sum();
+    }
+
+    /**
+     * @return lookups by code that found no mapping
+     */
+    public long codeMissCount() {
+        return codeMisses.sum();
+    }
+
+    /**
+     * @return lookups by URL that found an existing code
+     */
+    public long urlHitCount() {
+        return urlHits.sum();
+    }
+
+    /**
+     * @return lookups by URL that found no code
+     */
+    public long urlMissCount() {
+        return urlMisses.sum();
+    }
+
+    // ---- reads, safe to run optimistically as they only dereference bounds-checked state
+
+    private String readUrl(long key) {
+        int slot = findCodeSlot(key);
+        if (slot < 0) {
+            return null;
+        }
+        int entry = codeIndex[slot] - 1;
+        int expiry = expiries[entry];
+        // the clock is only consulted for the few mappings that expire
+        if (expiry != 0 && isExpired(expiry, clock.millis())) {
+            return null;
+        }
+        referenced[entry] = 1;
+        return urlAt(entry);
+    }
+
+    private long readColumn(String code, int column, long missing) {
+        long key = Base62.toKey(code);
+        if (key < 0) {
+            return missing;
+        }
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                long value = readColumn(key, column, missing);
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            } catch (RuntimeException e) {
+                // fall through to a locked read
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return readColumn(key, column, missing);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private long readColumn(long key, int column, long missing) {
+        int slot = findCodeSlot(key);
+        if (slot < 0) {
+            return missing;
+        }
+        int entry = codeIndex[slot] - 1;
+        return switch (column) {
+            case REDIRECT_COLUMN -> redirects[entry];
+            case EXPIRY_COLUMN -> expiries[entry];
+            default -> Integer.toUnsignedLong(urlTags[entry]);
+        };
+    }
+
+    private long readCodeKey(UrlKey urlKey) {
+        int slot = findUrlSlot(urlKey);
+        return slot < 0 ? -1 : codeKeys[urlIndex[slot] - 1];
+    }
+
+    private int findCodeSlot(long key) {
+        int[] table = codeIndex;
+        long[] keys = codeKeys;
+        int mask = table.length - 1;
+        int slot = codeHome(key, mask);
+        for (int probes = 0; probes < table.length; probes++) {
+            int value = table[slot];
+            if (value == 0) {
+                return -1;
+            }
+            if (keys[value - 1] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int findUrlSlot(UrlKey urlKey) {
+        int[] table = urlIndex;
+        int mask = table.length - 1;
+        int slot = urlHome(urlKey.low(), mask);
+        for (int probes = 0; probes < table.length; probes++) {
+            int value = table[slot];
+            if (value == 0) {
+                return -1;
+            }
+            int entry = value - 1;
+            if (urlFingerprintsLow[entry] == urlKey.low() && urlFingerprintsHigh[entry] == urlKey.high()
+                && isSameUrl(entry, urlKey)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Confirms a fingerprint match against the stored URL, which is only read here. An identical
+     * URL is compared byte by byte; an equivalent one has to be canonicalized first.
+     */
+    private boolean isSameUrl(int entry, UrlKey urlKey) {
+        if (encodedWith(entry) == urlKey.dictionary() && urlLengths[entry] == urlKey.bytes().length
+            && urlEquals(entry, urlKey.bytes())) {
+            return true;
+        }
+        if (dictionaries == null && canonicalizer.isExact()) {
+            return false;
+        }
+        String url = urlAt(entry);
+        if (canonicalizer.isExact()) {
+            return url.equals(urlKey.url());
+        }
+        return canonicalizer.canonicalize(url).equals(urlKey.canonical());
+    }
+
+    private PrefixDictionary encodedWith(int entry) {
+        return dictionaries == null ? null : dictionaries[dictionaryIds[entry] & 0xFF];
+    }
+
+    private boolean urlEquals(int entry, byte[] bytes) {
+        long location = locations[entry];
+        byte[] slab = slabAt(slabNumber(location));
+        int start = slabOffset(location) + RECORD_HEADER_SIZE;
+        return Arrays.equals(slab, start, start + bytes.length, bytes, 0, bytes.length);
+    }
+
+    private String urlAt(int entry) {
+        long location = locations[entry];
+        byte[] slab = slabAt(slabNumber(location));
+        int start = slabOffset(location) + RECORD_HEADER_SIZE;
+        if (dictionaries != null) {
+            return dictionaries[dictionaryIds[entry] & 0xFF].decode(slab, start, urlLengths[entry]);
+        }
+        return new String(slab, start, urlLengths[entry], StandardCharsets.UTF_8);
+    }
+
+    // ---- writes, always under the write lock
+
+    private void insert(long key, UrlKey urlKey, int expiry, int redirect) {
+        while (size >= capacity || exceedsBudget(urlKey.bytes().length)) {
+            evictOne();
+        }
+        byte[] bytes = urlKey.bytes();
+        int entry = allocateEntry();
+        if (dictionaries != null) {
+            // encoded outside the lock; a retrain may have replaced that dictionary since
+            int id = currentDictionary;
+            if (dictionaries[id] != urlKey.dictionary()) {
+                bytes = dictionaries[id].encode(urlKey.url().getBytes(StandardCharsets.UTF_8));
+            }
+            dictionaryIds[entry] = (byte) id;
+            dictionaryEntries[id]++;
+        }
+        codeKeys[entry] = key;
+        urlLengths[entry] = bytes.length;
+        urlFingerprintsHigh[entry] = urlKey.high();
+        urlFingerprintsLow[entry] = urlKey.low();
+        urlTags[entry] = urlKey.tag();
+        referenced[entry] = 0;
+        expiries[entry] = expiry;
+        redirects[entry] = redirect;
+        if (redirect != 0) {
+            redirectCount++;
+        }
+        if (expiry != 0) {
+            expiringCount++;
+        }
+        locations[entry] = append(entry, bytes, 0, bytes.length);
+        size++;
+        if (size * 2 > codeIndex.length) {
+            codeIndex = rehash(codeIndex, true);
+            urlIndex = rehash(urlIndex, false);
+        }
+        insertSlot(codeIndex, codeHome(key, codeIndex.length - 1), entry);
+        if (isShared(entry)) {
+            insertSlot(urlIndex, urlHome(urlKey.low(), urlIndex.length - 1), entry);
+        }
+        if (expiry != 0) {
+            expiryWheel.schedule(key, Integer.toUnsignedLong(expiry));
+        }
+    }
+
+    private void removeEntry(int entry) {
+        deleteSlot(codeIndex, slotOf(codeIndex, codeHome(codeKeys[entry], codeIndex.length - 1), entry), true);
+        if (isShared(entry)) {
+            deleteSlot(urlIndex, slotOf(urlIndex, urlHome(urlFingerprintsLow[entry], urlIndex.length - 1), entry), false);
+        }
+        if (redirects[entry] != 0) {
+            redirectCount--;
+        }
+        if (expiries[entry] != 0) {
+            expiringCount--;
+        }
+        locations[entry] = NO_LOCATION;
+        if (dictionaries != null) {
+            releaseDictionary(dictionaryIds[entry] & 0xFF);
+        }
+        freeEntries[freeCount++] = entry;
+        size--;
+    }
+
+    /**
+     * @return true if the entry is in the URL index, which is for mappings that neither expire nor have redirect bits
+     */
+    private boolean isShared(int entry) {
+        return expiries[entry] == 0 && redirects[entry] == 0;
+    }
+
+    /**
+     * Removes the mapping a timer was scheduled for, unless the code has been remapped since
+     */
+    private void expire(long key, long deadline) {
+        int slot = findCodeSlot(key);
+        if (slot >= 0 && Integer.toUnsignedLong(expiries[codeIndex[slot] - 1]) == deadline) {
+            removeEntry(codeIndex[slot] - 1);
+            expirations++;
+        }
+    }
+
+    /**
+     * Advances the arena tail until one unreferenced entry has been evicted. Referenced entries
+     * met on the way lose their mark and are copied to the head; dead records are skipped.
+     */
+    private void evictOne() {
+        while (true) {
+            byte[] slab = slabAt(tailSlab);
+            if (tailSlab != headSlab
+                && (tailOffset + RECORD_HEADER_SIZE > SLAB_SIZE || (int) INTS.get(slab, tailOffset) == END_OF_SLAB)) {
+                releaseTailSlab();
+                continue;
+            }
+            if (tailSlab == headSlab && tailOffset >= headOffset) {
+                throw new IllegalStateException("Arena is empty while the store holds " + size + " entries");
+            }
+            int entry = (int) INTS.get(slab, tailOffset);
+            int length = (int) INTS.get(slab, tailOffset + 4);
+            long location = location(tailSlab, tailOffset);
+            int offset = tailOffset;
+            tailOffset += RECORD_HEADER_SIZE + length;
+            if (entry >= highWater || locations[entry] != location) {
+                continue; // superseded or removed
+            }
+            if (referenced[entry] != 0) {
+                referenced[entry] = 0;
+                int id = dictionaries == null ? 0 : dictionaryIds[entry] & 0xFF;
+                if (id != currentDictionary) {
+                    // hot entries migrate to the current dictionary as they are moved
+                    byte[] encoded = dictionaries[currentDictionary].encode(urlAt(entry).getBytes(StandardCharsets.UTF_8));
+                    releaseDictionary(id);
+                    dictionaryIds[entry] = (byte) currentDictionary;
+                    dictionaryEntries[currentDictionary]++;
+                    urlLengths[entry] = encoded.length;
+                    locations[entry] = append(entry, encoded, 0, encoded.length);
+                } else {
+                    locations[entry] = append(entry, slab, offset + RECORD_HEADER_SIZE, length);
+                }
+                continue;
+            }
+            if (evictionSink != null && (expiries[entry] == 0 || !isExpired(expiries[entry], clock.millis()))) {
+                evictionSink.accept(Base62.fromKey(codeKeys[entry]), urlAt(entry), expiresAt(expiries[entry]), redirects[entry]);
+            }
+            removeEntry(entry);
+            evictions++;
+            return;
+        }
+    }
+
+    /**
+     * Checks whether inserting a URL of the given length would take the store past its memory budget, counting
+     * the entry columns and indexes as they would grow and an upper bound of the slabs the arena would span
+     */
+    private boolean exceedsBudget(int urlBytes) {
+        if (memoryBudget == UNBOUNDED || size == 0) {
+            return false;
+        }
+        int columns = freeCount == 0 && highWater == codeKeys.length
+            ? (int) Math.min(capacity, codeKeys.length * 2L) : codeKeys.length;
+        int tables = (size + 1) * 2 > codeIndex.length ? codeIndex.length * 2 : codeIndex.length;
+        int recordSize = RECORD_HEADER_SIZE + urlBytes;
+        long span = (long) (headSlab - tailSlab) * SLAB_SIZE + headOffset - tailOffset + recordSize;
+        if (headOffset + recordSize + 4 > SLAB_SIZE) {
+            // the rest of the head slab is skipped
+            span += SLAB_SIZE - headOffset;
+        }
+        long bytes = columnBytes(columns) + indexBytes(tables) + span + ARENA_RESERVE + expiryWheel.size() * TIMER_BYTES;
+        return bytes > memoryBudget;
+    }
+
+    private static long columnBytes(int entries) {
+        return (long) entries * ENTRY_BYTES;
+    }
+
+    private static long indexBytes(int tableSize) {
+        // the code and the URL index always have the same size
+        return 2L * tableSize * Integer.BYTES;
+    }
+
+    private long append(int entry, byte[] source, int from, int length) {
+        int recordSize = RECORD_HEADER_SIZE + length;
+        // always leave room for the end-of-slab marker
+        if (headOffset + recordSize + 4 > SLAB_SIZE) {
+            INTS.set(slabAt(headSlab), headOffset, END_OF_SLAB);
+            openHeadSlab();
+        }
+        byte[] slab = slabAt(headSlab);
+        INTS.set(slab, headOffset, entry);
+        INTS.set(slab, headOffset + 4, length);
+        System.arraycopy(source, from, slab, headOffset + RECORD_HEADER_SIZE, length);
+        long location = location(headSlab, headOffset);
+        headOffset += recordSize;
+        return location;
+    }
+
+    private void releaseDictionary(int id) {
+        if (--dictionaryEntries[id] == 0 && id != currentDictionary) {
+            dictionaries[id] = null;
+        }
+    }
+
+    private void openHeadSlab() {
+        int live = headSlab - tailSlab + 1;
+        if (live == slabs.length) {
+            byte[][] grown = new byte[slabs.length * 2][];
+            for (int number = tailSlab; number <= headSlab; number++) {
+                grown[number & (grown.length - 1)] = slabAt(number);
+            }
+            slabs = grown;
+        }
+        headSlab++;
+        headOffset = 0;
+        byte[] slab = spareSlabs.poll();
+        slabs[headSlab & (slabs.length - 1)] = slab != null ? slab : new byte[SLAB_SIZE];
+    }
+
+    private void releaseTailSlab() {
+        int index = tailSlab & (slabs.length - 1);
+        if (spareSlabs.isEmpty()) {
+            spareSlabs.push(slabs[index]);
+        }
+        slabs[index] = null;
+        tailSlab++;
+        tailOffset = 0;
+    }
+
+    private int allocateEntry() {
+        if (freeCount > 0) {
+            return freeEntries[--freeCount];
+        }
+        if (highWater == codeKeys.length) {
+            allocateEntries((int) Math.min(capacity, codeKeys.length * 2L));
+        }
+        return highWater++;
+    }
+
+    private void allocateEntries(int entries) {
+        codeKeys = codeKeys == null ? new long[entries] : Arrays.copyOf(codeKeys, entries);
+        locations = locations == null ? new long[entries] : Arrays.copyOf(locations, entries);
+        urlLengths = urlLengths == null ? new int[entries] : Arrays.copyOf(urlLengths, entries);
+        urlFingerprintsHigh = urlFingerprintsHigh == null ? new long[entries] : Arrays.copyOf(urlFingerprintsHigh, entries);
+        urlFingerprintsLow = urlFingerprintsLow == null ? new long[entries] : Arrays.copyOf(urlFingerprintsLow, entries);
+        urlTags = urlTags == null ? new int[entries] : Arrays.copyOf(urlTags, entries);
+        referenced = referenced == null ? new byte[entries] : Arrays.copyOf(referenced, entries);
+        dictionaryIds = dictionaryIds == null ? new byte[entries] : Arrays.copyOf(dictionaryIds, entries);
+        expiries = expiries == null ? new int[entries] : Arrays.copyOf(expiries, entries);
+        redirects = redirects == null ? new int[entries] : Arrays.copyOf(redirects, entries);
+        freeEntries = freeEntries == null ? new int[entries] : Arrays.copyOf(freeEntries, entries);
+    }
+
+    private int[] rehash(int[] table, boolean byCode) {
+        int[] grown = new int[table.length * 2];
+        int mask = grown.length - 1;
+        for (int value : table) {
+            if (value != 0) {
+                int entry = value - 1;
+                insertSlot(grown, byCode ? codeHome(codeKeys[entry], mask) : urlHome(urlFingerprintsLow[entry], mask), entry);
+            }
+        }
+        return grown;
+    }
+
+    private static void insertSlot(int[] table, int home, int entry) {
+        int mask = table.length - 1;
+        int slot = home;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = entry + 1;
+    }
+
+    private static int slotOf(int[] table, int home, int entry) {
+        int mask = table.length - 1;
+        int slot = home;
+        while (table[slot] != entry + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Backward-shift deletion, which keeps linear probing free of tombstones
+     */
+    private void deleteSlot(int[] table, int hole, boolean byCode) {
+        int mask = table.length - 1;
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            int value = table[slot];
+            if (value == 0) {
+                break;
+            }
+            int entry = value - 1;
+            int home = byCode ? codeHome(codeKeys[entry], mask) : urlHome(urlFingerprintsLow[entry], mask);
+            // move the entry back unless its home lies cyclically within (hole, slot]
+            boolean stays = hole <= slot ? (home > hole && home <= slot) : (home > hole || home <= slot);
+            if (!stays) {
+                table[hole] = value;
+                hole = slot;
+            }
+        }
+        table[hole] = 0;
+    }
+
+    private long checkedKey(String code) {
+        long key = Base62.toKey(code);
+        if (key < 0) {
+            throw new IllegalArgumentException("Invalid short code: " + code);
+        }
+        return key;
+    }
+
+    private static int expirySeconds(long expiresAt) {
+        if (expiresAt == 0) {
+            return 0;
+        }
+        long seconds = Math.floorDiv(expiresAt + 999, 1000);
+        if (seconds < 1 || seconds > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("Expiry out of range: " + expiresAt);
+        }
+        return (int) seconds;
+    }
+
+    private static long expiresAt(int expiry) {
+        return Integer.toUnsignedLong(expiry) * 1000;
+    }
+
+    private static boolean isExpired(int expiry, long now) {
+        return expiry != 0 && now >= expiresAt(expiry);
+    }
+
+    private long epochSecond() {
+        return Math.floorDiv(clock.millis(), 1000);
+    }
+
+    private static byte[] checkedBytes(String url) {
+        byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_URL_BYTES) {
+            throw new IllegalArgumentException("URL of " + bytes.length + " bytes exceeds the limit of " + MAX_URL_BYTES);
+        }
+        return bytes;
+    }
+
+    private UrlKey urlKey(String url, byte[] bytes) {
+        String canonical = canonicalizer.canonicalize(url);
+        byte[] canonicalBytes = canonical == url ? bytes : canonical.getBytes(StandardCharsets.UTF_8);
+        Hashing.Fingerprint fingerprint = Hashing.hash128(canonicalBytes, 0, canonicalBytes.length);
+        int tag = (int) urlTag(bytes);
+        if (dictionaries == null) {
+            return new UrlKey(url, bytes, null, canonical, fingerprint.high(), fingerprint.low(), tag);
+        }
+        PrefixDictionary dictionary = dictionaries[currentDictionary];
+        return new UrlKey(url, dictionary.encode(bytes), dictionary, canonical, fingerprint.high(), fingerprint.low(), tag);
+    }
+
+    private static long urlTag(byte[] bytes) {
+        return Hashing.hash64(bytes, 0, bytes.length) >>> 32;
+    }
+
+    private byte[] slabAt(int number) {
+        return slabs[number & (slabs.length - 1)];
+    }
+
+    private static int codeHome(long key, int mask) {
+        return (int) Hashing.mix(key) & mask;
+    }
+
+    private static int urlHome(long fingerprint, int mask) {
+        // fingerprints are fully mixed already
+        return (int) fingerprint & mask;
+    }
+
+    private static long location(int slab, int offset) {
+        return ((long) slab << 32) | offset;
+    }
+
+    private static int slabNumber(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int slabOffset(long location) {
+        return (int) location;
+    }
+
+    private static int tableSizeFor(int entries) {
+        return Integer.highestOneBit(Math.max(2, entries) * 4 - 1);
+    }
+
+    /**
+     * A URL prepared for the URL index: its stored bytes and the dictionary that encoded them, its
+     * canonical form and the fingerprint of that form
+     */
+    private record UrlKey(String url, byte[] bytes, PrefixDictionary dictionary, String canonical, long high, long low,
+                          int tag) {
+    }
+}
@@ -0,0 +1,550 @@
+package com.gk.shortlink.store;
+
+import com.gk.shortlink.dto.LinkMapping;
+import com.gk.shortlink.generator.Base62;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Embedded, single-file {@link LinkStore}. Mappings are appended to a log file and located through two
+ * in-memory indexes holding only a hash and a file offset per mapping, so URLs live on disk and a lookup
+ * costs one positional read, usually served from the page cache.
+ * <pre>
+ * file   := magic:int version:int record*
+ * record := length:int crc32c:int flags|codeLength:byte code:ascii[codeLength] [expiresAt:long] [redirect:int] url:utf8
+ * </pre>
+ * The high bit of the code length byte marks an expiring mapping, whose expiry in epoch milliseconds
+ * follows the code; the next bit marks a mapping with redirect policy bits of its own, which follow the
+ * expiry. Such records are only indexed by code, and expiring ones are filtered out by lookups once
+ * expired; like replaced records they are not reclaimed.
+ * Writers are serialised and append a whole batch with one write and one force. Readers only hold a lock
+ * while consulting the indexes; records are immutable once written. The indexes are rebuilt by scanning the
+ * file on open, which also truncates a torn tail. Replaced records are never reclaimed.
+ * <p>
+ * The code generator's high-water mark is kept in {@code generator.mark} next to the log, replaced as a whole.
+ * <p>
+ * File access blocks, so the reactive methods run on the bounded elastic scheduler.
+ */
+public final class FileLinkStore implements LinkStore {
+
+    static final String FILE_NAME = "links.dat";
+    static final String MARK_FILE_NAME = "generator.mark";
+    private static final int MAGIC = 0x534C4B53; // "SLKS"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int SCAN_CHUNK = 1024;
+    private static final int EXPIRING = 0x80;
+    private static final int REDIRECT = 0x40;
+    private static final int CODE_LENGTH_MASK = 0x3F;
+
+    private final FileChannel channel;
+    private final Path dataDir;
+    private final boolean fsync;
+    private final Clock clock;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+    // code key -> offset of the code's current record
+    private final OffsetIndex byCode = new OffsetIndex();
+    // URL hash -> offsets of records holding the URL; records whose code has moved on are stale
+    private final OffsetIndex byUrl = new OffsetIndex();
+    private volatile long end;
+    private volatile String highWaterMark;
+
+    private FileLinkStore(FileChannel channel, Path dataDir, boolean fsync, Clock clock) {
+        this.channel = channel;
+        this.dataDir = dataDir;
+        this.fsync = fsync;
+        this.clock = clock;
+    }
+
+    /**
+     * Method to open the store in a directory, creating it if needed
+     *
+     * @param dataDir directory holding the store file
+     * @param fsync   whether every written batch is forced to disk before it is confirmed
+     * @return opened store with its indexes rebuilt
+     */
+    public static FileLinkStore open(Path dataDir, boolean fsync) {
+        return open(dataDir, fsync, Clock.systemUTC());
+    }
+
+    /**
+     * Method to open the store in a directory, creating it if needed
+     *
+     * @param dataDir directory holding the store file
+     * @param fsync   whether every written batch is forced to disk before it is confirmed
+     * @param clock   time source deciding which mappings have expired
+     * @return opened store with its indexes rebuilt
+     */
+    public static FileLinkStore open(Path dataDir, boolean fsync, Clock clock) {
+        try {
+            Files.createDirectories(dataDir);
+            FileChannel channel = FileChannel.open(dataDir.resolve(FILE_NAME),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileLinkStore store = new FileLinkStore(channel, dataDir, fsync, clock);
+            store.load();
+            Path mark = dataDir.resolve(MARK_FILE_NAME);
+            if (Files.exists(mark)) {
+                store.highWaterMark = Files.readString(mark, StandardCharsets.US_ASCII).trim();
+            }
+            return store;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open link store in " + dataDir, e);
+        }
+    }
+
+    @Override
+    public Mono<String> get(String code) {
+        return Mono.fromCallable(() -> urlOf(code)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<LinkMapping> getMapping(String code) {
+        return Mono.fromCallable(() -> mappingOf(code)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<String> getByUrl(String url) {
+        return Mono.fromCallable(() -> codeOf(url)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<Void> put(String code, String url) {
+        return putAll(List.of(new LinkMapping(code, url)));
+    }
+
+    @Override
+    public Mono<String> putIfAbsent(String code, String url) {
+        return putAllIfAbsent(List.of(new LinkMapping(code, url))).mapNotNull(results -> results.get(0));
+    }
+
+    @Override
+    public Mono<Map<String, String>> getAll(Collection<String> codes) {
+        return Mono.fromCallable(() -> {
+            Map<String, String> urls = new HashMap<>();
+            for (String code : codes) {
+                String url = urlOf(code);
+                if (url != null) {
+                    urls.put(code, url);
+                }
+            }
+            return urls;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<Map<String, String>> getAllByUrl(Collection<String> urls) {
+        return Mono.fromCallable(() -> {
+            Map<String, String> codes = new HashMap<>();
+            for (String url : urls) {
+                String code = codeOf(url);
+                if (code != null) {
+                    codes.put(url, code);
+                }
+            }
+            return codes;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<Void> putAll(List<LinkMapping> mappings) {
+        return Mono.<Void>fromRunnable(() -> {
+            writeLock.lock();
+            try {
+                append(mappings);
+            } finally {
+                writeLock.unlock();
+            }
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<List<String>> putAllIfAbsent(List<LinkMapping> mappings) {
+        return Mono.fromCallable(() -> writeIfAbsent(mappings)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Flux<LinkMapping> scan() {
+        return Flux.<List<LinkMapping>, Long>generate(() -> (long) FILE_HEADER_SIZE, (offset, sink) -> {
+                long limit = end;
+                List<LinkMapping> chunk = new ArrayList<>(SCAN_CHUNK);
+                while (offset < limit && chunk.size() < SCAN_CHUNK) {
+                    Stored record = read(offset);
+                    if (currentOffset(Base62.toKey(record.code())) == offset) {
+                        chunk.add(new LinkMapping(record.code(), record.url(), record.expiresAt(), record.redirect()));
+                    }
+                    offset += record.size();
+                }
+                sink.next(chunk);
+                if (offset >= limit) {
+                    sink.complete();
+                }
+                return offset;
+            })
+            .flatMapIterable(chunk -> chunk)
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<Void> putHighWaterMark(String code) {
+        return Mono.<Void>fromRunnable(() -> writeHighWaterMark(code)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<String> highWaterMark() {
+        return Mono.justOrEmpty(highWaterMark);
+    }
+
+    /**
+     * @return number of mappings
+     */
+    public int size() {
+        indexLock.readLock().lock();
+        try {
+            return byCode.size();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void writeHighWaterMark(String code) {
+        Path temporary = dataDir.resolve(MARK_FILE_NAME + ".tmp");
+        writeLock.lock();
+        try {
+            try (FileChannel mark = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(code.getBytes(StandardCharsets.US_ASCII));
+                while (buffer.hasRemaining()) {
+                    mark.write(buffer);
+                }
+                if (fsync) {
+                    mark.force(true);
+                }
+            }
+            Files.move(temporary, dataDir.resolve(MARK_FILE_NAME), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+            highWaterMark = code;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to record the high-water mark in " + dataDir, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // ---- reads
+
+    private String urlOf(String code) {
+        LinkMapping mapping = mappingOf(code);
+        return mapping == null ? null : mapping.url();
+    }
+
+    private LinkMapping mappingOf(String code) {
+        long key = Base62.toKey(code);
+        if (key < 0) {
+            return null;
+        }
+        long offset = currentOffset(key);
+        if (offset < 0) {
+            return null;
+        }
+        Stored record = read(offset);
+        if (record.expiresAt() != 0 && clock.millis() >= record.expiresAt()) {
+            return null;
+        }
+        return new LinkMapping(record.code(), record.url(), record.expiresAt(), record.redirect());
+    }
+
+    private String codeOf(String url) {
+        long offset = urlOffset(url);
+        return offset < 0 ? null : read(offset).code();
+    }
+
+    private long currentOffset(long key) {
+        indexLock.readLock().lock();
+        try {
+            return lockedCurrentOffset(key);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    private long lockedCurrentOffset(long key) {
+        int slot = byCode.find(key, offset -> true);
+        return slot < 0 ? -1 : byCode.offset(slot);
+    }
+
+    private long urlOffset(String url) {
+        long hash = urlHash(url);
+        indexLock.readLock().lock();
+        try {
+            int slot = byUrl.find(hash, offset -> {
+                Stored record = read(offset);
+                return record.url().equals(url) && lockedCurrentOffset(Base62.toKey(record.code())) == offset;
+            });
+            return slot < 0 ? -1 : byUrl.offset(slot);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    private Stored read(long offset) {
+        try {
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+            readFully(header, offset);
+            int length = header.getInt(0);
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, offset + RECORD_HEADER_SIZE);
+            return decode(payload.array(), length, RECORD_HEADER_SIZE + length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read link store record at " + offset, e);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Record at " + position + " ends beyond the end of the file");
+            }
+        }
+    }
+
+    // ---- writes, serialised by writeLock
+
+    private List<String> writeIfAbsent(List<LinkMapping> mappings) {
+        String[] results = new String[mappings.size()];
+        List<LinkMapping> accepted = new ArrayList<>(mappings.size());
+        writeLock.lock();
+        try {
+            // decisions also see the mappings accepted earlier in the same batch
+            Map<String, String> batchCodes = new HashMap<>();
+            Set<Long> batchKeys = new HashSet<>();
+            for (int i = 0; i < mappings.size(); i++) {
+                LinkMapping mapping = mappings.get(i);
+                long key = checkedKey(mapping.code());
+                // expiring mappings and those with a redirect policy are not shared, so only their code has to be free
+                String existing = mapping.shared() ? batchCodes.get(mapping.url()) : null;
+                if (existing == null && mapping.shared()) {
+                    existing = codeOf(mapping.url());
+                }
+                if (existing != null) {
+                    results[i] = existing;
+                } else if (!batchKeys.contains(key) && currentOffset(key) < 0) {
+                    if (mapping.shared()) {
+                        batchCodes.put(mapping.url(), mapping.code());
+                    }
+                    batchKeys.add(key);
+                    accepted.add(mapping);
+                    results[i] = mapping.code();
+                }
+            }
+            append(accepted);
+        } finally {
+            writeLock.unlock();
+        }
+        return Arrays.asList(results);
+    }
+
+    private void append(List<LinkMapping> mappings) {
+        if (mappings.isEmpty()) {
+            return;
+        }
+        long[] offsets = new long[mappings.size()];
+        List<byte[]> urls = new ArrayList<>(mappings.size());
+        int total = 0;
+        for (LinkMapping mapping : mappings) {
+            checkedKey(mapping.code());
+            byte[] url = mapping.url().getBytes(StandardCharsets.UTF_8);
+            urls.add(url);
+            total += RECORD_HEADER_SIZE + payloadLength(mapping, url);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        CRC32C crc = new CRC32C();
+        long position = end;
+        for (int i = 0; i < mappings.size(); i++) {
+            offsets[i] = position + buffer.position();
+            encode(buffer, mappings.get(i), urls.get(i), crc);
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to append to link store", e);
+        }
+        indexLock.writeLock().lock();
+        try {
+            for (int i = 0; i < mappings.size(); i++) {
+                index(mappings.get(i).code(), urls.get(i), mappings.get(i).shared(), offsets[i]);
+            }
+            end = position + total;
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    private void index(String code, byte[] url, boolean shared, long offset) {
+        long key = Base62.toKey(code);
+        int slot = byCode.find(key, existing -> true);
+        if (slot >= 0) {
+            byCode.setOffset(slot, offset);
+        } else {
+            byCode.add(key, offset);
+        }
+        if (shared) {
+            byUrl.add(Hashing.hash64(url, 0, url.length), offset);
+        }
+    }
+
+    private void load() throws IOException {
+        long size = channel.size();
+        if (size < FILE_HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+            channel.force(true);
+            end = FILE_HEADER_SIZE;
+            return;
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0)), 1 << 16));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a link store file");
+        }
+        CRC32C crc = new CRC32C();
+        long offset = FILE_HEADER_SIZE;
+        byte[] payload = new byte[256];
+        while (offset + RECORD_HEADER_SIZE <= size) {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length < 2 || offset + RECORD_HEADER_SIZE + length > size) {
+                break;
+            }
+            if (payload.length < length) {
+                payload = new byte[Math.max(length, payload.length * 2)];
+            }
+            in.readFully(payload, 0, length);
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            int codeLength = payload[0] & CODE_LENGTH_MASK;
+            boolean expires = (payload[0] & EXPIRING) != 0;
+            boolean redirect = (payload[0] & REDIRECT) != 0;
+            String code = new String(payload, 1, codeLength, StandardCharsets.US_ASCII);
+            int urlStart = 1 + codeLength + (expires ? Long.BYTES : 0) + (redirect ? Integer.BYTES : 0);
+            index(code, Arrays.copyOfRange(payload, urlStart, length), !expires && !redirect, offset);
+            offset += RECORD_HEADER_SIZE + length;
+        }
+        if (offset < size) {
+            // torn or corrupt tail of an interrupted write
+            channel.truncate(offset);
+        }
+        end = offset;
+    }
+
+    private static int payloadLength(LinkMapping mapping, byte[] url) {
+        return 1 + mapping.code().length() + (mapping.expires() ? Long.BYTES : 0)
+            + (mapping.redirect() != 0 ? Integer.BYTES : 0) + url.length;
+    }
+
+    private static void encode(ByteBuffer buffer, LinkMapping mapping, byte[] url, CRC32C crc) {
+        String code = mapping.code();
+        int start = buffer.position();
+        int payloadStart = start + RECORD_HEADER_SIZE;
+        int length = payloadLength(mapping, url);
+        buffer.position(payloadStart);
+        buffer.put((byte) (code.length() | (mapping.expires() ? EXPIRING : 0) | (mapping.redirect() != 0 ? REDIRECT : 0)));
+        for (int i = 0; i < code.length(); i++) {
+            buffer.put((byte) code.charAt(i));
+        }
+        if (mapping.expires()) {
+            buffer.putLong(mapping.expiresAt());
+        }
+        if (mapping.redirect() != 0) {
+            buffer.putInt(mapping.redirect());
+        }
+        buffer.put(url);
+        crc.reset();
+        crc.update(buffer.slice(payloadStart, length));
+        buffer.putInt(start, length);
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    private static Stored decode(byte[] payload, int length, int size) {
+        int codeLength = payload[0] & CODE_LENGTH_MASK;
+        String code = new String(payload, 1, codeLength, StandardCharsets.US_ASCII);
+        int position = 1 + codeLength;
+        long expiresAt = 0;
+        if ((payload[0] & EXPIRING) != 0) {
+            expiresAt = ByteBuffer.wrap(payload, position, Long.BYTES).getLong();
+            position += Long.BYTES;
+        }
+        int redirect = 0;
+        if ((payload[0] & REDIRECT) != 0) {
+            redirect = ByteBuffer.wrap(payload, position, Integer.BYTES).getInt();
+            position += Integer.BYTES;
+        }
+        String url = new String(payload, position, length - position, StandardCharsets.UTF_8);
+        return new Stored(code, url, expiresAt, redirect, size);
+    }
+
+    private static long urlHash(String url) {
+        byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+        return Hashing.hash64(bytes, 0, bytes.length);
+    }
+
+    private static long checkedKey(String code) {
+        long key = Base62.toKey(code);
+        if (key < 0) {
+            throw new IllegalArgumentException("Invalid short code: " + code);
+        }
+        return key;
+    }
+
+    private record Stored(String code, String url, long expiresAt, int redirect, int size) {
+    }
+}
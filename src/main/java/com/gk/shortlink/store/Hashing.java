@@ -0,0 +1,75 @@
+package com.gk.shortlink.store;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Non-cryptographic hash functions used by the in-memory indexes.
+ */
+final class Hashing {
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long PRIME = 0x9E3779B97F4A7C15L;
+    private static final long SECOND_LANE_PRIME = 0xC2B2AE3D27D4EB4FL;
+    private static final long SECOND_LANE_SEED = 0x165667B19E3779F9L;
+
+    private Hashing() {
+    }
+
+    /**
+     * 64-bit hash of a byte range, consuming eight bytes per step
+     */
+    static long hash64(byte[] bytes, int offset, int length) {
+        long hash = PRIME ^ length;
+        int end = offset + length;
+        int i = offset;
+        for (; i + 8 <= end; i += 8) {
+            hash = Long.rotateLeft(hash ^ mix((long) LONGS.get(bytes, i)), 29) * PRIME;
+        }
+        long tail = 0;
+        for (int shift = 0; i < end; i++, shift += 8) {
+            tail |= (bytes[i] & 0xFFL) << shift;
+        }
+        return mix(hash ^ mix(tail));
+    }
+
+    /**
+     * 128-bit hash of a byte range computed as two lanes in a single pass. Each lane mixes every
+     * eight-byte block differently and the second lane also absorbs the first, so two inputs
+     * collide only if the whole 128-bit state does.
+     */
+    static Fingerprint hash128(byte[] bytes, int offset, int length) {
+        long high = PRIME ^ length;
+        long low = SECOND_LANE_SEED ^ length;
+        int end = offset + length;
+        int i = offset;
+        for (; i + 8 <= end; i += 8) {
+            long block = (long) LONGS.get(bytes, i);
+            high = Long.rotateLeft(high ^ mix(block), 29) * PRIME;
+            low = Long.rotateLeft(low ^ mix(block ^ SECOND_LANE_SEED), 31) * SECOND_LANE_PRIME + high;
+        }
+        long tail = 0;
+        for (int shift = 0; i < end; i++, shift += 8) {
+            tail |= (bytes[i] & 0xFFL) << shift;
+        }
+        high = mix(high ^ mix(tail));
+        low = mix(low ^ mix(tail ^ SECOND_LANE_SEED) ^ high);
+        return new Fingerprint(high, low);
+    }
+
+    /**
+     * SplitMix64 / murmur3 finaliser
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 128-bit hash value
+     */
+    record Fingerprint(long high, long low) {
+    }
+}
@@ -0,0 +1,126 @@
+package com.gk.shortlink.store;
+
+import com.gk.shortlink.dto.LinkMapping;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reactive SPI of the system of record behind the in-memory {@link CompactMappingStore}. When a link store
+ * is configured the compact store acts as a read-through near-cache: lookups it cannot answer fall back to
+ * the link store and warm it, and every new mapping is written to the link store before it is confirmed.
+ * <p>
+ * Implementations compare URLs exactly. Equivalent URL forms are deduplicated by the near-cache, which
+ * canonicalizes before comparing. Mappings with an expiry only claim their code; they are never found by
+ * URL and are treated as absent once expired.
+ */
+public interface LinkStore extends AutoCloseable {
+
+    /**
+     * Method to look up the URL of a code
+     *
+     * @param code short code
+     * @return original URL, or empty if the code is not mapped or its mapping has expired
+     */
+    Mono<String> get(String code);
+
+    /**
+     * Variant of {@link #get(String)} that also returns the mapping's expiry, for callers that cache it
+     *
+     * @param code short code
+     * @return mapping of the code, or empty if the code is not mapped or its mapping has expired
+     */
+    default Mono<LinkMapping> getMapping(String code) {
+        return get(code).map(url -> new LinkMapping(code, url));
+    }
+
+    /**
+     * Method to look up the code of a URL
+     *
+     * @param url original URL
+     * @return short code, or empty if the URL is not mapped
+     */
+    Mono<String> getByUrl(String url);
+
+    /**
+     * Method to map a code to a URL, replacing the code's previous URL
+     */
+    Mono<Void> put(String code, String url);
+
+    /**
+     * Method to atomically map a new code to a URL unless either side is already taken
+     *
+     * @param code candidate short code
+     * @param url  original URL
+     * @return the code now mapped to the URL, which is either {@code code} or the code the URL already had,
+     * or empty if {@code code} is taken by another URL
+     */
+    Mono<String> putIfAbsent(String code, String url);
+
+    /**
+     * Variant of {@link #putIfAbsent(String, String)} for a mapping that may expire. An expiring mapping is
+     * accepted if its code is free, whether or not its URL is mapped already.
+     *
+     * @return the code now mapped to the URL, or empty if the code is taken
+     */
+    default Mono<String> putIfAbsent(LinkMapping mapping) {
+        return putAllIfAbsent(List.of(mapping)).mapNotNull(results -> results.get(0));
+    }
+
+    /**
+     * Batch variant of {@link #get(String)}
+     *
+     * @return URL by code, for the codes that are mapped
+     */
+    Mono<Map<String, String>> getAll(Collection<String> codes);
+
+    /**
+     * Batch variant of {@link #getByUrl(String)}
+     *
+     * @return code by URL, for the URLs that are mapped
+     */
+    Mono<Map<String, String>> getAllByUrl(Collection<String> urls);
+
+    /**
+     * Batch variant of {@link #put(String, String)}, applied in order
+     */
+    Mono<Void> putAll(List<LinkMapping> mappings);
+
+    /**
+     * Batch variant of {@link #putIfAbsent(LinkMapping)}, applied in order
+     *
+     * @return per mapping result as described for {@link #putIfAbsent(String, String)}, null where the code was taken
+     */
+    Mono<List<String>> putAllIfAbsent(List<LinkMapping> mappings);
+
+    /**
+     * Method to stream every mapping, e.g. for exports or for code generators that must not reissue codes.
+     * Expired mappings are included, as their codes stay taken.
+     */
+    Flux<LinkMapping> scan();
+
+    /**
+     * Method to record how far the code generator has advanced, so that a restart resumes past every code in
+     * the store without scanning it. A mark replaces the one recorded before it.
+     *
+     * @param code the generator's {@link com.gk.shortlink.generator.CodeGenerator#highWaterMark() high-water mark}
+     * @return completes once the mark is as durable as the store's mappings
+     */
+    default Mono<Void> putHighWaterMark(String code) {
+        return Mono.empty();
+    }
+
+    /**
+     * @return the high-water mark recorded last, or empty if there is none or the store keeps none
+     */
+    default Mono<String> highWaterMark() {
+        return Mono.empty();
+    }
+
+    @Override
+    default void close() {
+    }
+}
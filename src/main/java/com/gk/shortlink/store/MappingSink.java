@@ -0,0 +1,16 @@
+package com.gk.shortlink.store;
+
+/**
+ * Receiver of mappings together with their expiry and redirect bits, for walks over stored or journaled mappings.
+ */
+@FunctionalInterface
+public interface MappingSink {
+
+    /**
+     * @param code      short code
+     * @param url       original URL
+     * @param expiresAt epoch milliseconds at which the mapping expires, 0 if it never does
+     * @param redirect  redirect policy bits, 0 if the mapping follows the server's defaults
+     */
+    void accept(String code, String url, long expiresAt, int redirect);
+}
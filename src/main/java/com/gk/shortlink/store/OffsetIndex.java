@@ -0,0 +1,86 @@
+package com.gk.shortlink.store;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * Open-addressing hash table from 64-bit keys to file offsets, without boxing. A key may be added more
+ * than once, e.g. for colliding URL hashes; lookups then test every offset stored under the key.
+ * Not thread-safe.
+ */
+final class OffsetIndex {
+
+    private static final long EMPTY = -1;
+
+    private long[] keys;
+    private long[] offsets;
+    private int size;
+
+    OffsetIndex() {
+        keys = new long[1024];
+        offsets = new long[1024];
+        Arrays.fill(offsets, EMPTY);
+    }
+
+    /**
+     * Method to find the slot of a key whose offset passes a test
+     *
+     * @return slot, or -1 if no offset under the key is accepted
+     */
+    int find(long key, LongPredicate accept) {
+        int mask = keys.length - 1;
+        for (int slot = home(key, mask); offsets[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key && accept.test(offsets[slot])) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    long offset(int slot) {
+        return offsets[slot];
+    }
+
+    void setOffset(int slot, long offset) {
+        offsets[slot] = offset;
+    }
+
+    void add(long key, long offset) {
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+        insert(keys, offsets, key, offset);
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] grownKeys = new long[keys.length * 2];
+        long[] grownOffsets = new long[offsets.length * 2];
+        Arrays.fill(grownOffsets, EMPTY);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (offsets[slot] != EMPTY) {
+                insert(grownKeys, grownOffsets, keys[slot], offsets[slot]);
+            }
+        }
+        keys = grownKeys;
+        offsets = grownOffsets;
+    }
+
+    private static void insert(long[] keys, long[] offsets, long key, long offset) {
+        int mask = keys.length - 1;
+        int slot = home(key, mask);
+        while (offsets[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        offsets[slot] = offset;
+    }
+
+    private static int home(long key, int mask) {
+        return (int) Hashing.mix(key) & mask;
+    }
+}
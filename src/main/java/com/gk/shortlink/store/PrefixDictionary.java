@@ -0,0 +1,200 @@
+package com.gk.shortlink.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable dictionary of URL prefixes trained from a sample of stored URLs. A URL is encoded as the
+ * id of its longest dictionary prefix followed by the remaining UTF-8 bytes:
+ * <pre>
+ * encoded := id suffix
+ * id      := 0xxxxxxx                  ids 0..127, 0 meaning no prefix
+ *          | 1xxxxxxx xxxxxxxx         ids 128..32767
+ * </pre>
+ * Prefixes end at a {@code / ? & =} delimiter, where URLs sharing a site, path or query structure diverge.
+ * Encoding finds the longest prefix in one pass over the bytes; decoding is two array copies.
+ */
+final class PrefixDictionary {
+
+    static final int MAX_PREFIXES = (1 << 15) - 1;
+    static final PrefixDictionary EMPTY = new PrefixDictionary(List.of());
+
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+    private static final int MIN_PREFIX_LENGTH = 8;
+    // decode buffer, so that the only allocation of a decode is the resulting string
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[4096]);
+
+    // prefixes[id - 1] holds the bytes of prefix id
+    private final byte[][] prefixes;
+    // open addressing table from prefix hash to id, 0 marks an empty slot
+    private final long[] slotHashes;
+    private final int[] slotIds;
+
+    private PrefixDictionary(List<byte[]> prefixes) {
+        this.prefixes = prefixes.toArray(byte[][]::new);
+        int tableSize = Integer.highestOneBit(Math.max(2, prefixes.size()) * 4 - 1);
+        this.slotHashes = new long[tableSize];
+        this.slotIds = new int[tableSize];
+        for (int id = 1; id <= this.prefixes.length; id++) {
+            byte[] prefix = this.prefixes[id - 1];
+            long hash = FNV_OFFSET;
+            for (byte b : prefix) {
+                hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+            }
+            int slot = (int) Hashing.mix(hash) & (tableSize - 1);
+            while (slotIds[slot] != 0) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            slotHashes[slot] = hash;
+            slotIds[slot] = id;
+        }
+    }
+
+    /**
+     * Method to train a dictionary: every delimiter-terminated prefix seen at least twice is scored by
+     * the bytes it would save across the sample, and the best scoring ones are kept
+     *
+     * @param sample      URLs representative of the stored ones
+     * @param maxPrefixes dictionary size, at most {@link #MAX_PREFIXES}
+     * @return trained dictionary
+     */
+    static PrefixDictionary train(Collection<String> sample, int maxPrefixes) {
+        Map<String, int[]> counts = new HashMap<>();
+        for (String url : sample) {
+            for (int i = MIN_PREFIX_LENGTH - 1; i < url.length(); i++) {
+                if (isDelimiter(url.charAt(i))) {
+                    counts.computeIfAbsent(url.substring(0, i + 1), prefix -> new int[1])[0]++;
+                }
+            }
+        }
+        List<Map.Entry<String, int[]>> candidates = new ArrayList<>();
+        for (Map.Entry<String, int[]> candidate : counts.entrySet()) {
+            if (candidate.getValue()[0] >= 2) {
+                candidates.add(candidate);
+            }
+        }
+        candidates.sort((a, b) -> Long.compare(savings(b), savings(a)));
+        int size = Math.min(Math.min(maxPrefixes, MAX_PREFIXES), candidates.size());
+        List<byte[]> prefixes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            prefixes.add(candidates.get(i).getKey().getBytes(StandardCharsets.UTF_8));
+        }
+        // most valuable prefixes get the one-byte ids
+        return new PrefixDictionary(prefixes);
+    }
+
+    int size() {
+        return prefixes.length;
+    }
+
+    /**
+     * Method to encode a URL
+     *
+     * @param url UTF-8 bytes of the URL
+     * @return prefix id followed by the bytes after the prefix
+     */
+    byte[] encode(byte[] url) {
+        int id = 0;
+        int prefixLength = 0;
+        if (prefixes.length > 0) {
+            long hash = FNV_OFFSET;
+            for (int i = 0; i < url.length; i++) {
+                hash = (hash ^ (url[i] & 0xFF)) * FNV_PRIME;
+                if (i >= MIN_PREFIX_LENGTH - 1 && isDelimiter((char) url[i])) {
+                    int match = find(hash, url, i + 1);
+                    if (match != 0) {
+                        id = match;
+                        prefixLength = i + 1;
+                    }
+                }
+            }
+        }
+        int idLength = id < 128 ? 1 : 2;
+        byte[] encoded = new byte[idLength + url.length - prefixLength];
+        if (idLength == 1) {
+            encoded[0] = (byte) id;
+        } else {
+            encoded[0] = (byte) (0x80 | (id >>> 8));
+            encoded[1] = (byte) id;
+        }
+        System.arraycopy(url, prefixLength, encoded, idLength, url.length - prefixLength);
+        return encoded;
+    }
+
+    /**
+     * Method to decode a URL encoded by this dictionary
+     *
+     * @param source buffer holding the encoded URL
+     * @param offset start of the encoded URL
+     * @param length encoded length
+     * @return decoded URL
+     */
+    String decode(byte[] source, int offset, int length) {
+        int first = source[offset];
+        int id;
+        int idLength;
+        if (first >= 0) {
+            id = first;
+            idLength = 1;
+        } else {
+            id = ((first & 0x7F) << 8) | (source[offset + 1] & 0xFF);
+            idLength = 2;
+        }
+        if (id == 0) {
+            return new String(source, offset + 1, length - 1, StandardCharsets.UTF_8);
+        }
+        byte[] prefix = prefixes[id - 1];
+        int suffixLength = length - idLength;
+        int urlLength = prefix.length + suffixLength;
+        byte[] url = SCRATCH.get();
+        if (url.length < urlLength) {
+            url = new byte[urlLength];
+        }
+        System.arraycopy(prefix, 0, url, 0, prefix.length);
+        System.arraycopy(source, offset + idLength, url, prefix.length, suffixLength);
+        return new String(url, 0, urlLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return total UTF-8 bytes of the sample divided by its total encoded bytes
+     */
+    double compressionRatio(Collection<String> sample) {
+        long raw = 0;
+        long encoded = 0;
+        for (String url : sample) {
+            byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+            raw += bytes.length;
+            encoded += encode(bytes).length;
+        }
+        return encoded == 0 ? 1 : (double) raw / encoded;
+    }
+
+    private int find(long hash, byte[] url, int length) {
+        int mask = slotIds.length - 1;
+        int slot = (int) Hashing.mix(hash) & mask;
+        while (slotIds[slot] != 0) {
+            if (slotHashes[slot] == hash) {
+                byte[] prefix = prefixes[slotIds[slot] - 1];
+                if (prefix.length == length && Arrays.equals(prefix, 0, length, url, 0, length)) {
+                    return slotIds[slot];
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    private static long savings(Map.Entry<String, int[]> candidate) {
+        return (long) candidate.getValue()[0] * (candidate.getKey().length() - 2);
+    }
+
+    private static boolean isDelimiter(char c) {
+        return c == '/' || c == '?' || c == '&' || c == '=';
+    }
+}
@@ -0,0 +1,12 @@
+package com.gk.shortlink.store;
+
+public enum StorageBackend {
+    /**
+     * The bounded in-memory store only, evicted mappings are gone
+     */
+    MEMORY,
+    /**
+     * An embedded {@link FileLinkStore} as the system of record, read through from the in-memory store
+     */
+    FILE
+}
@@ -0,0 +1,170 @@
+package com.gk.shortlink.store;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical timing wheel of (key, deadline) timers with whole-tick resolution, after Varghese and Lauck.
+ * <p>
+ * Level {@code n} has 64 slots of 64<sup>n</sup> ticks each. A timer goes to the lowest level on which its
+ * deadline and the current tick differ, in the slot of the deadline's digit on that level, so scheduling is
+ * O(1) whatever the deadline. When the current tick crosses a slot boundary of a higher level, that slot is
+ * cascaded: its timers are rescheduled onto lower levels, which every timer undergoes at most once per level.
+ * Timers due at the current tick are moved to a ready list and handed out in bounded portions.
+ * <p>
+ * Timers cannot be cancelled; callers check on expiry whether the timer is still current. Not thread-safe.
+ */
+final class TimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    // 64^6 ticks, beyond two thousand years at one second per tick
+    private static final int LEVELS = 6;
+
+    /**
+     * Receiver of expired timers
+     */
+    @FunctionalInterface
+    interface Expiration {
+        void expire(long key, long deadline);
+    }
+
+    private final Bucket[][] wheels = new Bucket[LEVELS][SLOTS];
+    private final Bucket ready = new Bucket();
+    private long currentTick;
+    private long size;
+
+    /**
+     * @param currentTick tick the wheel starts at; timers with earlier deadlines are due immediately
+     */
+    TimingWheel(long currentTick) {
+        this.currentTick = currentTick;
+        for (Bucket[] wheel : wheels) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                wheel[slot] = new Bucket();
+            }
+        }
+    }
+
+    /**
+     * Method to schedule a timer
+     *
+     * @param key      opaque value handed back on expiry
+     * @param deadline tick at which the timer expires
+     */
+    void schedule(long key, long deadline) {
+        place(key, deadline);
+        size++;
+    }
+
+    /**
+     * Method to advance the wheel to a tick and expire up to {@code limit} due timers. Timers that are due
+     * but exceed the limit stay ready for the next call.
+     *
+     * @param now    current tick; ticks never go backwards, so an earlier value only drains the ready list
+     * @param limit  maximum number of timers to expire
+     * @param action receiver of the expired timers
+     * @return number of timers expired, less than {@code limit} once no due timer is left
+     */
+    int advance(long now, int limit, Expiration action) {
+        if (size == 0 && currentTick < now) {
+            // nothing to cascade, so idle periods are skipped instead of ticked through
+            currentTick = now;
+        }
+        int expired = 0;
+        while (expired < limit) {
+            if (ready.size == 0) {
+                if (currentTick >= now) {
+                    break;
+                }
+                tick();
+                continue;
+            }
+            int last = --ready.size;
+            action.expire(ready.keys[last], ready.deadlines[last]);
+            expired++;
+        }
+        size -= expired;
+        return expired;
+    }
+
+    /**
+     * @return number of scheduled timers that have not expired yet
+     */
+    long size() {
+        return size;
+    }
+
+    long currentTick() {
+        return currentTick;
+    }
+
+    private void tick() {
+        currentTick++;
+        // cascade higher levels whose slot boundary the tick crosses, from the top so timers drop level by level
+        int level = 1;
+        while (level < LEVELS && (currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+            level++;
+        }
+        for (int cascaded = level - 1; cascaded >= 1; cascaded--) {
+            cascade(cascaded);
+        }
+        Bucket due = wheels[0][(int) (currentTick & SLOT_MASK)];
+        for (int i = 0; i < due.size; i++) {
+            ready.add(due.keys[i], due.deadlines[i]);
+        }
+        due.clear();
+    }
+
+    private void cascade(int level) {
+        int slot = (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        Bucket bucket = wheels[level][slot];
+        if (bucket.size == 0) {
+            return;
+        }
+        // swapped out first, so that a timer placed back on the same level cannot be visited twice
+        Bucket replacement = new Bucket();
+        wheels[level][slot] = replacement;
+        for (int i = 0; i < bucket.size; i++) {
+            place(bucket.keys[i], bucket.deadlines[i]);
+        }
+    }
+
+    private void place(long key, long deadline) {
+        if (deadline <= currentTick) {
+            ready.add(key, deadline);
+            return;
+        }
+        int highestBit = 63 - Long.numberOfLeadingZeros(deadline ^ currentTick);
+        int level = Math.min(highestBit / SLOT_BITS, LEVELS - 1);
+        int slot = (int) ((deadline >>> (SLOT_BITS * level)) & SLOT_MASK);
+        wheels[level][slot].add(key, deadline);
+    }
+
+    /**
+     * Growable pair of primitive columns, so a timer costs 16 bytes and no object
+     */
+    private static final class Bucket {
+        private static final long[] EMPTY = new long[0];
+
+        long[] keys = EMPTY;
+        long[] deadlines = EMPTY;
+        int size;
+
+        void add(long key, long deadline) {
+            if (size == keys.length) {
+                int grown = Math.max(4, size * 2);
+                keys = Arrays.copyOf(keys, grown);
+                deadlines = Arrays.copyOf(deadlines, grown);
+            }
+            keys[size] = key;
+            deadlines[size] = deadline;
+            size++;
+        }
+
+        void clear() {
+            // a drained slot of the lowest level is refilled within 64 ticks, so its arrays are kept
+            size = 0;
+        }
+    }
+}
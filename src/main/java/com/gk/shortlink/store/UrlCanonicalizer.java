@@ -0,0 +1,152 @@
+package com.gk.shortlink.store;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Rewrites URLs into a canonical form so that equivalent URLs deduplicate to the same code. The URL is
+ * split into its components by a single scan for delimiters, without {@link java.net.URL} or {@link java.net.URI}
+ * parsing. URLs without an authority ({@code scheme://}) are left unchanged.
+ */
+public final class UrlCanonicalizer {
+
+    private static final UrlCanonicalizer EXACT = new UrlCanonicalizer(EnumSet.noneOf(CanonicalizationRule.class));
+
+    private final boolean lowercaseSchemeAndHost;
+    private final boolean removeDefaultPort;
+    private final boolean addEmptyPath;
+    private final boolean removeFragment;
+    private final boolean sortQueryParameters;
+
+    public UrlCanonicalizer(Set<CanonicalizationRule> rules) {
+        this.lowercaseSchemeAndHost = rules.contains(CanonicalizationRule.LOWERCASE_SCHEME_AND_HOST);
+        this.removeDefaultPort = rules.contains(CanonicalizationRule.REMOVE_DEFAULT_PORT);
+        this.addEmptyPath = rules.contains(CanonicalizationRule.ADD_EMPTY_PATH);
+        this.removeFragment = rules.contains(CanonicalizationRule.REMOVE_FRAGMENT);
+        this.sortQueryParameters = rules.contains(CanonicalizationRule.SORT_QUERY_PARAMETERS);
+    }
+
+    /**
+     * @return canonicalizer that leaves every URL unchanged, so only identical URLs are deduplicated
+     */
+    public static UrlCanonicalizer exact() {
+        return EXACT;
+    }
+
+    public boolean isExact() {
+        return !lowercaseSchemeAndHost && !removeDefaultPort && !addEmptyPath && !removeFragment && !sortQueryParameters;
+    }
+
+    /**
+     * Method to rewrite a URL into its canonical form
+     *
+     * @param url URL to rewrite
+     * @return canonical form, the same instance if nothing changed
+     */
+    public String canonicalize(String url) {
+        if (isExact()) {
+            return url;
+        }
+        int schemeEnd = url.indexOf(':');
+        if (schemeEnd <= 0 || !url.startsWith("//", schemeEnd + 1)) {
+            return url;
+        }
+        int length = url.length();
+        int authorityStart = schemeEnd + 3;
+        int authorityEnd = indexOfAny(url, authorityStart, "/?#");
+        int pathEnd = indexOfAny(url, authorityEnd, "?#");
+        int queryEnd = indexOfAny(url, pathEnd, "#");
+
+        StringBuilder canonical = new StringBuilder(length + 1);
+        String scheme = url.substring(0, schemeEnd);
+        canonical.append(lowercaseSchemeAndHost ? scheme.toLowerCase(Locale.ROOT) : scheme).append("://");
+
+        int hostStart = url.lastIndexOf('@', authorityEnd - 1) + 1;
+        if (hostStart <= authorityStart) {
+            hostStart = authorityStart;
+        }
+        canonical.append(url, authorityStart, hostStart);
+        int portStart = portStart(url, hostStart, authorityEnd);
+        int hostEnd = portStart < 0 ? authorityEnd : portStart - 1;
+        String host = url.substring(hostStart, hostEnd);
+        canonical.append(lowercaseSchemeAndHost ? host.toLowerCase(Locale.ROOT) : host);
+        if (portStart >= 0) {
+            boolean defaultPort = portStart == authorityEnd || isDefaultPort(scheme, url, portStart, authorityEnd);
+            if (!removeDefaultPort || !defaultPort) {
+                canonical.append(url, portStart - 1, authorityEnd);
+            }
+        }
+
+        if (authorityEnd == pathEnd && addEmptyPath && hostEnd > hostStart) {
+            canonical.append('/');
+        } else {
+            canonical.append(url, authorityEnd, pathEnd);
+        }
+
+        if (pathEnd < queryEnd) {
+            if (sortQueryParameters) {
+                String[] parameters = url.substring(pathEnd + 1, queryEnd).split("&", -1);
+                Arrays.sort(parameters);
+                canonical.append('?').append(String.join("&", parameters));
+            } else {
+                canonical.append(url, pathEnd, queryEnd);
+            }
+        }
+        if (!removeFragment) {
+            canonical.append(url, queryEnd, length);
+        }
+        return canonical.length() == length && url.contentEquals(canonical) ? url : canonical.toString();
+    }
+
+    /**
+     * @return index of the first delimiter at or after {@code from}, or the URL length if there is none
+     */
+    private static int indexOfAny(String url, int from, String delimiters) {
+        for (int i = from; i < url.length(); i++) {
+            if (delimiters.indexOf(url.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return url.length();
+    }
+
+    /**
+     * @return index just after the port colon, or -1 if the authority has no port
+     */
+    private static int portStart(String url, int hostStart, int authorityEnd) {
+        int searchFrom = hostStart;
+        if (hostStart < authorityEnd && url.charAt(hostStart) == '[') {
+            // IPv6 literal, its colons are not port separators
+            int literalEnd = url.indexOf(']', hostStart);
+            if (literalEnd < 0 || literalEnd >= authorityEnd) {
+                return -1;
+            }
+            searchFrom = literalEnd;
+        }
+        int colon = url.lastIndexOf(':', authorityEnd - 1);
+        return colon >= searchFrom ? colon + 1 : -1;
+    }
+
+    private static boolean isDefaultPort(String scheme, String url, int portStart, int portEnd) {
+        int defaultPort = switch (scheme.toLowerCase(Locale.ROOT)) {
+            case "http", "ws" -> 80;
+            case "https", "wss" -> 443;
+            case "ftp" -> 21;
+            default -> -1;
+        };
+        if (defaultPort < 0 || portEnd - portStart > 5) {
+            return false;
+        }
+        int port = 0;
+        for (int i = portStart; i < portEnd; i++) {
+            char c = url.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            port = port * 10 + (c - '0');
+        }
+        return port == defaultPort;
+    }
+}
@@ -0,0 +1,268 @@
+package com.gk.shortlink.store;
+
+import com.gk.shortlink.dto.LinkMapping;
+import com.gk.shortlink.exception.StorageBusyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link LinkStore} decorator that coalesces {@code putIfAbsent} calls into batched
+ * {@link LinkStore#putAllIfAbsent(List)} calls on the delegate. Writes wait in a bounded queue drained by
+ * a single flusher thread, which takes whatever has accumulated, up to the batch limit, while the previous
+ * batch was being written; under load batches grow by themselves and idle writes are not delayed.
+ * <p>
+ * Queued writes are visible to lookups through this store before they reach the delegate. A full queue
+ * fails the write with {@link StorageBusyException} instead of blocking the caller.
+ */
+public final class WriteBehindLinkStore implements LinkStore {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindLinkStore.class);
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(10);
+
+    private final LinkStore delegate;
+    private final int maxBatch;
+    private final BlockingQueue<PendingWrite> queue;
+    private final ConcurrentMap<String, LinkMapping> pendingMappings = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> pendingCodes = new ConcurrentHashMap<>();
+    private final LongAdder batches = new LongAdder();
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    /**
+     * @param delegate      store receiving the batched writes
+     * @param queueCapacity writes that may wait for the flusher before new ones are rejected
+     * @param maxBatch      maximum number of writes per delegate call
+     */
+    public WriteBehindLinkStore(LinkStore delegate, int queueCapacity, int maxBatch) {
+        this.delegate = delegate;
+        this.maxBatch = maxBatch;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.flusher = new Thread(this::runFlusher, "link-store-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public Mono<String> get(String code) {
+        return getMapping(code).map(LinkMapping::url);
+    }
+
+    @Override
+    public Mono<LinkMapping> getMapping(String code) {
+        return Mono.defer(() -> {
+            LinkMapping mapping = pendingMappings.get(code);
+            return mapping != null ? Mono.just(mapping) : delegate.getMapping(code);
+        });
+    }
+
+    @Override
+    public Mono<String> getByUrl(String url) {
+        return Mono.defer(() -> {
+            String code = pendingCodes.get(url);
+            return code != null ? Mono.just(code) : delegate.getByUrl(url);
+        });
+    }
+
+    @Override
+    public Mono<Void> put(String code, String url) {
+        return delegate.put(code, url);
+    }
+
+    @Override
+    public Mono<String> putIfAbsent(String code, String url) {
+        return putIfAbsent(new LinkMapping(code, url));
+    }
+
+    @Override
+    public Mono<String> putIfAbsent(LinkMapping mapping) {
+        return Mono.defer(() -> Mono.fromFuture(enqueue(mapping))).mapNotNull(result -> result.orElse(null));
+    }
+
+    @Override
+    public Mono<Map<String, String>> getAll(Collection<String> codes) {
+        return Mono.defer(() -> {
+            Map<String, String> pending = new HashMap<>();
+            List<String> remaining = new ArrayList<>(codes.size());
+            for (String code : codes) {
+                LinkMapping mapping = pendingMappings.get(code);
+                if (mapping != null) {
+                    pending.put(code, mapping.url());
+                } else {
+                    remaining.add(code);
+                }
+            }
+            return remaining.isEmpty() ? Mono.just(pending)
+                : delegate.getAll(remaining).map(found -> merge(found, pending));
+        });
+    }
+
+    @Override
+    public Mono<Map<String, String>> getAllByUrl(Collection<String> urls) {
+        return Mono.defer(() -> {
+            Map<String, String> pending = new HashMap<>();
+            List<String> remaining = new ArrayList<>(urls.size());
+            for (String url : urls) {
+                String code = pendingCodes.get(url);
+                if (code != null) {
+                    pending.put(url, code);
+                } else {
+                    remaining.add(url);
+                }
+            }
+            return remaining.isEmpty() ? Mono.just(pending)
+                : delegate.getAllByUrl(remaining).map(found -> merge(found, pending));
+        });
+    }
+
+    @Override
+    public Mono<Void> putAll(List<LinkMapping> mappings) {
+        return delegate.putAll(mappings);
+    }
+
+    @Override
+    public Mono<List<String>> putAllIfAbsent(List<LinkMapping> mappings) {
+        return Mono.defer(() -> {
+            List<CompletableFuture<Optional<String>>> results = new ArrayList<>(mappings.size());
+            for (LinkMapping mapping : mappings) {
+                results.add(enqueue(mapping));
+            }
+            return Mono.fromFuture(CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    List<String> codes = new ArrayList<>(results.size());
+                    results.forEach(result -> codes.add(result.join().orElse(null)));
+                    return codes;
+                }));
+        });
+    }
+
+    @Override
+    public Flux<LinkMapping> scan() {
+        return delegate.scan();
+    }
+
+    @Override
+    public Mono<Void> putHighWaterMark(String code) {
+        // not queued, the mark must be durable before the writes it covers are queued
+        return delegate.putHighWaterMark(code);
+    }
+
+    @Override
+    public Mono<String> highWaterMark() {
+        return delegate.highWaterMark();
+    }
+
+    /**
+     * @return number of batches written to the delegate
+     */
+    public long batchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * @return writes waiting for the flusher
+     */
+    public int queuedWrites() {
+        return queue.size();
+    }
+
+    /**
+     * Method to stop accepting writes, flush the queued ones and close the delegate
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            flusher.join(CLOSE_TIMEOUT.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.close();
+    }
+
+    private CompletableFuture<Optional<String>> enqueue(LinkMapping mapping) {
+        PendingWrite write = new PendingWrite(mapping, new CompletableFuture<>());
+        if (!running) {
+            throw new StorageBusyException("Link store is closed");
+        }
+        pendingMappings.putIfAbsent(mapping.code(), mapping);
+        if (mapping.shared()) {
+            pendingCodes.putIfAbsent(mapping.url(), mapping.code());
+        }
+        if (!queue.offer(write)) {
+            forget(write);
+            throw new StorageBusyException("Link store write queue is full");
+        }
+        return write.result();
+    }
+
+    private void runFlusher() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        List<LinkMapping> mappings = new ArrayList<>(batch.size());
+        batch.forEach(write -> mappings.add(write.mapping()));
+        try {
+            List<String> results = delegate.putAllIfAbsent(mappings).block();
+            batches.increment();
+            for (int i = 0; i < batch.size(); i++) {
+                forget(batch.get(i));
+                batch.get(i).result().complete(Optional.ofNullable(results.get(i)));
+            }
+        } catch (RuntimeException e) {
+            log.error("Unable to write {} mappings to the link store", batch.size(), e);
+            for (PendingWrite write : batch) {
+                forget(write);
+                write.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void forget(PendingWrite write) {
+        LinkMapping mapping = write.mapping();
+        pendingMappings.remove(mapping.code(), mapping);
+        pendingCodes.remove(mapping.url(), mapping.code());
+    }
+
+    private static Map<String, String> merge(Map<String, String> found, Map<String, String> pending) {
+        Map<String, String> merged = new HashMap<>(found);
+        merged.putAll(pending);
+        return merged;
+    }
+
+    private record PendingWrite(LinkMapping mapping, CompletableFuture<Optional<String>> result) {
+    }
+}
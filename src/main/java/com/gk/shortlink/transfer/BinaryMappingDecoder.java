@@ -0,0 +1,105 @@
+package com.gk.shortlink.transfer;
+
+import com.gk.shortlink.dto.LinkMapping;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Incremental decoder for {@link MappingFormat#BINARY} streams.
+ * <pre>
+ * stream := "SLNKEXP1" record*
+ * record := length:int32be flags|codeLength:byte code:ascii[codeLength] [expiresAt:int64be] [redirect:int32be] url:utf8
+ * </pre>
+ * The high bit of the code length byte marks an expiring link, whose expiry in epoch milliseconds
+ * follows the code; the next bit marks a link with redirect policy bits of its own, which follow the expiry.
+ * Input may be split at any byte boundary; incomplete records are carried over to the next chunk.
+ * Instances are stateful and serve a single stream.
+ */
+public final class BinaryMappingDecoder {
+
+    static final byte[] HEADER = "SLNKEXP1".getBytes(StandardCharsets.US_ASCII);
+    static final int EXPIRING = 0x80;
+    static final int REDIRECT = 0x40;
+    private static final int CODE_LENGTH_MASK = 0x3F;
+    private static final int MAX_RECORD_LENGTH = 1 << 20;
+
+    private byte[] carry = new byte[0];
+    private boolean headerRead;
+
+    /**
+     * Method to decode every complete record available after appending a chunk
+     *
+     * @param chunk next bytes of the stream; consumed entirely
+     * @return mappings completed by this chunk
+     */
+    public List<LinkMapping> decode(ByteBuffer chunk) {
+        ByteBuffer input = concat(chunk);
+        if (!headerRead) {
+            if (input.remaining() < HEADER.length) {
+                keep(input);
+                return List.of();
+            }
+            byte[] header = new byte[HEADER.length];
+            input.get(header);
+            if (!Arrays.equals(header, HEADER)) {
+                throw new IllegalArgumentException("Not a short-link mapping export stream");
+            }
+            headerRead = true;
+        }
+        List<LinkMapping> mappings = new ArrayList<>();
+        while (input.remaining() >= 4) {
+            int length = input.getInt(input.position());
+            if (length < 2 || length > MAX_RECORD_LENGTH) {
+                throw new IllegalArgumentException("Corrupt mapping record of length " + length);
+            }
+            if (input.remaining() < 4 + length) {
+                break;
+            }
+            input.position(input.position() + 4);
+            int flags = input.get() & 0xFF;
+            int codeLength = flags & CODE_LENGTH_MASK;
+            int expiryLength = (flags & EXPIRING) != 0 ? Long.BYTES : 0;
+            int redirectLength = (flags & REDIRECT) != 0 ? Integer.BYTES : 0;
+            if (1 + codeLength + expiryLength + redirectLength > length) {
+                throw new IllegalArgumentException("Corrupt mapping record with code length " + codeLength);
+            }
+            byte[] code = new byte[codeLength];
+            input.get(code);
+            long expiresAt = expiryLength > 0 ? input.getLong() : 0;
+            int redirect = redirectLength > 0 ? input.getInt() : 0;
+            byte[] url = new byte[length - 1 - codeLength - expiryLength - redirectLength];
+            input.get(url);
+            mappings.add(new LinkMapping(new String(code, StandardCharsets.US_ASCII),
+                new String(url, StandardCharsets.UTF_8), expiresAt, redirect));
+        }
+        keep(input);
+        return mappings;
+    }
+
+    /**
+     * Method to verify the stream ended on a record boundary
+     */
+    public void finish() {
+        if (carry.length > 0 || !headerRead) {
+            throw new IllegalArgumentException("Mapping export stream is truncated");
+        }
+    }
+
+    private ByteBuffer concat(ByteBuffer chunk) {
+        if (carry.length == 0) {
+            return chunk;
+        }
+        ByteBuffer joined = ByteBuffer.allocate(carry.length + chunk.remaining());
+        joined.put(carry).put(chunk).flip();
+        return joined;
+    }
+
+    private void keep(ByteBuffer input) {
+        carry = new byte[input.remaining()];
+        input.get(carry);
+    }
+}
@@ -0,0 +1,118 @@
+package com.gk.shortlink.transfer;
+
+import com.gk.shortlink.dto.LinkMapping;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Wire formats for bulk mapping transfer. Both encode a whole chunk of mappings into one byte
+ * array so that a stream of chunks can be written without per-mapping buffers or flushes.
+ */
+public enum MappingFormat {
+
+    /**
+     * One {@code {"code":"...","url":"..."}} object per line, with an {@code "expiresAt"} member for
+     * expiring links and a {@code "redirect"} member for links with a redirect policy of their own
+     */
+    NDJSON(MediaType.APPLICATION_NDJSON) {
+        @Override
+        public byte[] encode(List<LinkMapping> mappings) {
+            StringBuilder json = new StringBuilder(mappings.size() * 96);
+            for (LinkMapping mapping : mappings) {
+                json.append("{\"code\":\"");
+                appendEscaped(json, mapping.code());
+                json.append("\",\"url\":\"");
+                appendEscaped(json, mapping.url());
+                json.append('"');
+                if (mapping.expires()) {
+                    json.append(",\"expiresAt\":").append(mapping.expiresAt());
+                }
+                if (mapping.redirect() != 0) {
+                    json.append(",\"redirect\":").append(mapping.redirect());
+                }
+                json.append("}\n");
+            }
+            return json.toString().getBytes(StandardCharsets.UTF_8);
+        }
+    },
+
+    /**
+     * Length-prefixed records, see {@link BinaryMappingDecoder} for the layout
+     */
+    BINARY(MediaType.APPLICATION_OCTET_STREAM) {
+        @Override
+        public byte[] encode(List<LinkMapping> mappings) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(mappings.size() * 80);
+            for (LinkMapping mapping : mappings) {
+                byte[] url = mapping.url().getBytes(StandardCharsets.UTF_8);
+                int length = 1 + mapping.code().length() + (mapping.expires() ? Long.BYTES : 0)
+                    + (mapping.redirect() != 0 ? Integer.BYTES : 0) + url.length;
+                writeBigEndian(out, length, Integer.BYTES);
+                out.write(mapping.code().length() | (mapping.expires() ? BinaryMappingDecoder.EXPIRING : 0)
+                    | (mapping.redirect() != 0 ? BinaryMappingDecoder.REDIRECT : 0));
+                out.writeBytes(mapping.code().getBytes(StandardCharsets.US_ASCII));
+                if (mapping.expires()) {
+                    writeBigEndian(out, mapping.expiresAt(), Long.BYTES);
+                }
+                if (mapping.redirect() != 0) {
+                    writeBigEndian(out, mapping.redirect(), Integer.BYTES);
+                }
+                out.writeBytes(url);
+            }
+            return out.toByteArray();
+        }
+
+        @Override
+        public byte[] header() {
+            return BinaryMappingDecoder.HEADER.clone();
+        }
+    };
+
+    private final MediaType mediaType;
+
+    MappingFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return bytes written once before the first chunk
+     */
+    public byte[] header() {
+        return new byte[0];
+    }
+
+    public abstract byte[] encode(List<LinkMapping> mappings);
+
+    private static void writeBigEndian(ByteArrayOutputStream out, long value, int bytes) {
+        for (int shift = 8 * (bytes - 1); shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    private static void appendEscaped(StringBuilder json, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+    }
+}
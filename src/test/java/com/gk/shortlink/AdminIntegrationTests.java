@@ -0,0 +1,80 @@
+package com.gk.shortlink;
+
+import com.gk.shortlink.dto.ImportResult;
+import com.gk.shortlink.dto.ShortenRequest;
+import com.gk.shortlink.dto.ShortenResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "shortlink.admin.enabled=true")
+class AdminIntegrationTests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void testExportThenImport() {
+        ShortenResponse shortened = webTestClient.post()
+            .uri("/api/v1/urls/shorten")
+            .bodyValue(new ShortenRequest("https://www.example.com/exported"))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(ShortenResponse.class)
+            .returnResult()
+            .getResponseBody();
+        assertNotNull(shortened);
+
+        // 1. Export contains the mapping
+        String exported = webTestClient.get()
+            .uri("/api/v1/admin/mappings/export?format=ndjson")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .expectBody(String.class)
+            .returnResult()
+            .getResponseBody();
+        assertNotNull(exported);
+        assertTrue(exported.contains("{\"code\":\"" + shortened.code() + "\",\"url\":\"https://www.example.com/exported\"}"));
+
+        // 2. Re-importing the export changes nothing, new mappings keep their codes
+        String imported = exported + "{\"code\":\"Imp0rt\",\"url\":\"https://www.example.com/imported\"}\n";
+        webTestClient.post()
+            .uri("/api/v1/admin/mappings/import")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .bodyValue(imported)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(ImportResult.class)
+            .value(result -> assertTrue(result.imported() == 1 && result.skipped() >= 1));
+
+        webTestClient.get()
+            .uri("/{code}", "Imp0rt")
+            .exchange()
+            .expectStatus().isFound()
+            .expectHeader().valueEquals("Location", "https://www.example.com/imported");
+    }
+
+    @Test
+    void testBinaryImport_RejectsMalformedStream() {
+        webTestClient.post()
+            .uri("/api/v1/admin/mappings/import")
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .bodyValue(new byte[]{1, 2, 3})
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void testExport_RejectsUnknownFormat() {
+        webTestClient.get()
+            .uri("/api/v1/admin/mappings/export?format=xml")
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+}
@@ -0,0 +1,173 @@
+package com.gk.shortlink;
+
+import com.gk.shortlink.dto.ShortenRequest;
+import com.gk.shortlink.dto.ShortenResponse;
+import com.gk.shortlink.generator.Base62;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs a three node cluster on localhost ports inside the test JVM.
+ */
+class ClusterIntegrationTests {
+
+    private static final int NODES = 3;
+    private static final int CAPACITY_PER_NODE = 1_000;
+    private static final long SEED = 0x5EEDL;
+
+    private static final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private static final List<WebTestClient> clients = new ArrayList<>();
+    private static int[] ports;
+
+    @BeforeAll
+    static void startCluster() throws IOException {
+        ports = new int[NODES];
+        for (int i = 0; i < NODES; i++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                ports[i] = socket.getLocalPort();
+            }
+        }
+        String members = IntStream.of(ports).mapToObj(port -> "http://localhost:" + port).collect(Collectors.joining(","));
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(new SpringApplicationBuilder(ShortLinkApplication.class).properties(
+                "server.port=" + ports[i],
+                "shortlink.max-capacity=" + CAPACITY_PER_NODE,
+                "shortlink.persistence.enabled=false",
+                "shortlink.cluster.enabled=true",
+                "shortlink.cluster.node-index=" + i,
+                "shortlink.cluster.members=" + members,
+                "shortlink.generator.seed=" + SEED,
+                "springdoc.api-docs.enabled=false",
+                "springdoc.swagger-ui.enabled=false").run());
+            clients.add(WebTestClient.bindToServer().baseUrl("http://localhost:" + ports[i]).build());
+        }
+    }
+
+    @AfterAll
+    static void stopCluster() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void codesAreCreatedInTheShardOfTheCreatingNode() {
+        for (int node = 0; node < NODES; node++) {
+            for (int i = 0; i < 20; i++) {
+                String code = shorten(node, "https://www.example.com/shard/" + node + "/" + i).code();
+                assertEquals(node, Base62.toKey(code) % NODES, "code " + code + " created on node " + node);
+            }
+        }
+    }
+
+    @Test
+    void redirectAndInfo_ResolveCodesOfOtherNodes() {
+        String url = "https://www.example.com/cross-node";
+        String code = shorten(0, url).code();
+
+        for (int node = 0; node < NODES; node++) {
+            clients.get(node).get().uri("/{code}", code)
+                .exchange()
+                .expectStatus().isFound()
+                .expectHeader().valueEquals("Location", url);
+            clients.get(node).get().uri("/api/v1/urls/{code}/info", code)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ShortenResponse.class)
+                .value(info -> assertEquals(url, info.originalUrl()));
+        }
+    }
+
+    @Test
+    void redirect_ReturnsNotFoundForUnknownCodeOfAnotherNode() {
+        String code = IntStream.range(0, Base62.RADIX).mapToObj(digit -> Base62.encode(digit, 1) + "zzzzz")
+            .filter(candidate -> Base62.toKey(candidate) % NODES == 0)
+            .findFirst().orElseThrow();
+
+        clients.get(1).get().uri("/{code}", code)
+            .exchange()
+            .expectStatus().isNotFound();
+    }
+
+    @Test
+    void nearCache_AbsorbsRepeatedLookupsOfAHotRemoteCode() {
+        String code = shorten(2, "https://www.example.com/hot").code();
+        double before = forwards(0);
+
+        for (int i = 0; i < 50; i++) {
+            clients.get(0).get().uri("/{code}", code).exchange().expectStatus().isFound();
+        }
+
+        assertEquals(1, forwards(0) - before);
+    }
+
+    @Test
+    void cluster_HoldsMoreLinksThanOneNodeAndServesThemFromEveryNode() {
+        // more links than a single node could hold without evicting
+        int links = 2 * CAPACITY_PER_NODE;
+        List<String> codes = new ArrayList<>(links);
+        List<String> urls = new ArrayList<>(links);
+        for (int i = 0; i < links; i++) {
+            String url = "https://www.example.com/capacity/" + i;
+            urls.add(url);
+            codes.add(shorten(i % NODES, url).code());
+        }
+
+        ConnectionProvider connections = ConnectionProvider.create("cluster-test", 64);
+        try {
+            HttpClient client = HttpClient.create(connections).followRedirect(false);
+            assertEquals(codes.size(), redirects(client, codes, urls, 1));
+            assertEquals(codes.size(), redirects(client, codes, urls, NODES));
+        } finally {
+            connections.dispose();
+        }
+    }
+
+    /**
+     * @return number of codes redirected to their URL, entering the cluster through the first {@code entryNodes} nodes
+     */
+    private static long redirects(HttpClient client, List<String> codes, List<String> urls, int entryNodes) {
+        return Flux.range(0, codes.size())
+            .flatMap(i -> client.get()
+                .uri("http://localhost:" + ports[i % entryNodes] + "/" + codes.get(i))
+                .responseSingle((response, body) -> body.then()
+                    .thenReturn(response.status().code() == 302
+                        && urls.get(i).equals(response.responseHeaders().get("Location")))), 64)
+            .filter(found -> found)
+            .count()
+            .block();
+    }
+
+    private static ShortenResponse shorten(int node, String url) {
+        ShortenResponse response = clients.get(node).post()
+            .uri("/api/v1/urls/shorten")
+            .bodyValue(new ShortenRequest(url))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(ShortenResponse.class)
+            .returnResult()
+            .getResponseBody();
+        assertNotNull(response);
+        return response;
+    }
+
+    private static double forwards(int node) {
+        return nodes.get(node).getBean(MeterRegistry.class)
+            .get("shortlink.cluster.forwards").tag("result", "found").counter().count();
+    }
+}
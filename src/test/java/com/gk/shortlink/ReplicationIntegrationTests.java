@@ -0,0 +1,186 @@
+package com.gk.shortlink;
+
+import com.gk.shortlink.dto.ShortenRequest;
+import com.gk.shortlink.dto.ShortenResponse;
+import com.gk.shortlink.replication.ReplicationOffset;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs a replication leader and a follower on localhost ports inside the test JVM.
+ */
+class ReplicationIntegrationTests {
+
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @TempDir
+    static Path dataDir;
+
+    private static ConfigurableApplicationContext leader;
+    private static ConfigurableApplicationContext follower;
+    private static WebTestClient leaderClient;
+    private static WebTestClient followerClient;
+    private static int replicationPort;
+
+    @BeforeAll
+    static void startNodes() throws IOException {
+        int leaderPort = freePort();
+        replicationPort = freePort();
+        leader = new SpringApplicationBuilder(ShortLinkApplication.class).properties(
+            "server.port=" + leaderPort,
+            "shortlink.persistence.enabled=false",
+            "shortlink.replication.role=leader",
+            "shortlink.replication.port=" + replicationPort,
+            "springdoc.api-docs.enabled=false",
+            "springdoc.swagger-ui.enabled=false").run();
+        leaderClient = WebTestClient.bindToServer().baseUrl("http://localhost:" + leaderPort).build();
+        follower = startFollower(dataDir.resolve("follower"));
+        followerClient = client(follower);
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        follower.close();
+        leader.close();
+    }
+
+    @Test
+    void follower_RedirectsCodesShortenedOnTheLeader() {
+        String url = "https://www.example.com/replicated";
+        String code = shorten(url).getResponseBody().code();
+
+        awaitOffset(follower, leaderOffset());
+        followerClient.get().uri("/{code}", code)
+            .exchange()
+            .expectStatus().isFound()
+            .expectHeader().valueEquals("Location", url);
+    }
+
+    @Test
+    void info_WaitsForTheWriteNamedByItsReplicationOffset() {
+        String url = "https://www.example.com/read-your-writes";
+        EntityExchangeResult<ShortenResponse> shortened = shorten(url);
+        String offset = shortened.getResponseHeaders().getFirst(ReplicationOffset.HEADER);
+        assertNotNull(offset);
+
+        followerClient.get().uri("/api/v1/urls/{code}/info", shortened.getResponseBody().code())
+            .header(ReplicationOffset.HEADER, offset)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(ShortenResponse.class)
+            .value(info -> assertEquals(url, info.originalUrl()));
+    }
+
+    @Test
+    void follower_RejectsWrites() {
+        followerClient.post()
+            .uri("/api/v1/urls/shorten")
+            .bodyValue(new ShortenRequest("https://www.example.com/not-here"))
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    void restartedFollower_CatchesUpFromItsLastOffset() {
+        Path restartDir = dataDir.resolve("restarted");
+        ConfigurableApplicationContext replica = startFollower(restartDir);
+        List<String> before = new ArrayList<>();
+        List<String> after = new ArrayList<>();
+        try {
+            for (int i = 0; i < 100; i++) {
+                before.add(shorten("https://www.example.com/before-restart/" + i).getResponseBody().code());
+            }
+            awaitOffset(replica, leaderOffset());
+        } finally {
+            replica.close();
+        }
+        for (int i = 0; i < 100; i++) {
+            after.add(shorten("https://www.example.com/after-restart/" + i).getResponseBody().code());
+        }
+
+        ConfigurableApplicationContext restarted = startFollower(restartDir);
+        try {
+            awaitOffset(restarted, leaderOffset());
+            WebTestClient client = client(restarted);
+            for (String code : before) {
+                client.get().uri("/{code}", code).exchange().expectStatus().isFound();
+            }
+            for (String code : after) {
+                client.get().uri("/{code}", code).exchange().expectStatus().isFound();
+            }
+            assertEquals(0, gauge(restarted, "shortlink.replication.lag", "follower"));
+        } finally {
+            restarted.close();
+        }
+    }
+
+    private static ConfigurableApplicationContext startFollower(Path data) {
+        return new SpringApplicationBuilder(ShortLinkApplication.class).properties(
+            "server.port=0",
+            "shortlink.persistence.enabled=true",
+            "shortlink.persistence.data-dir=" + data,
+            "shortlink.replication.role=follower",
+            "shortlink.replication.leader=tcp://127.0.0.1:" + replicationPort,
+            "shortlink.replication.reconnect-delay=100ms",
+            "springdoc.api-docs.enabled=false",
+            "springdoc.swagger-ui.enabled=false").run();
+    }
+
+    private static WebTestClient client(ConfigurableApplicationContext node) {
+        String port = node.getEnvironment().getProperty("local.server.port");
+        return WebTestClient.bindToServer().baseUrl("http://localhost:" + port).build();
+    }
+
+    private static EntityExchangeResult<ShortenResponse> shorten(String url) {
+        return leaderClient.post()
+            .uri("/api/v1/urls/shorten")
+            .bodyValue(new ShortenRequest(url))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(ShortenResponse.class)
+            .returnResult();
+    }
+
+    private static double leaderOffset() {
+        return gauge(leader, "shortlink.replication.offset", "leader");
+    }
+
+    private static void awaitOffset(ConfigurableApplicationContext node, double offset) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (gauge(node, "shortlink.replication.offset", "follower") < offset) {
+            assertTrue(System.currentTimeMillis() < deadline, "Follower did not catch up to offset " + offset);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+    }
+
+    private static double gauge(ConfigurableApplicationContext node, String name, String role) {
+        return node.getBean(MeterRegistry.class).get(name).tag("role", role).gauge().value();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -5,10 +5,14 @@ import com.gk.shortlink.dto.ShortenResponse;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 class UrlShortenerIntegrationTests {
@@ -56,6 +60,37 @@ class UrlShortenerIntegrationTests {
             .expectHeader().valueEquals("Location", originalUrl);
     }
 
+    @Test
+    void testBatchShorten_StreamsNdjson() {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 1500; i++) {
+            body.append("{\"url\":\"https://www.example.com/batch/").append(i).append("\"}\n");
+        }
+
+        List<ShortenResponse> responses = webTestClient.post()
+            .uri("/api/v1/urls/shorten/batch")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .bodyValue(body.toString())
+            .exchange()
+            .expectStatus().isOk()
+            .expectBodyList(ShortenResponse.class)
+            .returnResult()
+            .getResponseBody();
+
+        assertNotNull(responses);
+        assertEquals(1500, responses.size());
+        for (int i = 0; i < responses.size(); i++) {
+            assertEquals("https://www.example.com/batch/" + i, responses.get(i).originalUrl());
+        }
+
+        webTestClient.get()
+            .uri("/{code}", responses.get(42).code())
+            .exchange()
+            .expectStatus().isFound()
+            .expectHeader().valueEquals("Location", "https://www.example.com/batch/42");
+    }
+
     @Test
     void testShortenInvalidUrl_ReturnsBadRequest() {
         ShortenRequest invalidRequest = new ShortenRequest("not-a-url");
@@ -82,4 +117,28 @@ class UrlShortenerIntegrationTests {
             .exchange()
             .expectStatus().isNotFound();
     }
+
+    @Test
+    void testPrometheusEndpoint_ExposesHotPathMetrics() {
+        webTestClient.get()
+            .uri("/{code}", "zzzzzz")
+            .exchange()
+            .expectStatus().isNotFound();
+
+        String scrape = webTestClient.get()
+            .uri("/actuator/prometheus")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class)
+            .returnResult()
+            .getResponseBody();
+
+        assertNotNull(scrape);
+        assertTrue(scrape.contains("shortlink_redirect_seconds_bucket"));
+        assertTrue(scrape.contains("result=\"not_found\""));
+        assertTrue(scrape.contains("shortlink_store_size"));
+        assertTrue(scrape.contains("shortlink_store_capacity"));
+        assertTrue(scrape.contains("shortlink_store_lookups_total"));
+        assertTrue(scrape.contains("shortlink_code_generation_seconds"));
+    }
 }
@@ -0,0 +1,74 @@
+package com.gk.shortlink.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientRateLimiterTests {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void tryAcquire_AdmitsTheBurstThenOneRequestPerEmissionInterval() {
+        ClientRateLimiter limiter = new ClientRateLimiter(64, 10, 5);
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.tryAcquire(1, now));
+        }
+        assertEquals(SECOND / 10, limiter.tryAcquire(1, now));
+
+        assertEquals(0, limiter.tryAcquire(1, now + SECOND / 10));
+        assertTrue(limiter.tryAcquire(1, now + SECOND / 10) > 0);
+    }
+
+    @Test
+    void tryAcquire_RefillsTheBurstAfterIdling() {
+        ClientRateLimiter limiter = new ClientRateLimiter(64, 10, 5);
+        long now = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire(1, now);
+        }
+
+        now += 10 * SECOND;
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.tryAcquire(1, now));
+        }
+        assertTrue(limiter.tryAcquire(1, now) > 0);
+    }
+
+    @Test
+    void tryAcquire_KeepsClientsApart() {
+        ClientRateLimiter limiter = new ClientRateLimiter(4096, 1, 1);
+        long now = System.nanoTime();
+
+        assertEquals(0, limiter.tryAcquire(0x0A000001, now));
+        assertTrue(limiter.tryAcquire(0x0A000001, now) > 0);
+
+        // neighbouring addresses land in other stripes
+        for (int client = 0x0A000002; client < 0x0A000100; client++) {
+            assertEquals(0, limiter.tryAcquire(client, now), "client " + Integer.toHexString(client));
+        }
+    }
+
+    @Test
+    void reserve_TakesTokensBeyondTheBurstAndTellsHowLongToWait() {
+        ClientRateLimiter limiter = new ClientRateLimiter(64, 10, 5);
+        long now = System.nanoTime();
+
+        assertEquals(0, limiter.reserve(1, 3, now));
+        // two tokens more than the burst holds
+        assertEquals(2 * SECOND / 10, limiter.reserve(1, 4, now));
+        assertEquals(3 * SECOND / 10, limiter.tryAcquire(1, now));
+        assertEquals(0, limiter.tryAcquire(1, now + 3 * SECOND / 10));
+    }
+
+    @Test
+    void constructor_RejectsNonPositiveRates() {
+        assertThrows(IllegalArgumentException.class, () -> new ClientRateLimiter(64, 0, 5));
+        assertThrows(IllegalArgumentException.class, () -> new ClientRateLimiter(64, 10, 0));
+    }
+}
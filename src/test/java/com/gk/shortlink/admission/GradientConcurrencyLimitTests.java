@@ -0,0 +1,111 @@
+package com.gk.shortlink.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradientConcurrencyLimitTests {
+
+    private static final long WINDOW = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private long now;
+
+    @Test
+    void tryAcquire_RefusesPermitsBeyondTheLimit() {
+        GradientConcurrencyLimit limit = newLimit(2, 1, 10);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+
+        limit.release();
+
+        assertTrue(limit.tryAcquire());
+        assertEquals(2, limit.inFlight());
+    }
+
+    @Test
+    void release_GrowsTheLimitWhileLatencyStaysAtTheBaseline() {
+        GradientConcurrencyLimit limit = newLimit(10, 1, 100);
+
+        for (int window = 0; window < 20; window++) {
+            runWindow(limit, limit.limit(), FAST);
+        }
+
+        assertTrue(limit.limit() > 10, "limit " + limit.limit());
+        assertFalse(limit.isCongested(now));
+    }
+
+    @Test
+    void release_ShrinksTheLimitWhenLatencyRisesBeyondTheTolerance() {
+        GradientConcurrencyLimit limit = newLimit(50, 5, 100);
+        for (int window = 0; window < 5; window++) {
+            runWindow(limit, limit.limit(), FAST);
+        }
+        int settled = limit.limit();
+
+        for (int window = 0; window < 20; window++) {
+            runWindow(limit, limit.limit(), 10 * FAST);
+        }
+
+        assertTrue(limit.limit() < settled / 2, "limit " + limit.limit() + " after " + settled);
+        assertTrue(limit.limit() >= 5);
+        assertTrue(limit.isCongested(now));
+    }
+
+    @Test
+    void release_LeavesTheLimitAloneWhileMostPermitsAreUnused() {
+        GradientConcurrencyLimit limit = newLimit(40, 1, 100);
+
+        for (int window = 0; window < 10; window++) {
+            runWindow(limit, 10, window < 5 ? FAST : 10 * FAST);
+        }
+
+        assertEquals(40, limit.limit());
+    }
+
+    @Test
+    void isCongested_ClearsOnceNoRequestsCompleteForAWindow() {
+        GradientConcurrencyLimit limit = newLimit(20, 1, 100);
+        runWindow(limit, 20, FAST);
+        runWindow(limit, 20, 10 * FAST);
+        assertTrue(limit.isCongested(now));
+
+        now += 2 * WINDOW;
+
+        assertFalse(limit.isCongested(now));
+    }
+
+    @Test
+    void constructor_RejectsInconsistentLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new GradientConcurrencyLimit(5, 10, 100, 2.0, WINDOW));
+        assertThrows(IllegalArgumentException.class, () -> new GradientConcurrencyLimit(5, 1, 4, 2.0, WINDOW));
+        assertThrows(IllegalArgumentException.class, () -> new GradientConcurrencyLimit(5, 1, 10, 0.5, WINDOW));
+    }
+
+    private GradientConcurrencyLimit newLimit(int initialLimit, int minLimit, int maxLimit) {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(initialLimit, minLimit, maxLimit, 2.0, WINDOW);
+        // the first window ends one window length after construction
+        now = System.nanoTime();
+        return limit;
+    }
+
+    /**
+     * Method to hold the given number of permits and release them with the same latency, the last one at the
+     * end of the window so that it closes the window with every sample in it
+     */
+    private void runWindow(GradientConcurrencyLimit limit, int concurrency, long latency) {
+        int acquired = 0;
+        while (acquired < concurrency && limit.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 1; i < acquired; i++) {
+            limit.release(latency, now);
+        }
+        now += WINDOW;
+        limit.release(latency, now);
+    }
+}
@@ -0,0 +1,89 @@
+package com.gk.shortlink.analytics;
+
+import com.gk.shortlink.dto.LinkClicks;
+import com.gk.shortlink.generator.Base62;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickAnalyticsTests {
+
+    @Test
+    void record_CountsEveryClickFromConcurrentThreads() throws InterruptedException {
+        int threads = 8;
+        int clicksPerThread = 50_000;
+        try (ClickAnalytics analytics = new ClickAnalytics(4, 1 << 16, 100, Duration.ofHours(1))) {
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(() -> {
+                    for (int i = 0; i < clicksPerThread; i++) {
+                        analytics.record(Base62.encode(i % 10, 6));
+                    }
+                });
+                worker.start();
+                workers.add(worker);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            analytics.flush();
+
+            long counted = 0;
+            for (int i = 0; i < 10; i++) {
+                counted += analytics.clicks(Base62.encode(i, 6));
+            }
+            assertEquals(analytics.recordedCount(), counted);
+            assertEquals((long) threads * clicksPerThread, analytics.recordedCount() + analytics.droppedCount());
+        }
+    }
+
+    @Test
+    void topLinks_FindsTheHeavyHittersOfASkewedStream() {
+        try (ClickAnalytics analytics = new ClickAnalytics(1, 1 << 16, 50, Duration.ofHours(1))) {
+            for (int i = 0; i < 200_000; i++) {
+                // a fifth of the clicks go to three links, the rest are spread over 100000
+                String code = i % 5 == 0 ? Base62.encode(i % 3, 6) : Base62.encode(1_000 + ThreadLocalRandom.current().nextInt(100_000), 6);
+                analytics.record(code);
+                if (i % 10_000 == 0) {
+                    analytics.flush();
+                }
+            }
+            analytics.flush();
+
+            List<LinkClicks> top = analytics.topLinks(3);
+            assertEquals(List.of("000000", "000001", "000002"), top.stream().map(LinkClicks::code).sorted().toList());
+            top.forEach(link -> assertTrue(link.clicks() >= analytics.clicks(link.code()), "Space-Saving never underestimates"));
+        }
+    }
+
+    @Test
+    void record_IgnoresInvalidCodesAndDisabledAnalytics() {
+        ClickAnalytics.disabled().record("abc123");
+        assertEquals(0, ClickAnalytics.disabled().recordedCount());
+        assertEquals(List.of(), ClickAnalytics.disabled().topLinks(10));
+
+        try (ClickAnalytics analytics = new ClickAnalytics(1, 16, 10, Duration.ofHours(1))) {
+            analytics.record("not-a-code");
+            assertEquals(0, analytics.recordedCount());
+        }
+    }
+
+    @Test
+    void ringBuffer_DropsWhenFullAndAcceptsAgainOnceDrained() {
+        ClickRingBuffer buffer = new ClickRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+
+        List<Long> drained = new ArrayList<>();
+        assertEquals(4, buffer.drain(drained::add, 100));
+        assertEquals(List.of(0L, 1L, 2L, 3L), drained);
+        assertTrue(buffer.offer(5));
+    }
+}
@@ -0,0 +1,60 @@
+package com.gk.shortlink.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingTopKTests {
+
+    @Test
+    void add_CountsExactlyWhileKeysFit() {
+        SpaceSavingTopK topK = new SpaceSavingTopK(10);
+        for (int i = 0; i < 100; i++) {
+            topK.add(i % 4, 1);
+        }
+
+        List<SpaceSavingTopK.HeavyHitter> top = topK.top(10);
+        assertEquals(4, top.size());
+        top.forEach(hitter -> {
+            assertEquals(25, hitter.count());
+            assertEquals(0, hitter.error());
+        });
+    }
+
+    @Test
+    void add_ReplacesTheSmallestCounterAndKeepsItsCountAsError() {
+        SpaceSavingTopK topK = new SpaceSavingTopK(2);
+        topK.add(1, 10);
+        topK.add(2, 3);
+
+        topK.add(3, 1);
+
+        List<SpaceSavingTopK.HeavyHitter> top = topK.top(2);
+        assertEquals(new SpaceSavingTopK.HeavyHitter(1, 10, 0), top.get(0));
+        assertEquals(new SpaceSavingTopK.HeavyHitter(3, 4, 3), top.get(1));
+    }
+
+    @Test
+    void add_KeepsFrequentKeysThroughChurn() {
+        SpaceSavingTopK topK = new SpaceSavingTopK(20);
+        for (int i = 0; i < 100_000; i++) {
+            topK.add(i % 10 == 0 ? 7 : 1_000 + i, 1);
+        }
+
+        assertEquals(7, topK.top(1).get(0).key());
+    }
+
+    @Test
+    void decay_LetsRecentKeysOvertakeOldOnes() {
+        SpaceSavingTopK topK = new SpaceSavingTopK(10);
+        topK.add(1, 1_000);
+        for (int round = 0; round < 5; round++) {
+            topK.decay();
+            topK.add(2, 100);
+        }
+
+        assertEquals(2, topK.top(1).get(0).key());
+    }
+}
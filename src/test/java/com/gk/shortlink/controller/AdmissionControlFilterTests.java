@@ -0,0 +1,136 @@
+package com.gk.shortlink.controller;
+
+import com.gk.shortlink.admission.AdmissionController;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlFilterTests {
+
+    private final AtomicInteger passedOn = new AtomicInteger();
+    private final WebFilterChain chain = exchange -> {
+        passedOn.incrementAndGet();
+        return Mono.empty();
+    };
+
+    @Test
+    void filter_ShedsWritesBeyondTheClientRateWithRetryAfter() {
+        AdmissionControlFilter filter = new AdmissionControlFilter(new AdmissionController(10, 10, 2.0, 1, 2, 64), 6);
+
+        assertNull(shorten(filter, "10.0.0.1").getResponse().getStatusCode());
+        assertNull(shorten(filter, "10.0.0.1").getResponse().getStatusCode());
+        MockServerWebExchange rejected = shorten(filter, "10.0.0.1");
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertEquals("1", rejected.getResponse().getHeaders().getFirst("Retry-After"));
+        String body = rejected.getResponse().getBodyAsString().block();
+        assertTrue(body.matches("\\{\"timestamp\":\"[^\"]+\",\"status\":429,\"error\":\"Too Many Requests\","
+            + "\"message\":\"Too many requests, retry later\"}"), body);
+        assertEquals(2, passedOn.get());
+        // another client has a budget of its own
+        assertNull(shorten(filter, "10.0.0.2").getResponse().getStatusCode());
+    }
+
+    @Test
+    void filter_TellsClientsBehindAProxyApartByTheEntryItAdded() {
+        AdmissionControlFilter filter = new AdmissionControlFilter(new AdmissionController(10, 10, 2.0, 1, 1, 64), 6, 4096,
+            "X-Forwarded-For");
+
+        assertNull(forwarded(filter, "203.0.113.7").getResponse().getStatusCode());
+        // entries sent by the client itself do not make it another client
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, forwarded(filter, "198.51.100.1, 203.0.113.7").getResponse().getStatusCode());
+        assertNull(forwarded(filter, "203.0.113.7, 203.0.113.8").getResponse().getStatusCode());
+    }
+
+    @Test
+    void filter_ShedsWritesBeyondTheConcurrencyLimitUntilOneCompletes() {
+        AdmissionController admission = new AdmissionController(1, 10, 2.0, 1000, 1000, 64);
+        AdmissionControlFilter filter = new AdmissionControlFilter(admission, 6);
+        Sinks.Empty<Void> pending = Sinks.empty();
+        MockServerWebExchange first = MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/urls/shorten"));
+        filter.filter(first, exchange -> pending.asMono()).subscribe();
+        assertEquals(1, admission.writesInFlight());
+
+        MockServerWebExchange rejected = shorten(filter, "10.0.0.1");
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertEquals(1, admission.writesOverLimitCount());
+
+        pending.tryEmitEmpty();
+
+        assertEquals(0, admission.writesInFlight());
+        assertNull(shorten(filter, "10.0.0.1").getResponse().getStatusCode());
+    }
+
+    @Test
+    void filter_ChargesBulkWritesPerChunkOfTheirBody() {
+        AdmissionController admission = new AdmissionController(10, 10, 2.0, 1, 3, 64);
+        AdmissionControlFilter filter = new AdmissionControlFilter(admission, 6, 32, null);
+        MockServerWebExchange bulk = MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/urls/shorten/batch")
+            .remoteAddress(new InetSocketAddress("10.0.0.1", 40000))
+            .body(Flux.just("https://example.com/1\n", "https://example.com/2\n", "https://example.com/3\n")));
+
+        filter.filter(bulk, exchange -> exchange.getRequest().getBody().map(DataBufferUtils::release).then()).block();
+
+        assertNull(bulk.getResponse().getStatusCode());
+        assertEquals(0, admission.writesInFlight());
+        // one write for the request and two for the 66 bytes of its body in chunks of 32 use up the burst of three
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, shorten(filter, "10.0.0.1").getResponse().getStatusCode());
+    }
+
+    @Test
+    void filter_ShedsRedirectsBeyondTheirLimitWithServiceUnavailable() {
+        AdmissionController admission = new AdmissionController(10, 1, 2.0, 1000, 1000, 64);
+        AdmissionControlFilter filter = new AdmissionControlFilter(admission, 6);
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/abc123")), exchange -> Mono.never()).subscribe();
+
+        MockServerWebExchange rejected = MockServerWebExchange.from(MockServerHttpRequest.get("/abc123"));
+        filter.filter(rejected, chain).block();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getResponse().getStatusCode());
+        assertEquals("1", rejected.getResponse().getHeaders().getFirst("Retry-After"));
+        assertEquals(1, admission.redirectsOverLimitCount());
+        assertEquals(0, passedOn.get());
+    }
+
+    @Test
+    void filter_PassesOtherRequestsUnlimited() {
+        AdmissionController admission = new AdmissionController(1, 1, 2.0, 1, 1, 64);
+        AdmissionControlFilter filter = new AdmissionControlFilter(admission, 6);
+
+        for (int i = 0; i < 5; i++) {
+            filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/urls/abc123/info")), chain).block();
+            filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/actuator/health")), chain).block();
+            filter.filter(MockServerWebExchange.from(MockServerHttpRequest.post("/abc123")), chain).block();
+        }
+
+        assertEquals(15, passedOn.get());
+        assertEquals(0, admission.writesInFlight() + admission.redirectsInFlight());
+    }
+
+    private MockServerWebExchange forwarded(AdmissionControlFilter filter, String forwardedFor) {
+        // every request arrives from the proxy
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/urls/shorten")
+            .remoteAddress(new InetSocketAddress("10.0.0.1", 40000))
+            .header("X-Forwarded-For", forwardedFor));
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    private MockServerWebExchange shorten(AdmissionControlFilter filter, String client) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/urls/shorten")
+            .remoteAddress(new InetSocketAddress(client, 40000)));
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+}
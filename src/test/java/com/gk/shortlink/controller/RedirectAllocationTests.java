@@ -0,0 +1,115 @@
+package com.gk.shortlink.controller;
+
+import com.gk.shortlink.analytics.ClickAnalytics;
+import com.gk.shortlink.config.ShortLinkProperties;
+import com.gk.shortlink.exception.GlobalExceptionHandler;
+import com.gk.shortlink.generator.BlockSequenceCodeGenerator;
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import com.gk.shortlink.persistence.MappingJournal;
+import com.gk.shortlink.service.UrlShortenerService;
+import com.gk.shortlink.service.UrlShortenerServices;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.web.reactive.config.EnableWebFlux;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compares the bytes allocated per redirect by the fast path filter and by the annotated controller.
+ * Both handle mock requests through the same WebFlux handler chain, so the cost of the mock request and
+ * response is the same on both sides and the difference is the redirect handling itself.
+ */
+class RedirectAllocationTests {
+
+    private static final int WARMUP_REQUESTS = 20_000;
+    private static final int MEASURED_REQUESTS = 20_000;
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableWebFlux
+    static class WebFluxTestConfiguration {
+    }
+
+    private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private UrlShortenerService service;
+    private String code;
+    private AnnotationConfigApplicationContext fastPathContext;
+    private AnnotationConfigApplicationContext controllerContext;
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        service = UrlShortenerServices.create(new ShortLinkProperties("short.ly", 1_000, 6),
+            new BlockSequenceCodeGenerator(6, 1024, 42L), MappingJournal.disabled(), ShortLinkMetrics.disabled());
+        code = service.shorten("https://www.example.com/some/long/path?utm_source=test").block();
+        fastPathContext = context(true);
+        controllerContext = context(false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (fastPathContext != null) {
+            fastPathContext.close();
+            controllerContext.close();
+        }
+    }
+
+    @Test
+    void fastPath_AllocatesLessPerMiss() {
+        long fastPath = bytesPerRequest(fastPathContext, "zzzzzz", HttpStatus.NOT_FOUND);
+        long controller = bytesPerRequest(controllerContext, "zzzzzz", HttpStatus.NOT_FOUND);
+
+        assertTrue(fastPath * 2 < controller, "Fast path " + fastPath + " B vs controller " + controller + " B");
+    }
+
+    @Test
+    void fastPath_AllocatesLessPerHit() {
+        long fastPath = bytesPerRequest(fastPathContext, code, HttpStatus.FOUND);
+        long controller = bytesPerRequest(controllerContext, code, HttpStatus.FOUND);
+
+        assertTrue(fastPath < controller, "Fast path " + fastPath + " B vs controller " + controller + " B");
+    }
+
+    private AnnotationConfigApplicationContext context(boolean fastPath) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.registerBean(UrlShortenerService.class, () -> service);
+        context.registerBean(ShortLinkMetrics.class, ShortLinkMetrics::disabled);
+        context.registerBean(ClickAnalytics.class, ClickAnalytics::disabled);
+        if (fastPath) {
+            context.registerBean(ShortCodeRedirectFilter.class,
+                () -> new ShortCodeRedirectFilter(service, ShortLinkMetrics.disabled(), 6));
+        }
+        context.register(WebFluxTestConfiguration.class, ShortCodeRouteController.class, GlobalExceptionHandler.class);
+        context.refresh();
+        return context;
+    }
+
+    private long bytesPerRequest(AnnotationConfigApplicationContext context, String path, HttpStatus expected) {
+        HttpHandler handler = WebHttpHandlerBuilder.applicationContext(context).build();
+        for (int i = 0; i < WARMUP_REQUESTS; i++) {
+            assertEquals(expected, handle(handler, path));
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_REQUESTS; i++) {
+            handle(handler, path);
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / MEASURED_REQUESTS;
+    }
+
+    private static HttpStatus handle(HttpHandler handler, String code) {
+        MockServerHttpResponse response = new MockServerHttpResponse();
+        handler.handle(MockServerHttpRequest.get("/" + code).build(), response).block();
+        return (HttpStatus) response.getStatusCode();
+    }
+}
@@ -0,0 +1,109 @@
+package com.gk.shortlink.controller;
+
+import com.gk.shortlink.analytics.ClickAnalytics;
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import com.gk.shortlink.service.RedirectPolicy;
+import com.gk.shortlink.service.UrlShortenerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShortCodeRedirectFilterTests {
+
+    private UrlShortenerService urlShortenerService;
+    private ShortCodeRedirectFilter filter;
+    private final AtomicBoolean passedOn = new AtomicBoolean();
+    private final WebFilterChain chain = exchange -> {
+        passedOn.set(true);
+        return Mono.empty();
+    };
+
+    @BeforeEach
+    void setUp() {
+        urlShortenerService = Mockito.mock(UrlShortenerService.class);
+        Mockito.when(urlShortenerService.redirectPolicy(Mockito.anyString())).thenReturn(RedirectPolicy.defaults(302, null));
+        filter = new ShortCodeRedirectFilter(urlShortenerService, ShortLinkMetrics.disabled(), 6);
+    }
+
+    @Test
+    void filter_RedirectsToStoredLocation_WhenCodeExists() {
+        Mockito.when(urlShortenerService.findLocation("abc123")).thenReturn("https://example.com/%C3%BC");
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/abc123"));
+
+        filter.filter(exchange, chain).block();
+
+        assertEquals(HttpStatus.FOUND, exchange.getResponse().getStatusCode());
+        assertEquals("https://example.com/%C3%BC", exchange.getResponse().getHeaders().getFirst("Location"));
+        assertNull(exchange.getResponse().getHeaders().getCacheControl());
+        assertFalse(passedOn.get());
+    }
+
+    @Test
+    void filter_UsesStatusAndCachingOfTheLink() {
+        Mockito.when(urlShortenerService.findLocation("abc123")).thenReturn("https://example.com");
+        Mockito.when(urlShortenerService.redirectPolicy("abc123")).thenReturn(RedirectPolicy.defaults(301, Duration.ofDays(1)));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/abc123"));
+
+        filter.filter(exchange, chain).block();
+
+        assertEquals(HttpStatus.MOVED_PERMANENTLY, exchange.getResponse().getStatusCode());
+        assertEquals("https://example.com", exchange.getResponse().getHeaders().getFirst("Location"));
+        assertEquals("max-age=86400", exchange.getResponse().getHeaders().getCacheControl());
+    }
+
+    @Test
+    void filter_WritesTheControllersNotFound_WhenCodeDoesNotExist() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/zzzzzz"));
+
+        filter.filter(exchange, chain).block();
+
+        assertEquals(HttpStatus.NOT_FOUND, exchange.getResponse().getStatusCode());
+        String body = exchange.getResponse().getBodyAsString().block();
+        assertTrue(body.matches("\\{\"timestamp\":\"[^\"]+\",\"status\":404,\"error\":\"Not Found\","
+            + "\"message\":\"Short code not found: zzzzzz\"}"), body);
+        assertFalse(passedOn.get());
+    }
+
+    @Test
+    void filter_RecordsAClickPerRedirect() {
+        Mockito.when(urlShortenerService.findLocation("abc123")).thenReturn("https://example.com");
+        try (ClickAnalytics analytics = new ClickAnalytics(1, 64, 10, Duration.ofHours(1))) {
+            ShortCodeRedirectFilter countingFilter = new ShortCodeRedirectFilter(urlShortenerService, ShortLinkMetrics.disabled(), analytics, 6);
+
+            countingFilter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/abc123")), chain).block();
+            countingFilter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/abc123")), chain).block();
+            countingFilter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/zzzzzz")), chain).block();
+            analytics.flush();
+
+            assertEquals(2, analytics.clicks("abc123"));
+            assertEquals(0, analytics.clicks("zzzzzz"));
+        }
+    }
+
+    @Test
+    void filter_PassesOnOtherRequests() {
+        for (MockServerHttpRequest request : new MockServerHttpRequest[]{
+            MockServerHttpRequest.get("/abc12").build(),
+            MockServerHttpRequest.get("/abc1234").build(),
+            MockServerHttpRequest.get("/abc-12").build(),
+            MockServerHttpRequest.get("/api/v1/urls/abc123/info").build(),
+            MockServerHttpRequest.post("/abc123").build()}) {
+            passedOn.set(false);
+
+            filter.filter(MockServerWebExchange.from(request), chain).block();
+
+            assertTrue(passedOn.get(), request.getURI().toString());
+        }
+        Mockito.verifyNoInteractions(urlShortenerService);
+    }
+}
@@ -0,0 +1,172 @@
+package com.gk.shortlink.controller;
+
+import com.gk.shortlink.admission.AdmissionController;
+import com.gk.shortlink.analytics.ClickAnalytics;
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import com.gk.shortlink.service.RedirectPolicy;
+import com.gk.shortlink.service.UrlShortenerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Sinks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShortCodeRedirectServerTests {
+
+    private UrlShortenerService urlShortenerService;
+    private ShortCodeRedirectServer server;
+
+    @BeforeEach
+    void setUp() {
+        urlShortenerService = Mockito.mock(UrlShortenerService.class);
+        Mockito.when(urlShortenerService.redirectPolicy(Mockito.anyString())).thenReturn(RedirectPolicy.defaults(302, null));
+        Mockito.when(urlShortenerService.findLocation("abc123")).thenReturn("https://example.com/%C3%BC");
+        server = new ShortCodeRedirectServer(urlShortenerService, ShortLinkMetrics.disabled(), ClickAnalytics.disabled(), 6, 0, true);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void listener_RedirectsAndAnswersMissesOnOneKeptAliveConnection() throws IOException {
+        Mockito.when(urlShortenerService.redirectPolicy("abc123")).thenReturn(RedirectPolicy.defaults(301, Duration.ofHours(1)));
+
+        try (Socket socket = new Socket("localhost", server.port())) {
+            Response redirect = exchange(socket, "GET /abc123?utm_source=test HTTP/1.1\r\nHost: short.ly\r\n\r\n").get(0);
+            assertEquals(301, redirect.status());
+            assertEquals("https://example.com/%C3%BC", redirect.header("location"));
+            assertEquals("max-age=3600", redirect.header("cache-control"));
+
+            Response miss = exchange(socket, "GET /zzzzzz HTTP/1.1\r\nHost: short.ly\r\n\r\n").get(0);
+            assertEquals(404, miss.status());
+            assertTrue(miss.body().matches("\\{\"timestamp\":\"[^\"]+\",\"status\":404,\"error\":\"Not Found\","
+                + "\"message\":\"Short code not found: zzzzzz\"}"), miss.body());
+        }
+    }
+
+    @Test
+    void listener_AnswersPipelinedRequestsInOrder() throws IOException {
+        Mockito.when(urlShortenerService.findLocation("def456")).thenReturn("https://example.org/");
+
+        try (Socket socket = new Socket("localhost", server.port())) {
+            List<Response> responses = exchange(socket,
+                "GET /abc123 HTTP/1.1\r\nHost: short.ly\r\n\r\n"
+                    + "GET /nocode/here HTTP/1.1\r\nHost: short.ly\r\n\r\n"
+                    + "GET /def456 HTTP/1.1\r\nHost: short.ly\r\n\r\n");
+
+            assertEquals(3, responses.size());
+            assertEquals("https://example.com/%C3%BC", responses.get(0).header("location"));
+            assertEquals(404, responses.get(1).status());
+            assertEquals("https://example.org/", responses.get(2).header("location"));
+        }
+    }
+
+    @Test
+    void listener_RejectsOtherMethods() throws IOException {
+        try (Socket socket = new Socket("localhost", server.port())) {
+            Response response = exchange(socket, "POST /abc123 HTTP/1.1\r\nHost: short.ly\r\nContent-Length: 0\r\n\r\n").get(0);
+
+            assertEquals(405, response.status());
+            assertEquals("GET, HEAD", response.header("allow"));
+        }
+    }
+
+    @Test
+    void listener_ShedsRedirectsBeyondTheAdmissionLimitUntilOneCompletes() throws Exception {
+        Sinks.One<String> resolved = Sinks.one();
+        Mockito.when(urlShortenerService.isRemote("remote")).thenReturn(true);
+        Mockito.when(urlShortenerService.getOriginalUrl("remote")).thenReturn(resolved.asMono());
+        AdmissionController admission = new AdmissionController(10, 1, 2.0, 1000, 1000, 64);
+        ShortCodeRedirectServer admitted = new ShortCodeRedirectServer(urlShortenerService, ShortLinkMetrics.disabled(),
+            ClickAnalytics.disabled(), admission, 6, 0, true);
+        admitted.start();
+        try (Socket pending = new Socket("localhost", admitted.port()); Socket other = new Socket("localhost", admitted.port())) {
+            pending.getOutputStream().write("GET /remote HTTP/1.1\r\nHost: short.ly\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            while (admission.redirectsInFlight() == 0) {
+                Thread.sleep(10);
+            }
+
+            Response shed = exchange(other, "GET /abc123 HTTP/1.1\r\nHost: short.ly\r\n\r\n").get(0);
+            assertEquals(503, shed.status());
+            assertEquals("1", shed.header("retry-after"));
+
+            resolved.tryEmitValue("https://example.org/");
+            assertEquals("https://example.org/", receive(pending, 1).get(0).header("location"));
+            // released once the response is written, which the client may see first
+            while (admission.redirectsInFlight() > 0) {
+                Thread.sleep(10);
+            }
+            assertEquals(302, exchange(other, "GET /abc123 HTTP/1.1\r\nHost: short.ly\r\n\r\n").get(0).status());
+        } finally {
+            admitted.stop();
+        }
+    }
+
+    @Test
+    void codeOf_ReadsTheCodeWithoutQuery() {
+        assertEquals("abc123", ShortCodeRedirectServer.codeOf("/abc123", 6));
+        assertEquals("abc123", ShortCodeRedirectServer.codeOf("/abc123?x=1", 6));
+        assertNull(ShortCodeRedirectServer.codeOf("/abc12", 6));
+        assertNull(ShortCodeRedirectServer.codeOf("/abc1234", 6));
+        assertNull(ShortCodeRedirectServer.codeOf("/abc-23", 6));
+        assertNull(ShortCodeRedirectServer.codeOf("/abc123/", 6));
+        assertNull(ShortCodeRedirectServer.codeOf("http://short.ly/abc123", 6));
+    }
+
+    /**
+     * Writes the requests at once and reads one response per request line
+     */
+    private static List<Response> exchange(Socket socket, String requests) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(requests.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        return receive(socket, requests.split("HTTP/1.1\r\n", -1).length - 1);
+    }
+
+    private static List<Response> receive(Socket socket, int count) throws IOException {
+        socket.setSoTimeout(5_000);
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        List<Response> responses = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int status = Integer.parseInt(in.readLine().split(" ")[1]);
+            Map<String, String> headers = new HashMap<>();
+            for (String line = in.readLine(); !line.isEmpty(); line = in.readLine()) {
+                int colon = line.indexOf(':');
+                headers.put(line.substring(0, colon).toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+            int contentLength = Integer.parseInt(headers.getOrDefault("content-length", "0"));
+            char[] body = new char[contentLength];
+            int read = 0;
+            while (read < contentLength) {
+                read += in.read(body, read, contentLength - read);
+            }
+            responses.add(new Response(status, headers, new String(body)));
+        }
+        return responses;
+    }
+
+    private record Response(int status, Map<String, String> headers, String body) {
+
+        String header(String name) {
+            return headers.get(name);
+        }
+    }
+}
@@ -1,14 +1,20 @@
 package com.gk.shortlink.controller;
 
+import com.gk.shortlink.analytics.ClickAnalytics;
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import com.gk.shortlink.service.RedirectPolicy;
 import com.gk.shortlink.service.UrlShortenerService;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import reactor.core.publisher.Mono;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import java.time.Duration;
+
 @WebFluxTest(ShortCodeRouteController.class)
 class ShortCodeRouteControllerTests {
 
@@ -18,17 +24,40 @@ class ShortCodeRouteControllerTests {
     @MockitoBean
     private UrlShortenerService urlShortenerService;
 
+    @MockitoBean
+    private ShortLinkMetrics shortLinkMetrics;
+
+    @MockitoBean
+    private ClickAnalytics clickAnalytics;
+
     @Test
     void redirectToOriginalUrl_RedirectsToOriginalUrl_WhenCodeExists() {
         String code = "abc123";
         String originalUrl = "https://example.com";
         Mockito.when(urlShortenerService.getOriginalUrl(code)).thenReturn(Mono.just(originalUrl));
+        Mockito.when(urlShortenerService.redirectPolicy(code)).thenReturn(RedirectPolicy.defaults(302, null));
 
         webTestClient.get()
             .uri("/{code}", code)
             .exchange()
             .expectStatus().isFound()
-            .expectHeader().location(originalUrl);
+            .expectHeader().location(originalUrl)
+            .expectHeader().doesNotExist("Cache-Control");
+        Mockito.verify(clickAnalytics).record(code);
+    }
+
+    @Test
+    void redirectToOriginalUrl_UsesStatusAndCachingOfTheLink() {
+        String code = "abc123";
+        Mockito.when(urlShortenerService.getOriginalUrl(code)).thenReturn(Mono.just("https://example.com"));
+        Mockito.when(urlShortenerService.redirectPolicy(code)).thenReturn(RedirectPolicy.defaults(308, Duration.ofHours(1)));
+
+        webTestClient.get()
+            .uri("/{code}", code)
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.PERMANENT_REDIRECT)
+            .expectHeader().location("https://example.com")
+            .expectHeader().valueEquals("Cache-Control", "max-age=3600");
     }
 
     @Test
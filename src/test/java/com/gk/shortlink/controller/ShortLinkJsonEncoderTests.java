@@ -0,0 +1,104 @@
+package com.gk.shortlink.controller;
+
+import com.gk.shortlink.dto.ErrorResponse;
+import com.gk.shortlink.dto.ShortenResponse;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShortLinkJsonEncoderTests {
+
+    private static final DataBufferFactory BUFFERS = DefaultDataBufferFactory.sharedInstance;
+
+    private final ShortLinkJsonEncoder encoder = new ShortLinkJsonEncoder();
+    private final Jackson2JsonEncoder jackson = new Jackson2JsonEncoder(Jackson2ObjectMapperBuilder.json().build());
+
+    @Test
+    void encodeValue_WritesWhatJacksonWrites() {
+        Map<String, String> details = new LinkedHashMap<>();
+        details.put("url", "URL cannot be blank");
+        details.put("ttl", "must be \"positive\"");
+        List<Object> values = List.of(
+            new ShortenResponse("https://www.example.com/a?b=c&d=e", "http://short.ly:8080/a1B2c3", "a1B2c3"),
+            new ShortenResponse("https://www.example.com", "https://short.ly/a1B2c3", "a1B2c3", Instant.now()),
+            ShortenResponse.failed("not-a-url", "Invalid URL format"),
+            ShortenResponse.failed(null, "Request cannot be null"),
+            new ShortenResponse("https://example.com/\"quoted\"\\path\n\t\r\b\f\u0001\u001f\u007f", null, null),
+            new ShortenResponse("https://b\u00fccher.example/\u00e9t\u00e9/\u20ac/\ud83d\ude00/\u4e2d\u6587", null, null),
+            new ShortenResponse(null, null, null),
+            ErrorResponse.of(HttpStatus.NOT_FOUND, "Short code not found: a1B2c3"),
+            ErrorResponse.of(HttpStatus.INTERNAL_SERVER_ERROR, null),
+            ErrorResponse.of(HttpStatus.BAD_REQUEST, "Validation failed", details),
+            ErrorResponse.of(HttpStatus.BAD_REQUEST, "Validation failed", Map.of()));
+
+        for (Object value : values) {
+            assertEquals(encode(jackson, Mono.just(value), value.getClass(), MediaType.APPLICATION_JSON),
+                encode(encoder, Mono.just(value), value.getClass(), MediaType.APPLICATION_JSON));
+        }
+    }
+
+    @Test
+    void encodeValue_FillsTheBufferItAllocates() {
+        DataBuffer buffer = encoder.encodeValue(
+            new ShortenResponse("https://b\u00fccher.example/\"\ud83d\ude00\"\n", "http://short.ly/a1B2c3", "a1B2c3", Instant.now()),
+            BUFFERS, ResolvableType.forClass(ShortenResponse.class), MediaType.APPLICATION_JSON, Map.of());
+
+        assertEquals(0, buffer.writableByteCount());
+        DataBufferUtils.release(buffer);
+    }
+
+    @Test
+    void encode_WritesStreamsAsJacksonDoes() {
+        List<ShortenResponse> values = List.of(
+            new ShortenResponse("https://www.example.com/1", "http://short.ly/a1B2c3", "a1B2c3"),
+            ShortenResponse.failed("not-a-url", "Invalid URL format"),
+            new ShortenResponse("https://www.example.com/3", "http://short.ly/d4E5f6", "d4E5f6", Instant.now()));
+
+        for (MediaType mediaType : List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON)) {
+            assertEquals(encode(jackson, Flux.fromIterable(values), ShortenResponse.class, mediaType),
+                encode(encoder, Flux.fromIterable(values), ShortenResponse.class, mediaType));
+            assertEquals(encode(jackson, Flux.empty(), ShortenResponse.class, mediaType),
+                encode(encoder, Flux.empty(), ShortenResponse.class, mediaType));
+        }
+    }
+
+    @Test
+    void canEncode_OnlyTheResponseRecordsAsJson() {
+        assertTrue(encoder.canEncode(ResolvableType.forClass(ShortenResponse.class), MediaType.APPLICATION_JSON));
+        assertTrue(encoder.canEncode(ResolvableType.forClass(ErrorResponse.class), MediaType.APPLICATION_NDJSON));
+        assertTrue(encoder.canEncode(ResolvableType.forClass(ShortenResponse.class), null));
+        assertFalse(encoder.canEncode(ResolvableType.forClass(ShortenResponse.class), MediaType.APPLICATION_XML));
+        assertFalse(encoder.canEncode(ResolvableType.forClass(Map.class), MediaType.APPLICATION_JSON));
+    }
+
+    private static String encode(Encoder<Object> encoder, Publisher<?> values, Class<?> type, MimeType mimeType) {
+        return DataBufferUtils.join(encoder.encode(values, BUFFERS, ResolvableType.forClass(type), mimeType, Map.of()))
+            .map(buffer -> {
+                String json = buffer.toString(StandardCharsets.UTF_8);
+                DataBufferUtils.release(buffer);
+                return json;
+            })
+            .defaultIfEmpty("")
+            .block();
+    }
+}
@@ -1,20 +1,35 @@
 package com.gk.shortlink.controller;
 
+import com.gk.shortlink.config.JsonCodecConfiguration;
 import com.gk.shortlink.config.ShortLinkProperties;
+import com.gk.shortlink.dto.ErrorResponse;
 import com.gk.shortlink.dto.ShortenRequest;
 import com.gk.shortlink.dto.ShortenResponse;
+import com.gk.shortlink.service.RedirectPolicy;
 import com.gk.shortlink.service.UrlShortenerService;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @WebFluxTest(controllers = UrlShortenerController.class, properties = "shortlink.host=short.ly")
+@Import(JsonCodecConfiguration.class)
 class UrlShortenerControllerTests {
 
     private static final String ORIGINAL_URL = "https://example.com";
@@ -31,7 +46,7 @@ class UrlShortenerControllerTests {
     @Test
     void shortenUrl_ReturnsCreatedResponse() {
         String code = "a1B2c3";
-        Mockito.when(urlShortenerService.shorten(ORIGINAL_URL)).thenReturn(Mono.just(code));
+        Mockito.when(urlShortenerService.shorten(ORIGINAL_URL, null, 0)).thenReturn(Mono.just(code));
         Mockito.when(shortLinkProperties.host()).thenReturn("short.ly");
 
         ShortenRequest request = new ShortenRequest(ORIGINAL_URL);
@@ -49,6 +64,72 @@ class UrlShortenerControllerTests {
             });
     }
 
+    @Test
+    void shortenUrl_ReturnsExpiryOfExpiringLink() {
+        String code = "a1B2c3";
+        Mockito.when(urlShortenerService.shorten(Mockito.eq(ORIGINAL_URL), Mockito.any(Instant.class), Mockito.eq(0))).thenReturn(Mono.just(code));
+        Mockito.when(shortLinkProperties.host()).thenReturn("short.ly");
+        Instant before = Instant.now();
+
+        webTestClient.post()
+            .uri("/api/v1/urls/shorten")
+            .bodyValue(new ShortenRequest(ORIGINAL_URL, Duration.ofDays(30), null))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(ShortenResponse.class)
+            .value(response -> {
+                assertEquals(code, response.code());
+                assertTrue(!response.expiresAt().isBefore(before.plus(Duration.ofDays(30))));
+            });
+    }
+
+    @Test
+    void shortenUrl_ReturnsBadRequest_WhenExpiryIsInvalid() {
+        Instant future = Instant.now().plus(Duration.ofDays(1));
+        for (ShortenRequest request : List.of(
+            new ShortenRequest(ORIGINAL_URL, null, Instant.now().minusSeconds(60)),
+            new ShortenRequest(ORIGINAL_URL, Duration.ofSeconds(-5), null),
+            new ShortenRequest(ORIGINAL_URL, Duration.ofDays(1), future),
+            new ShortenRequest(ORIGINAL_URL, Duration.ofDays(3651), null),
+            new ShortenRequest(ORIGINAL_URL, Duration.ofSeconds(Long.MAX_VALUE), null),
+            new ShortenRequest(ORIGINAL_URL, null, Instant.parse("2106-02-07T06:28:16Z")))) {
+            webTestClient.post()
+                .uri("/api/v1/urls/shorten")
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isBadRequest();
+        }
+    }
+
+    @Test
+    void shortenUrl_PassesRedirectPolicyOfTheLink() {
+        int redirect = RedirectPolicy.encode(301, Duration.ofHours(1));
+        Mockito.when(urlShortenerService.shorten(ORIGINAL_URL, null, redirect)).thenReturn(Mono.just("a1B2c3"));
+        Mockito.when(shortLinkProperties.host()).thenReturn("short.ly");
+
+        webTestClient.post()
+            .uri("/api/v1/urls/shorten")
+            .bodyValue(new ShortenRequest(ORIGINAL_URL, null, null, 301, Duration.ofHours(1)))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(ShortenResponse.class)
+            .value(response -> assertEquals("a1B2c3", response.code()));
+    }
+
+    @Test
+    void shortenUrl_ReturnsBadRequest_WhenRedirectPolicyIsInvalid() {
+        for (ShortenRequest request : List.of(
+            new ShortenRequest(ORIGINAL_URL, null, null, 303, null),
+            new ShortenRequest(ORIGINAL_URL, null, null, null, Duration.ofSeconds(-1)),
+            new ShortenRequest(ORIGINAL_URL, null, null, null, Duration.ofDays(366)))) {
+            webTestClient.post()
+                .uri("/api/v1/urls/shorten")
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isBadRequest();
+        }
+    }
+
     @Test
     void shortenUrl_ReturnsBadRequest_WhenUrlIsBlank() {
         ShortenRequest request = new ShortenRequest("");
@@ -57,7 +138,15 @@ class UrlShortenerControllerTests {
             .uri("/api/v1/urls/shorten")
             .bodyValue(request)
             .exchange()
-            .expectStatus().isBadRequest();
+            .expectStatus().isBadRequest()
+            .expectBody(ErrorResponse.class)
+            .value(error -> {
+                assertEquals(400, error.status());
+                assertEquals("Bad Request", error.error());
+                assertEquals("Validation failed", error.message());
+                assertTrue(error.details().containsKey("url"));
+                assertNotNull(error.timestamp());
+            });
     }
 
     @Test
@@ -100,6 +189,48 @@ class UrlShortenerControllerTests {
             });
     }
 
+    @Test
+    void getShortCodeDetails_ReturnsNotModified_WhenETagMatches() {
+        String code = "a1B2c3";
+        Mockito.when(urlShortenerService.getOriginalUrl(code)).thenReturn(Mono.just(ORIGINAL_URL));
+        Mockito.when(urlShortenerService.urlTag(code, ORIGINAL_URL)).thenReturn(0x1234L);
+        Mockito.when(shortLinkProperties.host()).thenReturn("short.ly");
+
+        String eTag = webTestClient.get()
+            .uri("/api/v1/urls/{code}/info", code)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(ShortenResponse.class)
+            .getResponseHeaders().getETag();
+        assertNotNull(eTag);
+        assertTrue(eTag.startsWith("\"") && !eTag.startsWith("W/"), "ETag should be strong");
+
+        webTestClient.get()
+            .uri("/api/v1/urls/{code}/info", code)
+            .header(HttpHeaders.IF_NONE_MATCH, eTag)
+            .exchange()
+            .expectStatus().isNotModified()
+            .expectHeader().valueEquals(HttpHeaders.ETAG, eTag)
+            .expectBody().isEmpty();
+
+        Mockito.when(urlShortenerService.getOriginalUrl(code)).thenReturn(Mono.just(ORIGINAL_URL + "/changed"));
+        Mockito.when(urlShortenerService.urlTag(code, ORIGINAL_URL + "/changed")).thenReturn(0x5678L);
+        webTestClient.get()
+            .uri("/api/v1/urls/{code}/info", code)
+            .header(HttpHeaders.IF_NONE_MATCH, eTag)
+            .exchange()
+            .expectStatus().isOk();
+
+        // the short URL is part of the body, so another host gets another tag
+        Mockito.when(shortLinkProperties.host()).thenReturn("other.ly");
+        Mockito.when(urlShortenerService.getOriginalUrl(code)).thenReturn(Mono.just(ORIGINAL_URL));
+        webTestClient.get()
+            .uri("/api/v1/urls/{code}/info", code)
+            .header(HttpHeaders.IF_NONE_MATCH, eTag)
+            .exchange()
+            .expectStatus().isOk();
+    }
+
     @Test
     void getShortCodeDetails_ReturnsNotFound_WhenCodeDoesNotExist() {
         String code = "nonexistent";
@@ -108,6 +239,112 @@ class UrlShortenerControllerTests {
         webTestClient.get()
             .uri("/api/v1/urls/{code}/info", code)
             .exchange()
-            .expectStatus().isNotFound();
+            .expectStatus().isNotFound()
+            .expectBody(ErrorResponse.class)
+            .value(error -> {
+                assertEquals(404, error.status());
+                assertEquals("Short code not found: " + code, error.message());
+                assertNull(error.details());
+            });
+    }
+
+    @Test
+    void shortenUrls_StreamsResultsInOrderWithInlineErrors() {
+        Mockito.when(urlShortenerService.shortenAll(Mockito.any()))
+            .thenAnswer(invocation -> invocation.<Flux<String>>getArgument(0).map(url -> "c" + url.substring(url.length() - 5)));
+        Mockito.when(urlShortenerService.shorten(Mockito.eq("https://example.com/00004"), Mockito.any(Instant.class), Mockito.eq(0)))
+            .thenReturn(Mono.just("e00004"));
+        Mockito.when(shortLinkProperties.host()).thenReturn("short.ly");
+
+        String body = """
+            {"url":"https://example.com/00001"}
+            {"url":"not-a-url"}
+            {"url":"https://example.com/00004","ttl":"PT1H"}
+            {"url":"https://example.com/00003"}
+            {"url":"https://example.com/00005","ttl":"PT2562047788015215H"}
+            """;
+
+        webTestClient.post()
+            .uri("/api/v1/urls/shorten/batch")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .bodyValue(body)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBodyList(ShortenResponse.class)
+            .value(responses -> {
+                assertEquals(5, responses.size());
+                assertEquals("c00001", responses.get(0).code());
+                assertEquals("http://short.ly/c00001", responses.get(0).shortUrl());
+                assertNull(responses.get(0).error());
+                assertNull(responses.get(0).expiresAt());
+                assertEquals("not-a-url", responses.get(1).originalUrl());
+                assertNull(responses.get(1).code());
+                assertEquals("Invalid URL format", responses.get(1).error());
+                assertEquals("e00004", responses.get(2).code());
+                assertTrue(responses.get(2).expiresAt().isAfter(Instant.now()));
+                assertEquals("c00003", responses.get(3).code());
+                assertNull(responses.get(4).code());
+                assertEquals("ttl must be at most 3650 days", responses.get(4).error());
+            });
+    }
+
+    @Test
+    void shortenUrls_ReportsFailuresPerItem() {
+        Mockito.when(urlShortenerService.shortenAll(Mockito.any())).thenReturn(Flux.error(new IllegalStateException("journal backlog is full")));
+        Mockito.when(urlShortenerService.shorten(Mockito.eq("https://example.com/00001"), Mockito.isNull(), Mockito.eq(0)))
+            .thenReturn(Mono.just("c00001"));
+        Mockito.when(urlShortenerService.shorten(Mockito.eq("https://example.com/00002"), Mockito.isNull(), Mockito.eq(0)))
+            .thenReturn(Mono.error(new IllegalStateException("journal backlog is full")));
+        Mockito.when(urlShortenerService.shorten(Mockito.eq("https://example.com/00003"), Mockito.any(Instant.class), Mockito.eq(0)))
+            .thenReturn(Mono.error(new IllegalStateException("journal backlog is full")));
+        Mockito.when(urlShortenerService.shorten(Mockito.eq("https://example.com/00004"), Mockito.any(Instant.class), Mockito.eq(0)))
+            .thenReturn(Mono.just("e00004"));
+        Mockito.when(shortLinkProperties.host()).thenReturn("short.ly");
+
+        String body = """
+            {"url":"https://example.com/00001"}
+            {"url":"https://example.com/00002"}
+            {"url":"https://example.com/00003","ttl":"PT1H"}
+            {"url":"https://example.com/00004","ttl":"PT1H"}
+            """;
+
+        webTestClient.post()
+            .uri("/api/v1/urls/shorten/batch")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .bodyValue(body)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBodyList(ShortenResponse.class)
+            .value(responses -> {
+                assertEquals(4, responses.size());
+                assertEquals("c00001", responses.get(0).code());
+                assertNull(responses.get(0).error());
+                assertEquals("Unable to shorten URL", responses.get(1).error());
+                assertEquals("Unable to shorten URL", responses.get(2).error());
+                assertEquals("e00004", responses.get(3).code());
+                assertNull(responses.get(3).error());
+            });
+    }
+
+    @Test
+    void shortenUrls_AcceptsJsonArray() {
+        Mockito.when(urlShortenerService.shortenAll(Mockito.any()))
+            .thenAnswer(invocation -> invocation.<Flux<String>>getArgument(0).map(url -> "a1B2c3"));
+        Mockito.when(shortLinkProperties.host()).thenReturn("short.ly");
+
+        webTestClient.post()
+            .uri("/api/v1/urls/shorten/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .bodyValue(List.of(new ShortenRequest(ORIGINAL_URL)))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBodyList(ShortenResponse.class)
+            .value(responses -> {
+                assertEquals(1, responses.size());
+                assertEquals("a1B2c3", responses.get(0).code());
+            });
     }
 }
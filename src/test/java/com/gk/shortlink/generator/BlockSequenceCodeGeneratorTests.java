@@ -0,0 +1,100 @@
+package com.gk.shortlink.generator;
+
+import com.gk.shortlink.exception.CodeGenerationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockSequenceCodeGeneratorTests {
+
+    @Test
+    void generate_ReturnsAlphanumericCodeOfConfiguredLength() {
+        CodeGenerator generator = new BlockSequenceCodeGenerator(6, 16, 1L);
+
+        for (int i = 0; i < 1000; i++) {
+            String code = generator.generate();
+            assertEquals(6, code.length());
+            assertTrue(code.matches("^[a-zA-Z0-9]+$"), "Code should be alphanumeric");
+        }
+    }
+
+    @Test
+    void generate_CoversWholeCodeSpaceWithoutCollisionsThenFails() {
+        int codeLength = 2;
+        CodeGenerator generator = new BlockSequenceCodeGenerator(codeLength, 100, 7L);
+        Set<String> codes = new HashSet<>();
+
+        for (long i = 0; i < Base62.capacity(codeLength); i++) {
+            assertTrue(codes.add(generator.generate()), "Codes must never repeat");
+        }
+        assertThrows(CodeGenerationException.class, generator::generate);
+    }
+
+    @Test
+    void generate_ProducesUniqueCodesAcrossThreads() throws InterruptedException {
+        CodeGenerator generator = new BlockSequenceCodeGenerator(6, 64, 3L);
+        int threads = 8;
+        int perThread = 20_000;
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    codes.add(generator.generate());
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(threads * perThread, codes.size(), "Concurrent generation must be collision-free");
+    }
+
+    @Test
+    void generate_ScattersSequentialIds() {
+        CodeGenerator generator = new BlockSequenceCodeGenerator(6, 1024, 11L);
+
+        String first = generator.generate();
+        String second = generator.generate();
+
+        assertNotEquals(first.substring(0, 5), second.substring(0, 5), "Consecutive codes should not share a prefix");
+    }
+
+    @Test
+    void permutation_IsInvertible() {
+        FeistelPermutation permutation = new FeistelPermutation(Base62.capacity(6), 99L);
+
+        for (long id = 0; id < 10_000; id++) {
+            long permuted = permutation.permute(id);
+            assertTrue(permuted >= 0 && permuted < permutation.domain());
+            assertEquals(id, permutation.inverse(permuted));
+        }
+    }
+
+    @Test
+    void base62_RoundTripsFixedWidthCodes() {
+        long capacity = Base62.capacity(6);
+
+        assertEquals("000000", Base62.encode(0, 6));
+        assertEquals("zzzzzz", Base62.encode(capacity - 1, 6));
+        assertEquals(capacity - 1, Base62.decode("zzzzzz"));
+        assertEquals(-1, Base62.decode("abc-12"));
+    }
+}
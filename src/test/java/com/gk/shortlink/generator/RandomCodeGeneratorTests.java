@@ -0,0 +1,34 @@
+package com.gk.shortlink.generator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RandomCodeGeneratorTests {
+
+    @Test
+    void generate_ReturnsAlphanumericCodeOfConfiguredLength() {
+        CodeGenerator generator = new RandomCodeGenerator(8);
+
+        for (int i = 0; i < 1000; i++) {
+            String code = generator.generate();
+            assertEquals(8, code.length());
+            assertTrue(code.matches("^[a-zA-Z0-9]+$"), "Code should be alphanumeric");
+        }
+    }
+
+    @Test
+    void generate_SpreadsCodesAcrossTheSpace() {
+        CodeGenerator generator = new RandomCodeGenerator(6);
+        Set<String> codes = new HashSet<>();
+
+        for (int i = 0; i < 10_000; i++) {
+            codes.add(generator.generate());
+        }
+
+        assertTrue(codes.size() > 9_990, "Random codes should rarely collide in a sparse space");
+    }
+}
@@ -0,0 +1,34 @@
+package com.gk.shortlink.generator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeedFileTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void loadOrCreate_DrawsASeedOnceAndKeepsIt() {
+        Path data = dir.resolve("journal");
+
+        long seed = SeedFile.loadOrCreate(data);
+
+        assertEquals(seed, SeedFile.loadOrCreate(data));
+        assertNotEquals(seed, SeedFile.loadOrCreate(dir.resolve("other")), "Every deployment draws a seed of its own");
+    }
+
+    @Test
+    void loadOrCreate_KeepsTheFormerDefaultForDataWrittenWithIt() throws IOException {
+        Files.writeString(dir.resolve("segment-0000000000000000.log"), "mappings");
+
+        assertEquals(SeedFile.FORMER_DEFAULT, SeedFile.loadOrCreate(dir));
+        assertTrue(Files.exists(dir.resolve(SeedFile.FILE_NAME)));
+    }
+}
@@ -0,0 +1,82 @@
+package com.gk.shortlink.metrics;
+
+import com.gk.shortlink.config.ShortLinkProperties;
+import com.gk.shortlink.generator.BlockSequenceCodeGenerator;
+import com.gk.shortlink.persistence.MappingJournal;
+import com.gk.shortlink.service.UrlShortenerService;
+import com.gk.shortlink.service.UrlShortenerServices;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShortLinkMetricsTests {
+
+    private SimpleMeterRegistry registry;
+    private ShortLinkMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new ShortLinkMetrics(registry);
+    }
+
+    @Test
+    void meters_AreRegisteredBeforeFirstUse() {
+        assertNotNull(registry.find("shortlink.redirect").tag("result", "found").timer());
+        assertNotNull(registry.find("shortlink.redirect").tag("result", "not_found").timer());
+        assertNotNull(registry.find("shortlink.code.generation").timer());
+        assertNotNull(registry.find("shortlink.code.collisions").counter());
+        assertNotNull(registry.find("shortlink.shorten").timer());
+    }
+
+    @Test
+    void service_RecordsStoreAndGenerationMetrics() {
+        UrlShortenerService service = UrlShortenerServices.create(new ShortLinkProperties("short.ly", 2, 6),
+            new BlockSequenceCodeGenerator(6, 1024, 42L), MappingJournal.disabled(), metrics);
+
+        String code = service.shorten("https://example.com/1").block();
+        service.shorten("https://example.com/1").block();
+        service.shorten("https://example.com/2").block();
+        service.shorten("https://example.com/3").block();
+        service.getOriginalUrl("zzzzzz").block();
+        service.getOriginalUrl(service.shorten("https://example.com/3").block()).block();
+
+        assertEquals(1, registry.get("shortlink.store.lookups").tags("side", "code", "result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("shortlink.store.lookups").tags("side", "code", "result", "miss").functionCounter().count());
+        assertEquals(2, registry.get("shortlink.store.lookups").tags("side", "url", "result", "hit").functionCounter().count());
+        assertEquals(3, registry.get("shortlink.store.lookups").tags("side", "url", "result", "miss").functionCounter().count());
+        assertEquals(1, registry.get("shortlink.store.evictions").functionCounter().count());
+        assertEquals(2, registry.get("shortlink.store.size").gauge().value());
+        assertEquals(2, registry.get("shortlink.store.capacity").gauge().value());
+        assertEquals(3, registry.get("shortlink.code.generation").timer().count());
+        assertEquals(5, registry.get("shortlink.shorten").timer().count());
+        assertNotNull(code);
+    }
+
+    @Test
+    void service_CountsCollisions() {
+        Iterator<String> codes = List.of("aaaaaa", "aaaaaa", "bbbbbb").iterator();
+        UrlShortenerService service = UrlShortenerServices.create(new ShortLinkProperties("short.ly", 10, 6),
+            codes::next, MappingJournal.disabled(), metrics);
+
+        service.shorten("https://example.com/1").block();
+        service.shorten("https://example.com/2").block();
+
+        assertEquals(1, registry.get("shortlink.code.collisions").counter().count());
+    }
+
+    @Test
+    void recordRedirect_SplitsByOutcome() {
+        metrics.recordRedirect(true, 1_000);
+        metrics.recordRedirect(true, 2_000);
+        metrics.recordRedirect(false, 3_000);
+
+        assertEquals(2, registry.get("shortlink.redirect").tag("result", "found").timer().count());
+        assertEquals(1, registry.get("shortlink.redirect").tag("result", "not_found").timer().count());
+    }
+}
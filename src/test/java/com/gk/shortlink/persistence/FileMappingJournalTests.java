@@ -0,0 +1,279 @@
+package com.gk.shortlink.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileMappingJournalTests {
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void replay_ReturnsMappingsWrittenBeforeRestart() {
+        Map<String, String> written = write(1000, FsyncPolicy.ALWAYS, 1 << 20);
+
+        assertEquals(written, replay(1 << 20));
+    }
+
+    @Test
+    void replay_SpansMultipleSegments() throws IOException {
+        Map<String, String> written = write(2000, FsyncPolicy.INTERVAL, 16 * 1024);
+
+        assertTrue(segmentFiles().size() > 1, "Small segments should roll over");
+        assertEquals(written, replay(16 * 1024));
+    }
+
+    @Test
+    void replay_RecoversFromTornLastRecord() throws IOException {
+        Map<String, String> written = write(100, FsyncPolicy.ALWAYS, 1 << 20);
+        Path segment = segmentFiles().get(segmentFiles().size() - 1);
+        int end = endOfRecords(segment);
+
+        // simulate a crash halfway through the next record: header written, payload cut short
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ByteBuffer torn = ByteBuffer.allocate(14);
+            torn.putInt(200).putInt(0xCAFEBABE).put(new byte[]{6, 'a', 'b', 'c', 'd', 'e'}).flip();
+            channel.write(torn, end);
+        }
+
+        FileMappingJournal journal = newJournal(1 << 20);
+        Map<String, String> recovered = new LinkedHashMap<>();
+        journal.replay((code, url, expiresAt, redirect) -> recovered.put(code, url));
+        assertEquals(written, recovered);
+
+        // the journal keeps working after recovery
+        journal.start(() -> null);
+        journal.append("zzzzzz", "https://example.com/after-crash").join();
+        journal.close();
+        written.put("zzzzzz", "https://example.com/after-crash");
+        assertEquals(written, replay(1 << 20));
+    }
+
+    @Test
+    void replay_StopsAtCorruptChecksum() throws IOException {
+        Map<String, String> written = write(10, FsyncPolicy.ALWAYS, 1 << 20);
+        Path segment = segmentFiles().get(0);
+
+        // flip a byte inside the last record's URL
+        int end = endOfRecords(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'#'}), end - 1);
+        }
+
+        Map<String, String> recovered = replay(1 << 20);
+        assertEquals(9, recovered.size());
+        written.keySet().stream().limit(9).forEach(code -> assertEquals(written.get(code), recovered.get(code)));
+    }
+
+    @Test
+    void snapshot_CompactsSegmentsAndKeepsLiveMappings() throws IOException {
+        FileMappingJournal journal = newJournal(16 * 1024);
+        journal.replay((code, url, expiresAt, redirect) -> fail("Journal should start empty"));
+        Map<String, String> live = new LinkedHashMap<>();
+        journal.start(() -> null);
+        append(journal, live, 0, 1000);
+        journal.append("c00000", "https://example.com/moved").join();
+        live.put("c00000", "https://example.com/moved");
+
+        journal.snapshot();
+        append(journal, live, 1000, 1100);
+        // the second snapshot folds the first one
+        journal.snapshot();
+        append(journal, live, 1100, 1200);
+        journal.close();
+
+        try (Stream<Path> files = Files.list(dataDir)) {
+            assertEquals(1, files.filter(path -> path.toString().endsWith(".snap")).count());
+        }
+        assertTrue(segmentFiles().size() <= 2, "Segments covered by the snapshot should be deleted");
+        assertEquals(live, replay(16 * 1024));
+    }
+
+    @Test
+    void snapshot_DropsExpiredMappingsAndKeepsHighWaterMark() {
+        FileMappingJournal journal = newJournal(16 * 1024);
+        journal.replay((code, url, expiresAt, redirect) -> {
+        });
+        journal.start(() -> "zzzzzz");
+        journal.append("a00001", "https://example.com/live").join();
+        journal.append("a00002", "https://example.com/expired", System.currentTimeMillis() - 1_000).join();
+        journal.append("a00003", "https://example.com/expiring", 4_000_000_000_000L).join();
+        journal.snapshot();
+        journal.close();
+
+        Map<String, Long> replayed = new LinkedHashMap<>();
+        newJournal(16 * 1024).replay((code, url, expiresAt, redirect) -> replayed.put(code, expiresAt));
+        assertEquals(List.of("zzzzzz", "a00001", "a00003"), List.copyOf(replayed.keySet()));
+        long mark = replayed.get("zzzzzz");
+        assertTrue(mark != 0 && mark <= System.currentTimeMillis(), "The high-water mark must replay as expired");
+        assertEquals(4_000_000_000_000L, replayed.get("a00003"));
+    }
+
+    @Test
+    void replay_KeepsExpiryOfExpiringMappings() {
+        FileMappingJournal journal = new FileMappingJournal(dataDir, 16 * 1024, FsyncPolicy.ALWAYS, Duration.ofMillis(5), Duration.ZERO);
+        journal.replay((code, url, expiresAt, redirect) -> {
+        });
+        Map<String, Long> expiries = new LinkedHashMap<>();
+        journal.start(() -> null);
+        for (int i = 0; i < 100; i++) {
+            String code = String.format("e%05d", i);
+            long expiresAt = i % 2 == 0 ? 0 : 4_000_000_000_000L + i;
+            expiries.put(code, expiresAt);
+            journal.append(code, "https://example.com/" + code, expiresAt).join();
+        }
+        journal.snapshot();
+        journal.append("e99999", "https://example.com/e99999", 1_800_000_000_000L).join();
+        expiries.put("e99999", 1_800_000_000_000L);
+        journal.close();
+
+        Map<String, Long> replayed = new LinkedHashMap<>();
+        newJournal(16 * 1024).replay((code, url, expiresAt, redirect) -> {
+            assertEquals("https://example.com/" + code, url);
+            replayed.put(code, expiresAt);
+        });
+        assertEquals(expiries, replayed);
+    }
+
+    @Test
+    void replay_KeepsRedirectBits() {
+        FileMappingJournal journal = new FileMappingJournal(dataDir, 16 * 1024, FsyncPolicy.ALWAYS, Duration.ofMillis(5), Duration.ZERO);
+        journal.replay((code, url, expiresAt, redirect) -> {
+        });
+        Map<String, Integer> redirects = new LinkedHashMap<>();
+        journal.start(() -> null);
+        for (int i = 0; i < 50; i++) {
+            String code = String.format("r%05d", i);
+            int redirect = i % 2 == 0 ? 0 : i << 4 | 0x9;
+            redirects.put(code, redirect);
+            journal.append(code, "https://example.com/" + code, i % 3 == 0 ? 4_000_000_000_000L : 0, redirect).join();
+        }
+        journal.snapshot();
+        journal.append("r99999", "https://example.com/r99999", 1_800_000_000_000L, 0x4).join();
+        redirects.put("r99999", 0x4);
+        journal.close();
+
+        Map<String, Integer> replayed = new LinkedHashMap<>();
+        newJournal(16 * 1024).replay((code, url, expiresAt, redirect) -> {
+            assertEquals("https://example.com/" + code, url);
+            replayed.put(code, redirect);
+        });
+        assertEquals(redirects, replayed);
+    }
+
+    @Test
+    void position_ContinuesAcrossCleanRestartsAndSnapshots() {
+        FileMappingJournal journal = newJournal(16 * 1024);
+        journal.replay((code, url, expiresAt, redirect) -> {
+        });
+        JournalPosition empty = journal.position();
+        assertEquals(0, empty.records());
+        journal.start(() -> null);
+        append(journal, new LinkedHashMap<>(), 0, 1000);
+        journal.snapshot();
+        append(journal, new LinkedHashMap<>(), 1000, 1100);
+        journal.close();
+
+        FileMappingJournal reopened = newJournal(16 * 1024);
+        reopened.replay((code, url, expiresAt, redirect) -> {
+        });
+        assertEquals(new JournalPosition(empty.id(), 1100), reopened.position());
+    }
+
+    @Test
+    void position_StartsANewHistoryWhenAcknowledgedRecordsMayBeLost() {
+        for (FsyncPolicy policy : List.of(FsyncPolicy.ALWAYS, FsyncPolicy.INTERVAL)) {
+            Path policyDir = dataDir.resolve(policy.name());
+            FileMappingJournal journal = new FileMappingJournal(policyDir, 1 << 20, policy, Duration.ofMillis(5), Duration.ZERO);
+            journal.replay((code, url, expiresAt, redirect) -> {
+            });
+            journal.start(() -> null);
+            append(journal, new LinkedHashMap<>(), 0, 100);
+
+            // replayed while still open, as after a crash
+            FileMappingJournal recovered = new FileMappingJournal(policyDir, 1 << 20, policy, Duration.ofMillis(5), Duration.ZERO);
+            recovered.replay((code, url, expiresAt, redirect) -> {
+            });
+            assertEquals(100, recovered.position().records());
+            // only records forced one by one are certain to survive a crash of the machine
+            assertEquals(policy == FsyncPolicy.ALWAYS, recovered.position().id() == journal.position().id(), policy.name());
+            journal.close();
+        }
+    }
+
+    @Test
+    void append_FailsOnceClosed() {
+        FileMappingJournal journal = newJournal(1 << 20);
+        journal.replay((code, url, expiresAt, redirect) -> {
+        });
+        journal.start(() -> null);
+        journal.close();
+
+        CompletableFuture<Void> append = journal.append("abcdef", "https://example.com");
+        assertTrue(append.isCompletedExceptionally());
+    }
+
+    private Map<String, String> write(int count, FsyncPolicy policy, int segmentSize) {
+        FileMappingJournal journal = new FileMappingJournal(dataDir, segmentSize, policy, Duration.ofMillis(5), Duration.ZERO);
+        journal.replay((code, url, expiresAt, redirect) -> {
+        });
+        Map<String, String> written = new LinkedHashMap<>();
+        journal.start(() -> null);
+        append(journal, written, 0, count);
+        journal.close();
+        return written;
+    }
+
+    private static void append(MappingJournal journal, Map<String, String> live, int from, int to) {
+        CompletableFuture<?>[] appends = IntStream.range(from, to)
+            .mapToObj(i -> {
+                String code = String.format("c%05d", i);
+                String url = "https://example.com/campaign/" + i + "?utm_source=newsletter";
+                live.put(code, url);
+                return journal.append(code, url);
+            })
+            .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(appends).join();
+    }
+
+    private Map<String, String> replay(int segmentSize) {
+        Map<String, String> replayed = new LinkedHashMap<>();
+        newJournal(segmentSize).replay((code, url, expiresAt, redirect) -> replayed.put(code, url));
+        return replayed;
+    }
+
+    private FileMappingJournal newJournal(int segmentSize) {
+        return new FileMappingJournal(dataDir, segmentSize, FsyncPolicy.ALWAYS, Duration.ofMillis(5), Duration.ZERO);
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dataDir)) {
+            return files.filter(path -> path.toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private static int endOfRecords(Path segment) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int position = RecordCodec.FILE_HEADER_SIZE;
+        while (buffer.getInt(position) != 0) {
+            position += RecordCodec.RECORD_HEADER_SIZE + buffer.getInt(position);
+        }
+        return position;
+    }
+}
@@ -0,0 +1,318 @@
+package com.gk.shortlink.replication;
+
+import com.gk.shortlink.dto.LinkMapping;
+import com.gk.shortlink.generator.Base62;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs a leader and followers over localhost connections, with maps standing in for the followers' stores.
+ */
+class ReplicationTests {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void follower_AppliesTheFeedAndResumesFromItsOffsetAfterARestart() throws InterruptedException {
+        ChangeFeed feed = new ChangeFeed(10_000);
+        List<LinkMapping> written = new CopyOnWriteArrayList<>();
+        ReplicationLeader leader = leader(feed, written);
+        Path offsetFile = dataDir.resolve("replication.offset");
+        try {
+            Map<String, LinkMapping> applied = new ConcurrentHashMap<>();
+            ReplicationFollower follower = follower(leader, applied, offsetFile);
+            append(feed, written, 0, 1_000);
+            awaitApplied(follower, 1_000);
+            follower.stop();
+            assertEquals(1_000, applied.size());
+            assertEquals(written.get(999), applied.get(written.get(999).code()));
+
+            append(feed, written, 1_000, 500);
+            Map<String, LinkMapping> resumed = new ConcurrentHashMap<>();
+            ReplicationFollower restarted = follower(leader, resumed, offsetFile);
+            try {
+                awaitApplied(restarted, 1_500);
+                // only the changes made while it was down, no snapshot
+                assertEquals(500, resumed.size());
+                assertTrue(resumed.containsKey(written.get(1_000).code()));
+                assertEquals(0, restarted.lag());
+            } finally {
+                restarted.stop();
+            }
+        } finally {
+            leader.stop();
+        }
+    }
+
+    @Test
+    void follower_FlushesWhatItAppliedBeforeSavingItsOffset() throws InterruptedException {
+        ChangeFeed feed = new ChangeFeed(10_000);
+        List<LinkMapping> written = new CopyOnWriteArrayList<>();
+        ReplicationLeader leader = leader(feed, written);
+        Path offsetFile = dataDir.resolve("replication.offset");
+        AtomicInteger applied = new AtomicInteger();
+        AtomicInteger flushedUpTo = new AtomicInteger(-1);
+        ReplicationFollower follower = new ReplicationFollower(new InetSocketAddress(InetAddress.getLoopbackAddress(), leader.port()),
+            batch -> {
+                applied.addAndGet(batch.size());
+                return CompletableFuture.completedFuture(null);
+            },
+            () -> {
+                flushedUpTo.set(applied.get());
+                return CompletableFuture.completedFuture(null);
+            },
+            offsetFile, Duration.ofMillis(50), TIMEOUT);
+        follower.start();
+        try {
+            append(feed, written, 0, 1_000);
+            awaitApplied(follower, 1_000);
+        } finally {
+            follower.stop();
+            leader.stop();
+        }
+        // saved once the connection is gone, after everything it applied was flushed
+        assertEquals(1_000, flushedUpTo.get());
+        assertTrue(Files.exists(offsetFile));
+    }
+
+    @Test
+    void follower_GetsASnapshotOnceItsOffsetIsNoLongerRetained() throws InterruptedException {
+        ChangeFeed feed = new ChangeFeed(100);
+        List<LinkMapping> written = new CopyOnWriteArrayList<>();
+        ReplicationLeader leader = leader(feed, written);
+        Path offsetFile = dataDir.resolve("replication.offset");
+        try {
+            ReplicationFollower follower = follower(leader, new ConcurrentHashMap<>(), offsetFile);
+            append(feed, written, 0, 10);
+            awaitApplied(follower, 10);
+            follower.stop();
+
+            append(feed, written, 10, 500);
+            Map<String, LinkMapping> applied = new ConcurrentHashMap<>();
+            ReplicationFollower restarted = follower(leader, applied, offsetFile);
+            try {
+                awaitApplied(restarted, 510);
+                assertEquals(510, applied.size());
+            } finally {
+                restarted.stop();
+            }
+        } finally {
+            leader.stop();
+        }
+    }
+
+    @Test
+    void changeFeed_DeliversEveryChangeToEveryFollower() throws InterruptedException {
+        int changes = 200_000;
+        int followers = 2;
+        ChangeFeed feed = new ChangeFeed(changes);
+        ReplicationLeader leader = leader(feed, List.of());
+        List<ReplicationFollower> started = new ArrayList<>();
+        List<AtomicInteger> counts = new ArrayList<>();
+        try {
+            for (int i = 0; i < followers; i++) {
+                AtomicInteger count = new AtomicInteger();
+                counts.add(count);
+                started.add(follower(leader, batch -> count.addAndGet(batch.size()), null));
+            }
+            awaitConnected(started);
+            for (int i = 0; i < changes; i++) {
+                feed.append(mapping(i));
+            }
+            for (ReplicationFollower follower : started) {
+                awaitApplied(follower, changes);
+            }
+
+            counts.forEach(count -> assertEquals(changes, count.get()));
+            assertEquals(0, leader.maxLag());
+        } finally {
+            started.forEach(ReplicationFollower::stop);
+            leader.stop();
+        }
+    }
+
+    @Test
+    void awaitOffset_CompletesOnceThePositionIsApplied() throws InterruptedException {
+        ChangeFeed feed = new ChangeFeed(1_000);
+        ReplicationLeader leader = leader(feed, List.of());
+        ReplicationFollower follower = follower(leader, batch -> { }, null);
+        try {
+            awaitConnected(List.of(follower));
+            feed.append(mapping(0));
+            ReplicationOffset written = feed.position();
+
+            follower.awaitOffset(written).block(TIMEOUT);
+
+            assertEquals(1, follower.appliedOffset());
+        } finally {
+            follower.stop();
+            leader.stop();
+        }
+    }
+
+    @Test
+    void changeFeed_ForgetsChangesBeyondTheRetainedWindow() throws InterruptedException {
+        ChangeFeed feed = new ChangeFeed(4);
+        for (int i = 0; i < 10; i++) {
+            feed.append(mapping(i));
+        }
+        List<LinkMapping> read = new ArrayList<>();
+
+        assertEquals(-1, feed.read(5, 10, read));
+        assertEquals(10, feed.read(6, 10, read));
+        assertEquals(List.of(mapping(6), mapping(7), mapping(8), mapping(9)), read);
+        assertFalse(feed.await(10, Duration.ofMillis(10).toNanos()));
+    }
+
+    @Test
+    void follower_ResumesWithoutASnapshotAfterTheLeaderRestartsOnItsJournal() throws InterruptedException {
+        // the leader's journal held 500 records when it started
+        ChangeFeed feed = new ChangeFeed(10_000);
+        feed.continueFrom(42, 500);
+        List<LinkMapping> written = new CopyOnWriteArrayList<>();
+        ReplicationLeader leader = leader(feed, written);
+        Path offsetFile = dataDir.resolve("replication.offset");
+        ReplicationFollower follower = follower(leader, new ConcurrentHashMap<>(), offsetFile);
+        append(feed, written, 0, 100);
+        awaitApplied(follower, 600);
+        follower.stop();
+        leader.stop();
+
+        ChangeFeed restartedFeed = new ChangeFeed(10_000);
+        restartedFeed.continueFrom(42, 600);
+        ReplicationLeader restartedLeader = leader(restartedFeed, written);
+        Map<String, LinkMapping> resumed = new ConcurrentHashMap<>();
+        ReplicationFollower restarted = follower(restartedLeader, resumed, offsetFile);
+        try {
+            append(restartedFeed, written, 100, 50);
+            awaitApplied(restarted, 650);
+            // a snapshot would have brought the 100 changes from before the restart as well
+            assertEquals(50, resumed.size());
+        } finally {
+            restarted.stop();
+            restartedLeader.stop();
+        }
+    }
+
+    @Test
+    void leader_StreamsOnlyToFollowersHoldingItsSecret() throws InterruptedException {
+        ChangeFeed feed = new ChangeFeed(10_000);
+        List<LinkMapping> written = new CopyOnWriteArrayList<>();
+        ReplicationLeader leader = new ReplicationLeader(feed, () -> Flux.fromIterable(List.copyOf(written)),
+            InetAddress.getLoopbackAddress(), 0, "leader-secret".getBytes(StandardCharsets.UTF_8), 1024, Duration.ofMillis(100));
+        leader.start();
+        Map<String, LinkMapping> trusted = new ConcurrentHashMap<>();
+        Map<String, LinkMapping> intruder = new ConcurrentHashMap<>();
+        ReplicationFollower withSecret = follower(leader, "leader-secret", trusted);
+        ReplicationFollower withoutSecret = follower(leader, null, intruder);
+        try {
+            append(feed, written, 0, 100);
+            awaitApplied(withSecret, 100);
+            assertEquals(100, trusted.size());
+            assertFalse(withoutSecret.isConnected());
+            assertTrue(intruder.isEmpty());
+            assertEquals(1, leader.followerCount());
+        } finally {
+            withSecret.stop();
+            withoutSecret.stop();
+            leader.stop();
+        }
+    }
+
+    @Test
+    void replicationOffset_RoundTripsThroughItsHeaderValue() {
+        ReplicationOffset offset = new ReplicationOffset(-42L, 1234);
+
+        assertEquals(offset, ReplicationOffset.parse(offset.toString()));
+        assertNull(ReplicationOffset.parse("not-an-offset"));
+        assertNull(ReplicationOffset.parse(null));
+    }
+
+    private static ReplicationLeader leader(ChangeFeed feed, List<LinkMapping> written) {
+        ReplicationLeader leader = new ReplicationLeader(feed, () -> Flux.fromIterable(List.copyOf(written)), 0, 1024,
+            Duration.ofMillis(100));
+        leader.start();
+        return leader;
+    }
+
+    private static ReplicationFollower follower(ReplicationLeader leader, Map<String, LinkMapping> applied, Path offsetFile) {
+        return follower(leader, batch -> batch.forEach(mapping -> applied.put(mapping.code(), mapping)), offsetFile);
+    }
+
+    private static ReplicationFollower follower(ReplicationLeader leader, Consumer<List<LinkMapping>> applier,
+                                                Path offsetFile) {
+        ReplicationFollower follower = new ReplicationFollower(new InetSocketAddress(InetAddress.getLoopbackAddress(), leader.port()),
+            batch -> {
+                applier.accept(batch);
+                return CompletableFuture.completedFuture(null);
+            },
+            offsetFile, Duration.ofMillis(50), TIMEOUT);
+        follower.start();
+        return follower;
+    }
+
+    private static ReplicationFollower follower(ReplicationLeader leader, String secret, Map<String, LinkMapping> applied) {
+        ReplicationFollower follower = new ReplicationFollower(new InetSocketAddress(InetAddress.getLoopbackAddress(), leader.port()),
+            secret != null ? secret.getBytes(StandardCharsets.UTF_8) : null,
+            batch -> {
+                batch.forEach(mapping -> applied.put(mapping.code(), mapping));
+                return CompletableFuture.completedFuture(null);
+            },
+            () -> CompletableFuture.completedFuture(null), null, Duration.ofMillis(50), TIMEOUT);
+        follower.start();
+        return follower;
+    }
+
+    private static void append(ChangeFeed feed, List<LinkMapping> written, int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            LinkMapping mapping = mapping(i);
+            // as on a leader, a change is durable, and in snapshots, before it is appended
+            written.add(mapping);
+            feed.append(mapping);
+        }
+    }
+
+    private static LinkMapping mapping(int i) {
+        return new LinkMapping(Base62.encode(i, 6), "https://www.example.com/replicated/" + i, i % 3 == 0 ? 4_102_444_800_000L : 0, 0);
+    }
+
+    private static void awaitApplied(ReplicationFollower follower, long offset) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (follower.appliedOffset() < offset) {
+            assertTrue(System.nanoTime() < deadline, "Follower stuck at offset " + follower.appliedOffset() + " of " + offset);
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Waits until the followers' snapshots are behind them, so that every change appended afterwards is streamed
+     */
+    private static void awaitConnected(List<ReplicationFollower> followers) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!followers.stream().allMatch(ReplicationFollower::isConnected)) {
+            assertTrue(System.nanoTime() < deadline, "Followers did not connect");
+            Thread.sleep(1);
+        }
+    }
+}
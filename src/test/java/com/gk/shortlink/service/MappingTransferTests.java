@@ -0,0 +1,90 @@
+package com.gk.shortlink.service;
+
+import com.gk.shortlink.config.ShortLinkProperties;
+import com.gk.shortlink.dto.ImportResult;
+import com.gk.shortlink.dto.LinkMapping;
+import com.gk.shortlink.generator.BlockSequenceCodeGenerator;
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import com.gk.shortlink.persistence.MappingJournal;
+import com.gk.shortlink.transfer.BinaryMappingDecoder;
+import com.gk.shortlink.transfer.MappingFormat;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappingTransferTests {
+
+    private static final int ENTRIES = 1_000_000;
+
+    @Test
+    void exportThenImport_RoundTripsAMillionMappings() {
+        UrlShortenerService source = newService(1L);
+        List<String> codes = source.shortenAll(Flux.range(0, ENTRIES).map(MappingTransferTests::url)).collectList().block();
+        assertNotNull(codes);
+
+        // stream through the binary wire format exactly as the admin endpoints do
+        BinaryMappingDecoder decoder = new BinaryMappingDecoder();
+        Flux<LinkMapping> transferred = Flux.concat(
+                Flux.just(MappingFormat.BINARY.header()),
+                source.exportMappings().buffer(4096).map(MappingFormat.BINARY::encode))
+            .concatMapIterable(chunk -> decoder.decode(ByteBuffer.wrap(chunk)))
+            .concatWith(Flux.defer(() -> {
+                decoder.finish();
+                return Flux.empty();
+            }));
+
+        UrlShortenerService target = newService(2L);
+        ImportResult result = target.importMappings(transferred).block();
+
+        assertEquals(new ImportResult(ENTRIES, 0), result);
+        for (int i = 0; i < ENTRIES; i += 997) {
+            assertEquals(url(i), target.getOriginalUrl(codes.get(i)).block());
+        }
+        assertEquals(codes.get(ENTRIES - 1), target.shorten(url(ENTRIES - 1)).block(), "Imported codes must be kept");
+    }
+
+    @Test
+    void importMappings_KeepsExistingCodesAndSkipsConflicts() {
+        UrlShortenerService target = newService(3L);
+        String existing = target.shorten("https://example.com/existing").block();
+
+        ImportResult result = target.importMappings(Flux.just(
+            new LinkMapping(existing, "https://example.com/other"),
+            new LinkMapping("zzzzzz", "https://example.com/existing"),
+            new LinkMapping("not a code", "https://example.com/invalid"),
+            new LinkMapping("yyyyyy", "https://example.com/new"))).block();
+
+        assertEquals(new ImportResult(1, 3), result);
+        assertEquals("https://example.com/existing", target.getOriginalUrl(existing).block());
+        assertEquals("https://example.com/new", target.getOriginalUrl("yyyyyy").block());
+        assertNull(target.getOriginalUrl("zzzzzz").block());
+    }
+
+    @Test
+    void exportMappings_StreamsEveryMapping() {
+        UrlShortenerService source = newService(4L);
+        Map<String, String> expected = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            expected.put(source.shorten(url(i)).block(), url(i));
+        }
+
+        Map<String, String> exported = source.exportMappings().collectMap(LinkMapping::code, LinkMapping::url).block();
+
+        assertEquals(expected, exported);
+    }
+
+    private static UrlShortenerService newService(long seed) {
+        ShortLinkProperties properties = new ShortLinkProperties("short.ly", 2 * ENTRIES, 6);
+        return UrlShortenerServices.create(properties, new BlockSequenceCodeGenerator(6, 1024, seed), MappingJournal.disabled(), ShortLinkMetrics.disabled());
+    }
+
+    private static String url(int i) {
+        return "https://www.example.com/campaign/" + i + "?utm_source=export";
+    }
+}
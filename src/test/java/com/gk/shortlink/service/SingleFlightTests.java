@@ -0,0 +1,219 @@
+package com.gk.shortlink.service;
+
+import com.gk.shortlink.cluster.ClusterRouter;
+import com.gk.shortlink.config.ShortLinkProperties;
+import com.gk.shortlink.dto.LinkMapping;
+import com.gk.shortlink.exception.StorageBusyException;
+import com.gk.shortlink.generator.BlockSequenceCodeGenerator;
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import com.gk.shortlink.persistence.MappingJournal;
+import com.gk.shortlink.store.FileLinkStore;
+import com.gk.shortlink.store.LinkStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTests {
+
+    private static final int HERD = 500;
+    private static final Duration SLOW_LOOKUP = Duration.ofMillis(200);
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    void thunderingHerd_OnAnEvictedCodeReadsTheLinkStoreOnce(@TempDir Path dataDir) {
+        int coalesced = herdLoads(dataDir.resolve("coalesced"), ShortLinkProperties.Lookup.DEFAULTS);
+        int uncoalesced = herdLoads(dataDir.resolve("uncoalesced"),
+            new ShortLinkProperties.Lookup(false, 1024, Duration.ZERO, 0));
+
+        assertEquals(1, coalesced);
+        assertEquals(HERD, uncoalesced);
+    }
+
+    @Test
+    void thunderingHerd_OnACodeNeverIssuedIsAnsweredFromTheRememberedMiss(@TempDir Path dataDir) {
+        SlowLinkStore linkStore = new SlowLinkStore(FileLinkStore.open(dataDir, true));
+        UrlShortenerService service = service(ShortLinkProperties.Lookup.DEFAULTS, linkStore);
+
+        List<String> found = herd(service, "zzzzzz");
+        assertTrue(found.isEmpty());
+        // arriving after the first lookup completed, the second herd does not reach the link store at all
+        assertTrue(herd(service, "zzzzzz").isEmpty());
+
+        assertEquals(1, linkStore.reads.get());
+        linkStore.close();
+    }
+
+    @Test
+    void load_RejectsWaitersBeyondTheCap() {
+        SingleFlight lookups = new SingleFlight(10, Duration.ZERO, 0);
+        Sinks.One<String> backing = Sinks.one();
+        AtomicInteger loads = new AtomicInteger();
+        List<Mono<String>> waiting = IntStream.range(0, 20)
+            .mapToObj(i -> lookups.load("abc123", code -> {
+                loads.incrementAndGet();
+                return backing.asMono();
+            }).cache())
+            .toList();
+        waiting.forEach(lookup -> lookup.subscribe(url -> { }, error -> { }));
+
+        backing.tryEmitValue("https://example.com/");
+
+        long answered = waiting.stream().filter(lookup -> "https://example.com/".equals(lookup.onErrorReturn("").block(TIMEOUT))).count();
+        long rejected = waiting.stream().filter(lookup -> lookup.map(url -> false)
+            .onErrorResume(StorageBusyException.class, e -> Mono.just(true)).block(TIMEOUT)).count();
+        assertEquals(1, loads.get());
+        assertEquals(10, answered);
+        assertEquals(10, rejected);
+        assertEquals(10, lookups.rejectedCount());
+        assertEquals(0, lookups.inFlight());
+    }
+
+    @Test
+    void load_HandsAFailureToEveryWaiterAndRetriesAfterwards() {
+        SingleFlight lookups = new SingleFlight(100, Duration.ofMinutes(1), 100);
+        Sinks.One<String> backing = Sinks.one();
+        Mono<String> first = lookups.load("abc123", code -> backing.asMono()).cache();
+        Mono<String> second = lookups.load("abc123", code -> Mono.just("https://example.com/unused")).cache();
+        first.subscribe(url -> { }, error -> { });
+        second.subscribe(url -> { }, error -> { });
+
+        backing.tryEmitError(new IllegalStateException("link store down"));
+
+        assertThrows(IllegalStateException.class, () -> first.block(TIMEOUT));
+        assertThrows(IllegalStateException.class, () -> second.block(TIMEOUT));
+        // a failure is no confirmed miss, the next lookup goes to the backing lookup again
+        assertEquals("https://example.com/", lookups.load("abc123", code -> Mono.just("https://example.com/")).block(TIMEOUT));
+        assertEquals(2, lookups.loadCount());
+    }
+
+    @Test
+    void load_RemembersMissesUntilTheirCodeIsIssued() {
+        SingleFlight lookups = new SingleFlight(100, Duration.ofMinutes(1), 100);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(lookups.load("abc123", code -> Mono.fromRunnable(loads::incrementAndGet)).block(TIMEOUT));
+        assertNull(lookups.load("abc123", code -> Mono.fromRunnable(loads::incrementAndGet)).block(TIMEOUT));
+        assertEquals(1, loads.get());
+        assertEquals(1, lookups.negativeHitCount());
+
+        lookups.forget("abc123");
+        assertEquals("https://example.com/", lookups.load("abc123", code -> Mono.just("https://example.com/")).block(TIMEOUT));
+    }
+
+    private static int herdLoads(Path dataDir, ShortLinkProperties.Lookup lookup) {
+        SlowLinkStore linkStore = new SlowLinkStore(FileLinkStore.open(dataDir, true));
+        UrlShortenerService service = service(lookup, linkStore);
+        List<String> codes = IntStream.range(0, 200).mapToObj(i -> service.shorten("https://example.com/viral/" + i).block()).toList();
+        assertNull(service.findLocation(codes.get(0)), "The first mapping should have been evicted from memory");
+
+        List<String> found = herd(service, codes.get(0));
+
+        assertEquals(HERD, found.size());
+        assertTrue(found.stream().allMatch("https://example.com/viral/0"::equals));
+        assertEquals("https://example.com/viral/0", service.findLocation(codes.get(0)), "A read through should warm the store");
+        linkStore.close();
+        return linkStore.reads.get();
+    }
+
+    private static List<String> herd(UrlShortenerService service, String code) {
+        return Flux.range(0, HERD)
+            .flatMap(i -> service.getOriginalUrl(code), HERD)
+            .collectList()
+            .block(TIMEOUT);
+    }
+
+    private static UrlShortenerService service(ShortLinkProperties.Lookup lookup, LinkStore linkStore) {
+        ShortLinkProperties properties = new ShortLinkProperties("short.ly", 100, 6, null, null, null, null, null,
+            null, null, null, null, null, null, null, lookup, null);
+        return UrlShortenerServices.create(properties, new BlockSequenceCodeGenerator(6, 1024, 42L),
+            MappingJournal.disabled(), ShortLinkMetrics.disabled(), ClusterRouter.standalone(), linkStore);
+    }
+
+    /**
+     * Link store whose lookups by code take {@link #SLOW_LOOKUP}, as on a remote or cold system of record,
+     * and are counted
+     */
+    private static final class SlowLinkStore implements LinkStore {
+
+        private final LinkStore delegate;
+        private final AtomicInteger reads = new AtomicInteger();
+
+        SlowLinkStore(LinkStore delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Mono<String> get(String code) {
+            return getMapping(code).map(LinkMapping::url);
+        }
+
+        @Override
+        public Mono<LinkMapping> getMapping(String code) {
+            return Mono.delay(SLOW_LOOKUP)
+                .doOnNext(tick -> reads.incrementAndGet())
+                .then(Mono.defer(() -> delegate.getMapping(code)));
+        }
+
+        @Override
+        public Mono<String> getByUrl(String url) {
+            return delegate.getByUrl(url);
+        }
+
+        @Override
+        public Mono<Void> put(String code, String url) {
+            return delegate.put(code, url);
+        }
+
+        @Override
+        public Mono<String> putIfAbsent(String code, String url) {
+            return delegate.putIfAbsent(code, url);
+        }
+
+        @Override
+        public Mono<String> putIfAbsent(LinkMapping mapping) {
+            return delegate.putIfAbsent(mapping);
+        }
+
+        @Override
+        public Mono<Map<String, String>> getAll(Collection<String> codes) {
+            return delegate.getAll(codes);
+        }
+
+        @Override
+        public Mono<Map<String, String>> getAllByUrl(Collection<String> urls) {
+            return delegate.getAllByUrl(urls);
+        }
+
+        @Override
+        public Mono<Void> putAll(List<LinkMapping> mappings) {
+            return delegate.putAll(mappings);
+        }
+
+        @Override
+        public Mono<List<String>> putAllIfAbsent(List<LinkMapping> mappings) {
+            return delegate.putAllIfAbsent(mappings);
+        }
+
+        @Override
+        public Flux<LinkMapping> scan() {
+            return delegate.scan();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
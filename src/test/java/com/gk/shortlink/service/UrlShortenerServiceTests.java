@@ -1,13 +1,41 @@
 package com.gk.shortlink.service;
 
+import com.gk.shortlink.cluster.ClusterRouter;
 import com.gk.shortlink.config.ShortLinkProperties;
+import com.gk.shortlink.dto.ImportResult;
+import com.gk.shortlink.dto.LinkMapping;
+import com.gk.shortlink.exception.CodeGenerationException;
+import com.gk.shortlink.exception.InvalidUrlException;
+import com.gk.shortlink.generator.BlockSequenceCodeGenerator;
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import com.gk.shortlink.persistence.FileMappingJournal;
+import com.gk.shortlink.persistence.FsyncPolicy;
+import com.gk.shortlink.persistence.MappingJournal;
+import com.gk.shortlink.store.FileLinkStore;
+import com.gk.shortlink.store.LinkStore;
+import com.gk.shortlink.store.WriteBehindLinkStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -18,7 +46,7 @@ class UrlShortenerServiceTests {
     @BeforeEach
     void setUp() {
         ShortLinkProperties properties = new ShortLinkProperties("short.ly", 10000, DEFAULT_CODE_LENGTH);
-        urlShortenerService = new UrlShortenerService(properties);
+        urlShortenerService = UrlShortenerServices.create(properties, new BlockSequenceCodeGenerator(DEFAULT_CODE_LENGTH, 1024, 42L), MappingJournal.disabled(), ShortLinkMetrics.disabled());
     }
 
     @Test
@@ -107,4 +135,369 @@ class UrlShortenerServiceTests {
             .expectNextCount(0)
             .verifyComplete();
     }
+
+    @Test
+    void shorten_RetriesWhenGeneratedCodeCollides() {
+        ShortLinkProperties properties = new ShortLinkProperties("short.ly", 10000, DEFAULT_CODE_LENGTH);
+        Iterator<String> codes = List.of("aaaaaa", "aaaaaa", "bbbbbb").iterator();
+        UrlShortenerService service = UrlShortenerServices.create(properties, codes::next, MappingJournal.disabled(), ShortLinkMetrics.disabled());
+
+        service.shorten("https://example.com/1")
+            .then(service.shorten("https://example.com/2"))
+            .as(StepVerifier::create)
+            .expectNext("bbbbbb")
+            .verifyComplete();
+    }
+
+    @Test
+    void shorten_FailsAfterMaxAttemptsOfCollisions() {
+        ShortLinkProperties properties = new ShortLinkProperties("short.ly", 10000, DEFAULT_CODE_LENGTH);
+        UrlShortenerService service = UrlShortenerServices.create(properties, () -> "aaaaaa", MappingJournal.disabled(), ShortLinkMetrics.disabled());
+
+        service.shorten("https://example.com/1")
+            .then(service.shorten("https://example.com/2"))
+            .as(StepVerifier::create)
+            .expectError(CodeGenerationException.class)
+            .verify();
+    }
+
+    @Test
+    void journaledMappings_SurviveRestart(@TempDir Path dataDir) {
+        ShortLinkProperties properties = new ShortLinkProperties("short.ly", 10000, DEFAULT_CODE_LENGTH);
+        MappingJournal journal = new FileMappingJournal(dataDir, 1 << 20, FsyncPolicy.ALWAYS, Duration.ofSeconds(1), Duration.ZERO);
+        UrlShortenerService service = UrlShortenerServices.create(properties, new BlockSequenceCodeGenerator(DEFAULT_CODE_LENGTH, 1024, 42L), journal, ShortLinkMetrics.disabled());
+        String code = service.shorten("https://example.com/durable").block();
+        journal.close();
+
+        MappingJournal reopened = new FileMappingJournal(dataDir, 1 << 20, FsyncPolicy.ALWAYS, Duration.ofSeconds(1), Duration.ZERO);
+        UrlShortenerService restarted = UrlShortenerServices.create(properties, new BlockSequenceCodeGenerator(DEFAULT_CODE_LENGTH, 1024, 42L), reopened, ShortLinkMetrics.disabled());
+
+        StepVerifier.create(restarted.getOriginalUrl(code))
+            .expectNext("https://example.com/durable")
+            .verifyComplete();
+        StepVerifier.create(restarted.shorten("https://example.com/durable"))
+            .expectNext(code)
+            .verifyComplete();
+        StepVerifier.create(restarted.shorten("https://example.com/new"))
+            .assertNext(newCode -> assertNotEquals(code, newCode, "Replayed codes must not be reissued"))
+            .verifyComplete();
+        reopened.close();
+    }
+
+    @Test
+    void journalSnapshots_KeepMappingsEvictedFromMemory(@TempDir Path dataDir) {
+        ShortLinkProperties properties = new ShortLinkProperties("short.ly", 100, DEFAULT_CODE_LENGTH);
+        FileMappingJournal journal = new FileMappingJournal(dataDir, 16 * 1024, FsyncPolicy.ALWAYS, Duration.ofSeconds(1), Duration.ZERO);
+        UrlShortenerService service = UrlShortenerServices.create(properties, new BlockSequenceCodeGenerator(DEFAULT_CODE_LENGTH, 1024, 42L), journal, ShortLinkMetrics.disabled());
+        List<String> codes = IntStream.range(0, 1000).mapToObj(i -> service.shorten("https://example.com/journaled/" + i).block()).toList();
+
+        assertNull(service.findLocation(codes.get(0)), "The first mapping should have been evicted from memory");
+        journal.snapshot();
+        journal.close();
+
+        // restarted with room for every mapping, as the snapshot holds the evicted ones too
+        ShortLinkProperties larger = new ShortLinkProperties("short.ly", 10000, DEFAULT_CODE_LENGTH);
+        MappingJournal reopened = new FileMappingJournal(dataDir, 16 * 1024, FsyncPolicy.ALWAYS, Duration.ofSeconds(1), Duration.ZERO);
+        UrlShortenerService restarted = UrlShortenerServices.create(larger, new BlockSequenceCodeGenerator(DEFAULT_CODE_LENGTH, 1024, 42L), reopened, ShortLinkMetrics.disabled());
+        StepVerifier.create(restarted.getOriginalUrl(codes.get(0)))
+            .expectNext("https://example.com/journaled/0")
+            .verifyComplete();
+        StepVerifier.create(restarted.shorten("https://example.com/journaled/new"))
+            .assertNext(newCode -> assertFalse(codes.contains(newCode), "Evicted codes must not be reissued"))
+            .verifyComplete();
+        reopened.close();
+    }
+
+    @Test
+    void expiringLinks_AreNeverSharedAndSurviveRestartUntilTheyExpire(@TempDir Path dataDir) {
+        ShortLinkProperties properties = new ShortLinkProperties("short.ly", 10000, DEFAULT_CODE_LENGTH);
+        MappingJournal journal = new FileMappingJournal(dataDir, 1 << 20, FsyncPolicy.ALWAYS, Duration.ofSeconds(1), Duration.ZERO);
+        UrlShortenerService service = UrlShortenerServices.create(properties, new BlockSequenceCodeGenerator(DEFAULT_CODE_LENGTH, 1024, 42L), journal, ShortLinkMetrics.disabled());
+        String url = "https://example.com/campaign";
+        Instant expiresAt = Instant.now().plus(Duration.ofHours(1));
+        String permanent = service.shorten(url).block();
+        String first = service.shorten(url, expiresAt).block();
+        String second = service.shorten(url, expiresAt).block();
+
+        assertEquals(3, Set.of(permanent, first, second).size(), "Expiring links must get codes of their own");
+        assertEquals(permanent, service.shorten(url).block());
+        assertEquals(url, service.findLocation(first));
+        // a mapping that expired while the service was down
+        journal.append("zzzzzz", "https://example.com/expired", System.currentTimeMillis() - 1_000).join();
+        journal.close();
+
+        MappingJournal reopened = new FileMappingJournal(dataDir, 1 << 20, FsyncPolicy.ALWAYS, Duration.ofSeconds(1), Duration.ZERO);
+        UrlShortenerService restarted = UrlShortenerServices.create(properties, new BlockSequenceCodeGenerator(DEFAULT_CODE_LENGTH, 1024, 42L), reopened, ShortLinkMetrics.disabled());
+        StepVerifier.create(restarted.getOriginalUrl(first))
+            .expectNext(url)
+            .verifyComplete();
+        StepVerifier.create(restarted.getOriginalUrl("zzzzzz"))
+            .verifyComplete();
+        StepVerifier.create(restarted.exportMappings().filter(mapping -> mapping.code().equals(second)))
+            // kept to the second, rounded up
+            .assertNext(mapping -> assertEquals((expiresAt.toEpochMilli() + 999) / 1000 * 1000, mapping.expiresAt()))
+            .verifyComplete();
+        reopened.close();
+    }
+
+    @Test
+    void linksWithRedirectPolicy_AreNeverSharedAndKeepTheirPolicyAcrossRestart(@TempDir Path dataDir) {
+        ShortLinkProperties properties = new ShortLinkProperties("short.ly", 10000, DEFAULT_CODE_LENGTH);
+        MappingJournal journal = new FileMappingJournal(dataDir, 1 << 20, FsyncPolicy.ALWAYS, Duration.ofSeconds(1), Duration.ZERO);
+        UrlShortenerService service = UrlShortenerServices.create(properties, new BlockSequenceCodeGenerator(DEFAULT_CODE_LENGTH, 1024, 42L), journal, ShortLinkMetrics.disabled());
+        String url = "https://example.com/landing";
+        String permanent = service.shorten(url).block();
+        String cached = service.shorten(url, null, RedirectPolicy.encode(301, Duration.ofHours(1))).block();
+
+        assertNotEquals(permanent, cached, "Links with a redirect policy must get codes of their own");
+        assertEquals(permanent, service.shorten(url).block());
+        assertEquals(HttpStatus.FOUND, service.redirectPolicy(permanent).status());
+        assertNull(service.redirectPolicy(permanent).cacheControl());
+        assertEquals(HttpStatus.MOVED_PERMANENTLY, service.redirectPolicy(cached).status());
+        assertEquals("max-age=3600", service.redirectPolicy(cached).cacheControl());
+        journal.close();
+
+        MappingJournal reopened = new FileMappingJournal(dataDir, 1 << 20, FsyncPolicy.ALWAYS, Duration.ofSeconds(1), Duration.ZERO);
+        UrlShortenerService restarted = UrlShortenerServices.create(properties, new BlockSequenceCodeGenerator(DEFAULT_CODE_LENGTH, 1024, 42L), reopened, ShortLinkMetrics.disabled());
+        assertEquals(url, restarted.findLocation(cached));
+        assertEquals(HttpStatus.MOVED_PERMANENTLY, restarted.redirectPolicy(cached).status());
+        assertEquals("max-age=3600", restarted.redirectPolicy(cached).cacheControl());
+        reopened.close();
+    }
+
+    @Test
+    void redirectPolicy_NeverCachesExpiringLinksPastTheirExpiry() {
+        ShortLinkProperties properties = new ShortLinkProperties("short.ly", 10000, DEFAULT_CODE_LENGTH);
+        UrlShortenerService service = UrlShortenerServices.create(properties, new BlockSequenceCodeGenerator(DEFAULT_CODE_LENGTH, 1024, 42L), MappingJournal.disabled(), ShortLinkMetrics.disabled());
+        Instant expiresAt = Instant.now().plus(Duration.ofHours(1));
+        String cachedForADay = service.shorten("https://example.com/a", expiresAt, RedirectPolicy.encode(301, Duration.ofDays(1))).block();
+        String cachedForAMinute = service.shorten("https://example.com/b", expiresAt, RedirectPolicy.encode(301, Duration.ofMinutes(1))).block();
+        String permanent = service.shorten("https://example.com/c", expiresAt, RedirectPolicy.encode(308, null)).block();
+        String temporary = service.shorten("https://example.com/d", expiresAt).block();
+
+        long maxAge = Long.parseLong(service.redirectPolicy(cachedForADay).cacheControl().substring("max-age=".length()));
+        assertTrue(maxAge <= 3600 && maxAge > 3500, "max-age should end with the link but was " + maxAge);
+        assertEquals(HttpStatus.MOVED_PERMANENTLY, service.redirectPolicy(cachedForADay).status());
+        assertEquals("max-age=60", service.redirectPolicy(cachedForAMinute).cacheControl());
+        // permanent redirects are cached without a Cache-Control header, so they get a bounded one
+        assertNotNull(service.redirectPolicy(permanent).cacheControl());
+        assertNull(service.redirectPolicy(temporary).cacheControl());
+    }
+
+    @Test
+    void linkStore_ServesEvictedMappingsAndSurvivesRestart(@TempDir Path dataDir) {
+        ShortLinkProperties properties = new ShortLinkProperties("short.ly", 100, DEFAULT_CODE_LENGTH);
+        LinkStore linkStore = new WriteBehindLinkStore(FileLinkStore.open(dataDir, true), 1024, 64);
+        UrlShortenerService service = UrlShortenerServices.create(properties, new BlockSequenceCodeGenerator(DEFAULT_CODE_LENGTH, 1024, 42L),
+            MappingJournal.disabled(), ShortLinkMetrics.disabled(), ClusterRouter.standalone(), linkStore);
+        List<String> codes = IntStream.range(0, 1000).mapToObj(i -> service.shorten("https://example.com/stored/" + i).block()).toList();
+
+        assertNull(service.findLocation(codes.get(0)), "The first mapping should have been evicted from memory");
+        StepVerifier.create(service.getOriginalUrl(codes.get(0)))
+            .expectNext("https://example.com/stored/0")
+            .verifyComplete();
+        assertEquals("https://example.com/stored/0", service.findLocation(codes.get(0)), "A read through should warm the store");
+        StepVerifier.create(service.shorten("https://example.com/stored/1"))
+            .expectNext(codes.get(1))
+            .verifyComplete();
+        linkStore.close();
+
+        LinkStore reopened = FileLinkStore.open(dataDir, true);
+        UrlShortenerService restarted = UrlShortenerServices.create(properties, new BlockSequenceCodeGenerator(DEFAULT_CODE_LENGTH, 1024, 42L),
+            MappingJournal.disabled(), ShortLinkMetrics.disabled(), ClusterRouter.standalone(), reopened);
+        StepVerifier.create(restarted.getOriginalUrl(codes.get(500)))
+            .expectNext("https://example.com/stored/500")
+            .verifyComplete();
+        StepVerifier.create(restarted.shorten("https://example.com/stored/new"))
+            .assertNext(newCode -> assertFalse(codes.contains(newCode), "Stored codes must not be reissued"))
+            .verifyComplete();
+        reopened.close();
+    }
+
+    @Test
+    void linkStore_KeepsItsOwnMappingAndLeavesTheClaimedCodeOutOfTheJournal(@TempDir Path dataDir) {
+        ShortLinkProperties properties = new ShortLinkProperties("short.ly", 100, DEFAULT_CODE_LENGTH);
+        String url = "https://example.com/raced";
+        int redirect = RedirectPolicy.encode(301, Duration.ofHours(1));
+        // another writer stored the URL after this instance looked it up
+        LinkStore linkStore = Mockito.mock(LinkStore.class);
+        Mockito.when(linkStore.scan()).thenReturn(Flux.empty());
+        Mockito.when(linkStore.highWaterMark()).thenReturn(Mono.empty());
+        Mockito.when(linkStore.putHighWaterMark(Mockito.anyString())).thenReturn(Mono.empty());
+        Mockito.when(linkStore.getByUrl(url)).thenReturn(Mono.empty());
+        Mockito.when(linkStore.putIfAbsent(Mockito.any(LinkMapping.class))).thenReturn(Mono.just("zzzzzz"));
+        Mockito.when(linkStore.getMapping("zzzzzz")).thenReturn(Mono.just(new LinkMapping("zzzzzz", url, 0, redirect)));
+        MappingJournal journal = new FileMappingJournal(dataDir, 1 << 20, FsyncPolicy.ALWAYS, Duration.ofSeconds(1), Duration.ZERO);
+        UrlShortenerService service = UrlShortenerServices.create(properties, new BlockSequenceCodeGenerator(DEFAULT_CODE_LENGTH, 1024, 42L),
+            journal, ShortLinkMetrics.disabled(), ClusterRouter.standalone(), linkStore);
+
+        assertEquals("zzzzzz", service.shorten(url).block());
+        assertEquals(url, service.findLocation("zzzzzz"));
+        assertEquals(HttpStatus.MOVED_PERMANENTLY, service.redirectPolicy("zzzzzz").status());
+        journal.close();
+
+        List<String> journaled = new ArrayList<>();
+        MappingJournal reopened = new FileMappingJournal(dataDir, 1 << 20, FsyncPolicy.ALWAYS, Duration.ofSeconds(1), Duration.ZERO);
+        reopened.replay((code, originalUrl, expiresAt, bits) -> journaled.add(code));
+        reopened.close();
+        assertEquals(List.of(), journaled);
+    }
+
+    @Test
+    void importMappings_LeavesCodesTheLinkStoreTurnsDownOutOfTheJournal(@TempDir Path dataDir) {
+        ShortLinkProperties properties = new ShortLinkProperties("short.ly", 100, DEFAULT_CODE_LENGTH);
+        // the link store already maps the second URL under another code
+        LinkStore linkStore = Mockito.mock(LinkStore.class);
+        Mockito.when(linkStore.scan()).thenReturn(Flux.empty());
+        Mockito.when(linkStore.highWaterMark()).thenReturn(Mono.empty());
+        Mockito.when(linkStore.putHighWaterMark(Mockito.anyString())).thenReturn(Mono.empty());
+        Mockito.when(linkStore.putIfAbsent(Mockito.any(LinkMapping.class)))
+            .thenAnswer(invocation -> Mono.just(invocation.<LinkMapping>getArgument(0).code().equals("bbbbbb") ? "zzzzzz" : "aaaaaa"));
+        MappingJournal journal = new FileMappingJournal(dataDir, 1 << 20, FsyncPolicy.ALWAYS, Duration.ofSeconds(1), Duration.ZERO);
+        UrlShortenerService service = UrlShortenerServices.create(properties, new BlockSequenceCodeGenerator(DEFAULT_CODE_LENGTH, 1024, 42L),
+            journal, ShortLinkMetrics.disabled(), ClusterRouter.standalone(), linkStore);
+
+        ImportResult result = service.importMappings(Flux.just(
+            new LinkMapping("aaaaaa", "https://example.com/imported"),
+            new LinkMapping("bbbbbb", "https://example.com/taken"))).block();
+        assertEquals(new ImportResult(1, 1), result);
+        assertNull(service.findLocation("bbbbbb"));
+        journal.close();
+
+        List<String> journaled = new ArrayList<>();
+        MappingJournal reopened = new FileMappingJournal(dataDir, 1 << 20, FsyncPolicy.ALWAYS, Duration.ofSeconds(1), Duration.ZERO);
+        reopened.replay((code, originalUrl, expiresAt, bits) -> journaled.add(code));
+        reopened.close();
+        assertEquals(List.of("aaaaaa"), journaled);
+    }
+
+    @Test
+    void codeFilter_IsBypassedUntilFilledFromTheLinkStore() {
+        ShortLinkProperties properties = new ShortLinkProperties("short.ly", 100, DEFAULT_CODE_LENGTH, null, null, null,
+            null, null, null, null, null, null, null, new ShortLinkProperties.CodeFilter(true, 1000, 0.01), null, null, null);
+        Sinks.Many<LinkMapping> scan = Sinks.many().unicast().onBackpressureBuffer();
+        LinkStore linkStore = Mockito.mock(LinkStore.class);
+        Mockito.when(linkStore.highWaterMark()).thenReturn(Mono.just("abc123"));
+        Mockito.when(linkStore.scan()).thenReturn(scan.asFlux());
+        Mockito.when(linkStore.getMapping(Mockito.anyString())).thenReturn(Mono.empty());
+        Mockito.when(linkStore.getMapping("abc123")).thenReturn(Mono.just(new LinkMapping("abc123", "https://example.com/earlier")));
+        UrlShortenerService service = UrlShortenerServices.create(properties, new BlockSequenceCodeGenerator(DEFAULT_CODE_LENGTH, 1024, 42L),
+            MappingJournal.disabled(), ShortLinkMetrics.disabled(), ClusterRouter.standalone(), linkStore);
+
+        // started without waiting for the scan, codes of earlier runs still resolve
+        assertEquals("https://example.com/earlier", service.getOriginalUrl("abc123").block());
+        assertNull(service.getOriginalUrl("zzzzzz").block());
+        Mockito.verify(linkStore).getMapping("zzzzzz");
+
+        scan.tryEmitNext(new LinkMapping("abc123", "https://example.com/earlier"));
+        scan.tryEmitComplete();
+        assertNull(service.getOriginalUrl("yyyyyy").block());
+        Mockito.verify(linkStore, Mockito.never()).getMapping("yyyyyy");
+    }
+
+    @Test
+    void codeFilter_AnswersCodesNeverIssuedWithoutReadingThrough(@TempDir Path dataDir) {
+        ShortLinkProperties properties = new ShortLinkProperties("short.ly", 100, DEFAULT_CODE_LENGTH, null, null, null,
+            null, null, null, null, null, null, null, new ShortLinkProperties.CodeFilter(true, 1000, 0.01), null, null, null);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LinkStore linkStore = FileLinkStore.open(dataDir, true);
+        UrlShortenerService service = UrlShortenerServices.create(properties, new BlockSequenceCodeGenerator(DEFAULT_CODE_LENGTH, 1024, 42L),
+            MappingJournal.disabled(), new ShortLinkMetrics(registry), ClusterRouter.standalone(), linkStore);
+        List<String> codes = IntStream.range(0, 1000).mapToObj(i -> service.shorten("https://example.com/filtered/" + i).block()).toList();
+
+        StepVerifier.create(service.getOriginalUrl(codes.get(0)))
+            .expectNext("https://example.com/filtered/0")
+            .verifyComplete();
+        Set<String> issued = Set.copyOf(codes);
+        List<String> probes = IntStream.range(0, 1000).mapToObj(i -> String.format("p%05d", i))
+            .filter(code -> !issued.contains(code)).toList();
+        for (String probe : probes) {
+            assertNull(service.getOriginalUrl(probe).block());
+        }
+        double rejected = registry.get("shortlink.code.filter.rejections").functionCounter().count();
+        assertTrue(rejected >= probes.size() * 0.95, "Most probes should be rejected by the filter but were " + rejected);
+        linkStore.close();
+
+        // the filter is rebuilt from the link store, evicted codes still resolve after a restart
+        LinkStore reopened = FileLinkStore.open(dataDir, true);
+        UrlShortenerService restarted = UrlShortenerServices.create(properties, new BlockSequenceCodeGenerator(DEFAULT_CODE_LENGTH, 1024, 42L),
+            MappingJournal.disabled(), ShortLinkMetrics.disabled(), ClusterRouter.standalone(), reopened);
+        for (int i = 0; i < codes.size(); i += 100) {
+            assertEquals("https://example.com/filtered/" + i, restarted.getOriginalUrl(codes.get(i)).block());
+        }
+        reopened.close();
+    }
+
+    @Test
+    void coldTier_KeepsEvictedMappingsResolvableAndExported(@TempDir Path dataDir) {
+        ShortLinkProperties properties = new ShortLinkProperties("short.ly", 100, DEFAULT_CODE_LENGTH, null, null, null,
+            null, null, null, null, new ShortLinkProperties.ColdTier(true, dataDir, DataSize.ofMegabytes(2), null), null, null, null, null, null, null);
+        UrlShortenerService service = UrlShortenerServices.create(properties, new BlockSequenceCodeGenerator(DEFAULT_CODE_LENGTH, 1024, 42L),
+            MappingJournal.disabled(), ShortLinkMetrics.disabled());
+        List<String> codes = IntStream.range(0, 1000).mapToObj(i -> service.shorten("https://example.com/cold/" + i).block()).toList();
+
+        // every cold hit is promoted and evicts another mapping to the cold tier
+        for (int i = 0; i < codes.size(); i++) {
+            assertEquals("https://example.com/cold/" + i, service.findLocation(codes.get(i)));
+        }
+        StepVerifier.create(service.getOriginalUrl(codes.get(0)))
+            .expectNext("https://example.com/cold/0")
+            .verifyComplete();
+        Set<String> exported = service.exportMappings().map(LinkMapping::code).collect(Collectors.toSet()).block();
+        assertEquals(Set.copyOf(codes), exported);
+        service.close();
+    }
+
+    @Test
+    void shortenAll_ReturnsCodesInRequestOrder() {
+        int count = 2000;
+        List<String> urls = IntStream.range(0, count).mapToObj(i -> "https://example.com/batch/" + i).toList();
+
+        List<String> codes = urlShortenerService.shortenAll(Flux.fromIterable(urls)).collectList().block();
+
+        assertNotNull(codes);
+        assertEquals(count, codes.size());
+        assertEquals(count, Set.copyOf(codes).size(), "Distinct URLs should receive distinct codes");
+        for (int i = 0; i < count; i++) {
+            assertEquals(urls.get(i), urlShortenerService.getOriginalUrl(codes.get(i)).block());
+        }
+    }
+
+    @Test
+    void shortenAll_ReusesCodesForRepeatedAndKnownUrls() {
+        String known = urlShortenerService.shorten("https://example.com/known").block();
+
+        urlShortenerService.shortenAll(Flux.just("https://example.com/a", "https://example.com/known", "https://example.com/a"))
+            .collectList()
+            .as(StepVerifier::create)
+            .assertNext(codes -> {
+                assertEquals(known, codes.get(1));
+                assertEquals(codes.get(0), codes.get(2), "Repeated URL within a batch should receive one code");
+                assertNotEquals(codes.get(0), codes.get(1));
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void shorten_StoresUrlAsRedirectLocation() {
+        String code = urlShortenerService.shorten("https://example.com/stra\u00dfe?q=\u00fc").block();
+
+        assertEquals("https://example.com/stra%C3%9Fe?q=%C3%BC", urlShortenerService.findLocation(code));
+        assertEquals(code, urlShortenerService.shorten("https://example.com/stra%C3%9Fe?q=%C3%BC").block());
+    }
+
+    @Test
+    void shorten_RejectsUrlThatCannotBeALocation() {
+        StepVerifier.create(urlShortenerService.shorten("https://example.com/a b"))
+            .expectError(InvalidUrlException.class)
+            .verify();
+    }
+
+    @Test
+    void shorten_ReturnsSameCodeForEquivalentUrls() {
+        String code = urlShortenerService.shorten("https://www.example.com/page").block();
+
+        assertEquals(code, urlShortenerService.shorten("HTTPS://WWW.Example.com:443/page").block());
+        assertNotEquals(code, urlShortenerService.shorten("https://www.example.com/Page").block());
+    }
 }
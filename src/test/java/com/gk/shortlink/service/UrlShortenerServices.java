@@ -0,0 +1,36 @@
+package com.gk.shortlink.service;
+
+import com.gk.shortlink.cluster.ClusterRouter;
+import com.gk.shortlink.config.ShortLinkProperties;
+import com.gk.shortlink.config.StorageConfiguration;
+import com.gk.shortlink.generator.CodeGenerator;
+import com.gk.shortlink.metrics.ShortLinkMetrics;
+import com.gk.shortlink.persistence.MappingJournal;
+import com.gk.shortlink.store.CodeBloomFilter;
+import com.gk.shortlink.store.ColdMappingStore;
+import com.gk.shortlink.store.LinkStore;
+
+/**
+ * Builds services outside an application context, with the storage beans {@link StorageConfiguration}
+ * would create for the given properties.
+ */
+public final class UrlShortenerServices {
+
+    private UrlShortenerServices() {
+    }
+
+    public static UrlShortenerService create(ShortLinkProperties properties, CodeGenerator codeGenerator,
+                                             MappingJournal journal, ShortLinkMetrics metrics) {
+        return create(properties, codeGenerator, journal, metrics, ClusterRouter.standalone(), null);
+    }
+
+    public static UrlShortenerService create(ShortLinkProperties properties, CodeGenerator codeGenerator,
+                                             MappingJournal journal, ShortLinkMetrics metrics, ClusterRouter router,
+                                             LinkStore linkStore) {
+        StorageConfiguration storage = new StorageConfiguration();
+        ColdMappingStore coldStore = properties.coldTier().enabled() ? storage.coldMappingStore(properties) : null;
+        CodeBloomFilter codeFilter = properties.codeFilter().enabled() ? storage.codeBloomFilter(properties) : null;
+        return new UrlShortenerService(properties, storage.compactMappingStore(properties, coldStore), coldStore,
+            codeFilter, codeGenerator, journal, metrics, router, linkStore, null);
+    }
+}
@@ -0,0 +1,104 @@
+package com.gk.shortlink.store;
+
+import com.gk.shortlink.generator.Base62;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodeBloomFilterTests {
+
+    @Test
+    void mightContain_NeverMissesAnAddedCode() {
+        CodeBloomFilter filter = new CodeBloomFilter(100_000, 0.01);
+        for (long i = 0; i < 100_000; i++) {
+            filter.add(Base62.encode(i * 7919, 6));
+        }
+
+        for (long i = 0; i < 100_000; i++) {
+            assertTrue(filter.mightContain(Base62.encode(i * 7919, 6)));
+        }
+        assertEquals(100_000, filter.codeCount());
+        assertEquals(0, filter.rejectionCount());
+    }
+
+    @Test
+    void mightContain_RejectsCodesNeverAddedAtAboutTheTargetRate() {
+        CodeBloomFilter filter = new CodeBloomFilter(100_000, 0.01);
+        for (long i = 0; i < 100_000; i++) {
+            filter.add(Base62.encode(2 * i, 6));
+        }
+
+        int falsePositives = 0;
+        for (long i = 0; i < 100_000; i++) {
+            if (filter.mightContain(Base62.encode(2 * i + 1, 6))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 1_000, "False positives should stay below 1% but were " + falsePositives);
+        assertEquals(100_000 - falsePositives, filter.rejectionCount());
+        assertEquals(falsePositives / 100_000.0, filter.falsePositiveRate(), 0.005);
+    }
+
+    @Test
+    void add_GrowsBeyondTheExpectedCodesWithoutLosingTheRate() {
+        CodeBloomFilter filter = new CodeBloomFilter(1_000, 0.01);
+        long initialMemory = filter.memoryBytes();
+        for (long i = 0; i < 50_000; i++) {
+            filter.add(Base62.encode(2 * i, 6));
+        }
+
+        assertTrue(filter.memoryBytes() > initialMemory, "The filter should have added stages");
+        int falsePositives = 0;
+        for (long i = 0; i < 50_000; i++) {
+            assertTrue(filter.mightContain(Base62.encode(2 * i, 6)));
+            if (filter.mightContain(Base62.encode(2 * i + 1, 6))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 500, "False positives should stay below 1% but were " + falsePositives);
+        assertTrue(filter.falsePositiveRate() < 0.01);
+    }
+
+    @Test
+    void add_IsSafeFromConcurrentThreads() {
+        CodeBloomFilter filter = new CodeBloomFilter(10_000, 0.01);
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            int offset = thread;
+            writers.add(CompletableFuture.runAsync(() -> IntStream.range(0, 20_000)
+                .forEach(i -> filter.add(Base62.encode(8L * i + offset, 6)))));
+        }
+        writers.forEach(CompletableFuture::join);
+
+        for (long i = 0; i < 160_000; i++) {
+            assertTrue(filter.mightContain(Base62.encode(i, 6)), "Code " + i + " was lost");
+        }
+    }
+
+    @Test
+    void falsePositiveRate_CountsEachBitOnce() {
+        CodeBloomFilter filter = new CodeBloomFilter(20_000, 0.01);
+        for (long i = 0; i < 10_000; i++) {
+            filter.add(Base62.encode(i, 6));
+        }
+        double rate = filter.falsePositiveRate();
+
+        for (long i = 0; i < 5_000; i++) {
+            filter.add(Base62.encode(i, 6));
+        }
+
+        assertEquals(rate, filter.falsePositiveRate(), "Codes added again set no new bits");
+    }
+
+    @Test
+    void mightContain_RejectsMalformedCodes() {
+        CodeBloomFilter filter = new CodeBloomFilter(1_000, 0.01);
+
+        assertFalse(filter.mightContain("not-a-code"));
+    }
+}
@@ -0,0 +1,257 @@
+package com.gk.shortlink.store;
+
+import com.gk.shortlink.dto.LinkMapping;
+import com.gk.shortlink.generator.BlockSequenceCodeGenerator;
+import com.gk.shortlink.generator.CodeGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColdMappingStoreTests {
+
+    @TempDir
+    Path dataDir;
+
+    private final CodeGenerator codes = new BlockSequenceCodeGenerator(6, 1024, 7L);
+
+    @Test
+    void put_MakesMappingsFoundByCode() {
+        try (ColdMappingStore store = ColdMappingStore.open(dataDir, ColdMappingStore.MIN_SEGMENT_SIZE)) {
+            store.put("abc123", "https://example.com", 0);
+
+            assertEquals(new LinkMapping("abc123", "https://example.com"), store.get("abc123"));
+            assertNull(store.get("zzz999"));
+            assertEquals(1, store.size());
+            assertEquals(1, store.hitCount());
+            assertEquals(1, store.missCount());
+        }
+    }
+
+    @Test
+    void put_SpillsOverSegmentsAndGrowsTheIndex() {
+        try (ColdMappingStore store = ColdMappingStore.open(dataDir, ColdMappingStore.MIN_SEGMENT_SIZE)) {
+            Map<String, String> expected = new HashMap<>();
+            // several segments' worth of records and more codes than the initial index takes
+            for (int i = 0; i < 200_000; i++) {
+                String code = codes.generate();
+                String url = "https://example.com/articles/" + i;
+                expected.put(code, url);
+                store.put(code, url, 0);
+            }
+
+            expected.forEach((code, url) -> assertEquals(url, store.get(code).url()));
+            assertEquals(expected.size(), store.size());
+            assertTrue(store.mappedBytes() > 4L * ColdMappingStore.MIN_SEGMENT_SIZE);
+        }
+    }
+
+    @Test
+    void put_WritesNothingForAMappingHeldAlready() {
+        try (ColdMappingStore store = ColdMappingStore.open(dataDir, ColdMappingStore.MIN_SEGMENT_SIZE)) {
+            store.put("abc123", "https://example.com/1", 0);
+            store.put("abc123", "https://example.com/1", 0);
+            assertEquals(1, store.demotionCount());
+
+            store.put("abc123", "https://example.com/2", 0);
+
+            assertEquals("https://example.com/2", store.get("abc123").url());
+            assertEquals(2, store.demotionCount());
+            assertEquals(1, store.size());
+
+            store.put("abc123", "https://example.com/2", 0, 0x1B);
+
+            assertEquals(0x1B, store.get("abc123").redirect());
+            assertEquals(3, store.demotionCount());
+        }
+    }
+
+    @Test
+    void remove_DropsTheMappingUntilItIsDemotedAgain() {
+        try (ColdMappingStore store = ColdMappingStore.open(dataDir, ColdMappingStore.MIN_SEGMENT_SIZE)) {
+            store.put("abc123", "https://example.com", 0);
+
+            assertTrue(store.remove("abc123"));
+            assertFalse(store.remove("abc123"));
+            assertNull(store.get("abc123"));
+            assertFalse(store.contains("abc123"));
+            assertEquals(0, store.size());
+
+            store.put("abc123", "https://example.com", 0);
+            assertEquals("https://example.com", store.get("abc123").url());
+            assertEquals(1, store.size());
+        }
+    }
+
+    @Test
+    void get_ReturnsNullForExpiredMappingsWhoseCodesStayTaken() {
+        FakeClock clock = new FakeClock();
+        try (ColdMappingStore store = ColdMappingStore.open(dataDir, ColdMappingStore.MIN_SEGMENT_SIZE, clock)) {
+            long expiresAt = clock.millis() + 10_000;
+            store.put("abc123", "https://example.com", expiresAt);
+            assertEquals(expiresAt, store.get("abc123").expiresAt());
+
+            clock.advance(Duration.ofSeconds(10));
+
+            assertNull(store.get("abc123"));
+            assertTrue(store.contains("abc123"));
+        }
+    }
+
+    @Test
+    void forEach_VisitsCurrentMappingsOnly() {
+        FakeClock clock = new FakeClock();
+        try (ColdMappingStore store = ColdMappingStore.open(dataDir, ColdMappingStore.MIN_SEGMENT_SIZE, clock)) {
+            Map<String, String> expected = new HashMap<>();
+            for (int i = 0; i < 10_000; i++) {
+                String code = codes.generate();
+                store.put(code, "https://example.com/" + i, 0);
+                expected.put(code, "https://example.com/" + i);
+            }
+            String remapped = expected.keySet().iterator().next();
+            store.put(remapped, "https://example.com/remapped", 0);
+            expected.put(remapped, "https://example.com/remapped");
+            String removed = codes.generate();
+            store.put(removed, "https://example.com/removed", 0);
+            store.remove(removed);
+            store.put(codes.generate(), "https://example.com/expired", clock.millis() + 1_000);
+            clock.advance(Duration.ofSeconds(1));
+
+            Map<String, String> visited = new HashMap<>();
+            store.forEach((code, url, expiresAt, redirect) -> assertNull(visited.put(code, url)));
+
+            assertEquals(expected, visited);
+        }
+    }
+
+    @Test
+    void compact_MovesLiveRecordsOutOfMostlyDeadSegments() throws IOException {
+        try (ColdMappingStore store = ColdMappingStore.open(dataDir, ColdMappingStore.MIN_SEGMENT_SIZE)) {
+            List<String> demoted = new ArrayList<>();
+            Map<String, String> expected = new HashMap<>();
+            for (int i = 0; i < 100_000; i++) {
+                String code = codes.generate();
+                demoted.add(code);
+                expected.put(code, "https://example.com/articles/" + i);
+                store.put(code, "https://example.com/articles/" + i, 0);
+            }
+            for (int i = 0; i + 1 < demoted.size(); i += 3) {
+                store.remove(demoted.get(i));
+                expected.remove(demoted.get(i));
+                store.put(demoted.get(i + 1), "https://example.com/moved/" + i, 0);
+                expected.put(demoted.get(i + 1), "https://example.com/moved/" + i);
+            }
+            long deadBytes = store.deadBytes();
+            long segments = segmentFiles();
+            assertTrue(deadBytes > 0);
+
+            while (store.compact(1024) == 1024) {
+                // one batch at a time, as the expiry reaper does
+            }
+
+            assertTrue(store.deadBytes() < deadBytes / 2, "Dead bytes left: " + store.deadBytes());
+            assertTrue(segmentFiles() < segments, "Segments left: " + segmentFiles());
+            expected.forEach((code, url) -> assertEquals(url, store.get(code).url()));
+            Map<String, String> visited = new HashMap<>();
+            store.forEach((code, url, expiresAt, redirect) -> assertNull(visited.put(code, url)));
+            assertEquals(expected, visited);
+        }
+    }
+
+    @Test
+    void sweepExpired_LeavesExpiredRecordsToCompaction() throws IOException {
+        FakeClock clock = new FakeClock();
+        try (ColdMappingStore store = ColdMappingStore.open(dataDir, ColdMappingStore.MIN_SEGMENT_SIZE, clock)) {
+            List<String> current = new ArrayList<>();
+            for (int i = 0; i < 60_000; i++) {
+                String code = codes.generate();
+                boolean expiring = i % 2 == 0;
+                store.put(code, "https://example.com/articles/" + i, expiring ? clock.millis() + 1_000 : 0);
+                if (!expiring) {
+                    current.add(code);
+                }
+            }
+            clock.advance(Duration.ofSeconds(1));
+            assertEquals(0, store.compact(1024), "Expired records count as dead once swept");
+            long segments = segmentFiles();
+
+            while (store.sweepExpired(1024) == 1024) {
+                // a full pass
+            }
+            assertEquals(current.size(), store.size());
+            assertTrue(store.deadBytes() > 0);
+            while (store.compact(1024) == 1024) {
+                // until nothing is left to reclaim
+            }
+
+            assertTrue(segmentFiles() < segments, "Segments left: " + segmentFiles());
+            current.forEach(code -> assertNotNull(store.get(code)));
+            assertEquals(0, store.dropCount());
+        }
+    }
+
+    @Test
+    void compact_DropsTheOldestMappingsBeyondTheDiskBudget() throws IOException {
+        long diskBudget = 3L * ColdMappingStore.MIN_SEGMENT_SIZE;
+        try (ColdMappingStore store = ColdMappingStore.open(dataDir, ColdMappingStore.MIN_SEGMENT_SIZE, diskBudget,
+            new FakeClock())) {
+            List<String> demoted = new ArrayList<>();
+            for (int i = 0; i < 100_000; i++) {
+                String code = codes.generate();
+                demoted.add(code);
+                store.put(code, "https://example.com/articles/" + i, 0);
+            }
+            assertTrue(segmentFiles() > 3);
+
+            while (store.compact(1024) == 1024) {
+                // until the budget is met
+            }
+
+            assertEquals(3, segmentFiles());
+            assertNull(store.get(demoted.get(0)));
+            assertNotNull(store.get(demoted.get(demoted.size() - 1)));
+            assertEquals(demoted.size(), store.size() + store.dropCount());
+        }
+    }
+
+    @Test
+    void open_DiscardsTheFilesOfAnEarlierRun() throws IOException {
+        try (ColdMappingStore store = ColdMappingStore.open(dataDir, ColdMappingStore.MIN_SEGMENT_SIZE)) {
+            store.put("abc123", "https://example.com", 0);
+        }
+        ColdMappingStore earlier = ColdMappingStore.open(dataDir, ColdMappingStore.MIN_SEGMENT_SIZE);
+        earlier.put("abc123", "https://example.com", 0);
+
+        try (ColdMappingStore store = ColdMappingStore.open(dataDir, ColdMappingStore.MIN_SEGMENT_SIZE)) {
+            assertNull(store.get("abc123"));
+            assertEquals(0, store.size());
+        }
+        try (Stream<Path> files = Files.list(dataDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void open_RejectsSegmentsTooSmallForTheLongestUrl() {
+        assertThrows(IllegalArgumentException.class,
+            () -> ColdMappingStore.open(dataDir, ColdMappingStore.MIN_SEGMENT_SIZE - 1));
+        assertThrows(IllegalArgumentException.class, () -> ColdMappingStore.open(dataDir,
+            ColdMappingStore.MIN_SEGMENT_SIZE, ColdMappingStore.MIN_SEGMENT_SIZE, new FakeClock()));
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dataDir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".seg")).count();
+        }
+    }
+}
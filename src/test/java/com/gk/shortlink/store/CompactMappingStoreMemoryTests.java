@@ -0,0 +1,157 @@
+package com.gk.shortlink.store;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gk.shortlink.generator.BlockSequenceCodeGenerator;
+import com.gk.shortlink.generator.CodeGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Measures retained heap per mapping of the compact store against the twin AsyncCache layout it replaced.
+ */
+class CompactMappingStoreMemoryTests {
+
+    @Test
+    void bytesPerEntry_At1M_IsSeveralTimesSmallerThanTwinCaches() {
+        compare(1_000_000);
+    }
+
+    @Test
+    void bytesPerEntry_At10M_IsSeveralTimesSmallerThanTwinCaches() {
+        // the twin-cache baseline alone needs several GB at this size
+        assumeTrue(Runtime.getRuntime().maxMemory() >= 10L << 30, "Run with -PtestMaxHeap=12g to measure 10M entries");
+        compare(10_000_000);
+    }
+
+    @Test
+    void overheadPerEntry_DoesNotGrowWithUrlLength() {
+        int entries = 50_000;
+        String shortSuffix = "";
+        String longSuffix = "&tracking=" + "x".repeat(2_000);
+
+        double shortUrls = measure(() -> fillCompactStore(entries, shortSuffix), entries) - url(0).length();
+        double longUrls = measure(() -> fillCompactStore(entries, longSuffix), entries) - url(0).length() - longSuffix.length();
+
+        // the URL index holds a fixed-size fingerprint per entry, the URL itself is stored once
+        assertTrue(Math.abs(longUrls - shortUrls) < 24, "Overhead should not depend on URL length");
+    }
+
+    @Test
+    void memoryBudget_KeepsRetainedHeapOfASkewedCorpusWithinTheBudget() {
+        long budget = 128L << 20;
+        int entries = 600_000;
+        long[] urlBytes = new long[1];
+        CompactMappingStore[] filled = new CompactMappingStore[1];
+
+        double perEntry = measure(() -> {
+            CompactMappingStore store = new CompactMappingStore(Integer.MAX_VALUE, budget, UrlCanonicalizer.exact(), false,
+                Clock.systemUTC(), null);
+            CodeGenerator codes = new BlockSequenceCodeGenerator(6, 1024, 1L);
+            SplittableRandom random = new SplittableRandom(7);
+            for (int i = 0; i < entries; i++) {
+                String url = skewedUrl(i, random);
+                urlBytes[0] += url.length();
+                store.putIfAbsent(codes.generate(), url);
+            }
+            filled[0] = store;
+            return store;
+        }, entries);
+        CompactMappingStore store = filled[0];
+        long retained = Math.round(perEntry * entries);
+
+        assertTrue(urlBytes[0] > 2 * budget, "The corpus should not fit the budget");
+        assertTrue(store.evictionCount() > 0);
+        assertTrue(store.memoryBytes() <= budget);
+        assertTrue(retained <= budget, "Retained heap of " + retained + " bytes exceeds the budget");
+        // the budget is used rather than met by evicting far too much
+        assertTrue(retained >= budget * 0.8, "Retained heap of " + retained + " bytes leaves most of the budget unused");
+    }
+
+    private static void compare(int entries) {
+        double urlBytes = averageUrlLength(entries);
+
+        double twin = measure(() -> fillTwinCaches(entries), entries);
+        double compact = measure(() -> fillCompactStore(entries), entries);
+
+        double twinOverhead = twin - urlBytes;
+        double compactOverhead = compact - urlBytes;
+        assertTrue(twinOverhead >= 3 * compactOverhead,
+            "Per-mapping overhead should drop by several times but was " + twinOverhead + " against " + compactOverhead + " bytes");
+    }
+
+    private static Object fillTwinCaches(int entries) {
+        AsyncCache<String, String> urlToCodeCache = Caffeine.newBuilder().maximumSize(entries).buildAsync();
+        AsyncCache<String, String> codeToUrlCache = Caffeine.newBuilder().maximumSize(entries).buildAsync();
+        CodeGenerator codes = new BlockSequenceCodeGenerator(6, 1024, 1L);
+        for (int i = 0; i < entries; i++) {
+            String url = url(i);
+            String code = codes.generate();
+            urlToCodeCache.put(url, CompletableFuture.completedFuture(code));
+            codeToUrlCache.put(code, CompletableFuture.completedFuture(url));
+        }
+        urlToCodeCache.synchronous().cleanUp();
+        codeToUrlCache.synchronous().cleanUp();
+        assertEquals(entries, codeToUrlCache.synchronous().estimatedSize());
+        return new Object[]{urlToCodeCache, codeToUrlCache};
+    }
+
+    private static Object fillCompactStore(int entries) {
+        return fillCompactStore(entries, "");
+    }
+
+    private static Object fillCompactStore(int entries, String urlSuffix) {
+        CompactMappingStore store = new CompactMappingStore(entries);
+        CodeGenerator codes = new BlockSequenceCodeGenerator(6, 1024, 1L);
+        for (int i = 0; i < entries; i++) {
+            store.putIfAbsent(codes.generate(), url(i) + urlSuffix);
+        }
+        assertEquals(entries, store.size());
+        return store;
+    }
+
+    private static double measure(Supplier<Object> fill, int entries) {
+        long before = usedHeap();
+        Object retained = fill.get();
+        long after = usedHeap();
+        assertTrue(retained != null);
+        return (after - before) / (double) entries;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static String url(int i) {
+        return "https://www.example.com/campaign/" + i + "?utm_source=newsletter&utm_medium=email";
+    }
+
+    /**
+     * URL of about 30 bytes to 4KB, most of them short: the length grows with the 8th power of a uniform draw,
+     * so the median URL has about 35 bytes and one in six has more than 1KB
+     */
+    private static String skewedUrl(int i, SplittableRandom random) {
+        int length = 20 + (int) (4_076 * Math.pow(random.nextDouble(), 8));
+        StringBuilder url = new StringBuilder(length).append("https://www.example.com/").append(i).append('/');
+        while (url.length() < length) {
+            url.append('x');
+        }
+        return url.toString();
+    }
+
+    private static double averageUrlLength(int entries) {
+        return (url(0).length() + url(entries - 1).length()) / 2.0;
+    }
+}
@@ -0,0 +1,401 @@
+package com.gk.shortlink.store;
+
+import com.gk.shortlink.generator.BlockSequenceCodeGenerator;
+import com.gk.shortlink.generator.CodeGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactMappingStoreTests {
+
+    private final CodeGenerator codes = new BlockSequenceCodeGenerator(6, 64, 1L);
+
+    @Test
+    void putIfAbsent_MapsBothDirections() {
+        CompactMappingStore store = new CompactMappingStore(100);
+
+        assertEquals("abc123", store.putIfAbsent("abc123", "https://example.com"));
+
+        assertEquals("https://example.com", store.get("abc123"));
+        assertEquals("abc123", store.codeOf("https://example.com"));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void putIfAbsent_ReturnsExistingCodeForKnownUrl() {
+        CompactMappingStore store = new CompactMappingStore(100);
+        store.putIfAbsent("abc123", "https://example.com");
+
+        assertEquals("abc123", store.putIfAbsent("xyz789", "https://example.com"));
+        assertNull(store.get("xyz789"));
+    }
+
+    @Test
+    void putIfAbsent_ReturnsNullWhenCodeIsTaken() {
+        CompactMappingStore store = new CompactMappingStore(100);
+        store.putIfAbsent("abc123", "https://example.com/1");
+
+        assertNull(store.putIfAbsent("abc123", "https://example.com/2"));
+        assertNull(store.codeOf("https://example.com/2"));
+    }
+
+    @Test
+    void put_ReplacesMappingsHoldingEitherSide() {
+        CompactMappingStore store = new CompactMappingStore(100);
+        store.putIfAbsent("aaaaaa", "https://example.com/1");
+        store.putIfAbsent("bbbbbb", "https://example.com/2");
+
+        store.put("aaaaaa", "https://example.com/2");
+
+        assertEquals("https://example.com/2", store.get("aaaaaa"));
+        assertEquals("aaaaaa", store.codeOf("https://example.com/2"));
+        assertNull(store.codeOf("https://example.com/1"));
+        assertNull(store.get("bbbbbb"));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void remove_DropsBothDirections() {
+        CompactMappingStore store = new CompactMappingStore(100);
+        store.putIfAbsent("abc123", "https://example.com");
+
+        assertTrue(store.remove("abc123"));
+
+        assertNull(store.get("abc123"));
+        assertNull(store.codeOf("https://example.com"));
+        assertFalse(store.remove("abc123"));
+    }
+
+    @Test
+    void eviction_RemovesBothDirectionsTogether() {
+        int capacity = 500;
+        CompactMappingStore store = new CompactMappingStore(capacity);
+        Map<String, String> issued = new HashMap<>();
+
+        for (int i = 0; i < 20_000; i++) {
+            // URLs up to ~3KB force the arena across many slabs
+            String url = "https://example.com/" + i + "?q=" + "x".repeat(i % 3000);
+            String code = codes.generate();
+            assertEquals(code, store.putIfAbsent(code, url));
+            issued.put(code, url);
+            assertTrue(store.size() <= capacity);
+        }
+
+        int live = 0;
+        for (Map.Entry<String, String> mapping : issued.entrySet()) {
+            String url = store.get(mapping.getKey());
+            String code = store.codeOf(mapping.getValue());
+            assertEquals(url == null, code == null, "A mapping must never be half evicted");
+            if (url != null) {
+                assertEquals(mapping.getValue(), url);
+                assertEquals(mapping.getKey(), code);
+                live++;
+            }
+        }
+        assertEquals(capacity, live);
+        assertEquals(20_000 - capacity, store.evictionCount());
+    }
+
+    @Test
+    void eviction_GivesReferencedEntriesASecondChance() {
+        int capacity = 1000;
+        CompactMappingStore store = new CompactMappingStore(capacity);
+        String hotCode = codes.generate();
+        store.putIfAbsent(hotCode, "https://example.com/hot");
+
+        for (int i = 0; i < 10_000; i++) {
+            store.putIfAbsent(codes.generate(), "https://example.com/cold/" + i);
+            if (i % 100 == 0) {
+                store.get(hotCode);
+            }
+        }
+
+        assertEquals("https://example.com/hot", store.get(hotCode));
+    }
+
+    @Test
+    void eviction_HandsUnexpiredMappingsToTheEvictionSink() {
+        FakeClock clock = new FakeClock();
+        Map<String, String> evicted = new HashMap<>();
+        CompactMappingStore store = new CompactMappingStore(2, UrlCanonicalizer.exact(), false, clock,
+            (code, url, expiresAt, redirect) -> evicted.put(code, url));
+        store.putIfAbsent("aaaaaa", "https://example.com/1", clock.millis() + 1_000);
+        store.putIfAbsent("bbbbbb", "https://example.com/2");
+        clock.advance(Duration.ofSeconds(5));
+
+        store.putIfAbsent("cccccc", "https://example.com/3");
+        store.putIfAbsent("dddddd", "https://example.com/4");
+
+        assertEquals(Map.of("bbbbbb", "https://example.com/2"), evicted);
+        assertEquals(2, store.evictionCount());
+    }
+
+    @Test
+    void memoryBudget_HoldsFewerMappingsOfLongerUrls() {
+        long budget = 16L << 20;
+        CompactMappingStore shortUrls = new CompactMappingStore(Integer.MAX_VALUE, budget, UrlCanonicalizer.exact(), false,
+            new FakeClock(), null);
+        CompactMappingStore longUrls = new CompactMappingStore(Integer.MAX_VALUE, budget, UrlCanonicalizer.exact(), false,
+            new FakeClock(), null);
+        String padding = "x".repeat(1_000);
+
+        for (int i = 0; i < 50_000; i++) {
+            String code = codes.generate();
+            shortUrls.putIfAbsent(code, "https://example.com/" + i);
+            longUrls.putIfAbsent(code, "https://example.com/" + i + "/" + padding);
+        }
+
+        assertEquals(50_000, shortUrls.size());
+        assertTrue(longUrls.size() < 16_000, "Long URLs should be evicted to fit the budget but " + longUrls.size() + " are held");
+        assertTrue(longUrls.evictionCount() > 0);
+        assertTrue(longUrls.memoryBytes() <= budget);
+        assertTrue(shortUrls.memoryBytes() <= budget);
+    }
+
+    @Test
+    void memoryBudget_RejectsBudgetsBelowTheArenaReserve() {
+        assertThrows(IllegalArgumentException.class, () -> new CompactMappingStore(100, 1L << 20, UrlCanonicalizer.exact(),
+            false, new FakeClock(), null));
+    }
+
+    @Test
+    void forEach_VisitsEveryLiveMapping() {
+        CompactMappingStore store = new CompactMappingStore(10_000);
+        Map<String, String> expected = new HashMap<>();
+        for (int i = 0; i < 9_000; i++) {
+            String code = codes.generate();
+            store.putIfAbsent(code, "https://example.com/" + i);
+            expected.put(code, "https://example.com/" + i);
+        }
+
+        Map<String, String> visited = new HashMap<>();
+        store.forEach(visited::put);
+
+        assertEquals(expected, visited);
+    }
+
+    @Test
+    void get_ReturnsNullForInvalidCode() {
+        CompactMappingStore store = new CompactMappingStore(10);
+
+        assertNull(store.get("not-a-code"));
+        assertNull(store.get("nonexistent"));
+    }
+
+    @Test
+    void putIfAbsent_DeduplicatesEquivalentUrls() {
+        CompactMappingStore store = new CompactMappingStore(100, new UrlCanonicalizer(
+            EnumSet.of(CanonicalizationRule.LOWERCASE_SCHEME_AND_HOST, CanonicalizationRule.REMOVE_DEFAULT_PORT)));
+        store.putIfAbsent("abc123", "https://Example.com:443/Path");
+
+        assertEquals("abc123", store.putIfAbsent("xyz789", "HTTPS://example.COM/Path"));
+        assertEquals("abc123", store.codeOf("https://example.com/Path"));
+        assertNull(store.codeOf("https://example.com/path"));
+        assertEquals("https://Example.com:443/Path", store.get("abc123"));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void putIfAbsent_KeepsEquivalentUrlsApartWhenExact() {
+        CompactMappingStore store = new CompactMappingStore(100);
+        store.putIfAbsent("abc123", "https://Example.com/");
+
+        assertEquals("xyz789", store.putIfAbsent("xyz789", "https://example.com/"));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void compressed_RoundTripsUrlsAcrossRetraining() {
+        CompactMappingStore store = new CompactMappingStore(10_000, UrlCanonicalizer.exact(), true);
+        Map<String, String> expected = new HashMap<>();
+        for (int i = 0; i < 3_000; i++) {
+            String url = "https://shop.example.com/products/" + i + "?utm_source=newsletter&utm_medium=email";
+            String code = codes.generate();
+            store.putIfAbsent(code, url);
+            expected.put(code, url);
+            if (i == 1_000) {
+                assertTrue(store.retrainDictionary(1_000, 64));
+            }
+        }
+
+        expected.forEach((code, url) -> {
+            assertEquals(url, store.get(code));
+            assertEquals(code, store.codeOf(url));
+        });
+        assertTrue(store.compressionRatio() > 1.5);
+    }
+
+    @Test
+    void compressed_MigratesReferencedEntriesToTheCurrentDictionary() {
+        int capacity = 1000;
+        CompactMappingStore store = new CompactMappingStore(capacity, UrlCanonicalizer.exact(), true);
+        String hotCode = codes.generate();
+        store.putIfAbsent(hotCode, "https://old.example.com/hot");
+        for (int i = 0; i < capacity / 2; i++) {
+            store.putIfAbsent(codes.generate(), "https://old.example.com/cold/" + i);
+        }
+        assertTrue(store.retrainDictionary(capacity, 64));
+
+        for (int i = 0; i < 5_000; i++) {
+            store.putIfAbsent(codes.generate(), "https://new.example.com/cold/" + i);
+            if (i % 100 == 0) {
+                store.get(hotCode);
+                store.retrainDictionary(capacity, 64);
+            }
+        }
+
+        assertEquals("https://old.example.com/hot", store.get(hotCode));
+        assertEquals(hotCode, store.codeOf("https://old.example.com/hot"));
+    }
+
+    @Test
+    void putIfAbsent_GivesExpiringMappingsTheirOwnCode() {
+        FakeClock clock = new FakeClock();
+        CompactMappingStore store = new CompactMappingStore(100, UrlCanonicalizer.exact(), false, clock);
+        store.putIfAbsent("abc123", "https://example.com");
+        long expiresAt = clock.millis() + 60_000;
+
+        assertEquals("xyz789", store.putIfAbsent("xyz789", "https://example.com", expiresAt));
+        assertEquals("qrs456", store.putIfAbsent("qrs456", "https://example.com/campaign", expiresAt));
+
+        assertEquals("abc123", store.codeOf("https://example.com"));
+        assertNull(store.codeOf("https://example.com/campaign"));
+        assertNull(store.putIfAbsent("xyz789", "https://example.com/other", expiresAt));
+    }
+
+    @Test
+    void putIfAbsent_KeepsRedirectBitsAndGivesTheirMappingsTheirOwnCode() {
+        CompactMappingStore store = new CompactMappingStore(100, UrlCanonicalizer.exact(), false, new FakeClock());
+        store.putIfAbsent("abc123", "https://example.com");
+
+        assertEquals("xyz789", store.putIfAbsent("xyz789", "https://example.com", 0, 0x1B));
+        assertEquals("abc123", store.codeOf("https://example.com"));
+        assertEquals(0x1B, store.redirectOf("xyz789"));
+        assertEquals(0, store.redirectOf("abc123"));
+        assertEquals(0, store.redirectOf("zzzzzz"));
+
+        Map<String, Integer> visited = new HashMap<>();
+        store.forEach((code, url, expiry, redirect) -> visited.put(code, redirect));
+        assertEquals(Map.of("abc123", 0, "xyz789", 0x1B), visited);
+
+        store.remove("xyz789");
+        assertEquals(0, store.redirectOf("xyz789"));
+        assertEquals("abc123", store.codeOf("https://example.com"));
+    }
+
+    @Test
+    void expiryOfAndTagOf_ReadWhatWasStoredWithTheMapping() {
+        FakeClock clock = new FakeClock();
+        CompactMappingStore store = new CompactMappingStore(100, UrlCanonicalizer.exact(), false, clock);
+        long expiresAt = clock.millis() + 60_000;
+        store.putIfAbsent("abc123", "https://example.com");
+        store.putIfAbsent("xyz789", "https://example.com/campaign", expiresAt);
+
+        assertEquals(0, store.expiryOf("abc123"));
+        assertEquals((expiresAt + 999) / 1000 * 1000, store.expiryOf("xyz789"));
+        assertEquals(0, store.expiryOf("zzzzzz"));
+        assertEquals(CompactMappingStore.urlTag("https://example.com"), store.tagOf("abc123"));
+        assertEquals(CompactMappingStore.urlTag("https://example.com/campaign"), store.tagOf("xyz789"));
+        assertNotEquals(store.tagOf("abc123"), store.tagOf("xyz789"));
+        assertEquals(-1, store.tagOf("zzzzzz"));
+
+        store.remove("xyz789");
+        assertEquals(0, store.expiryOf("xyz789"));
+        assertEquals(-1, store.tagOf("xyz789"));
+    }
+
+    @Test
+    void get_ReturnsNullOnceExpiredEvenBeforeReclaim() {
+        FakeClock clock = new FakeClock();
+        CompactMappingStore store = new CompactMappingStore(100, UrlCanonicalizer.exact(), false, clock);
+        store.putIfAbsent("abc123", "https://example.com/campaign", clock.millis() + 30_000);
+
+        clock.advance(Duration.ofSeconds(29));
+        assertEquals("https://example.com/campaign", store.get("abc123"));
+
+        clock.advance(Duration.ofSeconds(1));
+        assertNull(store.get("abc123"));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void expireDue_ReclaimsExpiredMappingsOnly() {
+        FakeClock clock = new FakeClock();
+        CompactMappingStore store = new CompactMappingStore(10_000, UrlCanonicalizer.exact(), false, clock);
+        Map<String, Long> expiries = new HashMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            String code = codes.generate();
+            long expiresAt = i % 5 == 0 ? 0 : clock.millis() + Duration.ofMinutes(i % 120 + 1).toMillis();
+            store.putIfAbsent(code, "https://example.com/" + i, expiresAt);
+            expiries.put(code, expiresAt);
+        }
+
+        for (int minute = 1; minute <= 121; minute++) {
+            clock.advance(Duration.ofMinutes(1));
+            while (store.expireDue(100) == 100) {
+                // drain in small portions
+            }
+            long now = clock.millis();
+            long live = expiries.values().stream().filter(expiresAt -> expiresAt == 0 || expiresAt > now).count();
+            assertEquals(live, store.size(), "minute " + minute);
+        }
+
+        expiries.forEach((code, expiresAt) -> assertEquals(expiresAt == 0, store.get(code) != null));
+        assertEquals(4_000, store.expirationCount());
+        assertEquals(0, store.pendingExpiryCount());
+    }
+
+    @Test
+    void expireDue_RemovesBothDirectionsAndFreesTheCode() {
+        FakeClock clock = new FakeClock();
+        CompactMappingStore store = new CompactMappingStore(100, UrlCanonicalizer.exact(), false, clock);
+        store.putIfAbsent("abc123", "https://example.com/campaign", clock.millis() + 1_000);
+        store.putIfAbsent("def456", "https://example.com/campaign");
+
+        clock.advance(Duration.ofSeconds(1));
+        assertEquals(1, store.expireDue(10));
+
+        assertNull(store.get("abc123"));
+        assertEquals("def456", store.codeOf("https://example.com/campaign"));
+        assertEquals(1, store.size());
+        assertEquals("abc123", store.putIfAbsent("abc123", "https://example.com/next"));
+        assertEquals("https://example.com/next", store.get("abc123"));
+    }
+
+    @Test
+    void expireDue_IgnoresTimersOfReplacedMappings() {
+        FakeClock clock = new FakeClock();
+        CompactMappingStore store = new CompactMappingStore(100, UrlCanonicalizer.exact(), false, clock);
+        store.putIfAbsent("abc123", "https://example.com/1", clock.millis() + 1_000);
+        // restored later with a longer life, as a journal replay would
+        store.put("abc123", "https://example.com/2", clock.millis() + 60_000);
+
+        clock.advance(Duration.ofSeconds(2));
+        store.expireDue(10);
+
+        assertEquals("https://example.com/2", store.get("abc123"));
+        assertEquals(0, store.expirationCount());
+    }
+
+    @Test
+    void forEach_SkipsExpiredMappingsAndReportsExpiry() {
+        FakeClock clock = new FakeClock();
+        CompactMappingStore store = new CompactMappingStore(100, UrlCanonicalizer.exact(), false, clock);
+        long expiresAt = clock.millis() + 10_000;
+        store.putIfAbsent("aaaaaa", "https://example.com/1");
+        store.putIfAbsent("bbbbbb", "https://example.com/2", expiresAt);
+        store.putIfAbsent("cccccc", "https://example.com/3", clock.millis() + 1_000);
+        clock.advance(Duration.ofSeconds(5));
+
+        Map<String, Long> visited = new HashMap<>();
+        store.forEach((code, url, expiry, redirect) -> visited.put(code, expiry));
+
+        assertEquals(Map.of("aaaaaa", 0L, "bbbbbb", expiresAt), visited);
+    }
+
+}
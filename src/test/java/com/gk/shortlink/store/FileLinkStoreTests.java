@@ -0,0 +1,153 @@
+package com.gk.shortlink.store;
+
+import com.gk.shortlink.dto.LinkMapping;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileLinkStoreTests {
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void putIfAbsent_MapsBothDirections() {
+        try (FileLinkStore store = FileLinkStore.open(dataDir, false)) {
+            assertEquals("abc123", store.putIfAbsent("abc123", "https://example.com").block());
+
+            assertEquals("https://example.com", store.get("abc123").block());
+            assertEquals("abc123", store.getByUrl("https://example.com").block());
+            assertEquals(1, store.size());
+        }
+    }
+
+    @Test
+    void putIfAbsent_ReturnsExistingCodeForKnownUrlAndNothingForTakenCode() {
+        try (FileLinkStore store = FileLinkStore.open(dataDir, false)) {
+            store.putIfAbsent("abc123", "https://example.com/1").block();
+
+            assertEquals("abc123", store.putIfAbsent("xyz789", "https://example.com/1").block());
+            StepVerifier.create(store.putIfAbsent("abc123", "https://example.com/2")).verifyComplete();
+            assertNull(store.get("xyz789").block());
+            assertNull(store.getByUrl("https://example.com/2").block());
+        }
+    }
+
+    @Test
+    void putAllIfAbsent_DecidesAgainstEarlierMappingsOfTheSameBatch() {
+        try (FileLinkStore store = FileLinkStore.open(dataDir, false)) {
+            List<String> results = store.putAllIfAbsent(List.of(
+                new LinkMapping("aaaaaa", "https://example.com/1"),
+                new LinkMapping("bbbbbb", "https://example.com/1"),
+                new LinkMapping("aaaaaa", "https://example.com/2"))).block();
+
+            assertEquals(Arrays.asList("aaaaaa", "aaaaaa", null), results);
+            assertEquals(1, store.size());
+        }
+    }
+
+    @Test
+    void put_ReplacesTheUrlOfACode() {
+        try (FileLinkStore store = FileLinkStore.open(dataDir, false)) {
+            store.put("abc123", "https://example.com/old").block();
+            store.put("abc123", "https://example.com/new").block();
+
+            assertEquals("https://example.com/new", store.get("abc123").block());
+            assertNull(store.getByUrl("https://example.com/old").block());
+            assertEquals(List.of(new LinkMapping("abc123", "https://example.com/new")), store.scan().collectList().block());
+        }
+    }
+
+    @Test
+    void reopen_RestoresEveryMapping() {
+        Map<String, String> expected = new HashMap<>();
+        try (FileLinkStore store = FileLinkStore.open(dataDir, true)) {
+            List<LinkMapping> batch = new ArrayList<>();
+            for (int i = 0; i < 5_000; i++) {
+                String code = String.format("a%05d", i);
+                batch.add(new LinkMapping(code, "https://example.com/" + i));
+                expected.put(code, "https://example.com/" + i);
+            }
+            store.putAll(batch).block();
+        }
+
+        try (FileLinkStore reopened = FileLinkStore.open(dataDir, true)) {
+            assertEquals(expected.size(), reopened.size());
+            assertEquals(expected, reopened.getAll(expected.keySet()).block());
+            assertEquals(expected, reopened.scan().collect(Collectors.toMap(LinkMapping::code, LinkMapping::url)).block());
+            assertEquals("a04242", reopened.getByUrl("https://example.com/4242").block());
+        }
+    }
+
+    @Test
+    void reopen_RestoresTheLatestHighWaterMark() {
+        try (FileLinkStore store = FileLinkStore.open(dataDir, true)) {
+            assertNull(store.highWaterMark().block());
+            store.putHighWaterMark("aaaaaa").block();
+            store.putHighWaterMark("bbbbbb").block();
+        }
+
+        try (FileLinkStore store = FileLinkStore.open(dataDir, true)) {
+            assertEquals("bbbbbb", store.highWaterMark().block());
+        }
+    }
+
+    @Test
+    void reopen_TruncatesATornTail() throws IOException {
+        try (FileLinkStore store = FileLinkStore.open(dataDir, true)) {
+            store.put("aaaaaa", "https://example.com/1").block();
+            store.put("bbbbbb", "https://example.com/2").block();
+        }
+        Path file = dataDir.resolve(FileLinkStore.FILE_NAME);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // cut the second record short as if the process died while writing it
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (FileLinkStore reopened = FileLinkStore.open(dataDir, true)) {
+            assertEquals("https://example.com/1", reopened.get("aaaaaa").block());
+            assertNull(reopened.get("bbbbbb").block());
+            assertEquals("bbbbbb", reopened.putIfAbsent("bbbbbb", "https://example.com/3").block());
+        }
+        try (FileLinkStore again = FileLinkStore.open(dataDir, true)) {
+            assertEquals("https://example.com/3", again.get("bbbbbb").block());
+        }
+    }
+
+    @Test
+    void expiringMappings_AreFoundByCodeOnlyUntilTheyExpire() {
+        FakeClock clock = new FakeClock();
+        long expiresAt = clock.millis() + 60_000;
+        try (FileLinkStore store = FileLinkStore.open(dataDir, true, clock)) {
+            store.putIfAbsent("aaaaaa", "https://example.com/campaign").block();
+            assertEquals("bbbbbb", store.putIfAbsent(new LinkMapping("bbbbbb", "https://example.com/campaign", expiresAt)).block());
+
+            assertEquals("aaaaaa", store.getByUrl("https://example.com/campaign").block());
+            assertEquals(new LinkMapping("bbbbbb", "https://example.com/campaign", expiresAt), store.getMapping("bbbbbb").block());
+        }
+
+        try (FileLinkStore reopened = FileLinkStore.open(dataDir, true, clock)) {
+            assertEquals("https://example.com/campaign", reopened.get("bbbbbb").block());
+            clock.advance(Duration.ofMinutes(1));
+            assertNull(reopened.get("bbbbbb").block());
+            assertNull(reopened.getMapping("bbbbbb").block());
+            assertEquals("aaaaaa", reopened.getByUrl("https://example.com/campaign").block());
+            // the expired code stays taken
+            StepVerifier.create(reopened.putIfAbsent("bbbbbb", "https://example.com/other")).verifyComplete();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.gk.shortlink.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTests {
+
+    private static final long START = 1_700_000_000L;
+
+    @Test
+    void advance_ExpiresEveryTimerAtItsDeadlineAcrossAllLevels() {
+        TimingWheel wheel = new TimingWheel(START);
+        Random random = new Random(42);
+        Map<Long, Long> deadlines = new HashMap<>();
+        for (long key = 0; key < 5_000; key++) {
+            // spread over a couple of days so that timers cascade down from the third level
+            long deadline = START + 1 + random.nextInt(3 * 86_400);
+            deadlines.put(key, deadline);
+            wheel.schedule(key, deadline);
+        }
+
+        Map<Long, Long> expired = new HashMap<>();
+        for (long now = START; now <= START + 3 * 86_400; now += 1 + random.nextInt(900)) {
+            long tick = now;
+            wheel.advance(now, Integer.MAX_VALUE, (key, deadline) -> {
+                assertTrue(deadline <= tick, "Timer fired before its deadline");
+                assertNull(expired.put(key, tick));
+            });
+            // everything due has fired, nothing more
+            for (Map.Entry<Long, Long> timer : deadlines.entrySet()) {
+                assertEquals(timer.getValue() <= now, expired.containsKey(timer.getKey()));
+            }
+        }
+        wheel.advance(START + 3 * 86_400 + 1, Integer.MAX_VALUE, (key, deadline) -> expired.put(key, deadline));
+        assertEquals(deadlines.keySet(), expired.keySet());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void advance_HandsOutDueTimersInBoundedPortions() {
+        TimingWheel wheel = new TimingWheel(START);
+        for (long key = 0; key < 2_500; key++) {
+            wheel.schedule(key, START + 10);
+        }
+
+        List<Long> expired = new ArrayList<>();
+        assertEquals(0, wheel.advance(START + 9, 1_000, (key, deadline) -> expired.add(key)));
+        assertEquals(1_000, wheel.advance(START + 10, 1_000, (key, deadline) -> expired.add(key)));
+        assertEquals(1_000, wheel.advance(START + 10, 1_000, (key, deadline) -> expired.add(key)));
+        assertEquals(500, wheel.advance(START + 10, 1_000, (key, deadline) -> expired.add(key)));
+        assertEquals(2_500, expired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void schedule_MakesPastDeadlinesDueRightAway() {
+        TimingWheel wheel = new TimingWheel(START);
+        wheel.schedule(1, START - 100);
+        wheel.schedule(2, START);
+
+        List<Long> expired = new ArrayList<>();
+        wheel.advance(START, 10, (key, deadline) -> expired.add(key));
+
+        assertEquals(2, expired.size());
+    }
+
+    @Test
+    void advance_SkipsIdlePeriodsWithoutTicking() {
+        TimingWheel wheel = new TimingWheel(START);
+
+        assertEquals(0, wheel.advance(START + 10L * 365 * 86_400, 10, (key, deadline) -> fail()));
+        assertEquals(START + 10L * 365 * 86_400, wheel.currentTick());
+
+        wheel.schedule(7, wheel.currentTick() + 5);
+        List<Long> expired = new ArrayList<>();
+        wheel.advance(wheel.currentTick() + 5, 10, (key, deadline) -> expired.add(key));
+        assertEquals(List.of(7L), expired);
+    }
+}
@@ -0,0 +1,51 @@
+package com.gk.shortlink.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UrlCanonicalizerTests {
+
+    private final UrlCanonicalizer all = new UrlCanonicalizer(EnumSet.allOf(CanonicalizationRule.class));
+
+    @Test
+    void canonicalize_LowercasesSchemeAndHostOnly() {
+        UrlCanonicalizer canonicalizer = new UrlCanonicalizer(EnumSet.of(CanonicalizationRule.LOWERCASE_SCHEME_AND_HOST));
+
+        assertEquals("https://user:Pw@example.com/Path?Q=V#Frag",
+            canonicalizer.canonicalize("HTTPS://user:Pw@Example.COM/Path?Q=V#Frag"));
+    }
+
+    @Test
+    void canonicalize_RemovesDefaultPorts() {
+        UrlCanonicalizer canonicalizer = new UrlCanonicalizer(EnumSet.of(CanonicalizationRule.REMOVE_DEFAULT_PORT));
+
+        assertEquals("http://example.com/a", canonicalizer.canonicalize("http://example.com:80/a"));
+        assertEquals("https://example.com?q", canonicalizer.canonicalize("https://example.com:443?q"));
+        assertEquals("http://example.com/a", canonicalizer.canonicalize("http://example.com:/a"));
+        assertEquals("http://example.com:8080/a", canonicalizer.canonicalize("http://example.com:8080/a"));
+        assertEquals("https://example.com:80/a", canonicalizer.canonicalize("https://example.com:80/a"));
+        assertEquals("http://[::1]:8080/a", canonicalizer.canonicalize("http://[::1]:8080/a"));
+        assertEquals("http://[::1]/a", canonicalizer.canonicalize("http://[::1]:80/a"));
+    }
+
+    @Test
+    void canonicalize_AppliesEveryRule() {
+        assertEquals("http://example.com/?a=1&b=2", all.canonicalize("HTTP://Example.com:80?b=2&a=1#top"));
+    }
+
+    @Test
+    void canonicalize_ReturnsSameInstanceWhenAlreadyCanonical() {
+        String url = "https://example.com/path?a=1";
+
+        assertSame(url, all.canonicalize(url));
+        assertSame(url, UrlCanonicalizer.exact().canonicalize(url));
+    }
+
+    @Test
+    void canonicalize_LeavesUrlsWithoutAuthorityAlone() {
+        assertEquals("mailto:Someone@Example.com", all.canonicalize("mailto:Someone@Example.com"));
+    }
+}
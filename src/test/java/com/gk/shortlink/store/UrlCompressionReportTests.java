@@ -0,0 +1,60 @@
+package com.gk.shortlink.store;
+
+import com.gk.shortlink.generator.BlockSequenceCodeGenerator;
+import com.gk.shortlink.generator.CodeGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks how well prefix dictionaries compress the URL corpus in {@code corpus/urls.txt}. The dictionary
+ * is trained on one half of the corpus and measured on the other, the way a retrained dictionary meets
+ * URLs it has not seen. Decode timings come from {@code UrlCompressionBenchmark} in the jmh source set.
+ */
+class UrlCompressionReportTests {
+
+    @Test
+    void prefixDictionary_CompressesHeldOutHalfOfCorpus() throws IOException {
+        List<String> corpus = corpus();
+        List<String> training = corpus.subList(0, corpus.size() / 2);
+        List<String> heldOut = corpus.subList(corpus.size() / 2, corpus.size());
+
+        PrefixDictionary dictionary = PrefixDictionary.train(training, 1024);
+        double ratio = dictionary.compressionRatio(heldOut);
+
+        assertTrue(ratio > 1.3, "compression ratio " + ratio);
+    }
+
+    @Test
+    void compressedStore_DecodesCorpusItCompressed() throws IOException {
+        List<String> corpus = corpus();
+        CodeGenerator codes = new BlockSequenceCodeGenerator(6, 64, 1L);
+        String[] assigned = new String[corpus.size()];
+        CompactMappingStore plain = new CompactMappingStore(corpus.size());
+        CompactMappingStore compressed = new CompactMappingStore(corpus.size(), UrlCanonicalizer.exact(), true);
+        for (int i = 0; i < corpus.size(); i++) {
+            assigned[i] = plain.putIfAbsent(codes.generate(), corpus.get(i));
+            if (i == corpus.size() / 2) {
+                compressed.retrainDictionary(corpus.size(), 1024);
+            }
+            compressed.putIfAbsent(assigned[i], corpus.get(i));
+        }
+        for (int i = 0; i < corpus.size(); i++) {
+            assertEquals(corpus.get(i), plain.get(assigned[i]));
+            assertEquals(corpus.get(i), compressed.get(assigned[i]));
+        }
+        assertTrue(compressed.compressionRatio() > 1, "compression ratio " + compressed.compressionRatio());
+    }
+
+    private static List<String> corpus() throws IOException {
+        try (InputStream in = UrlCompressionReportTests.class.getResourceAsStream("/corpus/urls.txt")) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+    }
+}
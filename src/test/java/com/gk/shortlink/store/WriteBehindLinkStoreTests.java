@@ -0,0 +1,115 @@
+package com.gk.shortlink.store;
+
+import com.gk.shortlink.dto.LinkMapping;
+import com.gk.shortlink.exception.StorageBusyException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindLinkStoreTests {
+
+    @Test
+    void putIfAbsent_CoalescesConcurrentWritesIntoFewBatches(@TempDir Path dataDir) {
+        int writes = 5_000;
+        try (WriteBehindLinkStore store = new WriteBehindLinkStore(FileLinkStore.open(dataDir, true), 10_000, 512)) {
+            List<String> codes = Flux.range(0, writes)
+                .flatMap(i -> store.putIfAbsent(String.format("c%05d", i), "https://example.com/" + i), 256)
+                .collectList()
+                .block();
+
+            assertEquals(writes, codes.size());
+            assertTrue(store.batchCount() < writes / 10, store.batchCount() + " batches for " + writes + " writes");
+            assertEquals("https://example.com/4242", store.get("c04242").block());
+        }
+    }
+
+    @Test
+    void putIfAbsent_ReportsTheDecisionOfTheDelegate(@TempDir Path dataDir) {
+        try (WriteBehindLinkStore store = new WriteBehindLinkStore(FileLinkStore.open(dataDir, false), 16, 16)) {
+            store.putIfAbsent("aaaaaa", "https://example.com/1").block();
+
+            assertEquals("aaaaaa", store.putIfAbsent("bbbbbb", "https://example.com/1").block());
+            StepVerifier.create(store.putIfAbsent("aaaaaa", "https://example.com/2")).verifyComplete();
+        }
+    }
+
+    @Test
+    void putIfAbsent_RejectsWritesWhenTheQueueIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        LinkStore stalled = new StalledLinkStore(release);
+        try (WriteBehindLinkStore store = new WriteBehindLinkStore(stalled, 2, 1)) {
+            // the first write occupies the flusher, two more fill the queue
+            store.putIfAbsent("aaaaaa", "https://example.com/1").subscribe();
+            Thread.sleep(200);
+            store.putIfAbsent("bbbbbb", "https://example.com/2").subscribe();
+            store.putIfAbsent("cccccc", "https://example.com/3").subscribe();
+
+            StepVerifier.create(store.putIfAbsent("dddddd", "https://example.com/4"))
+                .expectError(StorageBusyException.class)
+                .verify();
+            assertEquals("https://example.com/3", store.get("cccccc").block(), "Queued writes must be readable");
+            release.countDown();
+        }
+    }
+
+    private record StalledLinkStore(CountDownLatch release) implements LinkStore {
+
+        @Override
+        public Mono<List<String>> putAllIfAbsent(List<LinkMapping> mappings) {
+            return Mono.fromCallable(() -> {
+                release.await();
+                return mappings.stream().map(LinkMapping::code).toList();
+            });
+        }
+
+        @Override
+        public Mono<String> get(String code) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<String> getByUrl(String url) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Void> put(String code, String url) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<String> putIfAbsent(String code, String url) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Map<String, String>> getAll(Collection<String> codes) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Map<String, String>> getAllByUrl(Collection<String> urls) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Void> putAll(List<LinkMapping> mappings) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Flux<LinkMapping> scan() {
+            return Flux.empty();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.gk.shortlink.transfer;
+
+import com.gk.shortlink.dto.LinkMapping;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappingFormatTests {
+
+    private static final List<LinkMapping> MAPPINGS = IntStream.range(0, 500)
+        .mapToObj(i -> new LinkMapping("c" + i, "https://example.com/ü/" + i + "?q=" + "x".repeat(i),
+            i % 3 == 0 ? 1_767_225_600_000L + i : 0, i % 5 == 0 ? i << 4 | 0xA : 0))
+        .toList();
+
+    @Test
+    void binary_RoundTripsWhenSplitAtEveryBoundary() {
+        byte[] stream = concat(MappingFormat.BINARY.header(), MappingFormat.BINARY.encode(MAPPINGS));
+
+        for (int chunkSize : new int[]{1, 3, 7, 64, 4096, stream.length}) {
+            BinaryMappingDecoder decoder = new BinaryMappingDecoder();
+            List<LinkMapping> decoded = new ArrayList<>();
+            for (int offset = 0; offset < stream.length; offset += chunkSize) {
+                int length = Math.min(chunkSize, stream.length - offset);
+                decoded.addAll(decoder.decode(ByteBuffer.wrap(stream, offset, length)));
+            }
+            decoder.finish();
+            assertEquals(MAPPINGS, decoded, "Chunk size " + chunkSize);
+        }
+    }
+
+    @Test
+    void binary_RejectsTruncatedStream() {
+        byte[] stream = concat(MappingFormat.BINARY.header(), MappingFormat.BINARY.encode(MAPPINGS));
+        BinaryMappingDecoder decoder = new BinaryMappingDecoder();
+
+        decoder.decode(ByteBuffer.wrap(stream, 0, stream.length - 5));
+
+        assertThrows(IllegalArgumentException.class, decoder::finish);
+    }
+
+    @Test
+    void binary_RejectsForeignStream() {
+        BinaryMappingDecoder decoder = new BinaryMappingDecoder();
+
+        assertThrows(IllegalArgumentException.class,
+            () -> decoder.decode(ByteBuffer.wrap("{\"code\":\"abc\"}\n".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void ndjson_EscapesJsonStrings() {
+        byte[] encoded = MappingFormat.NDJSON.encode(List.of(
+            new LinkMapping("a1B2c3", "https://example.com/\"quoted\"\\path"),
+            new LinkMapping("d4E5f6", "https://example.com/2", 1767225600000L),
+            new LinkMapping("g7H8i9", "https://example.com/3", 0, 0x3A)));
+
+        assertEquals("""
+            {"code":"a1B2c3","url":"https://example.com/\\"quoted\\"\\\\path"}
+            {"code":"d4E5f6","url":"https://example.com/2","expiresAt":1767225600000}
+            {"code":"g7H8i9","url":"https://example.com/3","redirect":58}
+            """, new String(encoded, StandardCharsets.UTF_8));
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] joined = new byte[first.length + second.length];
+        System.arraycopy(first, 0, joined, 0, first.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+}